@@ -1,5 +1,9 @@
 package giovanna.projeto.livraria1;
 
+import giovanna.projeto.livraria1.services.AgendadorSimilares;
+import giovanna.projeto.livraria1.services.LivroService;
+import giovanna.projeto.livraria1.services.LivroSimilaresService;
+import giovanna.projeto.livraria1.services.ManutencaoSimilares;
 import giovanna.projeto.livraria1.util.ConnectionFactory;
 import giovanna.projeto.livraria1.view.JanelaPrincipal;
 import java.sql.Connection;
@@ -24,6 +28,12 @@ import java.util.logging.SimpleFormatter;
  * <ul>
  * <li>Configura o logger global para exibir mensagens detalhadas.</li>
  * <li>Tenta estabelecer a conexão com o banco de dados.</li>
+ * <li>Registra a manutenção das similaridades ({@link ManutencaoSimilares})
+ * como ouvinte das alterações de livros.</li>
+ * <li>Inicia, em segundo plano, a carga do grafo de livros semelhantes
+ * consultado pelas telas ({@link LivroSimilaresService}).</li>
+ * <li>Agenda o recálculo diário das similaridades e a retomada de um recálculo
+ * interrompido ({@link AgendadorSimilares}).</li>
  * <li>Exibe a janela principal da aplicação ({@link JanelaPrincipal}).</li>
  * <li>Em caso de falha de conexão, registra o erro no logger.</li>
  * </ul>
@@ -56,6 +66,11 @@ public class Livraria1Application {
 
         // Inicializa a aplicação
         try (Connection connection = ConnectionFactory.getConnection()) {
+            LivroService.adicionarOuvinte(ManutencaoSimilares.getInstancia());
+            LivroService.adicionarOuvinte(LivroSimilaresService::livroAlterado);
+            LivroSimilaresService.carregarGrafoEmSegundoPlano();
+            AgendadorSimilares.getInstancia().iniciar();
+
             // Exibe a janela principal da aplicação
             JanelaPrincipal janela = new JanelaPrincipal();
             janela.setVisible(true);
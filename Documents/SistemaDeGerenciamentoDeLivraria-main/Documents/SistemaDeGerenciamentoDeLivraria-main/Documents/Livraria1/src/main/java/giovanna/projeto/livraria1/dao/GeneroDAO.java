@@ -2,10 +2,12 @@ package giovanna.projeto.livraria1.dao;
 
 import giovanna.projeto.livraria1.model.Genero;
 import giovanna.projeto.livraria1.util.ConnectionFactory;
+import giovanna.projeto.livraria1.util.GeneroCache;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,6 +19,10 @@ import java.util.List;
  * na base de dados. Ela utiliza consultas SQL predefinidas e se conecta ao
  * banco de dados por meio da classe {@link ConnectionFactory}.
  *
+ * As gravações (salvar, atualizar e excluir) também atualizam o
+ * {@link GeneroCache}, usado pelo restante da aplicação para consultar os
+ * gêneros sem acessar o banco.
+ *
  * @author Giovanna
  */
 public class GeneroDAO {
@@ -59,7 +65,8 @@ public class GeneroDAO {
      *
      * Este método executa uma consulta SQL do tipo {@code INSERT} para salvar
      * um novo gênero no banco de dados. O gênero a ser salvo é passado como
-     * parâmetro e seus dados são inseridos na tabela generos.
+     * parâmetro e seus dados são inseridos na tabela generos. O ID gerado é
+     * informado no próprio objeto.
      *
      * @param genero O objeto {@link Genero} contendo os dados do gênero a ser
      * salvo.
@@ -67,10 +74,19 @@ public class GeneroDAO {
      */
     // Salva o novo gênero na base de dados. Primeiro tenta realizar a conexão e então executa o SQL informado.
     public void salvaGenero(Genero genero) throws SQLException {
-        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareCall(SQL_SALVA_GENERO)) {
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(SQL_SALVA_GENERO, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, genero.getNome());
             stmt.executeUpdate();
 
+            // Obtém o ID gerado para manter o cache de gêneros atualizado
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    genero.setId(generatedKeys.getInt(1));
+                    GeneroCache.registrar(genero);
+                } else {
+                    GeneroCache.invalidar();
+                }
+            }
         }
     }
 
@@ -92,6 +108,7 @@ public class GeneroDAO {
             stmt.setInt(2, genero.getId());
             stmt.executeUpdate();
         }
+        GeneroCache.registrar(genero); // Substitui o nome anterior no cache
     }
 
     /**
@@ -109,6 +126,7 @@ public class GeneroDAO {
             stmt.setInt(1, id);
             stmt.executeUpdate();
         }
+        GeneroCache.remover(id);
     }
 
     public String buscarNomeGeneroPorId(int id) throws SQLException {
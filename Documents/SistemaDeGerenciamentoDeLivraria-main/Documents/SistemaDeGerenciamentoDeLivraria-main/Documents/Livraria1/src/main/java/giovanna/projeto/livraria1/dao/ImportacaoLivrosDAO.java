@@ -0,0 +1,213 @@
+package giovanna.projeto.livraria1.dao;
+
+import giovanna.projeto.livraria1.util.ConnectionFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * A classe <code>ImportacaoLivrosDAO</code> grava no banco os livros de uma
+ * importação em massa.
+ *
+ * <p>
+ * Toda a importação ocorre numa única conexão e numa única transação: os
+ * registros são enviados pelo protocolo {@code COPY} para uma tabela
+ * temporária ({@code livros_importacao}, descartada no fim da transação) e, ao
+ * final, incluídos na tabela {@code livros} com uma única instrução. Registros
+ * cujo ISBN já está cadastrado, ou se repete no arquivo, são ignorados e
+ * informados por {@link #listarRecusados(ConsumidorRecusado)}. Se algo falhar,
+ * nada é gravado.
+ * </p>
+ * <p>
+ * Uso: {@link #iniciar()}, várias chamadas de {@link #copiar(byte[])},
+ * {@link #concluirCopia()}, {@link #listarRecusados(ConsumidorRecusado)},
+ * {@link #mesclar(IntConsumer)}, {@link #confirmar()} e, sempre, {@link #close()}.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class ImportacaoLivrosDAO implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportacaoLivrosDAO.class.getName());
+
+    private static final String CRIA_TABELA_SQL
+            = "CREATE TEMP TABLE livros_importacao ("
+            + "linha BIGINT NOT NULL, titulo VARCHAR(80), autor VARCHAR(80), editora VARCHAR(50), "
+            + "genero_id INTEGER, isbn VARCHAR(13), data_publicacao DATE) ON COMMIT DROP";
+    private static final String COPY_SQL
+            = "COPY livros_importacao (linha, titulo, autor, editora, genero_id, isbn, data_publicacao) FROM STDIN";
+    // Ordem de cada registro entre os que têm o mesmo ISBN no arquivo (1 = primeira ocorrência)
+    private static final String REGISTROS_NUMERADOS_SQL
+            = "(SELECT s.*, row_number() OVER (PARTITION BY s.isbn ORDER BY s.linha) AS ordem FROM livros_importacao s) s";
+    private static final String RECUSADOS_SQL
+            = "SELECT s.linha, s.isbn, s.ordem > 1 AS repetido FROM " + REGISTROS_NUMERADOS_SQL
+            + " WHERE s.ordem > 1 OR EXISTS (SELECT 1 FROM livros l WHERE l.isbn = s.isbn) ORDER BY s.linha";
+    private static final String MESCLA_SQL
+            = "INSERT INTO livros (titulo, autor, editora, genero_id, isbn, data_publicacao, data_inclusao) "
+            + "SELECT s.titulo, s.autor, s.editora, s.genero_id, s.isbn, s.data_publicacao, CURRENT_DATE FROM "
+            + REGISTROS_NUMERADOS_SQL + " WHERE s.ordem = 1 ORDER BY s.linha "
+            + "ON CONFLICT (isbn) DO NOTHING RETURNING etiqueta_livro";
+
+    /**
+     * Recebe os registros recusados na inclusão.
+     */
+    @FunctionalInterface
+    public interface ConsumidorRecusado {
+
+        /**
+         * Processa um registro recusado.
+         *
+         * @param linha Linha do registro no arquivo.
+         * @param isbn ISBN do registro.
+         * @param motivo Motivo da recusa.
+         * @throws Exception Caso ocorra erro ao processar o registro.
+         */
+        void aceitar(long linha, String isbn, String motivo) throws Exception;
+    }
+
+    private Connection connection;
+    private CopyIn copia;
+
+    /**
+     * Construtor padrão.
+     */
+    public ImportacaoLivrosDAO() {
+    }
+
+    /**
+     * Abre a conexão e a transação, cria a tabela temporária e inicia o
+     * {@code COPY}.
+     *
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public void iniciar() throws SQLException {
+        try {
+            connection = ConnectionFactory.getConnection();
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(CRIA_TABELA_SQL);
+            }
+            copia = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao iniciar a importação de livros", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Envia um bloco de registros no formato texto do {@code COPY} (campos
+     * separados por tabulação, um registro por linha, nulos como
+     * {@code \N}).
+     *
+     * @param bloco Registros codificados em UTF-8.
+     * @throws SQLException Caso ocorra um erro ao enviar os dados.
+     */
+    public void copiar(byte[] bloco) throws SQLException {
+        copia.writeToCopy(bloco, 0, bloco.length);
+    }
+
+    /**
+     * Encerra o {@code COPY} e atualiza as estatísticas da tabela temporária,
+     * para que o planejador escolha bons planos nas etapas seguintes.
+     *
+     * @return Quantidade de registros copiados.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public long concluirCopia() throws SQLException {
+        long copiados = copia.endCopy();
+        copia = null;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ANALYZE livros_importacao");
+        }
+        return copiados;
+    }
+
+    /**
+     * Lista os registros que não serão incluídos: ISBN já cadastrado ou
+     * repetido no arquivo (apenas a primeira ocorrência é incluída).
+     *
+     * @param consumidor Recebe cada registro recusado, na ordem do arquivo.
+     * @throws SQLException Caso ocorra um erro ao consultar o banco ou ao
+     * processar um registro.
+     */
+    public void listarRecusados(ConsumidorRecusado consumidor) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(RECUSADOS_SQL)) {
+            stmt.setFetchSize(1000);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String isbn = rs.getString("isbn");
+                    consumidor.aceitar(rs.getLong("linha"), isbn,
+                            rs.getBoolean("repetido") ? "ISBN repetido no arquivo: " + isbn : "ISBN já cadastrado: " + isbn);
+                }
+            }
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Erro ao processar os registros recusados: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Inclui os registros da tabela temporária na tabela de livros, na ordem
+     * do arquivo.
+     *
+     * @param incluidos Recebe a etiqueta gerada de cada livro incluído.
+     * @return Quantidade de livros incluídos.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public int mesclar(IntConsumer incluidos) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(1000);
+            int quantidade = 0;
+            try (ResultSet rs = stmt.executeQuery(MESCLA_SQL)) {
+                while (rs.next()) {
+                    incluidos.accept(rs.getInt(1));
+                    quantidade++;
+                }
+            }
+            return quantidade;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao incluir os livros importados", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Confirma a transação da importação.
+     *
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public void confirmar() throws SQLException {
+        connection.commit();
+    }
+
+    /**
+     * Cancela o {@code COPY} em andamento, se houver, e devolve a conexão. Sem
+     * {@link #confirmar()}, a transação é desfeita.
+     *
+     * @throws SQLException Caso ocorra um erro ao fechar a conexão.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (connection == null) {
+            return;
+        }
+        try {
+            if (copia != null && copia.isActive()) {
+                copia.cancelCopy();
+            }
+            connection.rollback(); // Sem efeito após confirmar()
+        } finally {
+            connection.close();
+            connection = null;
+            copia = null;
+        }
+    }
+}
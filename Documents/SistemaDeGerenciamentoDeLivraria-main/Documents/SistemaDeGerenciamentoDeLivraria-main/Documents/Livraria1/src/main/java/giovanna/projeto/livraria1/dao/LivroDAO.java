@@ -1,12 +1,25 @@
 package giovanna.projeto.livraria1.dao;
 
 import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.model.ResultadoInsercao;
 import giovanna.projeto.livraria1.util.ConnectionFactory;
+import giovanna.projeto.livraria1.util.ConsultaCancelavel;
+import giovanna.projeto.livraria1.util.SequenciaLivros;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,6 +52,120 @@ public class LivroDAO {
     private static final String SELECT_LIVRO_ETIQUETA_SQL = SELECT_LIVRO_SQL + " WHERE etiqueta_livro = ?";
     private static final String SELECT_LIVRO_POR_ISBN_SQL = SELECT_LIVRO_SQL + " WHERE isbn = ?";
     private static final String DELETE_LIVRO_SQL = "DELETE FROM livros WHERE etiqueta_livro = ?";
+    private static final String INSERT_LIVROS_LOTE_SQL
+            = "INSERT INTO livros (titulo, autor, editora, genero_id, isbn, data_publicacao, data_inclusao) VALUES ";
+    private static final String INSERT_LIVROS_LOTE_RETORNO_SQL
+            = " ON CONFLICT (isbn) DO NOTHING RETURNING etiqueta_livro, isbn";
+    private static final String SELECT_LIVROS_INCOMPLETOS_SQL = SELECT_LIVRO_SQL
+            + " WHERE l.isbn IS NOT NULL AND (l.titulo ILIKE ? OR l.autor ILIKE ? OR l.editora ILIKE ? OR l.data_publicacao IS NULL)"
+            + " ORDER BY l.etiqueta_livro";
+    private static final String SELECT_LIVROS_POR_ETIQUETAS_SQL = SELECT_LIVRO_SQL
+            + " WHERE l.etiqueta_livro = ANY (?) ORDER BY l.etiqueta_livro";
+    private static final String SELECT_LIVROS_POR_ISBNS_SQL = SELECT_LIVRO_SQL
+            + " WHERE l.isbn = ANY (?) ORDER BY l.etiqueta_livro";
+    private static final String UPDATE_DADOS_BASICOS_SQL
+            = "UPDATE livros SET titulo = ?, autor = ?, editora = ?, data_publicacao = ? WHERE etiqueta_livro = ?";
+    private static final String RESERVA_ETIQUETAS_SQL
+            = "SELECT nextval('seq_etiqueta_livro') FROM generate_series(1, ?)";
+
+    /**
+     * Quantidade padrão de livros por transação na inserção em lote.
+     */
+    public static final int TAMANHO_LOTE_INSERCAO_PADRAO = 1000;
+
+    // Parâmetros de cada livro na inserção e limite de livros por instrução
+    // (o protocolo do PostgreSQL aceita no máximo 32767 parâmetros por instrução)
+    private static final int PARAMETROS_POR_LIVRO = 7;
+    private static final int MAXIMO_LIVROS_POR_INSTRUCAO = 4000;
+
+    /**
+     * Quantidade máxima de livros retornados pela busca por texto.
+     */
+    public static final int LIMITE_BUSCA_PADRAO = 200;
+
+    // Livros de um conjunto de gêneros, na ordem do relatório
+    private static final String SELECT_LIVROS_POR_GENEROS_SQL
+            = "SELECT l.titulo, l.autor, g.nome AS genero_nome, l.isbn, l.editora, l.data_publicacao "
+            + "FROM livros l JOIN generos g ON l.genero_id = g.id "
+            + "WHERE l.genero_id = ANY (?) "
+            + "ORDER BY g.nome, l.titulo, l.etiqueta_livro";
+
+    // Quantidade de linhas trazidas do servidor por vez ao percorrer um cursor
+    private static final int TAMANHO_LOTE_CURSOR = 1000;
+
+    /**
+     * Recebe, uma a uma, as linhas de uma consulta percorrida por cursor.
+     */
+    @FunctionalInterface
+    public interface ConsumidorLivro {
+
+        /**
+         * Processa um livro lido do banco.
+         *
+         * @param livro Livro lido.
+         * @throws IOException Caso ocorra um erro ao gravar o livro.
+         */
+        void aceitar(Livro livro) throws IOException;
+    }
+
+    // Formatos de data aceitos pela busca por texto
+    private static final DateTimeFormatter[] FORMATOS_DATA_BUSCA = {
+        DateTimeFormatter.ofPattern("dd/MM/uuuu").withResolverStyle(ResolverStyle.STRICT),
+        DateTimeFormatter.ISO_LOCAL_DATE
+    };
+
+    /**
+     * Colunas pelas quais a listagem paginada pode ser ordenada no servidor.
+     *
+     * <p>
+     * Cada coluna é combinada com a etiqueta para formar a chave da paginação
+     * por posição (keyset): a próxima página começa logo após a chave do
+     * último livro da página anterior, sem {@code OFFSET}. Valores nulos são
+     * substituídos por um valor mínimo, da mesma forma que nos índices
+     * {@code idx_livros_*_etiqueta} do script de criação, para que a consulta
+     * percorra o índice em vez de ordenar a tabela inteira.
+     * </p>
+     */
+    public enum Ordenacao {
+        ETIQUETA(null),
+        TITULO("COALESCE(l.titulo, '')"),
+        AUTOR("COALESCE(l.autor, '')"),
+        EDITORA("COALESCE(l.editora, '')"),
+        ISBN("COALESCE(l.isbn, '')"),
+        DATA_PUBLICACAO("COALESCE(l.data_publicacao, DATE '0001-01-01')");
+
+        private static final LocalDate DATA_MINIMA = LocalDate.of(1, 1, 1);
+
+        private final String expressao; // Expressão SQL da chave (null quando a chave é só a etiqueta)
+
+        Ordenacao(String expressao) {
+            this.expressao = expressao;
+        }
+
+        /**
+         * Obtém o valor da chave de ordenação de um livro, com a mesma
+         * substituição de nulos usada na expressão SQL.
+         *
+         * @param livro Livro de onde a chave será extraída.
+         * @return Valor da chave, ou null para {@link #ETIQUETA}.
+         */
+        public Comparable<?> valorChave(Livro livro) {
+            return switch (this) {
+                case ETIQUETA ->
+                    null;
+                case TITULO ->
+                    Objects.toString(livro.getTitulo(), "");
+                case AUTOR ->
+                    Objects.toString(livro.getAutor(), "");
+                case EDITORA ->
+                    Objects.toString(livro.getEditora(), "");
+                case ISBN ->
+                    Objects.toString(livro.getIsbn(), "");
+                case DATA_PUBLICACAO ->
+                    livro.getData_publicacao() != null ? livro.getData_publicacao() : DATA_MINIMA;
+            };
+        }
+    }
 
     /**
      * Construtor vazio da classe
@@ -53,7 +180,7 @@ public class LivroDAO {
      * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
      */
     public void inserirLivro(Livro livro) throws SQLException {
-        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(INSERT_LIVRO_SQL, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(INSERT_LIVRO_SQL, new String[]{"etiqueta_livro"})) {
 
             preencherStatementParaInsercao(stmt, livro);
             stmt.executeUpdate();
@@ -72,6 +199,209 @@ public class LivroDAO {
         }
     }
 
+    /**
+     * Insere vários livros no banco de dados, em lotes de
+     * {@value #TAMANHO_LOTE_INSERCAO_PADRAO}.
+     *
+     * @param livros Livros a inserir, com o ID do gênero preenchido.
+     * @return Livros inseridos e recusados.
+     * @throws SQLException Caso não seja possível obter a conexão com o banco.
+     * @see #inserirLivros(List, int)
+     */
+    public ResultadoInsercao inserirLivros(List<Livro> livros) throws SQLException {
+        return inserirLivros(livros, TAMANHO_LOTE_INSERCAO_PADRAO);
+    }
+
+    /**
+     * Insere vários livros no banco de dados, em lotes.
+     *
+     * <p>
+     * Cada lote de até {@code tamanhoLote} livros é gravado numa única
+     * transação, com instruções {@code INSERT} de várias linhas
+     * ({@code VALUES (...), (...), ...}) e {@code RETURNING etiqueta_livro}, de
+     * forma que um lote custa uma ida ao banco (ou poucas, em lotes muito
+     * grandes) em vez de uma por livro. As etiquetas geradas são informadas
+     * nos próprios objetos.
+     * </p>
+     * <p>
+     * Livros cujo ISBN já está cadastrado, ou se repete na lista, são
+     * recusados sem interromper o lote. Se um lote falhar por outro motivo
+     * (por exemplo, um título maior que a coluna), ele é desfeito e seus
+     * livros são inseridos um a um, para que apenas os livros com problema
+     * sejam recusados.
+     * </p>
+     *
+     * @param livros Livros a inserir, com o ID do gênero preenchido.
+     * @param tamanhoLote Quantidade de livros por transação.
+     * @return Livros inseridos e recusados (as posições se referem à lista
+     * recebida).
+     * @throws SQLException Caso não seja possível obter a conexão com o banco.
+     */
+    public ResultadoInsercao inserirLivros(List<Livro> livros, int tamanhoLote) throws SQLException {
+        ResultadoInsercao resultado = new ResultadoInsercao();
+
+        // Separa os livros que podem ser enviados ao banco
+        List<Integer> candidatos = new ArrayList<>(livros.size());
+        Set<String> isbnsVistos = new HashSet<>();
+        for (int i = 0; i < livros.size(); i++) {
+            Livro livro = livros.get(i);
+            if (livro.getIsbn() == null) {
+                resultado.adicionarFalha(i, livro, "ISBN é obrigatório.");
+            } else if (!isbnsVistos.add(livro.getIsbn())) {
+                resultado.adicionarFalha(i, livro, "ISBN repetido na lista: " + livro.getIsbn());
+            } else {
+                candidatos.add(i);
+            }
+        }
+
+        Date dataInclusao = Date.valueOf(LocalDate.now());
+        try (Connection connection = ConnectionFactory.getConnection()) {
+            connection.setAutoCommit(false); // Uma transação por lote
+
+            for (int inicio = 0; inicio < candidatos.size(); inicio += tamanhoLote) {
+                List<Integer> lote = candidatos.subList(inicio, Math.min(inicio + tamanhoLote, candidatos.size()));
+                try {
+                    Map<String, Integer> etiquetas = new HashMap<>();
+                    for (int i = 0; i < lote.size(); i += MAXIMO_LIVROS_POR_INSTRUCAO) {
+                        List<Integer> parte = lote.subList(i, Math.min(i + MAXIMO_LIVROS_POR_INSTRUCAO, lote.size()));
+                        executarInsercaoMultipla(connection, livros, parte, dataInclusao, etiquetas);
+                    }
+                    connection.commit();
+                    registrarResultadoLote(livros, lote, etiquetas, resultado);
+                } catch (SQLException e) {
+                    connection.rollback();
+                    LOGGER.log(Level.WARNING, "Falha no lote de " + lote.size() + " livros; inserindo um a um", e);
+                    inserirUmAUm(connection, livros, lote, dataInclusao, resultado);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro na inserção em lote de livros", e);
+            throw e;
+        }
+        LOGGER.log(Level.INFO, "Inserção em lote concluída: {0}", resultado);
+        return resultado;
+    }
+
+    /**
+     * Executa uma instrução {@code INSERT} de várias linhas e acumula as
+     * etiquetas geradas, por ISBN.
+     *
+     * @param connection Conexão da transação do lote.
+     * @param livros Lista completa de livros.
+     * @param indices Posições, na lista, dos livros desta instrução.
+     * @param dataInclusao Data de inclusão gravada nos livros.
+     * @param etiquetas Recebe as etiquetas geradas, por ISBN.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    private void executarInsercaoMultipla(Connection connection, List<Livro> livros, List<Integer> indices,
+            Date dataInclusao, Map<String, Integer> etiquetas) throws SQLException {
+        StringBuilder sql = new StringBuilder(INSERT_LIVROS_LOTE_SQL);
+        for (int i = 0; i < indices.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?)");
+        }
+        sql.append(INSERT_LIVROS_LOTE_RETORNO_SQL);
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+            int offset = 0;
+            for (int indice : indices) {
+                preencherParametros(stmt, offset, livros.get(indice), dataInclusao);
+                offset += PARAMETROS_POR_LIVRO;
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    etiquetas.put(rs.getString("isbn"), rs.getInt("etiqueta_livro"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Registra o resultado de um lote gravado: livros que receberam etiqueta
+     * foram inseridos; os demais tinham ISBN já cadastrado.
+     *
+     * @param livros Lista completa de livros.
+     * @param indices Posições, na lista, dos livros do lote.
+     * @param etiquetas Etiquetas geradas, por ISBN.
+     * @param resultado Resultado da inserção em lote.
+     */
+    private void registrarResultadoLote(List<Livro> livros, List<Integer> indices, Map<String, Integer> etiquetas,
+            ResultadoInsercao resultado) {
+        for (int indice : indices) {
+            Livro livro = livros.get(indice);
+            Integer etiqueta = etiquetas.get(livro.getIsbn());
+            if (etiqueta != null) {
+                livro.setEtiqueta_livro(etiqueta);
+                resultado.adicionarInserido(livro);
+            } else {
+                resultado.adicionarFalha(indice, livro, "ISBN já cadastrado: " + livro.getIsbn());
+            }
+        }
+    }
+
+    /**
+     * Insere os livros de um lote que falhou, um por transação, recusando
+     * apenas os que provocarem erro.
+     *
+     * @param connection Conexão (com autocommit desligado).
+     * @param livros Lista completa de livros.
+     * @param indices Posições, na lista, dos livros do lote.
+     * @param dataInclusao Data de inclusão gravada nos livros.
+     * @param resultado Resultado da inserção em lote.
+     * @throws SQLException Caso não seja possível desfazer uma transação.
+     */
+    private void inserirUmAUm(Connection connection, List<Livro> livros, List<Integer> indices, Date dataInclusao,
+            ResultadoInsercao resultado) throws SQLException {
+        for (int indice : indices) {
+            try {
+                Map<String, Integer> etiquetas = new HashMap<>();
+                executarInsercaoMultipla(connection, livros, List.of(indice), dataInclusao, etiquetas);
+                connection.commit();
+                registrarResultadoLote(livros, List.of(indice), etiquetas, resultado);
+            } catch (SQLException e) {
+                connection.rollback();
+                resultado.adicionarFalha(indice, livros.get(indice), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reserva um bloco de etiquetas na sequência {@code seq_etiqueta_livro}
+     * com uma única consulta.
+     *
+     * <p>
+     * Útil para cargas em lote: as etiquetas reservadas podem ser informadas
+     * diretamente no INSERT, sem depender do valor padrão da coluna. Os
+     * valores são únicos, mas não necessariamente contíguos quando há outras
+     * inserções concorrentes; etiquetas reservadas e não utilizadas são
+     * simplesmente descartadas.
+     * </p>
+     *
+     * @param quantidade Quantidade de etiquetas a reservar.
+     * @return Etiquetas reservadas, em ordem crescente.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public int[] reservarEtiquetas(int quantidade) throws SQLException {
+        if (quantidade <= 0) {
+            return new int[0];
+        }
+        int[] etiquetas = new int[quantidade];
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(RESERVA_ETIQUETAS_SQL)) {
+
+            stmt.setInt(1, quantidade);
+            try (ResultSet rs = stmt.executeQuery()) {
+                int i = 0;
+                while (rs.next()) {
+                    etiquetas[i++] = rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao reservar etiquetas: " + quantidade, e);
+            throw e;
+        }
+        Arrays.sort(etiquetas);
+        return etiquetas;
+    }
+
     /**
      * Atualiza as informações de um livro existente no banco de dados.
      *
@@ -94,6 +424,46 @@ public class LivroDAO {
         }
     }
 
+    /**
+     * Atualiza título, autor, editora e data de publicação de vários livros
+     * numa única transação, com as instruções enviadas em lote
+     * ({@code executeBatch}).
+     *
+     * @param livros Livros com os novos dados e a etiqueta preenchida.
+     * @return Quantidade de livros atualizados.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco
+     * (nesse caso, nenhum livro é atualizado).
+     */
+    public int atualizarDadosBasicos(List<Livro> livros) throws SQLException {
+        if (livros.isEmpty()) {
+            return 0;
+        }
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(UPDATE_DADOS_BASICOS_SQL)) {
+            connection.setAutoCommit(false);
+            for (Livro livro : livros) {
+                stmt.setString(1, livro.getTitulo());
+                stmt.setString(2, livro.getAutor());
+                stmt.setString(3, livro.getEditora());
+                if (livro.getData_publicacao() != null) {
+                    stmt.setDate(4, Date.valueOf(livro.getData_publicacao()));
+                } else {
+                    stmt.setNull(4, Types.DATE);
+                }
+                stmt.setInt(5, livro.getEtiqueta_livro());
+                stmt.addBatch();
+            }
+            int atualizados = 0;
+            for (int linhas : stmt.executeBatch()) {
+                atualizados += Math.max(linhas, 0);
+            }
+            connection.commit();
+            return atualizados;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao atualizar os dados de " + livros.size() + " livros", e);
+            throw e;
+        }
+    }
+
     /**
      * Exclui um livro do banco de dados.
      *
@@ -136,6 +506,211 @@ public class LivroDAO {
         return livros;
     }
 
+    /**
+     * Lista uma página de livros usando paginação por posição (keyset).
+     *
+     * <p>
+     * A página seguinte é obtida informando o último livro da página anterior
+     * como cursor. O custo de cada página depende apenas do tamanho da página,
+     * e não da quantidade de livros cadastrados nem da posição da página.
+     * </p>
+     *
+     * @param ordenacao Coluna de ordenação.
+     * @param decrescente true para ordem decrescente.
+     * @param ultimo Último livro da página anterior, ou null para a primeira
+     * página.
+     * @param tamanho Quantidade máxima de livros da página.
+     * @return Livros da página, na ordem solicitada.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public List<Livro> consultaLivrosPagina(Ordenacao ordenacao, boolean decrescente, Livro ultimo, int tamanho) throws SQLException {
+        String direcao = decrescente ? " DESC" : " ASC";
+        StringBuilder sql = new StringBuilder(SELECT_LIVRO_SQL);
+
+        // Condição do cursor: linhas estritamente após a chave do último livro
+        if (ultimo != null) {
+            String comparador = decrescente ? " < " : " > ";
+            if (ordenacao.expressao == null) {
+                sql.append(" WHERE l.etiqueta_livro").append(comparador).append("?");
+            } else {
+                sql.append(" WHERE (").append(ordenacao.expressao).append(", l.etiqueta_livro)")
+                        .append(comparador).append("(?, ?)");
+            }
+        }
+        sql.append(" ORDER BY ");
+        if (ordenacao.expressao != null) {
+            sql.append(ordenacao.expressao).append(direcao).append(", ");
+        }
+        sql.append("l.etiqueta_livro").append(direcao).append(" LIMIT ?");
+
+        List<Livro> livros = new ArrayList<>(tamanho);
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+
+            int index = 1;
+            if (ultimo != null) {
+                if (ordenacao.expressao != null) {
+                    stmt.setObject(index++, ordenacao.valorChave(ultimo));
+                }
+                stmt.setInt(index++, ultimo.getEtiqueta_livro());
+            }
+            stmt.setInt(index, tamanho);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    livros.add(criarLivroDoResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao listar a página de livros ordenada por " + ordenacao, e);
+            throw e;
+        }
+        return livros;
+    }
+
+    /**
+     * Percorre os livros dos gêneros informados, ordenados por gênero e
+     * título, entregando cada um ao consumidor assim que é lido.
+     *
+     * <p>
+     * A consulta é lida por um cursor no servidor ({@code fetchSize} com o
+     * autocommit desligado), de forma que apenas um lote de
+     * {@value #TAMANHO_LOTE_CURSOR} linhas fica em memória por vez,
+     * independentemente do tamanho do resultado.
+     * </p>
+     *
+     * @param generoIds IDs dos gêneros.
+     * @param consumidor Recebe cada livro lido.
+     * @return Quantidade de livros lidos.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     * @throws IOException Caso o consumidor falhe ao processar um livro.
+     */
+    public long percorrerLivrosPorGeneros(Integer[] generoIds, ConsumidorLivro consumidor) throws SQLException, IOException {
+        try (CursorLivros cursor = abrirCursorLivrosPorGeneros(generoIds)) {
+            for (Livro livro = cursor.proximo(); livro != null; livro = cursor.proximo()) {
+                consumidor.aceitar(livro);
+            }
+            return cursor.getQuantidade();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao percorrer livros por gêneros: " + Arrays.toString(generoIds), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Abre um cursor sobre os livros dos gêneros informados, ordenados por
+     * gênero e título, para quem precisa pedir as linhas uma a uma (como o
+     * preenchimento de um relatório Jasper), em vez de recebê-las.
+     *
+     * <p>
+     * Como em {@link #percorrerLivrosPorGeneros}, apenas um lote de
+     * {@value #TAMANHO_LOTE_CURSOR} linhas fica em memória por vez. O cursor
+     * mantém uma conexão emprestada até ser fechado.
+     * </p>
+     *
+     * @param generoIds IDs dos gêneros.
+     * @return Cursor posicionado antes do primeiro livro; deve ser fechado.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public CursorLivros abrirCursorLivrosPorGeneros(Integer[] generoIds) throws SQLException {
+        return abrirCursorLivrosPorGeneros(generoIds, null);
+    }
+
+    /**
+     * Abre um cursor sobre os livros dos gêneros informados, permitindo
+     * cancelar a consulta a partir de outra thread enquanto o cursor é lido.
+     *
+     * @param generoIds IDs dos gêneros.
+     * @param cancelamento Controle de cancelamento da consulta (pode ser
+     * null). Fica registrado até o cursor ser fechado.
+     * @return Cursor posicionado antes do primeiro livro; deve ser fechado.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco
+     * ou a consulta seja cancelada (SQLState
+     * {@value ConsultaCancelavel#SQLSTATE_CANCELADA}).
+     */
+    public CursorLivros abrirCursorLivrosPorGeneros(Integer[] generoIds, ConsultaCancelavel cancelamento) throws SQLException {
+        Connection connection = ConnectionFactory.getConnection();
+        PreparedStatement stmt = null;
+        try {
+            // O driver só usa cursor (busca em lotes) dentro de uma transação
+            connection.setAutoCommit(false);
+            stmt = connection.prepareStatement(SELECT_LIVROS_POR_GENEROS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(TAMANHO_LOTE_CURSOR);
+            stmt.setArray(1, connection.createArrayOf("integer", generoIds));
+            if (cancelamento != null) {
+                cancelamento.registrar(stmt); // A partir daqui, cancelar() interrompe a consulta
+            }
+            return new CursorLivros(connection, stmt, stmt.executeQuery(), cancelamento);
+        } catch (SQLException e) {
+            if (cancelamento != null) {
+                cancelamento.liberar();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+            connection.close();
+            if (ConsultaCancelavel.isCancelamento(e)) {
+                LOGGER.log(Level.FINE, "Cursor de livros cancelado: {0}", Arrays.toString(generoIds));
+            } else {
+                LOGGER.log(Level.SEVERE, "Erro ao abrir o cursor de livros por gêneros: " + Arrays.toString(generoIds), e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Cursor sobre o resultado de uma consulta de livros, lido sob demanda.
+     * Fechar o cursor devolve a conexão; por ser somente leitura, a transação
+     * do cursor é desfeita nesse momento.
+     */
+    public static final class CursorLivros implements SequenciaLivros, AutoCloseable {
+
+        private final Connection connection;
+        private final PreparedStatement stmt;
+        private final ResultSet rs;
+        private final ConsultaCancelavel cancelamento;
+        private long quantidade;
+
+        private CursorLivros(Connection connection, PreparedStatement stmt, ResultSet rs, ConsultaCancelavel cancelamento) {
+            this.connection = connection;
+            this.stmt = stmt;
+            this.rs = rs;
+            this.cancelamento = cancelamento;
+        }
+
+        @Override
+        public Livro proximo() throws SQLException {
+            if (!rs.next()) {
+                return null;
+            }
+            quantidade++;
+            Livro livro = new Livro();
+            livro.setTitulo(rs.getString("titulo"));
+            livro.setAutor(rs.getString("autor"));
+            livro.setGeneroNome(rs.getString("genero_nome"));
+            livro.setIsbn(rs.getString("isbn"));
+            livro.setEditora(rs.getString("editora"));
+            Date dataSQL = rs.getDate("data_publicacao");
+            livro.setData_publicacao(dataSQL != null ? dataSQL.toLocalDate() : null);
+            return livro;
+        }
+
+        @Override
+        public long getQuantidade() {
+            return quantidade;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (cancelamento != null) {
+                cancelamento.liberar(); // Um cancelamento tardio não alcança o Statement fechado
+            }
+            try (connection; stmt; rs) {
+                // Fecha o resultado, a instrução e a conexão, nesta ordem
+            }
+        }
+    }
+
     /**
      * Busca um livro por etiqueta (chave primária).
      *
@@ -191,6 +766,79 @@ public class LivroDAO {
         return livro;
     }
 
+    /**
+     * Lista os livros com ISBN cujo título, autor ou editora contém o
+     * marcador informado (por exemplo, "não disponível", usado quando a Open
+     * Library não traz o dado) ou que estão sem data de publicação.
+     *
+     * @param marcador Texto que indica dado ausente.
+     * @return Livros encontrados, ordenados pela etiqueta.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public List<Livro> listarLivrosIncompletos(String marcador) throws SQLException {
+        String padrao = "%" + marcador + "%";
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(SELECT_LIVROS_INCOMPLETOS_SQL)) {
+            stmt.setString(1, padrao);
+            stmt.setString(2, padrao);
+            stmt.setString(3, padrao);
+            return listarLivros(stmt);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao listar os livros incompletos", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Busca vários livros pelas etiquetas, numa única consulta.
+     *
+     * @param etiquetas Etiquetas dos livros.
+     * @return Livros encontrados, ordenados pela etiqueta.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public List<Livro> buscarLivrosPorEtiquetas(List<Integer> etiquetas) throws SQLException {
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(SELECT_LIVROS_POR_ETIQUETAS_SQL)) {
+            stmt.setArray(1, connection.createArrayOf("integer", etiquetas.toArray()));
+            return listarLivros(stmt);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao buscar livros por etiquetas", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Busca vários livros pelos ISBNs, numa única consulta.
+     *
+     * @param isbns ISBNs dos livros.
+     * @return Livros encontrados, ordenados pela etiqueta.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public List<Livro> buscarLivrosPorIsbns(List<String> isbns) throws SQLException {
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(SELECT_LIVROS_POR_ISBNS_SQL)) {
+            stmt.setArray(1, connection.createArrayOf("varchar", isbns.toArray()));
+            return listarLivros(stmt);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao buscar livros por ISBNs", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Executa a consulta e converte todas as linhas em livros.
+     *
+     * @param stmt Consulta com os parâmetros preenchidos.
+     * @return Livros encontrados.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    private List<Livro> listarLivros(PreparedStatement stmt) throws SQLException {
+        List<Livro> livros = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                livros.add(criarLivroDoResultSet(rs));
+            }
+        }
+        return livros;
+    }
+
     /**
      * Busca um livro pelo ISBN.
      *
@@ -219,17 +867,31 @@ public class LivroDAO {
      * @throws SQLException Caso ocorra um erro ao definir os parâmetros.
      */
     private void preencherStatementParaInsercao(PreparedStatement stmt, Livro livro) throws SQLException {
-        stmt.setString(1, livro.getTitulo());
-        stmt.setString(2, livro.getAutor());
-        stmt.setString(3, livro.getEditora());
-        stmt.setInt(4, livro.getGenero_id()); // Usa o ID do gênero
-        stmt.setString(5, livro.getIsbn());
+        preencherParametros(stmt, 0, livro, Date.valueOf(LocalDate.now()));
+    }
+
+    /**
+     * Preenche os parâmetros de um livro a partir de uma posição do
+     * {@link PreparedStatement}, na ordem das colunas da inserção.
+     *
+     * @param stmt Objeto PreparedStatement.
+     * @param offset Quantidade de parâmetros antes dos deste livro.
+     * @param livro Objeto Livro contendo os dados.
+     * @param dataInclusao Data de inclusão.
+     * @throws SQLException Caso ocorra um erro ao definir os parâmetros.
+     */
+    private void preencherParametros(PreparedStatement stmt, int offset, Livro livro, Date dataInclusao) throws SQLException {
+        stmt.setString(offset + 1, livro.getTitulo());
+        stmt.setString(offset + 2, livro.getAutor());
+        stmt.setString(offset + 3, livro.getEditora());
+        stmt.setInt(offset + 4, livro.getGenero_id()); // Usa o ID do gênero
+        stmt.setString(offset + 5, livro.getIsbn());
         if (livro.getData_publicacao() != null) {
-            stmt.setDate(6, Date.valueOf(livro.getData_publicacao()));
+            stmt.setDate(offset + 6, Date.valueOf(livro.getData_publicacao()));
         } else {
-            stmt.setNull(6, Types.DATE);
+            stmt.setNull(offset + 6, Types.DATE);
         }
-        stmt.setDate(7, Date.valueOf(LocalDate.now())); // Data de inclusão
+        stmt.setDate(offset + 7, dataInclusao); // Data de inclusão
     }
 
     /**
@@ -384,10 +1046,9 @@ public class LivroDAO {
      */
     public void adicionarLivroSimilar(int etiquetaLivro, int etiquetaSimilar) throws SQLException {
         String sql = "INSERT INTO livros_semelhantes (etiqueta_livro, etiqueta_semelhante) VALUES (?, ?)";
-        Connection connection = ConnectionFactory.getConnection();
         // Verifica se a relação já existe, se não, realiza a inserção
         if (!verificarSimilarsExistem(etiquetaLivro, etiquetaSimilar)) {
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(sql)) {
                 stmt.setInt(1, etiquetaLivro);
                 stmt.setInt(2, etiquetaSimilar);
                 stmt.executeUpdate(); // Executa a inserção no banco
@@ -395,55 +1056,183 @@ public class LivroDAO {
         }
     }
 
+    /**
+     * Busca livros cujo título, autor, editora, ISBN ou gênero contenham o
+     * texto informado, limitada a {@link #LIMITE_BUSCA_PADRAO} resultados.
+     *
+     * @param filtro Texto digitado pelo usuário.
+     * @return Livros encontrados, dos mais semelhantes ao texto para os menos.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     * @see #buscarLivrosPorFiltro(String, int)
+     */
     public List<Livro> buscarLivrosPorFiltro(String filtro) throws SQLException {
-        String sql = """
-                 SELECT livros.etiqueta_livro, livros.titulo, livros.autor,
-                        livros.isbn, livros.editora, livros.data_publicacao, generos.nome AS genero_nome
-                 FROM livros
-                 JOIN generos ON livros.genero_id = generos.id
-                 WHERE (livros.titulo ILIKE ? 
-                        OR livros.autor ILIKE ? 
-                        OR livros.isbn ILIKE ? 
-                        OR generos.nome ILIKE ?
-                        OR CAST(livros.etiqueta_livro AS TEXT) ILIKE ? 
-                        OR livros.data_publicacao::TEXT ILIKE ?)
-                        OR livros.editora ILIKE ?
-                 """;
+        return buscarLivrosPorFiltro(filtro, LIMITE_BUSCA_PADRAO);
+    }
+
+    /**
+     * Busca livros cujo título, autor, editora, ISBN ou gênero contenham o
+     * texto informado.
+     *
+     * <p>
+     * As condições de texto usam {@code ILIKE} sobre colunas com índices de
+     * trigramas ({@code pg_trgm}), todas na tabela livros, de forma que o
+     * planejador combina os índices (BitmapOr) em vez de varrer a tabela. O
+     * gênero é resolvido antes, numa subconsulta sobre a tabela generos. Textos
+     * com menos de 3 caracteres são buscados como prefixo, pois não formam um
+     * trigrama completo. Além disso:
+     * </p>
+     * <ul>
+     * <li>um texto numérico também encontra o livro com aquela etiqueta
+     * exata, que aparece em primeiro lugar;</li>
+     * <li>uma data ({@code dd/MM/yyyy} ou {@code yyyy-MM-dd}) ou um ano
+     * ({@code yyyy}) também encontra os livros publicados nela.</li>
+     * </ul>
+     * <p>
+     * Os resultados são ordenados pela maior semelhança
+     * ({@code word_similarity}) entre o texto e as colunas pesquisadas.
+     * </p>
+     *
+     * @param filtro Texto digitado pelo usuário.
+     * @param limite Quantidade máxima de livros retornados.
+     * @return Livros encontrados, dos mais semelhantes ao texto para os menos.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco.
+     */
+    public List<Livro> buscarLivrosPorFiltro(String filtro, int limite) throws SQLException {
+        return buscarLivrosPorFiltro(filtro, limite, null);
+    }
 
+    /**
+     * Busca livros pelo texto informado, permitindo cancelar a consulta a
+     * partir de outra thread (por exemplo, quando o usuário continua
+     * digitando e o resultado deixa de interessar).
+     *
+     * @param filtro Texto digitado pelo usuário.
+     * @param limite Quantidade máxima de livros retornados.
+     * @param cancelamento Controle de cancelamento da consulta (pode ser
+     * nulo).
+     * @return Livros encontrados, dos mais semelhantes ao texto para os menos.
+     * @throws SQLException Caso ocorra um erro ao realizar a operação no banco
+     * ou a consulta seja cancelada (SQLState
+     * {@value ConsultaCancelavel#SQLSTATE_CANCELADA}).
+     * @see #buscarLivrosPorFiltro(String, int)
+     */
+    public List<Livro> buscarLivrosPorFiltro(String filtro, int limite, ConsultaCancelavel cancelamento) throws SQLException {
+        String texto = filtro == null ? "" : filtro.trim();
         List<Livro> livros = new ArrayList<>();
+        if (texto.isEmpty()) {
+            return livros;
+        }
 
-        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(sql)) {
+        // Padrão do ILIKE: substring, ou prefixo para textos curtos. Curingas digitados são tratados como texto.
+        String escapado = texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        String padrao = texto.length() < 3 ? escapado + "%" : "%" + escapado + "%";
+
+        Integer etiqueta = interpretarEtiqueta(texto);
+        LocalDate[] periodo = interpretarPeriodo(texto);
 
-            // Define os valores para os parâmetros do filtro
-            String filtroLike = "%" + filtro + "%";
-            stmt.setString(1, filtroLike); // Filtro em título
-            stmt.setString(2, filtroLike); // Filtro em autor
-            stmt.setString(3, filtroLike); // Filtro em ISBN
-            stmt.setString(4, filtroLike); // Filtro em nome do gênero
-            stmt.setString(5, filtroLike); // Filtro em etiqueta (convertido para texto)
-            stmt.setString(6, filtroLike); // Filtro em data_publicacao (convertido para texto)
-            stmt.setString(7, filtroLike); // Filtro em editora
+        StringBuilder sql = new StringBuilder("""
+                SELECT l.etiqueta_livro, l.titulo, l.autor, l.isbn, l.editora, l.data_publicacao,
+                       l.genero_id, g.nome AS genero_nome
+                FROM livros l
+                JOIN generos g ON l.genero_id = g.id
+                WHERE (l.titulo ILIKE ?
+                       OR l.autor ILIKE ?
+                       OR l.editora ILIKE ?
+                       OR l.isbn ILIKE ?
+                       OR l.genero_id = ANY (ARRAY(SELECT id FROM generos WHERE nome ILIKE ?))
+                """);
+        List<Object> parametros = new ArrayList<>(List.of(padrao, padrao, padrao, padrao, padrao));
 
+        if (etiqueta != null) {
+            sql.append("       OR l.etiqueta_livro = ?\n");
+            parametros.add(etiqueta);
+        }
+        if (periodo != null) {
+            // Mesma expressão do índice idx_livros_data_publicacao_etiqueta
+            sql.append("       OR COALESCE(l.data_publicacao, DATE '0001-01-01') BETWEEN ? AND ?\n");
+            parametros.add(Date.valueOf(periodo[0]));
+            parametros.add(Date.valueOf(periodo[1]));
+        }
+        sql.append("      )\nORDER BY ");
+        if (etiqueta != null) {
+            sql.append("(l.etiqueta_livro = ?) DESC, ");
+            parametros.add(etiqueta);
+        }
+        sql.append("""
+                GREATEST(word_similarity(?, l.titulo), word_similarity(?, l.autor), word_similarity(?, l.editora),
+                         word_similarity(?, l.isbn), word_similarity(?, g.nome)) DESC,
+                         l.etiqueta_livro
+                LIMIT ?
+                """);
+        parametros.addAll(List.of(texto, texto, texto, texto, texto));
+        parametros.add(limite);
+
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < parametros.size(); i++) {
+                stmt.setObject(i + 1, parametros.get(i));
+            }
+
+            if (cancelamento != null) {
+                cancelamento.registrar(stmt); // A partir daqui, cancelar() interrompe a consulta
+            }
             // Executa a consulta e processa os resultados
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Livro livro = new Livro();
-                    livro.setEtiqueta_livro(rs.getInt("etiqueta_livro"));
-                    livro.setTitulo(rs.getString("titulo"));
-                    livro.setAutor(rs.getString("autor"));
-                    livro.setIsbn(rs.getString("isbn"));
-                    livro.setEditora(rs.getString("editora"));
-                    livro.setGeneroNome(rs.getString("genero_nome"));
-                    Date sqlDate = rs.getDate("data_publicacao");
-                    if (sqlDate != null) {
-                        livro.setData_publicacao(sqlDate.toLocalDate());
-                    }
-                    livros.add(livro);
+                    livros.add(criarLivroDoResultSet(rs));
                 }
+            } finally {
+                if (cancelamento != null) {
+                    cancelamento.liberar();
+                }
+            }
+        } catch (SQLException e) {
+            if (ConsultaCancelavel.isCancelamento(e)) {
+                LOGGER.log(Level.FINE, "Busca cancelada: {0}", texto);
+            } else {
+                LOGGER.log(Level.SEVERE, "Erro ao buscar livros pelo filtro: " + texto, e);
             }
+            throw e;
         }
 
         return livros;
     }
 
+    /**
+     * Interpreta o texto da busca como etiqueta, quando ele é numérico.
+     *
+     * @param texto Texto da busca.
+     * @return Etiqueta correspondente, ou null se o texto não for uma
+     * etiqueta válida.
+     */
+    private static Integer interpretarEtiqueta(String texto) {
+        if (texto.length() > 9 || !texto.chars().allMatch(Character::isDigit)) {
+            return null;
+        }
+        return Integer.valueOf(texto);
+    }
+
+    /**
+     * Interpreta o texto da busca como data ou ano de publicação.
+     *
+     * @param texto Texto da busca.
+     * @return Período {início, fim} (inclusive), ou null se o texto não for
+     * uma data nem um ano.
+     */
+    private static LocalDate[] interpretarPeriodo(String texto) {
+        if (texto.length() == 4 && texto.chars().allMatch(Character::isDigit)) {
+            int ano = Integer.parseInt(texto);
+            return new LocalDate[]{LocalDate.of(ano, 1, 1), LocalDate.of(ano, 12, 31)};
+        }
+        for (DateTimeFormatter formato : FORMATOS_DATA_BUSCA) {
+            try {
+                LocalDate data = LocalDate.parse(texto, formato);
+                return new LocalDate[]{data, data};
+            } catch (DateTimeParseException e) {
+                // Tenta o próximo formato
+            }
+        }
+        return null;
+    }
+
 }
@@ -2,14 +2,27 @@ package giovanna.projeto.livraria1.dao;
 
 import giovanna.projeto.livraria1.model.Livro;
 import giovanna.projeto.livraria1.util.ConnectionFactory;
+import giovanna.projeto.livraria1.util.GrafoSimilares;
+import giovanna.projeto.livraria1.util.MotorSimilaridade;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 
 /**
  * A classe <code>LivroSimilaresDAO</code> fornece os métodos de acesso a dados
@@ -25,6 +38,34 @@ public class LivroSimilaresDAO {
     // Logger para registrar erros e informações de execução
     private static final Logger LOGGER = Logger.getLogger(LivroSimilaresDAO.class.getName());
 
+    /**
+     * Linhas lidas do banco por vez ao carregar os livros para o cálculo.
+     */
+    private static final int TAMANHO_BLOCO_LEITURA = 5000;
+
+    private static final String SELECT_DADOS_SIMILARIDADE_SQL
+            = "SELECT etiqueta_livro, titulo, autor, editora, genero_id, data_publicacao FROM livros";
+
+    private static final String SELECT_LIGACOES_SQL
+            = "SELECT etiqueta_livro, etiqueta_semelhante, pontuacao FROM livros_semelhantes";
+
+    /**
+     * Tamanho aproximado, em bytes, de cada bloco enviado pelo {@code COPY}
+     * do recálculo.
+     */
+    private static final int TAMANHO_BLOCO_COPIA = 1 << 20;
+
+    /**
+     * Chave da trava consultiva ({@code pg_advisory_lock}) que impede dois
+     * recálculos de similaridades ao mesmo tempo, mesmo em computadores
+     * diferentes. É um número qualquer, que não pode ser usado por outra
+     * trava no mesmo banco.
+     */
+    public static final long CHAVE_TRAVA_RECALCULO = 0x4C_49_56_53_49_4D_00_01L;
+
+    private static final String COPY_RECALCULO_SQL
+            = "COPY livros_semelhantes_recalculo (recalculo, genero_id, etiqueta_livro, etiqueta_semelhante, pontuacao) FROM STDIN";
+
     /**
      * Construtor padrão.
      */
@@ -32,28 +73,24 @@ public class LivroSimilaresDAO {
     }
 
     /**
-     * Adiciona uma relação de similaridade entre dois livros no banco de dados.
+     * Adiciona uma relação de similaridade entre dois livros no banco de dados,
+     * incluída manualmente (sem pontuação). Se a relação já tiver sido
+     * calculada, passa a ser manual, e o recálculo não a exclui mais.
      *
      * @param etiquetaLivro A etiqueta do livro principal.
      * @param etiquetaSimilar A etiqueta do livro considerado similar.
      * @throws Exception Caso ocorra um erro ao adicionar a similaridade.
      */
     public void adicionarLivroSimilar(int etiquetaLivro, int etiquetaSimilar) throws Exception {
-        String sql = "INSERT INTO livros_semelhantes (etiqueta_livro, etiqueta_semelhante) VALUES (?, ?)";
-        // Verifica se a relação já existe
-        if (!similaridadeExiste(etiquetaLivro, etiquetaSimilar)) {
-            String sqlInsercaoSimilar = "INSERT INTO livros_semelhantes (etiqueta_livro, etiqueta_semelhante) VALUES (?, ?)";
-            try (
-                    Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(sqlInsercaoSimilar)) {
-                stmt.setInt(1, etiquetaLivro);
-                stmt.setInt(2, etiquetaSimilar);
-                stmt.executeUpdate();
-            } catch (SQLException ex) {
-                LOGGER.log(Level.SEVERE, "Erro ao inserir similaridade", ex);
-                throw ex;
-            }
-        } else {
-            LOGGER.log(Level.INFO, "A relação entre os livros {0} e {1} já existe.", new Object[]{etiquetaLivro, etiquetaSimilar});
+        String sql = "INSERT INTO livros_semelhantes (etiqueta_livro, etiqueta_semelhante, pontuacao) VALUES (?, ?, NULL) "
+                + "ON CONFLICT (etiqueta_livro, etiqueta_semelhante) DO UPDATE SET pontuacao = NULL";
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, etiquetaLivro);
+            stmt.setInt(2, etiquetaSimilar);
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao inserir similaridade", ex);
+            throw ex;
         }
     }
 
@@ -101,7 +138,873 @@ public class LivroSimilaresDAO {
     }
 
     /**
-     * Busca todos os livros semelhantes a um livro, dados sua etiqueta.
+     * Linhas de similaridade calculadas (livro, semelhante e pontuação),
+     * acumuladas em vetores de tipos primitivos até serem gravadas.
+     */
+    public static final class LoteSimilares {
+
+        private int[] livros;
+        private int[] semelhantes;
+        private float[] pontuacoes;
+        private int quantidade;
+
+        /**
+         * @param capacidade Capacidade inicial, em linhas.
+         */
+        public LoteSimilares(int capacidade) {
+            livros = new int[Math.max(capacidade, 16)];
+            semelhantes = new int[livros.length];
+            pontuacoes = new float[livros.length];
+        }
+
+        /**
+         * Acrescenta uma linha ao lote.
+         *
+         * @param etiquetaLivro Etiqueta do livro.
+         * @param etiquetaSemelhante Etiqueta do livro semelhante.
+         * @param pontuacao Pontuação da similaridade.
+         */
+        public void adicionar(int etiquetaLivro, int etiquetaSemelhante, float pontuacao) {
+            if (quantidade == livros.length) {
+                livros = Arrays.copyOf(livros, quantidade * 2);
+                semelhantes = Arrays.copyOf(semelhantes, quantidade * 2);
+                pontuacoes = Arrays.copyOf(pontuacoes, quantidade * 2);
+            }
+            livros[quantidade] = etiquetaLivro;
+            semelhantes[quantidade] = etiquetaSemelhante;
+            pontuacoes[quantidade++] = pontuacao;
+        }
+
+        public int getQuantidade() {
+            return quantidade;
+        }
+
+        public int getLivro(int linha) {
+            return livros[linha];
+        }
+
+        public int getSemelhante(int linha) {
+            return semelhantes[linha];
+        }
+
+        public float getPontuacao(int linha) {
+            return pontuacoes[linha];
+        }
+
+        /**
+         * Esvazia o lote, mantendo a memória já alocada.
+         */
+        public void limpar() {
+            quantidade = 0;
+        }
+    }
+
+    /**
+     * Carrega todos os livros no motor de similaridade, lendo o resultado em
+     * blocos de {@value #TAMANHO_BLOCO_LEITURA} linhas (a conexão deve estar
+     * com o autocommit desligado para o driver usar um cursor).
+     *
+     * @param connection Conexão da transação do recálculo.
+     * @param motor Motor que recebe os livros.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public void carregarCatalogo(Connection connection, MotorSimilaridade motor) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_DADOS_SIMILARIDADE_SQL)) {
+            stmt.setFetchSize(TAMANHO_BLOCO_LEITURA);
+            carregarNoMotor(stmt, motor);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao carregar os livros para o cálculo de similaridades", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Carrega no motor de similaridade os livros informados e os livros que
+     * podem ser semelhantes a eles: do mesmo gênero, do mesmo autor ou da
+     * mesma editora.
+     *
+     * @param connection Conexão da transação.
+     * @param etiquetas Etiquetas dos livros.
+     * @param motor Motor que recebe os livros.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public void carregarVizinhanca(Connection connection, Integer[] etiquetas, MotorSimilaridade motor) throws SQLException {
+        String sql = "WITH alterados AS (SELECT genero_id, autor, editora FROM livros WHERE etiqueta_livro = ANY (?)) "
+                + SELECT_DADOS_SIMILARIDADE_SQL + " WHERE etiqueta_livro = ANY (?) "
+                + "OR genero_id IN (SELECT genero_id FROM alterados) "
+                + "OR autor IN (SELECT autor FROM alterados) "
+                + "OR editora IN (SELECT editora FROM alterados)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            Array vetor = connection.createArrayOf("integer", etiquetas);
+            stmt.setArray(1, vetor);
+            stmt.setArray(2, vetor);
+            stmt.setFetchSize(TAMANHO_BLOCO_LEITURA);
+            carregarNoMotor(stmt, motor);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao carregar os livros próximos de " + etiquetas.length + " livro(s)", ex);
+            throw ex;
+        }
+    }
+
+    private static void carregarNoMotor(PreparedStatement stmt, MotorSimilaridade motor) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Date data = rs.getDate("data_publicacao");
+                motor.adicionar(rs.getInt("etiqueta_livro"), rs.getString("titulo"), rs.getString("autor"),
+                        rs.getString("editora"), rs.getInt("genero_id"), data != null ? data.toLocalDate() : null);
+            }
+        }
+    }
+
+    /**
+     * Exclui todas as similaridades calculadas. As incluídas manualmente
+     * (sem pontuação) são mantidas.
+     *
+     * @param connection Conexão da transação do recálculo.
+     * @return Quantidade de relações excluídas.
+     * @throws SQLException Caso ocorra erro ao excluir as relações.
+     */
+    public int excluirSimilaresCalculados(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM livros_semelhantes WHERE pontuacao IS NOT NULL")) {
+            return stmt.executeUpdate();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao excluir as similaridades calculadas", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Exclui as similaridades calculadas dos livros informados, nos dois
+     * sentidos (as do livro e as que apontam para ele). As incluídas
+     * manualmente são mantidas.
+     *
+     * @param connection Conexão da transação.
+     * @param etiquetas Etiquetas dos livros.
+     * @param afetados Recebe as etiquetas dos livros que perderam alguma
+     * similaridade (inclusive os informados).
+     * @return Quantidade de relações excluídas.
+     * @throws SQLException Caso ocorra erro ao excluir as relações.
+     */
+    public int excluirSimilaresCalculados(Connection connection, Integer[] etiquetas, Set<Integer> afetados) throws SQLException {
+        String sql = "DELETE FROM livros_semelhantes WHERE pontuacao IS NOT NULL "
+                + "AND (etiqueta_livro = ANY (?) OR etiqueta_semelhante = ANY (?)) RETURNING etiqueta_livro";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            Array vetor = connection.createArrayOf("integer", etiquetas);
+            stmt.setArray(1, vetor);
+            stmt.setArray(2, vetor);
+            int excluidas = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    afetados.add(rs.getInt(1));
+                    excluidas++;
+                }
+            }
+            return excluidas;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao excluir as similaridades calculadas de " + etiquetas.length + " livro(s)", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Grava as similaridades do lote, com as instruções enviadas em lote
+     * ({@code executeBatch}). Pares que já existem (por exemplo, incluídos
+     * manualmente) são mantidos como estão.
+     *
+     * @param connection Conexão da transação.
+     * @param lote Similaridades a gravar.
+     * @return Quantidade de relações criadas.
+     * @throws SQLException Caso ocorra erro ao inserir as relações.
+     */
+    public int inserirSimilares(Connection connection, LoteSimilares lote) throws SQLException {
+        if (lote.getQuantidade() == 0) {
+            return 0;
+        }
+        String sql = "INSERT INTO livros_semelhantes (etiqueta_livro, etiqueta_semelhante, pontuacao) VALUES (?, ?, ?) "
+                + "ON CONFLICT DO NOTHING";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int linha = 0; linha < lote.getQuantidade(); linha++) {
+                stmt.setInt(1, lote.getLivro(linha));
+                stmt.setInt(2, lote.getSemelhante(linha));
+                stmt.setFloat(3, lote.getPontuacao(linha));
+                stmt.addBatch();
+            }
+            int inseridas = 0;
+            for (int linhas : stmt.executeBatch()) {
+                inseridas += Math.max(linhas, 0);
+            }
+            return inseridas;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao inserir " + lote.getQuantidade() + " similaridade(s)", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Mantém, para cada livro informado, só as {@code vizinhos} similaridades
+     * calculadas de maior pontuação, excluindo as demais em uma única
+     * instrução.
+     *
+     * @param connection Conexão da transação.
+     * @param etiquetas Etiquetas dos livros.
+     * @param vizinhos Quantidade de similaridades calculadas mantidas por
+     * livro.
+     * @return Quantidade de relações excluídas.
+     * @throws SQLException Caso ocorra erro ao excluir as relações.
+     */
+    public int limitarSimilares(Connection connection, Integer[] etiquetas, int vizinhos) throws SQLException {
+        if (etiquetas.length == 0) {
+            return 0;
+        }
+        String sql = "DELETE FROM livros_semelhantes ls USING ("
+                + "SELECT etiqueta_livro, etiqueta_semelhante, row_number() OVER ("
+                + "PARTITION BY etiqueta_livro ORDER BY pontuacao DESC, etiqueta_semelhante) AS posicao "
+                + "FROM livros_semelhantes WHERE etiqueta_livro = ANY (?) AND pontuacao IS NOT NULL) r "
+                + "WHERE ls.etiqueta_livro = r.etiqueta_livro AND ls.etiqueta_semelhante = r.etiqueta_semelhante "
+                + "AND r.posicao > ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setArray(1, connection.createArrayOf("integer", etiquetas));
+            stmt.setInt(2, vizinhos);
+            return stmt.executeUpdate();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao limitar as similaridades de " + etiquetas.length + " livro(s)", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Assinatura do catálogo de livros: quantidade, soma das etiquetas e data
+     * da alteração mais recente. Se ela não mudou, o recálculo das
+     * similaridades daria o mesmo resultado, e um recálculo interrompido pode
+     * ser retomado.
+     */
+    public static final class AssinaturaCatalogo {
+
+        private final int livros;
+        private final long somaEtiquetas;
+        private final Timestamp ultimaAlteracao;
+
+        private AssinaturaCatalogo(int livros, long somaEtiquetas, Timestamp ultimaAlteracao) {
+            this.livros = livros;
+            this.somaEtiquetas = somaEtiquetas;
+            this.ultimaAlteracao = ultimaAlteracao;
+        }
+
+        @Override
+        public String toString() {
+            return livros + " livros, alterados até " + ultimaAlteracao;
+        }
+    }
+
+    /**
+     * Versão das similaridades gravadas no banco: conclusão do último
+     * recálculo completo e data da alteração de livro mais recente. Se ela
+     * mudou, o grafo carregado por este computador pode estar desatualizado
+     * (por exemplo, por gravações feitas em outro computador).
+     */
+    public static final class VersaoSimilares {
+
+        private final Timestamp ultimoRecalculo;
+        private final Timestamp ultimaAlteracao;
+
+        private VersaoSimilares(Timestamp ultimoRecalculo, Timestamp ultimaAlteracao) {
+            this.ultimoRecalculo = ultimoRecalculo;
+            this.ultimaAlteracao = ultimaAlteracao;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof VersaoSimilares outra && Objects.equals(ultimoRecalculo, outra.ultimoRecalculo)
+                    && Objects.equals(ultimaAlteracao, outra.ultimaAlteracao);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ultimoRecalculo, ultimaAlteracao);
+        }
+
+        @Override
+        public String toString() {
+            return "recálculo em " + ultimoRecalculo + ", livros alterados até " + ultimaAlteracao;
+        }
+    }
+
+    /**
+     * Tenta obter a trava do recálculo de similaridades
+     * ({@value #CHAVE_TRAVA_RECALCULO}) para a sessão da conexão, sem
+     * esperar. A trava fica com a conexão até
+     * {@link #liberarRecalculo(Connection)} ou até a sessão terminar (por
+     * exemplo, se o programa for fechado no meio do recálculo).
+     *
+     * @param connection Conexão que fica com a trava.
+     * @return true se a trava foi obtida; false se outro recálculo está em
+     * andamento.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public boolean travarRecalculo(Connection connection) throws SQLException {
+        return executarTrava(connection, "SELECT pg_try_advisory_lock(?)");
+    }
+
+    /**
+     * Tenta obter a trava do recálculo de similaridades até o fim da transação
+     * atual, sem esperar.
+     *
+     * @param connection Conexão da transação (sem autocommit).
+     * @return true se a trava foi obtida; false se outro recálculo está em
+     * andamento.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public boolean travarRecalculoNaTransacao(Connection connection) throws SQLException {
+        return executarTrava(connection, "SELECT pg_try_advisory_xact_lock(?)");
+    }
+
+    /**
+     * Libera a trava obtida por {@link #travarRecalculo(Connection)}. Deve
+     * ser chamado antes de devolver a conexão ao pool, já que a sessão
+     * continua aberta.
+     *
+     * @param connection Conexão que está com a trava.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public void liberarRecalculo(Connection connection) throws SQLException {
+        executarTrava(connection, "SELECT pg_advisory_unlock(?)");
+    }
+
+    private boolean executarTrava(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, CHAVE_TRAVA_RECALCULO);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro na trava do recálculo de similaridades (" + sql + ")", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Guarda a etiqueta e a data de alteração de cada livro numa tabela
+     * temporária da sessão ({@code fotografia_recalculo}), para que, no fim do
+     * recálculo, se saiba quais livros foram incluídos ou alterados depois da
+     * carga ({@link #buscarAlteradosAposFotografia(Connection)}). Para
+     * corresponder aos livros carregados ({@link #carregarCatalogo}), deve ser
+     * chamado na mesma transação {@code REPEATABLE READ}.
+     *
+     * @param connection Conexão da transação (a mesma até o fim do recálculo).
+     * @throws SQLException Caso ocorra erro ao criar a tabela.
+     */
+    public void registrarFotografia(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS pg_temp.fotografia_recalculo");
+            stmt.execute("CREATE TEMP TABLE fotografia_recalculo AS SELECT etiqueta_livro, data_alteracao FROM livros");
+            stmt.execute("ANALYZE fotografia_recalculo");
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao registrar os livros carregados pelo recálculo", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Busca os livros incluídos ou alterados depois da fotografia
+     * ({@link #registrarFotografia(Connection)}): os que não constam nela ou
+     * cuja data de alteração mudou. As similaridades desses livros não
+     * correspondem às calculadas pelo recálculo.
+     *
+     * @param connection Conexão que registrou a fotografia.
+     * @return Etiquetas dos livros.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public Integer[] buscarAlteradosAposFotografia(Connection connection) throws SQLException {
+        String sql = "SELECT l.etiqueta_livro FROM livros l "
+                + "LEFT JOIN fotografia_recalculo f ON f.etiqueta_livro = l.etiqueta_livro "
+                + "WHERE f.etiqueta_livro IS NULL OR l.data_alteracao IS DISTINCT FROM f.data_alteracao";
+        try (PreparedStatement stmt = connection.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
+            List<Integer> etiquetas = new ArrayList<>();
+            while (rs.next()) {
+                etiquetas.add(rs.getInt(1));
+            }
+            return etiquetas.toArray(Integer[]::new);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao buscar os livros alterados durante o recálculo", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Exclui a fotografia do recálculo, antes de a conexão voltar ao pool.
+     *
+     * @param connection Conexão que registrou a fotografia.
+     * @throws SQLException Caso ocorra erro ao excluir a tabela.
+     */
+    public void descartarFotografia(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS pg_temp.fotografia_recalculo");
+        }
+    }
+
+    /**
+     * Lê a assinatura do catálogo. Para corresponder aos livros carregados
+     * ({@link #carregarCatalogo}), deve ser lida na mesma transação
+     * {@code REPEATABLE READ}.
+     *
+     * @param connection Conexão da transação.
+     * @return A assinatura.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public AssinaturaCatalogo lerAssinaturaCatalogo(Connection connection) throws SQLException {
+        String sql = "SELECT count(*), COALESCE(sum(etiqueta_livro::bigint), 0), max(data_alteracao) FROM livros";
+        try (PreparedStatement stmt = connection.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return new AssinaturaCatalogo(rs.getInt(1), rs.getLong(2), rs.getTimestamp(3));
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao ler a assinatura do catálogo", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Procura um recálculo interrompido que possa ser retomado: o mais
+     * recente com a mesma assinatura de catálogo e com todas as linhas dos
+     * gêneros concluídos ainda gravadas (a tabela de recálculo não tem
+     * registro de transações e é esvaziada se o servidor cair).
+     *
+     * @param connection Conexão usada.
+     * @param assinatura Assinatura do catálogo atual.
+     * @return O identificador do recálculo, ou null se não houver.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public Long buscarRecalculoPendente(Connection connection, AssinaturaCatalogo assinatura) throws SQLException {
+        String sql = "SELECT r.recalculo FROM recalculos_similares r "
+                + "WHERE r.concluido_em IS NULL AND r.livros = ? AND r.soma_etiquetas = ? "
+                + "AND r.ultima_alteracao IS NOT DISTINCT FROM ? "
+                + "AND (SELECT COALESCE(sum(g.linhas), 0) FROM recalculos_similares_generos g WHERE g.recalculo = r.recalculo) "
+                + "= (SELECT count(*) FROM livros_semelhantes_recalculo s WHERE s.recalculo = r.recalculo "
+                + "AND s.genero_id IN (SELECT g.genero_id FROM recalculos_similares_generos g WHERE g.recalculo = r.recalculo)) "
+                + "ORDER BY r.iniciado_em DESC LIMIT 1";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, assinatura.livros);
+            stmt.setLong(2, assinatura.somaEtiquetas);
+            stmt.setTimestamp(3, assinatura.ultimaAlteracao);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao procurar recálculo de similaridades interrompido", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * @param connection Conexão usada.
+     * @return true se há algum recálculo iniciado e não concluído.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public boolean existeRecalculoPendente(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT EXISTS (SELECT 1 FROM recalculos_similares WHERE concluido_em IS NULL)");
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getBoolean(1);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao procurar recálculo de similaridades interrompido", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * @param connection Conexão usada.
+     * @return Momento da conclusão do último recálculo paralelo, ou null se
+     * nenhum foi concluído.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public Timestamp buscarUltimoRecalculoConcluido(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT max(concluido_em) FROM recalculos_similares");
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao consultar o último recálculo de similaridades", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Registra o início de um recálculo, com a assinatura do catálogo
+     * calculado.
+     *
+     * @param connection Conexão usada.
+     * @param recalculo Identificador do recálculo.
+     * @param assinatura Assinatura do catálogo.
+     * @throws SQLException Caso ocorra erro ao gravar o registro.
+     */
+    public void iniciarRecalculo(Connection connection, long recalculo, AssinaturaCatalogo assinatura) throws SQLException {
+        String sql = "INSERT INTO recalculos_similares (recalculo, livros, soma_etiquetas, ultima_alteracao) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, recalculo);
+            stmt.setInt(2, assinatura.livros);
+            stmt.setLong(3, assinatura.somaEtiquetas);
+            stmt.setTimestamp(4, assinatura.ultimaAlteracao);
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao registrar o recálculo de similaridades " + recalculo, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Marca um gênero como concluído no recálculo (ponto de retomada). Deve
+     * ser chamado depois que todas as linhas do gênero foram gravadas.
+     *
+     * @param connection Conexão usada.
+     * @param recalculo Identificador do recálculo.
+     * @param genero Identificador do gênero (0 para os livros sem gênero).
+     * @param linhas Linhas gravadas para o gênero.
+     * @throws SQLException Caso ocorra erro ao gravar o registro.
+     */
+    public void registrarGeneroConcluido(Connection connection, long recalculo, int genero, long linhas) throws SQLException {
+        String sql = "INSERT INTO recalculos_similares_generos (recalculo, genero_id, linhas) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, recalculo);
+            stmt.setInt(2, genero);
+            stmt.setLong(3, linhas);
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao registrar o gênero " + genero + " no recálculo " + recalculo, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * @param connection Conexão usada.
+     * @param recalculo Identificador do recálculo.
+     * @return Gêneros já concluídos no recálculo.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public Set<Integer> buscarGenerosConcluidos(Connection connection, long recalculo) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT genero_id FROM recalculos_similares_generos WHERE recalculo = ?")) {
+            stmt.setLong(1, recalculo);
+            Set<Integer> generos = new HashSet<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    generos.add(rs.getInt(1));
+                }
+            }
+            return generos;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao consultar os gêneros concluídos do recálculo " + recalculo, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Exclui, da tabela de recálculo, as linhas dos gêneros que não chegaram
+     * a ser concluídos (partes gravadas antes da interrupção), para que sejam
+     * gravadas de novo sem repetição.
+     *
+     * @param connection Conexão usada.
+     * @param recalculo Identificador do recálculo.
+     * @return Quantidade de linhas excluídas.
+     * @throws SQLException Caso ocorra erro ao excluir as linhas.
+     */
+    public int descartarGenerosPendentes(Connection connection, long recalculo) throws SQLException {
+        String sql = "DELETE FROM livros_semelhantes_recalculo s WHERE s.recalculo = ? AND NOT EXISTS ("
+                + "SELECT 1 FROM recalculos_similares_generos g WHERE g.recalculo = s.recalculo AND g.genero_id = s.genero_id)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, recalculo);
+            return stmt.executeUpdate();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao descartar os gêneros pendentes do recálculo " + recalculo, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Exclui os recálculos interrompidos (e as suas linhas) que não serão
+     * retomados.
+     *
+     * @param connection Conexão usada.
+     * @param manter Recálculo que não deve ser excluído.
+     * @return Quantidade de linhas excluídas da tabela de recálculo.
+     * @throws SQLException Caso ocorra erro ao excluir os registros.
+     */
+    public int descartarOutrosRecalculos(Connection connection, long manter) throws SQLException {
+        try (PreparedStatement linhas = connection.prepareStatement("DELETE FROM livros_semelhantes_recalculo WHERE recalculo <> ?");
+                PreparedStatement registros = connection.prepareStatement(
+                        "DELETE FROM recalculos_similares WHERE recalculo <> ? AND concluido_em IS NULL")) {
+            linhas.setLong(1, manter);
+            registros.setLong(1, manter);
+            int excluidas = linhas.executeUpdate();
+            registros.executeUpdate();
+            return excluidas;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao descartar os recálculos interrompidos", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Marca o recálculo como concluído, descartando os seus pontos de
+     * retomada e o registro dos recálculos concluídos anteriormente. Deve ser
+     * chamado na transação que substitui as similaridades
+     * ({@link #mesclarRecalculo(Connection, long)}).
+     *
+     * @param connection Conexão da transação.
+     * @param recalculo Identificador do recálculo.
+     * @throws SQLException Caso ocorra erro ao gravar o registro.
+     */
+    public void concluirRecalculo(Connection connection, long recalculo) throws SQLException {
+        try (PreparedStatement concluir = connection.prepareStatement(
+                "UPDATE recalculos_similares SET concluido_em = CURRENT_TIMESTAMP WHERE recalculo = ?");
+                PreparedStatement generos = connection.prepareStatement(
+                        "DELETE FROM recalculos_similares_generos WHERE recalculo = ?");
+                PreparedStatement anteriores = connection.prepareStatement(
+                        "DELETE FROM recalculos_similares WHERE recalculo <> ? AND concluido_em IS NOT NULL")) {
+            for (PreparedStatement stmt : new PreparedStatement[]{concluir, generos, anteriores}) {
+                stmt.setLong(1, recalculo);
+                stmt.executeUpdate();
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao concluir o recálculo de similaridades " + recalculo, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Grava as similaridades do lote na tabela do recálculo pelo protocolo
+     * {@code COPY}, em blocos de até {@value #TAMANHO_BLOCO_COPIA} bytes no
+     * formato texto (campos separados por tabulação).
+     *
+     * @param connection Conexão usada (com autocommit, pois cada lote é
+     * gravado por completo ou não é gravado).
+     * @param recalculo Identificador do recálculo.
+     * @param genero Gênero dos livros do lote (0 para os livros sem gênero).
+     * @param lote Similaridades a gravar.
+     * @return Quantidade de linhas gravadas.
+     * @throws SQLException Caso ocorra erro ao gravar as linhas.
+     */
+    public long copiarParaRecalculo(Connection connection, long recalculo, int genero, LoteSimilares lote) throws SQLException {
+        if (lote.getQuantidade() == 0) {
+            return 0;
+        }
+        CopyIn copia = null;
+        try {
+            copia = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_RECALCULO_SQL);
+            String prefixo = recalculo + "\t" + genero + "\t";
+            StringBuilder bloco = new StringBuilder(TAMANHO_BLOCO_COPIA + 64);
+            for (int linha = 0; linha < lote.getQuantidade(); linha++) {
+                bloco.append(prefixo).append(lote.getLivro(linha)).append('\t')
+                        .append(lote.getSemelhante(linha)).append('\t')
+                        .append(lote.getPontuacao(linha)).append('\n');
+                if (bloco.length() >= TAMANHO_BLOCO_COPIA) {
+                    enviarBloco(copia, bloco);
+                }
+            }
+            enviarBloco(copia, bloco);
+            long copiadas = copia.endCopy();
+            copia = null;
+            return copiadas;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao gravar " + lote.getQuantidade() + " similaridade(s) do recálculo", ex);
+            throw ex;
+        } finally {
+            if (copia != null && copia.isActive()) {
+                try {
+                    copia.cancelCopy();
+                } catch (SQLException ex) {
+                    LOGGER.log(Level.WARNING, "Erro ao cancelar a gravação do recálculo", ex);
+                }
+            }
+        }
+    }
+
+    private static void enviarBloco(CopyIn copia, StringBuilder bloco) throws SQLException {
+        if (bloco.length() > 0) {
+            // Só há dígitos, sinais, pontos e separadores: ASCII basta
+            byte[] bytes = bloco.toString().getBytes(StandardCharsets.US_ASCII);
+            copia.writeToCopy(bytes, 0, bytes.length);
+            bloco.setLength(0);
+        }
+    }
+
+    /**
+     * Substitui as similaridades calculadas pelas gravadas no recálculo
+     * informado: insere as que não existem ainda (as incluídas manualmente
+     * são mantidas como estão), ignorando as de livros excluídos durante o
+     * recálculo. A exclusão das anteriores
+     * ({@link #excluirSimilaresCalculados(Connection)}) deve ser feita antes,
+     * na mesma transação. Como a exclusão também leva as similaridades
+     * gravadas pela manutenção incremental durante o recálculo, os livros
+     * incluídos ou alterados nesse intervalo
+     * ({@link #buscarAlteradosAposFotografia(Connection)}) devem ser
+     * recalculados depois, ainda na mesma transação.
+     *
+     * @param connection Conexão da transação.
+     * @param recalculo Identificador do recálculo.
+     * @return Quantidade de relações criadas.
+     * @throws SQLException Caso ocorra erro ao inserir as relações.
+     */
+    public int mesclarRecalculo(Connection connection, long recalculo) throws SQLException {
+        String sql = "INSERT INTO livros_semelhantes (etiqueta_livro, etiqueta_semelhante, pontuacao) "
+                + "SELECT r.etiqueta_livro, r.etiqueta_semelhante, r.pontuacao FROM livros_semelhantes_recalculo r "
+                + "WHERE r.recalculo = ? "
+                + "AND EXISTS (SELECT 1 FROM livros l WHERE l.etiqueta_livro = r.etiqueta_livro) "
+                + "AND EXISTS (SELECT 1 FROM livros l WHERE l.etiqueta_livro = r.etiqueta_semelhante) "
+                + "ON CONFLICT DO NOTHING";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, recalculo);
+            return stmt.executeUpdate();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao mesclar as similaridades do recálculo " + recalculo, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Exclui as linhas gravadas por um recálculo na tabela do recálculo,
+     * depois de mescladas ou quando o recálculo falha.
+     *
+     * @param connection Conexão usada.
+     * @param recalculo Identificador do recálculo.
+     * @return Quantidade de linhas excluídas.
+     * @throws SQLException Caso ocorra erro ao excluir as linhas.
+     */
+    public int descartarRecalculo(Connection connection, long recalculo) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM livros_semelhantes_recalculo WHERE recalculo = ?")) {
+            stmt.setLong(1, recalculo);
+            return stmt.executeUpdate();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao descartar as similaridades do recálculo " + recalculo, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Lê a versão das similaridades. As duas consultas usam índices
+     * ({@code recalculos_similares} tem poucas linhas e
+     * {@code idx_livros_data_alteracao} atende o {@code max}), para que a
+     * verificação possa ser repetida com frequência.
+     *
+     * @return A versão atual.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public VersaoSimilares lerVersaoSimilares() throws SQLException {
+        String sql = "SELECT (SELECT max(concluido_em) FROM recalculos_similares), (SELECT max(data_alteracao) FROM livros)";
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return new VersaoSimilares(rs.getTimestamp(1), rs.getTimestamp(2));
+        } catch (SQLException ex) {
+            LOGGER.log(Level.FINE, "Erro ao ler a versão das similaridades", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Carrega todos os livros e similaridades no {@link GrafoSimilares}. As
+     * consultas são feitas numa única transação {@code REPEATABLE READ}, para
+     * que as similaridades só citem livros já lidos, e os resultados são lidos
+     * em blocos de {@value #TAMANHO_BLOCO_LEITURA} linhas.
+     *
+     * @return O grafo montado.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public GrafoSimilares carregarGrafo() throws SQLException {
+        try (Connection connection = ConnectionFactory.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                GrafoSimilares.Construtor construtor;
+                try (PreparedStatement stmt = connection.prepareStatement(
+                        "SELECT (SELECT count(*) FROM livros), (SELECT count(*) FROM livros_semelhantes)");
+                        ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    construtor = new GrafoSimilares.Construtor(rs.getInt(1), rs.getInt(2));
+                }
+                try (PreparedStatement stmt = connection.prepareStatement("SELECT etiqueta_livro FROM livros ORDER BY etiqueta_livro")) {
+                    stmt.setFetchSize(TAMANHO_BLOCO_LEITURA);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            construtor.adicionarLivro(rs.getInt(1));
+                        }
+                    }
+                }
+                // Mesma ordem dos livros, pela chave primária
+                try (PreparedStatement stmt = connection.prepareStatement(SELECT_LIGACOES_SQL + " ORDER BY etiqueta_livro")) {
+                    stmt.setFetchSize(TAMANHO_BLOCO_LEITURA);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            float pontuacao = rs.getFloat(3);
+                            construtor.adicionarLigacao(rs.getInt(1), rs.getInt(2), rs.wasNull() ? Float.NaN : pontuacao);
+                        }
+                    }
+                }
+                connection.commit();
+                return construtor.construir();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao carregar o grafo de similaridades", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Relê do banco as similaridades dos livros informados e substitui as
+     * ligações deles no grafo. Livros sem similaridades ficam sem ligações.
+     *
+     * @param etiquetas Etiquetas dos livros.
+     * @param grafo Grafo atualizado.
+     * @throws SQLException Caso ocorra erro ao consultar o banco de dados.
+     */
+    public void recarregarLigacoes(Integer[] etiquetas, GrafoSimilares grafo) throws SQLException {
+        String sql = SELECT_LIGACOES_SQL + " WHERE etiqueta_livro = ANY (?) ORDER BY etiqueta_livro";
+        try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setArray(1, connection.createArrayOf("integer", etiquetas));
+            Set<Integer> lidos = new HashSet<>();
+            int[] semelhantes = new int[64];
+            float[] pontuacoes = new float[64];
+            int quantidade = 0;
+            int livro = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int etiqueta = rs.getInt(1);
+                    if (etiqueta != livro && quantidade > 0) {
+                        grafo.substituirLigacoes(livro, semelhantes, pontuacoes, quantidade);
+                        quantidade = 0;
+                    }
+                    livro = etiqueta;
+                    lidos.add(etiqueta);
+                    if (quantidade == semelhantes.length) {
+                        semelhantes = Arrays.copyOf(semelhantes, quantidade * 2);
+                        pontuacoes = Arrays.copyOf(pontuacoes, quantidade * 2);
+                    }
+                    semelhantes[quantidade] = rs.getInt(2);
+                    float pontuacao = rs.getFloat(3);
+                    pontuacoes[quantidade++] = rs.wasNull() ? Float.NaN : pontuacao;
+                }
+            }
+            if (quantidade > 0) {
+                grafo.substituirLigacoes(livro, semelhantes, pontuacoes, quantidade);
+            }
+            for (Integer etiqueta : etiquetas) {
+                if (!lidos.contains(etiqueta) && grafo.contem(etiqueta)) { // Livros excluídos não voltam ao grafo
+                    grafo.substituirLigacoes(etiqueta, semelhantes, pontuacoes, 0);
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao reler as similaridades de " + etiquetas.length + " livro(s)", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Busca todos os livros semelhantes a um livro, dados sua etiqueta, com a
+     * pontuação da similaridade ({@link Livro#getSimilaridade()}). Os incluídos
+     * manualmente vêm primeiro; os demais, da maior para a menor pontuação.
      *
      * @param etiquetaLivro A etiqueta do livro principal.
      * @return Uma lista de objetos <code>Livro</code> que são semelhantes ao
@@ -109,9 +1012,10 @@ public class LivroSimilaresDAO {
      * @throws Exception Caso ocorra um erro ao buscar os livros semelhantes.
      */
     public List<Livro> buscarLivrosSemelhantesEtiquetas(int etiquetaLivro) throws Exception {
-        String sql = "SELECT l.* FROM livros l "
+        String sql = "SELECT l.*, ls.pontuacao FROM livros l "
                 + "INNER JOIN livros_semelhantes ls ON l.etiqueta_livro = ls.etiqueta_semelhante "
-                + "WHERE ls.etiqueta_livro = ?";
+                + "WHERE ls.etiqueta_livro = ? "
+                + "ORDER BY ls.pontuacao DESC NULLS FIRST, l.titulo";
         List<Livro> livros = new ArrayList<>();
         try (Connection connection = ConnectionFactory.getConnection(); PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, etiquetaLivro);
@@ -121,6 +1025,8 @@ public class LivroSimilaresDAO {
                     livro.setEtiqueta_livro(rs.getInt("etiqueta_livro"));
                     livro.setTitulo(rs.getString("titulo"));
                     livro.setAutor(rs.getString("autor"));
+                    float pontuacao = rs.getFloat("pontuacao");
+                    livro.setSimilaridade(rs.wasNull() ? null : pontuacao);
                     // ... set outros atributos do livro
                     livros.add(livro);
                 }
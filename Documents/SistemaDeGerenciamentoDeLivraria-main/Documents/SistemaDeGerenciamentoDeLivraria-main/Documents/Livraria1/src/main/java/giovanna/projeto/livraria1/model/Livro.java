@@ -22,6 +22,7 @@ public class Livro {
     private Date data_alteracao; //data em que o livro foi alterado pela última vez em sistema.
     private String data_publicacao_str; //data de publicação como string
     private String generoNome; // Nome do gênero associado ao livro
+    private Float similaridade; // Pontuação da similaridade, nas buscas de livros semelhantes (null se incluído manualmente)
     //Construtores
 
     /**
@@ -248,6 +249,27 @@ public class Livro {
         this.generoNome = generoNome;
     }
 
+    /**
+     * Método get do parâmetro similaridade, preenchido apenas nas buscas de
+     * livros semelhantes.
+     *
+     * @return a pontuação da similaridade com o livro buscado (de 0 a 1), ou
+     * null se a similaridade foi incluída manualmente.
+     */
+    public Float getSimilaridade() {
+        return similaridade;
+    }
+
+    /**
+     * Método que define o valor do parâmetro similaridade do livro.
+     *
+     * @param similaridade pontuação da similaridade, ou null se incluída
+     * manualmente.
+     */
+    public void setSimilaridade(Float similaridade) {
+        this.similaridade = similaridade;
+    }
+
     /**
      * @return Dados do objeto Livro em forma de String
      */
@@ -0,0 +1,156 @@
+package giovanna.projeto.livraria1.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A classe <code>ResultadoEnriquecimento</code> resume uma execução do
+ * enriquecimento de livros pela Open Library: quantos livros foram
+ * consultados, atualizados, já estavam completos, não foram encontrados ou
+ * falharam, e a vazão obtida.
+ *
+ * @author Giovanna
+ */
+public class ResultadoEnriquecimento {
+
+    private final int total;
+    private final int retomados;
+    private int atualizados;
+    private int semAlteracao;
+    private int naoEncontrados;
+    private final List<String> falhas = new ArrayList<>();
+    private long duracaoMs;
+
+    /**
+     * Construtor do resultado.
+     *
+     * @param total Livros selecionados para a execução.
+     * @param retomados Livros ignorados por já constarem no ponto de
+     * retomada (checkpoint) de uma execução anterior.
+     */
+    public ResultadoEnriquecimento(int total, int retomados) {
+        this.total = total;
+        this.retomados = retomados;
+    }
+
+    /**
+     * Registra livros atualizados no banco.
+     *
+     * @param quantidade Quantidade de livros.
+     */
+    public void adicionarAtualizados(int quantidade) {
+        atualizados += quantidade;
+    }
+
+    /**
+     * Registra um livro encontrado, mas sem dados novos.
+     */
+    public void adicionarSemAlteracao() {
+        semAlteracao++;
+    }
+
+    /**
+     * Registra um livro não encontrado na Open Library.
+     */
+    public void adicionarNaoEncontrado() {
+        naoEncontrados++;
+    }
+
+    /**
+     * Registra uma consulta que falhou (será repetida na próxima execução).
+     *
+     * @param isbn ISBN consultado.
+     * @param motivo Motivo da falha.
+     */
+    public void adicionarFalha(String isbn, String motivo) {
+        falhas.add(isbn + ": " + motivo);
+    }
+
+    /**
+     * Define a duração da execução.
+     *
+     * @param duracaoMs Duração em milissegundos.
+     */
+    public void setDuracaoMs(long duracaoMs) {
+        this.duracaoMs = duracaoMs;
+    }
+
+    /**
+     * @return Livros selecionados para a execução.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return Livros ignorados por já constarem no checkpoint.
+     */
+    public int getRetomados() {
+        return retomados;
+    }
+
+    /**
+     * @return Livros atualizados no banco.
+     */
+    public int getAtualizados() {
+        return atualizados;
+    }
+
+    /**
+     * @return Livros encontrados, mas sem dados novos.
+     */
+    public int getSemAlteracao() {
+        return semAlteracao;
+    }
+
+    /**
+     * @return Livros não encontrados na Open Library.
+     */
+    public int getNaoEncontrados() {
+        return naoEncontrados;
+    }
+
+    /**
+     * @return Falhas ("isbn: motivo"), somente leitura.
+     */
+    public List<String> getFalhas() {
+        return Collections.unmodifiableList(falhas);
+    }
+
+    /**
+     * @return Duração da execução em milissegundos.
+     */
+    public long getDuracaoMs() {
+        return duracaoMs;
+    }
+
+    /**
+     * Retorna a quantidade de livros consultados nesta execução.
+     *
+     * @return Livros atualizados, sem alteração, não encontrados e com falha.
+     */
+    public int getProcessados() {
+        return atualizados + semAlteracao + naoEncontrados + falhas.size();
+    }
+
+    /**
+     * Retorna a vazão da execução.
+     *
+     * @return Livros consultados por segundo.
+     */
+    public double getLivrosPorSegundo() {
+        return duracaoMs > 0 ? getProcessados() * 1000.0 / duracaoMs : 0;
+    }
+
+    /**
+     * Retorna um resumo do resultado.
+     *
+     * @return Quantidades, duração e vazão.
+     */
+    @Override
+    public String toString() {
+        return String.format("%d livros (%d retomados): %d atualizados, %d sem alteração, %d não encontrados, %d falhas em %d ms (%.1f livros/s)",
+                total, retomados, atualizados, semAlteracao, naoEncontrados, falhas.size(), duracaoMs, getLivrosPorSegundo());
+    }
+}
@@ -0,0 +1,110 @@
+package giovanna.projeto.livraria1.model;
+
+import java.nio.file.Path;
+
+/**
+ * A classe <code>ResultadoImportacao</code> resume a importação de um arquivo
+ * CSV de livros: quantidades de registros lidos, inseridos e recusados, o
+ * arquivo com os registros recusados e os tempos de cada etapa.
+ *
+ * @author Giovanna
+ */
+public class ResultadoImportacao {
+
+    private final long lidos;
+    private final long inseridos;
+    private final long recusados;
+    private final Path arquivoRecusados;
+    private final long tempoCopiaMs;
+    private final long tempoMesclagemMs;
+
+    /**
+     * Construtor do resultado.
+     *
+     * @param lidos Registros lidos do arquivo (sem o cabeçalho).
+     * @param inseridos Livros inseridos na tabela de livros.
+     * @param recusados Registros recusados (na validação ou por ISBN já
+     * cadastrado).
+     * @param arquivoRecusados Arquivo com os registros recusados, ou null se
+     * não houve recusas.
+     * @param tempoCopiaMs Tempo de leitura, validação e cópia para o banco, em
+     * milissegundos.
+     * @param tempoMesclagemMs Tempo de inclusão na tabela de livros, em
+     * milissegundos.
+     */
+    public ResultadoImportacao(long lidos, long inseridos, long recusados, Path arquivoRecusados,
+            long tempoCopiaMs, long tempoMesclagemMs) {
+        this.lidos = lidos;
+        this.inseridos = inseridos;
+        this.recusados = recusados;
+        this.arquivoRecusados = arquivoRecusados;
+        this.tempoCopiaMs = tempoCopiaMs;
+        this.tempoMesclagemMs = tempoMesclagemMs;
+    }
+
+    /**
+     * @return Registros lidos do arquivo (sem o cabeçalho).
+     */
+    public long getLidos() {
+        return lidos;
+    }
+
+    /**
+     * @return Livros inseridos na tabela de livros.
+     */
+    public long getInseridos() {
+        return inseridos;
+    }
+
+    /**
+     * @return Registros recusados.
+     */
+    public long getRecusados() {
+        return recusados;
+    }
+
+    /**
+     * @return Arquivo com os registros recusados, ou null se não houve
+     * recusas.
+     */
+    public Path getArquivoRecusados() {
+        return arquivoRecusados;
+    }
+
+    /**
+     * @return Tempo de leitura, validação e cópia para o banco, em
+     * milissegundos.
+     */
+    public long getTempoCopiaMs() {
+        return tempoCopiaMs;
+    }
+
+    /**
+     * @return Tempo de inclusão na tabela de livros, em milissegundos.
+     */
+    public long getTempoMesclagemMs() {
+        return tempoMesclagemMs;
+    }
+
+    /**
+     * Retorna a vazão da importação completa.
+     *
+     * @return Registros lidos por segundo.
+     */
+    public long getRegistrosPorSegundo() {
+        long total = tempoCopiaMs + tempoMesclagemMs;
+        return total > 0 ? lidos * 1000 / total : lidos;
+    }
+
+    /**
+     * Retorna um resumo do resultado.
+     *
+     * @return Quantidades, tempos e vazão.
+     */
+    @Override
+    public String toString() {
+        return String.format("%d registros lidos, %d inseridos, %d recusados em %d ms (cópia %d ms, mesclagem %d ms; %d registros/s)",
+                lidos, inseridos, recusados, tempoCopiaMs + tempoMesclagemMs, tempoCopiaMs, tempoMesclagemMs,
+                getRegistrosPorSegundo());
+    }
+}
@@ -0,0 +1,132 @@
+package giovanna.projeto.livraria1.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A classe <code>ResultadoInsercao</code> representa o resultado de uma
+ * inserção de livros em lote: os livros inseridos (já com a etiqueta gerada)
+ * e os que foram recusados, com o motivo de cada recusa.
+ *
+ * Uma recusa não interrompe o lote; os demais livros continuam sendo
+ * inseridos.
+ *
+ * @author Giovanna
+ */
+public class ResultadoInsercao {
+
+    /**
+     * Livro recusado na inserção em lote.
+     */
+    public static class Falha {
+
+        // Posição do livro na lista recebida
+        private final int indice;
+
+        // Livro recusado
+        private final Livro livro;
+
+        // Motivo da recusa
+        private final String motivo;
+
+        /**
+         * Construtor da falha.
+         *
+         * @param indice Posição do livro na lista recebida.
+         * @param livro Livro recusado.
+         * @param motivo Motivo da recusa.
+         */
+        public Falha(int indice, Livro livro, String motivo) {
+            this.indice = indice;
+            this.livro = livro;
+            this.motivo = motivo;
+        }
+
+        /**
+         * Retorna a posição do livro na lista recebida.
+         *
+         * @return A posição do livro (a partir de 0).
+         */
+        public int getIndice() {
+            return indice;
+        }
+
+        /**
+         * Retorna o livro recusado.
+         *
+         * @return O livro recusado.
+         */
+        public Livro getLivro() {
+            return livro;
+        }
+
+        /**
+         * Retorna o motivo da recusa.
+         *
+         * @return O motivo da recusa.
+         */
+        public String getMotivo() {
+            return motivo;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + indice + " (" + (livro != null ? livro.getIsbn() : null) + "): " + motivo;
+        }
+    }
+
+    // Livros inseridos, com a etiqueta preenchida
+    private final List<Livro> inseridos = new ArrayList<>();
+
+    // Livros recusados
+    private final List<Falha> falhas = new ArrayList<>();
+
+    /**
+     * Registra um livro inserido.
+     *
+     * @param livro O livro inserido, com a etiqueta preenchida.
+     */
+    public void adicionarInserido(Livro livro) {
+        inseridos.add(livro);
+    }
+
+    /**
+     * Registra um livro recusado.
+     *
+     * @param indice Posição do livro na lista recebida.
+     * @param livro O livro recusado.
+     * @param motivo O motivo da recusa.
+     */
+    public void adicionarFalha(int indice, Livro livro, String motivo) {
+        falhas.add(new Falha(indice, livro, motivo));
+    }
+
+    /**
+     * Retorna os livros inseridos.
+     *
+     * @return Lista (somente leitura) dos livros inseridos.
+     */
+    public List<Livro> getInseridos() {
+        return Collections.unmodifiableList(inseridos);
+    }
+
+    /**
+     * Retorna os livros recusados, na ordem em que as recusas ocorreram.
+     *
+     * @return Lista (somente leitura) das falhas.
+     */
+    public List<Falha> getFalhas() {
+        return Collections.unmodifiableList(falhas);
+    }
+
+    /**
+     * Retorna um resumo do resultado.
+     *
+     * @return Quantidade de livros inseridos e recusados.
+     */
+    @Override
+    public String toString() {
+        return inseridos.size() + " livros inseridos, " + falhas.size() + " recusados";
+    }
+}
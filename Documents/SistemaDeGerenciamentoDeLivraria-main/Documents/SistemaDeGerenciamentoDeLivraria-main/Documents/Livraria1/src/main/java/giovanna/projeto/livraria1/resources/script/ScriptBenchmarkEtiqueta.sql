@@ -0,0 +1,94 @@
+-- ************************************************************
+-- BENCHMARK: Geração de etiquetas (sorteio com trigger x sequência)
+-- ************************************************************
+
+-- Mede a vazão de inserção em tabelas temporárias com a mesma estrutura de
+-- "livros", sem alterar os dados reais. Execute no psql:
+--   psql -d Livraria -f ScriptBenchmarkEtiqueta.sql
+-- Os tempos são exibidos como NOTICE.
+--
+-- Observação: o trigger antigo só gera valores entre 1000 e 9999, portanto não
+-- consegue inserir 10 mil linhas (o laço nunca termina). Ele é medido até
+-- 9000 linhas, o que já mostra a degradação conforme a faixa se esgota.
+
+CREATE TEMP TABLE bench_livros_sorteio (
+    etiqueta_livro INTEGER PRIMARY KEY,
+    titulo VARCHAR(80),
+    isbn VARCHAR(13)
+);
+
+CREATE TEMP SEQUENCE bench_seq_etiqueta AS INTEGER START WITH 10000;
+
+CREATE TEMP TABLE bench_livros_sequencia (
+    etiqueta_livro INTEGER PRIMARY KEY DEFAULT nextval('bench_seq_etiqueta'),
+    titulo VARCHAR(80),
+    isbn VARCHAR(13)
+);
+
+-- Cópia da função antiga, apontando para a tabela do benchmark
+CREATE FUNCTION pg_temp.fn_bench_gerar_etiqueta()
+RETURNS trigger AS $$
+DECLARE
+    etiqueta_nova INTEGER;
+BEGIN
+    LOOP
+        etiqueta_nova := FLOOR(random() * (9999 - 1000 + 1) + 1000);
+        IF NOT EXISTS (SELECT 1 FROM bench_livros_sorteio WHERE etiqueta_livro = etiqueta_nova) THEN
+            NEW.etiqueta_livro := etiqueta_nova;
+            EXIT;
+        END IF;
+    END LOOP;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_bench_gerar_etiqueta
+    BEFORE INSERT ON bench_livros_sorteio
+    FOR EACH ROW
+    EXECUTE FUNCTION pg_temp.fn_bench_gerar_etiqueta();
+
+DO $$
+DECLARE
+    inicio TIMESTAMPTZ;
+    ms NUMERIC;
+    n INTEGER;
+BEGIN
+    -- 1. Trigger antigo: inserção em faixas até esgotar 9000 etiquetas
+    FOREACH n IN ARRAY ARRAY[1000, 4000, 3000, 1000] LOOP
+        inicio := clock_timestamp();
+        INSERT INTO bench_livros_sorteio (titulo, isbn)
+        SELECT 'Livro ' || i, lpad(i::TEXT, 13, '0') FROM generate_series(1, n) AS i;
+        ms := EXTRACT(EPOCH FROM clock_timestamp() - inicio) * 1000;
+        RAISE NOTICE 'sorteio   | +% linhas (total %) | % ms | % linhas/s',
+            n, (SELECT COUNT(*) FROM bench_livros_sorteio), round(ms, 1), round(n / NULLIF(ms, 0) * 1000);
+    END LOOP;
+
+    -- 2. Sequência como DEFAULT da coluna
+    FOREACH n IN ARRAY ARRAY[10000, 100000, 1000000] LOOP
+        TRUNCATE bench_livros_sequencia;
+        inicio := clock_timestamp();
+        INSERT INTO bench_livros_sequencia (titulo, isbn)
+        SELECT 'Livro ' || i, lpad(i::TEXT, 13, '0') FROM generate_series(1, n) AS i;
+        ms := EXTRACT(EPOCH FROM clock_timestamp() - inicio) * 1000;
+        RAISE NOTICE 'sequencia | % linhas | % ms | % linhas/s', n, round(ms, 1), round(n / NULLIF(ms, 0) * 1000);
+    END LOOP;
+
+    -- 3. Reserva de bloco (como LivroDAO.reservarEtiquetas) e inserção com etiqueta explícita
+    FOREACH n IN ARRAY ARRAY[10000, 100000, 1000000] LOOP
+        TRUNCATE bench_livros_sequencia;
+        inicio := clock_timestamp();
+        CREATE TEMP TABLE bench_reserva ON COMMIT DROP AS
+            SELECT nextval('bench_seq_etiqueta')::INTEGER AS etiqueta, i
+            FROM generate_series(1, n) AS i;
+        INSERT INTO bench_livros_sequencia (etiqueta_livro, titulo, isbn)
+        SELECT etiqueta, 'Livro ' || i, lpad(i::TEXT, 13, '0') FROM bench_reserva;
+        DROP TABLE bench_reserva;
+        ms := EXTRACT(EPOCH FROM clock_timestamp() - inicio) * 1000;
+        RAISE NOTICE 'bloco     | % linhas | % ms | % linhas/s', n, round(ms, 1), round(n / NULLIF(ms, 0) * 1000);
+    END LOOP;
+END;
+$$;
+
+DROP TABLE bench_livros_sorteio;
+DROP TABLE bench_livros_sequencia;
+DROP SEQUENCE bench_seq_etiqueta;
@@ -2,6 +2,9 @@
 -- SCRIPT 2: Criação das Tabelas, Funções e Triggers no banco "Livraria"
 -- ************************************************************
 
+-- Extensão de trigramas, usada nos índices da busca por texto (LivroDAO.buscarLivrosPorFiltro)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 -- Criação da tabela de gêneros
 CREATE TABLE IF NOT EXISTS public.generos
 (
@@ -13,10 +16,20 @@ TABLESPACE pg_default;
 ALTER TABLE IF EXISTS public.generos
     OWNER TO postgres;
 
+-- Sequência que gera as etiquetas dos livros.
+-- Inicia em 10000 para não colidir com as etiquetas de 4 dígitos geradas pela versão anterior
+-- (bases existentes devem executar o ScriptMigracaoEtiqueta.sql).
+CREATE SEQUENCE IF NOT EXISTS public.seq_etiqueta_livro
+    AS INTEGER
+    START WITH 10000
+    INCREMENT BY 1;
+
+ALTER SEQUENCE IF EXISTS public.seq_etiqueta_livro OWNER TO postgres;
+
 -- Criação da tabela de livros
 CREATE TABLE IF NOT EXISTS public.livros
 (
-    etiqueta_livro INTEGER PRIMARY KEY,
+    etiqueta_livro INTEGER PRIMARY KEY DEFAULT nextval('public.seq_etiqueta_livro'),
     titulo VARCHAR(80),
     autor VARCHAR(80),
     editora VARCHAR(50),
@@ -30,6 +43,28 @@ CREATE TABLE IF NOT EXISTS public.livros
 
 ALTER TABLE IF EXISTS public.livros OWNER TO postgres;
 
+ALTER SEQUENCE public.seq_etiqueta_livro OWNED BY public.livros.etiqueta_livro;
+
+-- Índice usado pelo recálculo de similaridades (junção de livros do mesmo gênero)
+CREATE INDEX IF NOT EXISTS idx_livros_genero ON public.livros (genero_id);
+
+-- Índice da verificação de versão do grafo de similaridades (max(data_alteracao))
+CREATE INDEX IF NOT EXISTS idx_livros_data_alteracao ON public.livros (data_alteracao);
+
+-- Índices da listagem paginada (chave de ordenação + etiqueta, sem nulos)
+CREATE INDEX IF NOT EXISTS idx_livros_titulo_etiqueta ON public.livros ((COALESCE(titulo, '')), etiqueta_livro);
+CREATE INDEX IF NOT EXISTS idx_livros_autor_etiqueta ON public.livros ((COALESCE(autor, '')), etiqueta_livro);
+CREATE INDEX IF NOT EXISTS idx_livros_editora_etiqueta ON public.livros ((COALESCE(editora, '')), etiqueta_livro);
+CREATE INDEX IF NOT EXISTS idx_livros_isbn_etiqueta ON public.livros ((COALESCE(isbn, '')), etiqueta_livro);
+CREATE INDEX IF NOT EXISTS idx_livros_data_publicacao_etiqueta ON public.livros ((COALESCE(data_publicacao, DATE '0001-01-01')), etiqueta_livro);
+
+-- Índices de trigramas da busca por texto (atendem ILIKE '%texto%' sem varrer a tabela)
+CREATE INDEX IF NOT EXISTS idx_livros_titulo_trgm ON public.livros USING gin (titulo gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_livros_autor_trgm ON public.livros USING gin (autor gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_livros_editora_trgm ON public.livros USING gin (editora gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_livros_isbn_trgm ON public.livros USING gin (isbn gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_generos_nome_trgm ON public.generos USING gin (nome gin_trgm_ops);
+
 -- Função para atualizar a data de alteração
 CREATE OR REPLACE FUNCTION public.fn_atualizar_data_alteracao() 
 RETURNS trigger AS $$
@@ -39,43 +74,18 @@ BEGIN
 END;
 $$ LANGUAGE plpgsql;
 
--- Função para gerar etiqueta única
-CREATE OR REPLACE FUNCTION public.fn_gerar_etiqueta()
-RETURNS trigger AS $$
-DECLARE
-    etiqueta_nova INTEGER;
-BEGIN
-    LOOP
-        etiqueta_nova := FLOOR(random() * (9999 - 1000 + 1) + 1000);
-        -- Verifica se o valor já existe
-        IF NOT EXISTS (SELECT 1 FROM public.livros WHERE etiqueta_livro = etiqueta_nova) THEN
-            NEW.etiqueta_livro := etiqueta_nova;
-            EXIT;
-        END IF;
-    END LOOP;
-    RETURN NEW;
-END;
-$$ LANGUAGE plpgsql;
-
-ALTER FUNCTION public.fn_gerar_etiqueta()
-    OWNER TO postgres;
-
 -- Criação dos triggers
 CREATE TRIGGER trg_data_alteracao
     BEFORE UPDATE ON public.livros
     FOR EACH ROW
     EXECUTE FUNCTION public.fn_atualizar_data_alteracao();
 
-CREATE TRIGGER trg_gerar_etiqueta
-    BEFORE INSERT ON public.livros
-    FOR EACH ROW
-    EXECUTE FUNCTION public.fn_gerar_etiqueta();
-
 -- Criação da tabela de livros semelhantes
 CREATE TABLE IF NOT EXISTS public.livros_semelhantes
 (
     etiqueta_livro INTEGER NOT NULL,
     etiqueta_semelhante INTEGER NOT NULL,
+    pontuacao REAL, -- Calculada pelo sistema; NULL quando incluído manualmente
     PRIMARY KEY (etiqueta_livro, etiqueta_semelhante),
     FOREIGN KEY (etiqueta_livro) REFERENCES public.livros (etiqueta_livro) ON DELETE CASCADE,
     FOREIGN KEY (etiqueta_semelhante) REFERENCES public.livros (etiqueta_livro) ON DELETE CASCADE
@@ -83,6 +93,45 @@ CREATE TABLE IF NOT EXISTS public.livros_semelhantes
 
 ALTER TABLE IF EXISTS public.livros_semelhantes OWNER TO postgres;
 
+-- Similaridades gravadas pelo recálculo paralelo antes de substituírem as calculadas
+-- (UNLOGGED: o conteúdo é provisório e pode ser perdido numa queda do servidor)
+CREATE UNLOGGED TABLE IF NOT EXISTS public.livros_semelhantes_recalculo
+(
+    recalculo BIGINT NOT NULL, -- Identifica a execução do recálculo
+    genero_id INTEGER NOT NULL, -- Gênero do livro (0 = sem gênero), para retomar por gênero
+    etiqueta_livro INTEGER NOT NULL,
+    etiqueta_semelhante INTEGER NOT NULL,
+    pontuacao REAL NOT NULL
+);
+
+ALTER TABLE IF EXISTS public.livros_semelhantes_recalculo OWNER TO postgres;
+
+-- Execuções do recálculo paralelo, com a assinatura do catálogo calculado
+-- (um recálculo interrompido só é retomado se o catálogo não mudou)
+CREATE TABLE IF NOT EXISTS public.recalculos_similares
+(
+    recalculo BIGINT PRIMARY KEY,
+    iniciado_em TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    livros INTEGER NOT NULL,
+    soma_etiquetas BIGINT NOT NULL,
+    ultima_alteracao TIMESTAMP,
+    concluido_em TIMESTAMP -- NULL enquanto não concluído
+);
+
+ALTER TABLE IF EXISTS public.recalculos_similares OWNER TO postgres;
+
+-- Gêneros já gravados por um recálculo em andamento (pontos de retomada)
+CREATE TABLE IF NOT EXISTS public.recalculos_similares_generos
+(
+    recalculo BIGINT NOT NULL REFERENCES public.recalculos_similares (recalculo) ON DELETE CASCADE,
+    genero_id INTEGER NOT NULL, -- 0 = livros sem gênero
+    linhas BIGINT NOT NULL,
+    concluido_em TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (recalculo, genero_id)
+);
+
+ALTER TABLE IF EXISTS public.recalculos_similares_generos OWNER TO postgres;
+
 -- Ajustar propriedade de ownership das tabelas
 ALTER TABLE IF EXISTS public.generos OWNER TO postgres;
 
@@ -0,0 +1,39 @@
+-- ************************************************************
+-- SCRIPT DE MIGRAÇÃO: Índices da busca por texto
+-- ************************************************************
+
+-- Cria, em bases já existentes, a extensão pg_trgm e os índices usados pela
+-- busca e pela listagem paginada da tela de cadastro
+-- (LivroDAO.buscarLivrosPorFiltro). Bases novas já os recebem pelo
+-- ScriptCriacaoTabelas.sql.
+-- Os índices são criados com CONCURRENTLY para não bloquear o cadastro de
+-- livros; por isso o script não deve ser executado dentro de uma transação.
+-- O script pode ser executado mais de uma vez sem efeitos colaterais.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_titulo_trgm ON public.livros USING gin (titulo gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_autor_trgm ON public.livros USING gin (autor gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_editora_trgm ON public.livros USING gin (editora gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_isbn_trgm ON public.livros USING gin (isbn gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_generos_nome_trgm ON public.generos USING gin (nome gin_trgm_ops);
+
+-- Usados pela busca por gênero e por ano/data de publicação
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_genero ON public.livros (genero_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_data_publicacao_etiqueta
+    ON public.livros ((COALESCE(data_publicacao, DATE '0001-01-01')), etiqueta_livro);
+
+-- Usados pela listagem paginada (chave de ordenação + etiqueta, sem nulos)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_titulo_etiqueta ON public.livros ((COALESCE(titulo, '')), etiqueta_livro);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_autor_etiqueta ON public.livros ((COALESCE(autor, '')), etiqueta_livro);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_editora_etiqueta ON public.livros ((COALESCE(editora, '')), etiqueta_livro);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_isbn_etiqueta ON public.livros ((COALESCE(isbn, '')), etiqueta_livro);
+
+ANALYZE public.livros;
+ANALYZE public.generos;
+
+-- ************************************************************
+-- INSTRUÇÕES:
+-- Execute este script no banco "Livraria" com o usuário proprietário das tabelas
+-- (a criação da extensão pg_trgm pode exigir um superusuário).
+-- ************************************************************
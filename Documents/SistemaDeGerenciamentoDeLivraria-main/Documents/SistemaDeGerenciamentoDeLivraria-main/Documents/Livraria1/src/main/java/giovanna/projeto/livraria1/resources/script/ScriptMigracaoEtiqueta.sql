@@ -0,0 +1,47 @@
+-- ************************************************************
+-- SCRIPT DE MIGRAÇÃO: Geração de etiquetas por sequência
+-- ************************************************************
+
+-- Este script substitui a função fn_gerar_etiqueta(), que sorteava valores
+-- entre 1000 e 9999 e consultava a tabela a cada tentativa, por uma sequência.
+-- As etiquetas já existentes são mantidas; as novas passam a ser geradas a
+-- partir do maior valor entre 10000 e a maior etiqueta cadastrada.
+-- O script pode ser executado mais de uma vez sem efeitos colaterais.
+
+BEGIN;
+
+-- Impede inserções concorrentes enquanto a sequência é ajustada
+LOCK TABLE public.livros IN SHARE ROW EXCLUSIVE MODE;
+
+CREATE SEQUENCE IF NOT EXISTS public.seq_etiqueta_livro
+    AS INTEGER
+    START WITH 10000
+    INCREMENT BY 1;
+
+ALTER SEQUENCE public.seq_etiqueta_livro OWNER TO postgres;
+
+-- Posiciona a sequência após a maior etiqueta existente, sem nunca recuá-la:
+-- etiquetas já reservadas pela aplicação e ainda não gravadas não podem ser reutilizadas
+SELECT setval('public.seq_etiqueta_livro',
+              GREATEST((SELECT MAX(etiqueta_livro) FROM public.livros), 9999,
+                       (SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END
+                          FROM public.seq_etiqueta_livro)));
+
+ALTER TABLE public.livros
+    ALTER COLUMN etiqueta_livro SET DEFAULT nextval('public.seq_etiqueta_livro');
+
+ALTER SEQUENCE public.seq_etiqueta_livro OWNED BY public.livros.etiqueta_livro;
+
+-- Remove o trigger e a função de sorteio antigos
+DROP TRIGGER IF EXISTS trg_gerar_etiqueta ON public.livros;
+DROP FUNCTION IF EXISTS public.fn_gerar_etiqueta();
+
+COMMIT;
+
+-- ************************************************************
+-- INSTRUÇÕES:
+-- 1. Conecte-se ao banco "Livraria" e execute este script uma única vez
+--    (execuções repetidas apenas avançam a sequência, se necessário).
+-- 2. Reservas de etiquetas feitas pela aplicação (LivroDAO.reservarEtiquetas)
+--    também utilizam esta sequência, então não há colisão entre as duas formas.
+-- ************************************************************
@@ -0,0 +1,65 @@
+-- ************************************************************
+-- SCRIPT DE MIGRAÇÃO: Recálculo e verificação das similaridades
+-- ************************************************************
+
+-- Cria, em bases já existentes, as tabelas do recálculo paralelo de
+-- similaridades (GerenciadorSimilares e AgendadorSimilares) e o índice usado
+-- para verificar se o grafo de similaridades carregado pela aplicação está
+-- desatualizado (LivroSimilaresDAO.lerVersaoSimilares). Bases novas já os
+-- recebem pelo ScriptCriacaoTabelas.sql. A aplicação não cria essas tabelas:
+-- sem este script, o recálculo falha.
+-- O índice é criado com CONCURRENTLY para não bloquear o cadastro de livros;
+-- por isso o script não deve ser executado dentro de uma transação.
+-- O script pode ser executado mais de uma vez sem efeitos colaterais.
+
+-- Similaridades gravadas pelo recálculo paralelo antes de substituírem as calculadas
+CREATE UNLOGGED TABLE IF NOT EXISTS public.livros_semelhantes_recalculo
+(
+    recalculo BIGINT NOT NULL,
+    genero_id INTEGER NOT NULL,
+    etiqueta_livro INTEGER NOT NULL,
+    etiqueta_semelhante INTEGER NOT NULL,
+    pontuacao REAL NOT NULL
+);
+
+-- Bases em que a tabela foi criada antes da retomada por gênero não têm a
+-- coluna genero_id. As linhas já gravadas recebem 0 ("sem gênero"), mas
+-- nunca são aproveitadas: nenhum gênero delas consta em
+-- recalculos_similares_generos
+ALTER TABLE public.livros_semelhantes_recalculo ADD COLUMN IF NOT EXISTS genero_id INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE public.livros_semelhantes_recalculo ALTER COLUMN genero_id DROP DEFAULT;
+
+ALTER TABLE IF EXISTS public.livros_semelhantes_recalculo OWNER TO postgres;
+
+-- Execuções do recálculo paralelo, com a assinatura do catálogo calculado
+CREATE TABLE IF NOT EXISTS public.recalculos_similares
+(
+    recalculo BIGINT PRIMARY KEY,
+    iniciado_em TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    livros INTEGER NOT NULL,
+    soma_etiquetas BIGINT NOT NULL,
+    ultima_alteracao TIMESTAMP,
+    concluido_em TIMESTAMP
+);
+
+ALTER TABLE IF EXISTS public.recalculos_similares OWNER TO postgres;
+
+-- Gêneros já gravados por um recálculo em andamento (pontos de retomada)
+CREATE TABLE IF NOT EXISTS public.recalculos_similares_generos
+(
+    recalculo BIGINT NOT NULL REFERENCES public.recalculos_similares (recalculo) ON DELETE CASCADE,
+    genero_id INTEGER NOT NULL,
+    linhas BIGINT NOT NULL,
+    concluido_em TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (recalculo, genero_id)
+);
+
+ALTER TABLE IF EXISTS public.recalculos_similares_generos OWNER TO postgres;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_livros_data_alteracao ON public.livros (data_alteracao);
+
+-- ************************************************************
+-- INSTRUÇÕES:
+-- Execute este script no banco "Livraria" com o usuário proprietário das
+-- tabelas, antes de usar a nova versão da aplicação.
+-- ************************************************************
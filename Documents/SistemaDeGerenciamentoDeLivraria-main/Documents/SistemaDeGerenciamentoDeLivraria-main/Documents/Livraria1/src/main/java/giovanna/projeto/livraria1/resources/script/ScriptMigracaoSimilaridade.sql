@@ -0,0 +1,45 @@
+-- ************************************************************
+-- SCRIPT DE MIGRAÇÃO: Pontuação dos livros semelhantes
+-- ************************************************************
+
+-- Este script adiciona a coluna pontuacao à tabela livros_semelhantes. O
+-- sistema passa a guardar apenas os livros mais parecidos com cada livro,
+-- com a pontuação calculada, em vez de ligar todos os livros do mesmo gênero
+-- entre si. Ligações com pontuação NULL foram incluídas manualmente e nunca
+-- são removidas pelo recálculo.
+-- As ligações existentes entre livros do mesmo gênero vieram do cálculo
+-- antigo e recebem pontuação 0, para que o próximo recálculo as substitua;
+-- as demais são tratadas como manuais.
+-- O script pode ser executado mais de uma vez sem efeitos colaterais.
+
+BEGIN;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1
+                   FROM information_schema.columns
+                   WHERE table_schema = 'public'
+                     AND table_name = 'livros_semelhantes'
+                     AND column_name = 'pontuacao') THEN
+
+        ALTER TABLE public.livros_semelhantes ADD COLUMN pontuacao REAL;
+
+        UPDATE public.livros_semelhantes ls
+        SET pontuacao = 0
+        FROM public.livros l, public.livros s
+        WHERE l.etiqueta_livro = ls.etiqueta_livro
+          AND s.etiqueta_livro = ls.etiqueta_semelhante
+          AND l.genero_id = s.genero_id;
+    END IF;
+END
+$$;
+
+COMMIT;
+
+-- ************************************************************
+-- INSTRUÇÕES:
+-- 1. Conecte-se ao banco "Livraria" e execute este script uma única vez
+--    (execuções repetidas não alteram as ligações já marcadas).
+-- 2. Em seguida, recalcule os livros semelhantes pela aplicação; até lá as
+--    ligações antigas continuam sendo exibidas, com similaridade 0%.
+-- ************************************************************
@@ -0,0 +1,602 @@
+package giovanna.projeto.livraria1.services;
+
+import giovanna.projeto.livraria1.dao.LivroSimilaresDAO;
+import giovanna.projeto.livraria1.util.ConnectionFactory;
+import giovanna.projeto.livraria1.util.GerenciadorSimilares;
+import giovanna.projeto.livraria1.util.ProgressoListener;
+import giovanna.projeto.livraria1.util.RecalculoEmAndamentoException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executa o recálculo paralelo de similaridades
+ * ({@link GerenciadorSimilares#calcularSimilaridadesEmParalelo(ProgressoListener, int, java.util.function.BooleanSupplier)})
+ * em segundo plano, sob demanda ({@link #executarAgora()}) ou todos os dias
+ * num horário ({@link #agendarDiariamente(LocalTime)}), sem travar a janela
+ * principal.
+ *
+ * <p>
+ * Os recálculos rodam um de cada vez numa única thread: pedir um recálculo
+ * enquanto outro está em andamento devolve a tarefa em andamento. Cada
+ * {@link Tarefa} informa o estado e o andamento, que podem ser lidos de
+ * qualquer thread, e pode ser cancelada; os ouvintes registrados
+ * ({@link #adicionarOuvinte(ProgressoListener)}) recebem o andamento de
+ * todas as tarefas.
+ * </p>
+ * <p>
+ * Vários computadores podem agendar o recálculo no mesmo horário: a trava do
+ * banco deixa só um executar, e os demais ficam com a tarefa
+ * {@link Estado#IGNORADA}. Um recálculo agendado também é ignorado se outro
+ * foi concluído há menos de {@link #INTERVALO_MINIMO_AGENDADO}. Um recálculo
+ * interrompido (cancelado, com falha ou com o programa fechado) é retomado na
+ * execução seguinte, e {@link #iniciar()} agenda a retomada logo depois da
+ * abertura do programa.
+ * </p>
+ * <p>
+ * A configuração fica no arquivo {@value #ARQUIVO_CONFIGURACAO}.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class AgendadorSimilares {
+
+    private static final Logger LOGGER = Logger.getLogger(AgendadorSimilares.class.getName());
+
+    private static final String ARQUIVO_CONFIGURACAO = "SimilaresConfig.properties";
+
+    /**
+     * Intervalo mínimo entre um recálculo concluído e o próximo agendado.
+     */
+    public static final Duration INTERVALO_MINIMO_AGENDADO = Duration.ofHours(12);
+
+    /**
+     * Espera, depois de {@link #iniciar()}, para retomar um recálculo
+     * interrompido.
+     */
+    private static final Duration ESPERA_RETOMADA = Duration.ofMinutes(1);
+
+    private static AgendadorSimilares instancia;
+
+    /**
+     * Acesso ao recálculo e aos seus registros no banco, usado pelo agendador.
+     */
+    public interface Recalculo {
+
+        /**
+         * Executa um recálculo completo.
+         *
+         * @param progresso Ouvinte do andamento.
+         * @param paralelismo Threads do recálculo (0 para o padrão).
+         * @param cancelamento Devolve true quando o cancelamento foi pedido.
+         * @return Quantidade de relações de similaridade criadas.
+         * @throws RecalculoEmAndamentoException Se outro recálculo estiver em
+         * andamento.
+         * @throws CancellationException Se o recálculo for cancelado.
+         * @throws Exception Se ocorrer um erro durante o recálculo.
+         */
+        int executar(ProgressoListener progresso, int paralelismo, BooleanSupplier cancelamento) throws Exception;
+
+        /**
+         * @return Conclusão do último recálculo completo, ou null se nenhum
+         * foi concluído.
+         * @throws SQLException Caso ocorra um erro no banco.
+         */
+        Timestamp buscarUltimoConcluido() throws SQLException;
+
+        /**
+         * @return true se há um recálculo interrompido a retomar.
+         * @throws SQLException Caso ocorra um erro no banco.
+         */
+        boolean existePendente() throws SQLException;
+    }
+
+    /**
+     * Recálculo paralelo do {@link GerenciadorSimilares}, com os registros do
+     * {@link LivroSimilaresDAO}.
+     */
+    private static final class RecalculoNoBanco implements Recalculo {
+
+        private final LivroSimilaresDAO similaresDAO = new LivroSimilaresDAO();
+
+        @Override
+        public int executar(ProgressoListener progresso, int paralelismo, BooleanSupplier cancelamento) throws Exception {
+            return GerenciadorSimilares.calcularSimilaridadesEmParalelo(progresso, paralelismo, cancelamento);
+        }
+
+        @Override
+        public Timestamp buscarUltimoConcluido() throws SQLException {
+            try (Connection connection = ConnectionFactory.getConnection()) {
+                return similaresDAO.buscarUltimoRecalculoConcluido(connection);
+            }
+        }
+
+        @Override
+        public boolean existePendente() throws SQLException {
+            try (Connection connection = ConnectionFactory.getConnection()) {
+                return similaresDAO.existeRecalculoPendente(connection);
+            }
+        }
+    }
+
+    /**
+     * Estado de uma tarefa de recálculo.
+     */
+    public enum Estado {
+        NA_FILA("Na fila"),
+        EM_EXECUCAO("Em execução"),
+        CONCLUIDA("Concluída"),
+        CANCELADA("Cancelada"),
+        IGNORADA("Ignorada"),
+        FALHOU("Falhou");
+
+        private final String descricao;
+
+        Estado(String descricao) {
+            this.descricao = descricao;
+        }
+
+        /**
+         * @return true se a tarefa já terminou (com ou sem sucesso).
+         */
+        public boolean isEncerrado() {
+            return this != NA_FILA && this != EM_EXECUCAO;
+        }
+
+        @Override
+        public String toString() {
+            return descricao;
+        }
+    }
+
+    /**
+     * Recálculo pedido ao agendador. Os dados podem ser lidos de qualquer
+     * thread (por exemplo, pela tela que exibe o andamento).
+     */
+    public static final class Tarefa {
+
+        private final int id;
+        private final boolean agendada;
+        private final long criada = System.currentTimeMillis();
+        private volatile Estado estado = Estado.NA_FILA;
+        private volatile int livrosProcessados;
+        private volatile int totalLivros;
+        private volatile String mensagem = "Aguardando";
+        private volatile int relacoes;
+        private volatile long iniciadaNanos;
+        private volatile long duracaoMs;
+        private volatile Throwable erro;
+        private volatile boolean cancelamentoPedido;
+        private volatile Future<?> futuro;
+
+        private Tarefa(int id, boolean agendada) {
+            this.id = id;
+            this.agendada = agendada;
+        }
+
+        /**
+         * @return Número da tarefa, em ordem de pedido.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return true se a tarefa foi criada pelo agendamento; false se foi
+         * pedida.
+         */
+        public boolean isAgendada() {
+            return agendada;
+        }
+
+        /**
+         * @return Momento do pedido, em milissegundos desde a época.
+         */
+        public long getCriada() {
+            return criada;
+        }
+
+        /**
+         * @return Estado atual da tarefa.
+         */
+        public Estado getEstado() {
+            return estado;
+        }
+
+        /**
+         * @return Livros já processados (inclusive os aproveitados de um
+         * recálculo interrompido).
+         */
+        public int getLivrosProcessados() {
+            return livrosProcessados;
+        }
+
+        /**
+         * @return Quantidade de livros do catálogo, ou 0 antes da carga.
+         */
+        public int getTotalLivros() {
+            return totalLivros;
+        }
+
+        /**
+         * @return Descrição da etapa atual ou do resultado.
+         */
+        public String getMensagem() {
+            return mensagem;
+        }
+
+        /**
+         * @return Relações de similaridade criadas (depois de concluída).
+         */
+        public int getRelacoes() {
+            return relacoes;
+        }
+
+        /**
+         * @return Duração do recálculo em milissegundos (até agora, se ainda
+         * em execução; 0 se ainda não começou).
+         */
+        public long getDuracaoMs() {
+            if (estado == Estado.EM_EXECUCAO) {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - iniciadaNanos);
+            }
+            return duracaoMs;
+        }
+
+        /**
+         * @return A falha do recálculo, ou null.
+         */
+        public Throwable getErro() {
+            return erro;
+        }
+
+        /**
+         * Cancela o recálculo. Na fila, ele não chega a ser executado; em
+         * execução, as partições em andamento terminam, as demais não são
+         * calculadas e as similaridades não são alteradas (os gêneros já
+         * gravados são aproveitados no próximo recálculo). Não tem efeito em
+         * tarefas encerradas.
+         */
+        public void cancelar() {
+            if (estado.isEncerrado()) {
+                return;
+            }
+            cancelamentoPedido = true;
+            Future<?> atual = futuro;
+            if (atual != null && atual.cancel(false)) {
+                encerrar(Estado.CANCELADA, "Cancelada antes de começar", null); // Ainda estava na fila
+            }
+        }
+
+        private boolean isCancelamentoPedido() {
+            return cancelamentoPedido;
+        }
+
+        private void progresso(int concluido, int total, String mensagem) {
+            this.livrosProcessados = concluido;
+            this.totalLivros = total;
+            this.mensagem = mensagem;
+        }
+
+        private synchronized boolean iniciar() {
+            if (cancelamentoPedido || estado != Estado.NA_FILA) {
+                return false;
+            }
+            iniciadaNanos = System.nanoTime();
+            estado = Estado.EM_EXECUCAO;
+            mensagem = "Carregando os livros";
+            return true;
+        }
+
+        private synchronized void encerrar(Estado resultado, String mensagem, Throwable erro) {
+            if (estado.isEncerrado()) {
+                return;
+            }
+            if (estado == Estado.EM_EXECUCAO) {
+                duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - iniciadaNanos);
+            }
+            this.mensagem = mensagem;
+            this.erro = erro;
+            estado = resultado;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + id + (agendada ? " agendado" : "") + " (" + estado + ": " + mensagem + ")";
+        }
+    }
+
+    private final ScheduledExecutorService executor;
+    private final int paralelismo;
+    private final Recalculo recalculo;
+    private final List<ProgressoListener> ouvintes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger sequencia = new AtomicInteger();
+    private volatile Tarefa atual;
+    private ScheduledFuture<?> agendamento;
+    private LocalTime horario;
+
+    /**
+     * Retorna o agendador compartilhado pela aplicação, criando-o no primeiro
+     * uso com o paralelismo configurado.
+     *
+     * @return O agendador.
+     */
+    public static synchronized AgendadorSimilares getInstancia() {
+        if (instancia == null) {
+            instancia = new AgendadorSimilares(Integer.parseInt(carregarConfiguracao().getProperty("similares_paralelismo", "0")));
+        }
+        return instancia;
+    }
+
+    /**
+     * Cria um agendador do recálculo paralelo do {@link GerenciadorSimilares}.
+     *
+     * @param paralelismo Threads de cada recálculo (0 para o padrão,
+     * {@link GerenciadorSimilares#paralelismoPadrao()}).
+     */
+    public AgendadorSimilares(int paralelismo) {
+        this(paralelismo, new RecalculoNoBanco());
+    }
+
+    /**
+     * Cria um agendador.
+     *
+     * @param paralelismo Threads de cada recálculo (0 para o padrão).
+     * @param recalculo Recálculo executado pelas tarefas.
+     */
+    public AgendadorSimilares(int paralelismo, Recalculo recalculo) {
+        this.paralelismo = paralelismo;
+        this.recalculo = recalculo;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "agendador-similares");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Properties carregarConfiguracao() {
+        Properties propriedades = new Properties();
+        try (InputStream entrada = AgendadorSimilares.class.getClassLoader().getResourceAsStream(ARQUIVO_CONFIGURACAO)) {
+            if (entrada != null) {
+                propriedades.load(entrada);
+            } else {
+                LOGGER.log(Level.WARNING, "Arquivo {0} não localizado; usando a configuração padrão.", ARQUIVO_CONFIGURACAO);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Erro ao ler " + ARQUIVO_CONFIGURACAO + "; usando a configuração padrão.", e);
+        }
+        return propriedades;
+    }
+
+    /**
+     * Aplica a configuração ao abrir o programa: agenda o recálculo diário, se
+     * habilitado, e a retomada de um recálculo interrompido, se houver.
+     */
+    public void iniciar() {
+        Properties propriedades = carregarConfiguracao();
+        if (Boolean.parseBoolean(propriedades.getProperty("similares_agendamento_habilitado", "true"))) {
+            agendarDiariamente(LocalTime.parse(propriedades.getProperty("similares_agendamento_horario", "03:00")));
+        }
+        executor.execute(this::agendarRetomada); // Consulta o banco fora da thread da interface
+    }
+
+    private void agendarRetomada() {
+        try {
+            if (recalculo.existePendente()) {
+                LOGGER.info("Há um recálculo de similaridades interrompido; ele será retomado em instantes.");
+                executor.schedule(this::executarAgora, ESPERA_RETOMADA.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Não foi possível verificar recálculos de similaridades interrompidos", e);
+        }
+    }
+
+    /**
+     * Agenda o recálculo para todos os dias no horário informado (no fuso do
+     * computador), substituindo o agendamento anterior.
+     *
+     * @param horario Horário do recálculo.
+     */
+    public synchronized void agendarDiariamente(LocalTime horario) {
+        cancelarAgendamento();
+        this.horario = horario;
+        agendarProxima();
+    }
+
+    /**
+     * Cancela o recálculo diário. Não afeta o recálculo em andamento.
+     */
+    public synchronized void cancelarAgendamento() {
+        horario = null;
+        if (agendamento != null) {
+            agendamento.cancel(false);
+            agendamento = null;
+        }
+    }
+
+    /**
+     * @return Próximo recálculo agendado, ou null se não há agendamento.
+     */
+    public synchronized ZonedDateTime getProximaExecucao() {
+        return horario != null ? proximaExecucao(horario, ZonedDateTime.now()) : null;
+    }
+
+    /**
+     * Calcula o próximo momento, a partir de {@code agora}, em que o relógio
+     * marca o horário informado. Nos dias de mudança de horário de verão, o
+     * intervalo até lá pode ter 23 ou 25 horas.
+     *
+     * @param horario Horário do recálculo.
+     * @param agora Momento atual, com o fuso.
+     * @return O próximo momento (sempre depois de {@code agora}).
+     */
+    public static ZonedDateTime proximaExecucao(LocalTime horario, ZonedDateTime agora) {
+        ZonedDateTime proxima = agora.with(horario);
+        if (!proxima.isAfter(agora)) {
+            proxima = agora.plusDays(1).with(horario);
+        }
+        return proxima;
+    }
+
+    /**
+     * Indica se um recálculo agendado deve ser ignorado porque outro foi
+     * concluído há menos de {@link #INTERVALO_MINIMO_AGENDADO}.
+     *
+     * @param ultimoConcluido Conclusão do último recálculo (pode ser null).
+     * @param agora Momento atual.
+     * @return true se o recálculo agendado deve ser ignorado.
+     */
+    public static boolean isConcluidoHaPouco(Timestamp ultimoConcluido, Instant agora) {
+        return ultimoConcluido != null
+                && Duration.between(ultimoConcluido.toInstant(), agora).compareTo(INTERVALO_MINIMO_AGENDADO) < 0;
+    }
+
+    /**
+     * Agenda o próximo recálculo diário. Cada execução agenda a seguinte, para
+     * que o horário acompanhe o relógio mesmo com o horário de verão.
+     */
+    private synchronized void agendarProxima() {
+        if (horario == null || executor.isShutdown()) {
+            return;
+        }
+        ZonedDateTime agora = ZonedDateTime.now();
+        long espera = Duration.between(agora, proximaExecucao(horario, agora)).toMillis();
+        agendamento = executor.schedule(this::executarAgendado, espera, TimeUnit.MILLISECONDS);
+        LOGGER.log(Level.FINE, "Próximo recálculo de similaridades em {0}", proximaExecucao(horario, agora));
+    }
+
+    /**
+     * Executa o recálculo agendado, a menos que outro tenha sido concluído há
+     * pouco (por exemplo, por outro computador no mesmo horário).
+     */
+    private void executarAgendado() {
+        try {
+            Timestamp ultimo = recalculo.buscarUltimoConcluido();
+            if (isConcluidoHaPouco(ultimo, Instant.now())) {
+                LOGGER.log(Level.INFO, "Recálculo agendado de similaridades ignorado: o último foi concluído em {0}.", ultimo);
+                return;
+            }
+            Tarefa tarefa = criarTarefa(true);
+            if (tarefa.iniciar()) {
+                executar(tarefa); // Já está na thread do agendador
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao iniciar o recálculo agendado de similaridades", e);
+        } finally {
+            agendarProxima();
+        }
+    }
+
+    /**
+     * Pede um recálculo em segundo plano. Se já houver um na fila ou em
+     * andamento neste programa, devolve esse.
+     *
+     * @return A tarefa do recálculo.
+     */
+    public synchronized Tarefa executarAgora() {
+        Tarefa emAndamento = atual;
+        if (emAndamento != null && !emAndamento.getEstado().isEncerrado()) {
+            return emAndamento;
+        }
+        Tarefa tarefa = criarTarefa(false);
+        tarefa.futuro = executor.submit(() -> {
+            if (tarefa.iniciar()) {
+                executar(tarefa);
+            }
+        });
+        LOGGER.log(Level.INFO, "Recálculo de similaridades pedido: {0}", tarefa);
+        return tarefa;
+    }
+
+    private synchronized Tarefa criarTarefa(boolean agendada) {
+        Tarefa tarefa = new Tarefa(sequencia.incrementAndGet(), agendada);
+        atual = tarefa;
+        return tarefa;
+    }
+
+    /**
+     * @return O recálculo mais recente deste programa (em andamento ou
+     * encerrado), ou null se nenhum foi executado.
+     */
+    public Tarefa getAtual() {
+        return atual;
+    }
+
+    /**
+     * Registra um ouvinte do andamento de todos os recálculos. É chamado
+     * pelas threads do recálculo, não pela thread da interface.
+     *
+     * @param ouvinte O ouvinte.
+     */
+    public void adicionarOuvinte(ProgressoListener ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    /**
+     * Remove um ouvinte registrado.
+     *
+     * @param ouvinte O ouvinte.
+     */
+    public void removerOuvinte(ProgressoListener ouvinte) {
+        ouvintes.remove(ouvinte);
+    }
+
+    /**
+     * Cancela o agendamento e o recálculo em andamento e encerra a thread do
+     * agendador.
+     */
+    public void encerrar() {
+        cancelarAgendamento();
+        Tarefa emAndamento = atual;
+        if (emAndamento != null) {
+            emAndamento.cancelar();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Executa o recálculo de uma tarefa já iniciada, na thread do agendador.
+     */
+    private void executar(Tarefa tarefa) {
+        ProgressoListener progresso = (concluido, total, mensagem) -> {
+            tarefa.progresso(concluido, total, mensagem);
+            for (ProgressoListener ouvinte : ouvintes) {
+                ouvinte.progresso(concluido, total, mensagem);
+            }
+        };
+        try {
+            int relacoes = recalculo.executar(progresso, paralelismo, tarefa::isCancelamentoPedido);
+            tarefa.relacoes = relacoes;
+            tarefa.encerrar(Estado.CONCLUIDA, relacoes + " similaridade(s) calculada(s)", null);
+            LOGGER.log(Level.INFO, "Recálculo de similaridades concluído: {0}", tarefa);
+        } catch (RecalculoEmAndamentoException e) {
+            tarefa.encerrar(Estado.IGNORADA, e.getMessage(), null);
+            LOGGER.log(Level.INFO, "Recálculo de similaridades ignorado: {0}", tarefa);
+        } catch (CancellationException e) {
+            tarefa.encerrar(Estado.CANCELADA, "Cancelada; será retomada no próximo recálculo", null);
+            LOGGER.log(Level.INFO, "Recálculo de similaridades cancelado: {0}", tarefa);
+        } catch (Exception e) {
+            tarefa.encerrar(Estado.FALHOU, "Erro: " + e.getMessage(), e);
+            LOGGER.log(Level.SEVERE, "Erro no recálculo de similaridades " + tarefa, e);
+        }
+    }
+}
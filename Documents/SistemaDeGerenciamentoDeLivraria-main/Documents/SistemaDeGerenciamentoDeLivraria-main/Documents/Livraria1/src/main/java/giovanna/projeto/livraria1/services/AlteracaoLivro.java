@@ -0,0 +1,87 @@
+package giovanna.projeto.livraria1.services;
+
+/**
+ * Alteração no cadastro de um livro, publicada pelo {@link LivroService} depois
+ * que a alteração é gravada no banco (inclusive as feitas pela importação e
+ * pelo enriquecimento em massa).
+ *
+ * @author Giovanna
+ */
+public final class AlteracaoLivro {
+
+    /**
+     * Tipo da alteração.
+     */
+    public enum Tipo {
+        INCLUIDO,
+        ALTERADO,
+        EXCLUIDO
+    }
+
+    /**
+     * Recebe as alterações publicadas pelo {@link LivroService}.
+     *
+     * @see LivroService#adicionarOuvinte(Ouvinte)
+     */
+    @FunctionalInterface
+    public interface Ouvinte {
+
+        /**
+         * Chamado na thread que gravou a alteração; não deve bloquear.
+         *
+         * @param alteracao A alteração gravada.
+         */
+        void livroAlterado(AlteracaoLivro alteracao);
+    }
+
+    private final Tipo tipo;
+    private final int etiqueta;
+
+    /**
+     * Cria uma alteração.
+     *
+     * @param tipo Tipo da alteração.
+     * @param etiqueta Etiqueta do livro.
+     */
+    public AlteracaoLivro(Tipo tipo, int etiqueta) {
+        this.tipo = tipo;
+        this.etiqueta = etiqueta;
+    }
+
+    /**
+     * @param etiqueta Etiqueta do livro incluído.
+     * @return A alteração de inclusão.
+     */
+    public static AlteracaoLivro inclusao(int etiqueta) {
+        return new AlteracaoLivro(Tipo.INCLUIDO, etiqueta);
+    }
+
+    /**
+     * @param etiqueta Etiqueta do livro alterado.
+     * @return A alteração de dados.
+     */
+    public static AlteracaoLivro alteracao(int etiqueta) {
+        return new AlteracaoLivro(Tipo.ALTERADO, etiqueta);
+    }
+
+    /**
+     * @param etiqueta Etiqueta do livro excluído.
+     * @return A alteração de exclusão.
+     */
+    public static AlteracaoLivro exclusao(int etiqueta) {
+        return new AlteracaoLivro(Tipo.EXCLUIDO, etiqueta);
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public int getEtiqueta() {
+        return etiqueta;
+    }
+
+    @Override
+    public String toString() {
+        return tipo + " " + etiqueta;
+    }
+}
@@ -0,0 +1,487 @@
+package giovanna.projeto.livraria1.services;
+
+import giovanna.projeto.livraria1.dao.LivroDAO;
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.model.ResultadoEnriquecimento;
+import giovanna.projeto.livraria1.util.Disjuntor;
+import giovanna.projeto.livraria1.util.ISBNApiClient;
+import giovanna.projeto.livraria1.util.ISBNUtil;
+import giovanna.projeto.livraria1.util.LimitadorTaxa;
+import giovanna.projeto.livraria1.util.ProgressoListener;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.rpc.ServiceException;
+
+/**
+ * Enriquecimento em massa dos livros cadastrados com dados da Open Library.
+ *
+ * <p>
+ * Completa o título, o autor, a editora e a data de publicação dos livros em
+ * que esses dados estão ausentes ou marcados como "não disponível" (marcador
+ * usado pelo {@code ConverterLivro} quando a API não traz o dado). Dados já
+ * preenchidos nunca são sobrescritos.
+ * </p>
+ * <p>
+ * As consultas são assíncronas, com no máximo {@code concorrencia} em
+ * andamento e a taxa limitada por um balde de fichas ({@link LimitadorTaxa}),
+ * para respeitar a API; enquanto o {@link Disjuntor} do cliente estiver
+ * aberto, novas consultas aguardam. Os livros concluídos são tratados em lotes de
+ * {@value #TAMANHO_LOTE_GRAVACAO}: os alterados são gravados numa transação por
+ * lote.
+ * </p>
+ * <p>
+ * Após cada lote gravado, as etiquetas concluídas são acrescentadas a um
+ * arquivo de ponto de retomada (checkpoint). Se a execução for interrompida,
+ * a próxima execução com o mesmo arquivo e a mesma seleção de livros ignora
+ * esses livros e continua de onde parou. A primeira linha do arquivo
+ * identifica a seleção (todos os incompletos, ou as etiquetas ou ISBNs
+ * informados); um checkpoint de outra seleção é descartado. Consultas que
+ * falharam não entram no checkpoint e são repetidas. Ao terminar sem falhas,
+ * o arquivo é apagado.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class EnriquecimentoService {
+
+    private static final Logger LOGGER = Logger.getLogger(EnriquecimentoService.class.getName());
+
+    /**
+     * Marcador dos dados ausentes nos livros cadastrados pela Open Library.
+     */
+    public static final String MARCADOR_NAO_DISPONIVEL = "não disponível";
+
+    /**
+     * Livros concluídos por lote (gravação e checkpoint).
+     */
+    public static final int TAMANHO_LOTE_GRAVACAO = 100;
+
+    /**
+     * Consultas simultâneas padrão (propriedade de sistema
+     * {@code livraria.enriquecimento.concorrencia}).
+     */
+    public static final int CONCORRENCIA_PADRAO = Integer.getInteger("livraria.enriquecimento.concorrencia", 4);
+
+    /**
+     * Consultas por segundo padrão (propriedade de sistema
+     * {@code livraria.enriquecimento.porSegundo}).
+     */
+    public static final double CONSULTAS_POR_SEGUNDO_PADRAO
+            = Double.parseDouble(System.getProperty("livraria.enriquecimento.porSegundo", "5"));
+
+    // Início da linha que identifica a seleção de livros do checkpoint
+    private static final String PREFIXO_SELECAO = "# ";
+
+    // Tamanho máximo das colunas da tabela de livros
+    private static final int TAMANHO_TITULO = 80;
+    private static final int TAMANHO_AUTOR = 80;
+    private static final int TAMANHO_EDITORA = 50;
+
+    private final ISBNApiClient cliente;
+    private final LivroDAO livroDAO;
+    private final int concorrencia;
+    private final double consultasPorSegundo;
+
+    /**
+     * Construtor padrão: cliente padrão da Open Library, concorrência e taxa
+     * das propriedades de sistema.
+     */
+    public EnriquecimentoService() {
+        this(ISBNApiClient.padrao(), CONCORRENCIA_PADRAO, CONSULTAS_POR_SEGUNDO_PADRAO);
+    }
+
+    /**
+     * Cria o serviço.
+     *
+     * @param cliente Cliente da Open Library.
+     * @param concorrencia Máximo de consultas em andamento ao mesmo tempo.
+     * @param consultasPorSegundo Máximo de consultas iniciadas por segundo,
+     * em média.
+     */
+    public EnriquecimentoService(ISBNApiClient cliente, int concorrencia, double consultasPorSegundo) {
+        this.cliente = cliente;
+        this.livroDAO = new LivroDAO();
+        this.concorrencia = Math.max(1, concorrencia);
+        this.consultasPorSegundo = consultasPorSegundo;
+    }
+
+    /**
+     * Retorna o arquivo de checkpoint padrão
+     * ({@code ~/.livraria/enriquecimento.checkpoint}).
+     *
+     * @return Caminho do arquivo.
+     */
+    public static Path checkpointPadrao() {
+        return Paths.get(System.getProperty("user.home"), ".livraria", "enriquecimento.checkpoint");
+    }
+
+    /**
+     * Enriquece todos os livros com dados ausentes.
+     *
+     * @param checkpoint Arquivo de ponto de retomada.
+     * @param listener Recebe o andamento (pode ser null).
+     * @return Resumo da execução.
+     * @throws ServiceException Se ocorrer um erro no banco, no checkpoint ou a
+     * execução for interrompida (o progresso já gravado é mantido).
+     */
+    public ResultadoEnriquecimento enriquecerIncompletos(Path checkpoint, ProgressoListener listener) throws ServiceException {
+        try {
+            return executar(livroDAO.listarLivrosIncompletos(MARCADOR_NAO_DISPONIVEL), "incompletos", checkpoint, listener);
+        } catch (SQLException ex) {
+            throw new ServiceException("Erro ao listar os livros incompletos: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Enriquece os livros das etiquetas informadas.
+     *
+     * @param etiquetas Etiquetas dos livros.
+     * @param checkpoint Arquivo de ponto de retomada.
+     * @param listener Recebe o andamento (pode ser null).
+     * @return Resumo da execução.
+     * @throws ServiceException Se ocorrer um erro no banco, no checkpoint ou a
+     * execução for interrompida (o progresso já gravado é mantido).
+     */
+    public ResultadoEnriquecimento enriquecerPorEtiquetas(List<Integer> etiquetas, Path checkpoint, ProgressoListener listener) throws ServiceException {
+        try {
+            return executar(livroDAO.buscarLivrosPorEtiquetas(etiquetas), selecao("etiquetas", etiquetas), checkpoint, listener);
+        } catch (SQLException ex) {
+            throw new ServiceException("Erro ao buscar os livros: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Enriquece os livros dos ISBNs informados.
+     *
+     * @param isbns ISBNs dos livros.
+     * @param checkpoint Arquivo de ponto de retomada.
+     * @param listener Recebe o andamento (pode ser null).
+     * @return Resumo da execução.
+     * @throws ServiceException Se ocorrer um erro no banco, no checkpoint ou a
+     * execução for interrompida (o progresso já gravado é mantido).
+     */
+    public ResultadoEnriquecimento enriquecerPorIsbns(List<String> isbns, Path checkpoint, ProgressoListener listener) throws ServiceException {
+        try {
+            return executar(livroDAO.buscarLivrosPorIsbns(isbns), selecao("isbns", isbns), checkpoint, listener);
+        } catch (SQLException ex) {
+            throw new ServiceException("Erro ao buscar os livros: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Identifica uma seleção de livros no checkpoint, independentemente da
+     * ordem e de repetições dos itens.
+     */
+    private static <T extends Comparable<T>> String selecao(String modo, List<T> itens) {
+        List<T> ordenados = new ArrayList<>(new TreeSet<>(itens));
+        return modo + " " + ordenados.size() + " " + Integer.toHexString(ordenados.hashCode());
+    }
+
+    /**
+     * Consulta resolvida: o livro, os dados da API (null se não encontrado) e
+     * o erro, se houver.
+     */
+    private static final class Conclusao {
+
+        private final Livro livro;
+        private final Livro dados;
+        private final Throwable erro;
+
+        private Conclusao(Livro livro, Livro dados, Throwable erro) {
+            this.livro = livro;
+            this.dados = dados;
+            this.erro = erro;
+        }
+    }
+
+    /**
+     * Executa o enriquecimento dos livros.
+     *
+     * @param selecao Identifica a seleção de livros no checkpoint.
+     */
+    private ResultadoEnriquecimento executar(List<Livro> livros, String selecao, Path checkpoint, ProgressoListener listener) throws ServiceException {
+        long inicio = System.nanoTime();
+        Set<Integer> concluidos = lerCheckpoint(checkpoint, selecao);
+        List<Livro> pendentes = new ArrayList<>();
+        List<Livro> invalidos = new ArrayList<>();
+        int retomados = 0;
+        for (Livro livro : livros) {
+            if (concluidos.contains(livro.getEtiqueta_livro())) {
+                retomados++;
+            } else if (livro.getIsbn() == null || livro.getIsbn().isBlank()) {
+                continue; // Sem ISBN não há o que consultar
+            } else if (ISBNUtil.valido(livro.getIsbn())) {
+                pendentes.add(livro);
+            } else {
+                invalidos.add(livro); // Nem chega a ocupar uma consulta
+            }
+        }
+        ResultadoEnriquecimento resultado = new ResultadoEnriquecimento(livros.size(), retomados);
+        for (Livro livro : invalidos) {
+            resultado.adicionarFalha(livro.getIsbn(), "ISBN inválido.");
+        }
+        LOGGER.log(Level.INFO, "Enriquecimento iniciado: {0} livros pendentes ({1} retomados do checkpoint)",
+                new Object[]{pendentes.size(), resultado.getRetomados()});
+
+        Semaphore vagas = new Semaphore(concorrencia);
+        LimitadorTaxa limitador = new LimitadorTaxa(consultasPorSegundo, concorrencia);
+        BlockingQueue<Conclusao> respostas = new LinkedBlockingQueue<>();
+        Lote lote = new Lote();
+        boolean interrompido = false;
+
+        for (Livro livro : pendentes) {
+            if (Thread.currentThread().isInterrupted()) {
+                interrompido = true;
+                break;
+            }
+            try {
+                aguardarDisjuntor(); // Não gasta os livros pendentes enquanto a API está fora
+            } catch (InterruptedException ex) {
+                interrompido = true;
+                break;
+            }
+            try {
+                vagas.acquire(); // Limita as consultas em andamento
+                limitador.adquirir(); // Limita a taxa de consultas
+            } catch (InterruptedException ex) {
+                vagas.release();
+                interrompido = true;
+                break;
+            }
+            cliente.buscarLivroPorISBN(livro.getIsbn()).whenComplete((dados, erro) -> {
+                respostas.add(new Conclusao(livro, dados, erro));
+                vagas.release();
+            });
+            processarRespostas(respostas, lote, resultado, selecao, checkpoint, pendentes.size(), inicio, listener);
+        }
+
+        // Espera as consultas em andamento, para gravar o que já chegou. A marca de
+        // interrupção é limpa durante a espera (com ela, tryAcquire falharia na hora) e
+        // restaurada no fim; as consultas terminam pelo tempo limite do cliente.
+        interrompido |= Thread.interrupted();
+        boolean aguardando = true;
+        while (aguardando) {
+            try {
+                aguardando = !vagas.tryAcquire(concorrencia, 100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                interrompido = true;
+            }
+            processarRespostas(respostas, lote, resultado, selecao, checkpoint, pendentes.size(), inicio, listener);
+        }
+        gravarLote(lote, resultado, selecao, checkpoint);
+
+        resultado.setDuracaoMs((System.nanoTime() - inicio) / 1_000_000);
+        LOGGER.log(Level.INFO, "Enriquecimento {0}: {1}", new Object[]{interrompido ? "interrompido" : "concluído", resultado});
+        if (interrompido) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Enriquecimento interrompido; o progresso foi salvo em " + checkpoint + ". " + resultado);
+        }
+        if (resultado.getFalhas().isEmpty()) {
+            apagarCheckpoint(checkpoint);
+        }
+        return resultado;
+    }
+
+    /**
+     * Espera, se o disjuntor do cliente estiver aberto, até que ele volte a
+     * permitir consultas. Sem isso, todos os livros restantes seriam recusados
+     * de imediato e contados como falha.
+     */
+    private void aguardarDisjuntor() throws InterruptedException {
+        Disjuntor disjuntor = cliente.getDisjuntor();
+        if (disjuntor == null || disjuntor.getEsperaMs() == 0) {
+            return;
+        }
+        LOGGER.log(Level.WARNING, "Open Library instável; enriquecimento pausado por {0} ms", disjuntor.getEsperaMs());
+        for (long espera = disjuntor.getEsperaMs(); espera > 0; espera = disjuntor.getEsperaMs()) {
+            Thread.sleep(Math.min(espera, 1000));
+        }
+    }
+
+    /**
+     * Livros concluídos ainda não gravados: os alterados (a gravar no banco)
+     * e as etiquetas de todos (a acrescentar ao checkpoint).
+     */
+    private static final class Lote {
+
+        private final List<Livro> alterados = new ArrayList<>();
+        private final List<Integer> etiquetas = new ArrayList<>();
+    }
+
+    /**
+     * Trata as respostas recebidas até agora e grava o lote quando ele
+     * atinge o tamanho configurado. Executado apenas na thread que dispara as
+     * consultas.
+     */
+    private void processarRespostas(BlockingQueue<Conclusao> respostas, Lote lote, ResultadoEnriquecimento resultado,
+            String selecao, Path checkpoint, int total, long inicio, ProgressoListener listener) throws ServiceException {
+        boolean houveResposta = false;
+        for (Conclusao conclusao = respostas.poll(); conclusao != null; conclusao = respostas.poll()) {
+            houveResposta = true;
+            Livro livro = conclusao.livro;
+            if (conclusao.erro != null) {
+                Throwable causa = conclusao.erro.getCause() != null ? conclusao.erro.getCause() : conclusao.erro;
+                resultado.adicionarFalha(livro.getIsbn(), causa.getMessage());
+                continue; // Não entra no checkpoint: será repetido
+            }
+            if (conclusao.dados == null) {
+                resultado.adicionarNaoEncontrado();
+            } else if (mesclar(livro, conclusao.dados)) {
+                lote.alterados.add(livro);
+            } else {
+                resultado.adicionarSemAlteracao();
+            }
+            lote.etiquetas.add(livro.getEtiqueta_livro());
+
+            if (lote.etiquetas.size() >= TAMANHO_LOTE_GRAVACAO) {
+                gravarLote(lote, resultado, selecao, checkpoint);
+            }
+        }
+
+        if (houveResposta && listener != null) {
+            int processados = resultado.getProcessados() + lote.alterados.size();
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            listener.progresso(processados, total, String.format(Locale.ROOT, "%d de %d livros (%.1f/s, %d falhas)",
+                    processados, total, segundos > 0 ? processados / segundos : 0, resultado.getFalhas().size()));
+        }
+    }
+
+    /**
+     * Grava os livros alterados do lote, publica as alterações
+     * ({@link AlteracaoLivro}) e, depois, acrescenta as etiquetas ao
+     * checkpoint. Se o programa parar entre as duas etapas, os livros são
+     * consultados de novo na retomada e recebem os mesmos dados.
+     */
+    private void gravarLote(Lote lote, ResultadoEnriquecimento resultado, String selecao, Path checkpoint) throws ServiceException {
+        if (lote.etiquetas.isEmpty()) {
+            return;
+        }
+        try {
+            resultado.adicionarAtualizados(livroDAO.atualizarDadosBasicos(lote.alterados));
+            for (Livro livro : lote.alterados) {
+                LivroService.publicar(AlteracaoLivro.alteracao(livro.getEtiqueta_livro()));
+            }
+            acrescentarCheckpoint(checkpoint, selecao, lote.etiquetas);
+            lote.alterados.clear();
+            lote.etiquetas.clear();
+        } catch (SQLException ex) {
+            throw new ServiceException("Erro ao gravar os livros enriquecidos: " + ex.getMessage(), ex);
+        } catch (IOException ex) {
+            throw new ServiceException("Erro ao gravar o checkpoint " + checkpoint + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Completa os dados ausentes do livro com os da API.
+     *
+     * @param livro Livro cadastrado (alterado no lugar).
+     * @param dados Dados obtidos da API.
+     * @return true se algum campo foi alterado.
+     */
+    private static boolean mesclar(Livro livro, Livro dados) {
+        boolean alterado = false;
+        if (ausente(livro.getTitulo()) && !ausente(dados.getTitulo())) {
+            livro.setTitulo(truncar(dados.getTitulo(), TAMANHO_TITULO));
+            alterado = true;
+        }
+        if (ausente(livro.getAutor()) && !ausente(dados.getAutor())) {
+            livro.setAutor(truncar(dados.getAutor(), TAMANHO_AUTOR));
+            alterado = true;
+        }
+        if (ausente(livro.getEditora()) && !ausente(dados.getEditora())) {
+            livro.setEditora(truncar(dados.getEditora(), TAMANHO_EDITORA));
+            alterado = true;
+        }
+        if (livro.getData_publicacao() == null && dados.getData_publicacao() != null) {
+            livro.setData_publicacao(dados.getData_publicacao());
+            alterado = true;
+        }
+        return alterado;
+    }
+
+    private static boolean ausente(String valor) {
+        return valor == null || valor.isBlank() || valor.toLowerCase(Locale.ROOT).contains(MARCADOR_NAO_DISPONIVEL);
+    }
+
+    private static String truncar(String valor, int tamanho) {
+        return valor.length() <= tamanho ? valor : valor.substring(0, tamanho);
+    }
+
+    /**
+     * Lê as etiquetas já concluídas do checkpoint (vazio se o arquivo não
+     * existir). Linhas inválidas, como uma última linha gravada pela metade,
+     * são ignoradas. Um checkpoint de outra seleção de livros é apagado: as
+     * etiquetas dele não valem para esta execução.
+     */
+    private static Set<Integer> lerCheckpoint(Path checkpoint, String selecao) throws ServiceException {
+        Set<Integer> etiquetas = new HashSet<>();
+        if (!Files.exists(checkpoint)) {
+            return etiquetas;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+            String cabecalho = reader.readLine();
+            if (cabecalho != null && !cabecalho.equals(PREFIXO_SELECAO + selecao)) {
+                LOGGER.log(Level.INFO, "Checkpoint {0} é de outra seleção ({1}) e será descartado", new Object[]{checkpoint, cabecalho});
+                reader.close();
+                Files.delete(checkpoint);
+                return etiquetas;
+            }
+            for (String linha = reader.readLine(); linha != null; linha = reader.readLine()) {
+                try {
+                    etiquetas.add(Integer.parseInt(linha.trim()));
+                } catch (NumberFormatException e) {
+                    LOGGER.log(Level.FINE, "Linha inválida no checkpoint ignorada: {0}", linha);
+                }
+            }
+            return etiquetas;
+        } catch (IOException ex) {
+            throw new ServiceException("Erro ao ler o checkpoint " + checkpoint + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    private static void acrescentarCheckpoint(Path checkpoint, String selecao, List<Integer> etiquetas) throws IOException {
+        Path diretorio = checkpoint.toAbsolutePath().getParent();
+        if (diretorio != null) {
+            Files.createDirectories(diretorio);
+        }
+        boolean novo = !Files.exists(checkpoint) || Files.size(checkpoint) == 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC)) {
+            if (novo) {
+                writer.write(PREFIXO_SELECAO + selecao);
+                writer.newLine();
+            }
+            for (Integer etiqueta : etiquetas) {
+                writer.write(etiqueta.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    private static void apagarCheckpoint(Path checkpoint) {
+        try {
+            Files.deleteIfExists(checkpoint);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Não foi possível apagar o checkpoint " + checkpoint, e);
+        }
+    }
+}
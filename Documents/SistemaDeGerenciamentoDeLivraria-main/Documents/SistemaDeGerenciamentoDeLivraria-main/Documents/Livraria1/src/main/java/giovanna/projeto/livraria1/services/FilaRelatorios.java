@@ -0,0 +1,436 @@
+package giovanna.projeto.livraria1.services;
+
+import giovanna.projeto.livraria1.model.Genero;
+import giovanna.projeto.livraria1.model.Livro;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.rpc.ServiceException;
+
+/**
+ * Fila de geração de relatórios em segundo plano.
+ *
+ * <p>
+ * Os relatórios pedidos entram numa fila limitada ({@value #MAXIMO_NA_FILA}
+ * aguardando) e são gerados por um número fixo de threads, de forma que
+ * vários relatórios podem ser gerados ao mesmo tempo sem travar a janela
+ * principal. Cada relatório é dividido em seções, uma por gênero
+ * ({@link SecoesRelatorio}), cujas consultas rodam em paralelo num segundo
+ * executor, compartilhado por todos os relatórios, que limita as consultas
+ * simultâneas ao banco. As seções são gravadas, na ordem dos gêneros, num
+ * único arquivo Excel ou PDF, à medida que são lidas: cada consulta lê no
+ * máximo {@value SecoesRelatorio#LINHAS_POR_SECAO_PADRAO} livros à frente da
+ * gravação.
+ * </p>
+ * <p>
+ * As tarefas ficam registradas na fila, com estado e andamento, até serem
+ * removidas ({@link #removerEncerradas()}), e podem ser canceladas a qualquer
+ * momento: as consultas em andamento são interrompidas. O relatório é gravado
+ * num arquivo temporário na mesma pasta e só substitui o arquivo escolhido
+ * quando termina; cancelado ou com falha, o temporário é apagado.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class FilaRelatorios {
+
+    private static final Logger LOGGER = Logger.getLogger(FilaRelatorios.class.getName());
+
+    /**
+     * Quantidade padrão de relatórios gerados ao mesmo tempo.
+     */
+    public static final int RELATORIOS_SIMULTANEOS_PADRAO = 2;
+
+    /**
+     * Quantidade padrão de consultas de seções simultâneas (somadas as de
+     * todos os relatórios); deve ficar abaixo do tamanho do pool de conexões.
+     */
+    public static final int CONSULTAS_SIMULTANEAS_PADRAO = 4;
+
+    /**
+     * Quantidade máxima de relatórios aguardando na fila.
+     */
+    public static final int MAXIMO_NA_FILA = 20;
+
+    private static FilaRelatorios instancia;
+
+    /**
+     * Estado de uma tarefa da fila.
+     */
+    public enum Estado {
+        NA_FILA("Na fila"),
+        EM_EXECUCAO("Em execução"),
+        CONCLUIDA("Concluída"),
+        CANCELADA("Cancelada"),
+        FALHOU("Falhou");
+
+        private final String descricao;
+
+        Estado(String descricao) {
+            this.descricao = descricao;
+        }
+
+        /**
+         * @return true se a tarefa já terminou (com ou sem sucesso).
+         */
+        public boolean isEncerrado() {
+            return this == CONCLUIDA || this == CANCELADA || this == FALHOU;
+        }
+
+        @Override
+        public String toString() {
+            return descricao;
+        }
+    }
+
+    /**
+     * Relatório pedido à fila. Os dados podem ser lidos de qualquer thread
+     * (por exemplo, pela tela que exibe a fila).
+     */
+    public static final class Tarefa {
+
+        private final int id;
+        private final String[] generos;
+        private final String caminho;
+        private final long criada = System.currentTimeMillis();
+        private volatile Estado estado = Estado.NA_FILA;
+        private volatile int secoesLidas;
+        private volatile int totalSecoes;
+        private volatile String mensagem = "Aguardando";
+        private volatile long livros;
+        private volatile long iniciadaNanos;
+        private volatile long duracaoMs;
+        private volatile Throwable erro;
+        private volatile boolean cancelamentoPedido;
+        private volatile SecoesRelatorio secoes;
+        private volatile Future<?> futuro;
+
+        private Tarefa(int id, String[] generos, String caminho) {
+            this.id = id;
+            this.generos = generos.clone();
+            this.caminho = caminho;
+        }
+
+        /**
+         * @return Número da tarefa, em ordem de pedido.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return Gêneros pedidos, separados por vírgula.
+         */
+        public String getGeneros() {
+            return String.join(", ", generos);
+        }
+
+        /**
+         * @return Caminho do arquivo do relatório (com a extensão).
+         */
+        public String getCaminho() {
+            return caminho;
+        }
+
+        /**
+         * @return Momento do pedido, em milissegundos desde a época.
+         */
+        public long getCriada() {
+            return criada;
+        }
+
+        /**
+         * @return Estado atual da tarefa.
+         */
+        public Estado getEstado() {
+            return estado;
+        }
+
+        /**
+         * @return Seções (gêneros) já gravadas no arquivo.
+         */
+        public int getSecoesLidas() {
+            return secoesLidas;
+        }
+
+        /**
+         * @return Quantidade de seções (gêneros) do relatório, ou 0 antes do
+         * início.
+         */
+        public int getTotalSecoes() {
+            return totalSecoes;
+        }
+
+        /**
+         * @return Descrição da etapa atual ou do resultado.
+         */
+        public String getMensagem() {
+            return mensagem;
+        }
+
+        /**
+         * @return Livros gravados até agora.
+         */
+        public long getLivros() {
+            SecoesRelatorio atuais = secoes;
+            return atuais != null ? atuais.getQuantidade() : livros;
+        }
+
+        /**
+         * @return Duração da geração em milissegundos (até agora, se ainda em
+         * execução; 0 se ainda não começou).
+         */
+        public long getDuracaoMs() {
+            if (estado == Estado.EM_EXECUCAO) {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - iniciadaNanos);
+            }
+            return duracaoMs;
+        }
+
+        /**
+         * @return A falha da geração, ou null.
+         */
+        public Throwable getErro() {
+            return erro;
+        }
+
+        /**
+         * Cancela o relatório. Na fila, ele não chega a ser gerado; em
+         * execução, as consultas são interrompidas e o arquivo parcial é
+         * apagado. Não tem efeito em tarefas encerradas.
+         */
+        public void cancelar() {
+            if (estado.isEncerrado()) {
+                return;
+            }
+            cancelamentoPedido = true;
+            SecoesRelatorio atuais = secoes;
+            if (atuais != null) {
+                atuais.cancelar();
+            }
+            Future<?> atual = futuro;
+            if (atual != null && atual.cancel(false)) {
+                encerrar(Estado.CANCELADA, "Cancelada antes de começar", null); // Ainda estava na fila
+            }
+        }
+
+        private void progresso(int concluido, int total, String mensagem) {
+            this.secoesLidas = concluido;
+            this.totalSecoes = total;
+            this.mensagem = mensagem;
+        }
+
+        private synchronized boolean iniciar() {
+            if (cancelamentoPedido || estado != Estado.NA_FILA) {
+                return false;
+            }
+            iniciadaNanos = System.nanoTime();
+            estado = Estado.EM_EXECUCAO;
+            mensagem = "Iniciando";
+            return true;
+        }
+
+        private synchronized void encerrar(Estado resultado, String mensagem, Throwable erro) {
+            if (estado.isEncerrado()) {
+                return;
+            }
+            SecoesRelatorio atuais = secoes;
+            if (atuais != null) {
+                livros = atuais.getQuantidade();
+                secoes = null;
+            }
+            if (estado == Estado.EM_EXECUCAO) {
+                duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - iniciadaNanos);
+            }
+            this.mensagem = mensagem;
+            this.erro = erro;
+            estado = resultado;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + id + " " + getGeneros() + " -> " + caminho + " (" + estado + ")";
+        }
+    }
+
+    private final RelatorioService relatorioService = new RelatorioService();
+    private final ThreadPoolExecutor executorRelatorios;
+    private final ExecutorService executorConsultas;
+    private final List<Tarefa> tarefas = new CopyOnWriteArrayList<>();
+    private final AtomicInteger sequencia = new AtomicInteger();
+
+    /**
+     * Retorna a fila compartilhada pela aplicação, criando-a no primeiro uso
+     * com os limites padrão.
+     *
+     * @return A fila de relatórios.
+     */
+    public static synchronized FilaRelatorios getInstancia() {
+        if (instancia == null) {
+            instancia = new FilaRelatorios(RELATORIOS_SIMULTANEOS_PADRAO, CONSULTAS_SIMULTANEAS_PADRAO);
+        }
+        return instancia;
+    }
+
+    /**
+     * Cria uma fila.
+     *
+     * @param relatoriosSimultaneos Relatórios gerados ao mesmo tempo.
+     * @param consultasSimultaneas Consultas de seções ao mesmo tempo, somadas
+     * as de todos os relatórios.
+     */
+    public FilaRelatorios(int relatoriosSimultaneos, int consultasSimultaneas) {
+        executorRelatorios = new ThreadPoolExecutor(relatoriosSimultaneos, relatoriosSimultaneos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAXIMO_NA_FILA), fabrica("relatorio"));
+        executorConsultas = Executors.newFixedThreadPool(consultasSimultaneas, fabrica("relatorio-secao"));
+    }
+
+    private static ThreadFactory fabrica(String prefixo) {
+        AtomicInteger contador = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefixo + "-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Pede um relatório dos gêneros informados. O formato é escolhido pela
+     * extensão do caminho (ver {@link RelatorioService#normalizarCaminho}).
+     *
+     * @param generos Nomes dos gêneros.
+     * @param caminhoSalvar Caminho do arquivo do relatório.
+     * @return A tarefa, já na fila.
+     * @throws ServiceException Se a fila estiver cheia.
+     */
+    public Tarefa enfileirar(String[] generos, String caminhoSalvar) throws ServiceException {
+        Tarefa tarefa = new Tarefa(sequencia.incrementAndGet(), generos, RelatorioService.normalizarCaminho(caminhoSalvar));
+        tarefas.add(tarefa);
+        try {
+            tarefa.futuro = executorRelatorios.submit(() -> executar(tarefa));
+        } catch (RejectedExecutionException e) {
+            tarefas.remove(tarefa);
+            throw new ServiceException("A fila de relatórios está cheia (" + MAXIMO_NA_FILA
+                    + " aguardando). Tente novamente quando algum relatório terminar.", e);
+        }
+        LOGGER.log(Level.INFO, "Relatório enfileirado: {0}", tarefa);
+        return tarefa;
+    }
+
+    /**
+     * Carrega, em segundo plano, os livros dos gêneros informados, com uma
+     * consulta por gênero, em paralelo. É a prévia exibida na tela de
+     * relatórios.
+     *
+     * @param generos Nomes dos gêneros.
+     * @return Futuro com os livros, agrupados por gênero e ordenados por
+     * título.
+     */
+    public CompletableFuture<List<Livro>> carregarLivros(String[] generos) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return relatorioService.resolverGeneros(generos);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executorConsultas).thenCompose(encontrados
+                -> SecoesRelatorio.juntar(encontrados, executorConsultas, SecoesRelatorio::carregarDoBanco));
+    }
+
+    /**
+     * @return As tarefas da fila (aguardando, em execução e encerradas), em
+     * ordem de pedido.
+     */
+    public List<Tarefa> getTarefas() {
+        return new ArrayList<>(tarefas);
+    }
+
+    /**
+     * Remove da fila as tarefas encerradas.
+     */
+    public void removerEncerradas() {
+        tarefas.removeIf(tarefa -> tarefa.getEstado().isEncerrado());
+        executorRelatorios.purge(); // Descarta da fila do executor as tarefas canceladas
+    }
+
+    /**
+     * Cancela todas as tarefas e encerra as threads da fila.
+     */
+    public void encerrar() {
+        tarefas.forEach(Tarefa::cancelar);
+        executorRelatorios.shutdown();
+        executorConsultas.shutdown();
+    }
+
+    /**
+     * Gera o relatório de uma tarefa, numa thread do executor de relatórios.
+     */
+    private void executar(Tarefa tarefa) {
+        if (!tarefa.iniciar()) {
+            return; // Cancelada enquanto aguardava
+        }
+        Path destino = Path.of(tarefa.caminho).toAbsolutePath();
+        Path parcial = null;
+        try {
+            List<Genero> generos = relatorioService.resolverGeneros(tarefa.generos);
+            try (SecoesRelatorio secoes = new SecoesRelatorio(generos, executorConsultas, SecoesRelatorio::carregarDoBanco,
+                    tarefa::progresso)) {
+                tarefa.secoes = secoes;
+                if (tarefa.cancelamentoPedido) {
+                    secoes.cancelar(); // Cancelada entre o início e a criação das seções
+                }
+                tarefa.progresso(0, secoes.getTotalSecoes(), "Consultando " + secoes.getTotalSecoes() + " gênero(s)");
+
+                // A extensão do temporário define o formato gerado
+                String nome = destino.getFileName().toString();
+                parcial = Files.createTempFile(destino.getParent(), "." + nome + "-", nome.substring(nome.lastIndexOf('.')));
+                long livros = relatorioService.gerarRelatorio(secoes, RelatorioService.juntarNomes(generos), parcial.toString());
+                Files.move(parcial, destino, StandardCopyOption.REPLACE_EXISTING);
+                tarefa.encerrar(Estado.CONCLUIDA, livros + " livro(s) gravado(s)", null);
+                LOGGER.log(Level.INFO, "Relatório concluído: {0}", tarefa);
+            }
+        } catch (Exception e) {
+            if (tarefa.cancelamentoPedido || e instanceof CancellationException) {
+                tarefa.encerrar(Estado.CANCELADA, "Cancelada", null);
+                LOGGER.log(Level.INFO, "Relatório cancelado: {0}", tarefa);
+            } else {
+                tarefa.encerrar(Estado.FALHOU, "Erro: " + e.getMessage(), e);
+                LOGGER.log(Level.SEVERE, "Erro ao gerar o relatório " + tarefa, e);
+            }
+        } finally {
+            if (parcial != null) {
+                apagar(parcial); // Não existe mais se o relatório foi concluído
+            }
+        }
+    }
+
+    /**
+     * Apaga o arquivo parcial de um relatório cancelado ou que falhou.
+     */
+    private static void apagar(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Não foi possível apagar o relatório parcial " + arquivo, e);
+        }
+    }
+}
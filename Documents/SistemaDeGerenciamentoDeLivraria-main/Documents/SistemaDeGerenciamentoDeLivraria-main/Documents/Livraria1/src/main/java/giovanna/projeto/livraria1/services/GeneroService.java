@@ -2,8 +2,12 @@ package giovanna.projeto.livraria1.services;
 
 import giovanna.projeto.livraria1.dao.GeneroDAO;
 import giovanna.projeto.livraria1.model.Genero;
+import giovanna.projeto.livraria1.util.GeneroCache;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A classe <code>GeneroService</code> gerencia as operações relacionadas ao gênero literário.
@@ -16,6 +20,8 @@ import java.util.List;
  */
 public class GeneroService {
 
+    private static final Logger LOGGER = Logger.getLogger(GeneroService.class.getName());
+
     // Objeto para acessar os métodos de manipulação de dados da classe GeneroDAO
     private final GeneroDAO generoDAO;
 
@@ -28,13 +34,13 @@ public class GeneroService {
     }
 
     /**
-     * Lista todos os gêneros cadastrados no banco de dados.
+     * Lista todos os gêneros cadastrados, a partir do {@link GeneroCache}.
      * 
      * @return Uma lista de objetos <code>Genero</code> com todos os gêneros registrados.
-     * @throws SQLException Caso ocorra um erro na consulta ao banco de dados.
+     * @throws SQLException Caso ocorra um erro na carga do cache.
      */
     public List<Genero> listaGeneros() throws SQLException {
-        return generoDAO.listaGeneros();
+        return GeneroCache.listar();
     }
 
     /**
@@ -78,9 +84,30 @@ public class GeneroService {
      * @throws SQLException Caso ocorra um erro durante a consulta ao banco de dados.
      */
     public List<Genero> buscarGenerosPorNome(String[] nomesGêneros) throws SQLException {
-        return generoDAO.buscarGenerosPorNome(nomesGêneros);
+        List<Genero> generos = new ArrayList<>();
+        for (String nome : nomesGêneros) {
+            Genero genero = GeneroCache.buscarPorNome(nome);
+            if (genero != null) {
+                generos.add(genero);
+            }
+        }
+        return generos;
     }
-    public Genero buscarGeneroPorNome(String genero){
-    return generoDAO.buscarGeneroPorNome(genero);
+
+    /**
+     * Busca um gênero pelo nome exato, a partir do {@link GeneroCache}.
+     *
+     * @param genero Nome do gênero.
+     * @return O gênero encontrado, ou null se não existir ou se não for
+     * possível consultá-lo.
+     */
+    public Genero buscarGeneroPorNome(String genero) {
+        try {
+            return GeneroCache.buscarPorNome(genero);
+        } catch (SQLException ex) {
+            // Mantém o comportamento anterior: erro de banco equivale a gênero não encontrado
+            LOGGER.log(Level.SEVERE, "Erro ao buscar gênero " + genero, ex);
+            return null;
+        }
     }
 }
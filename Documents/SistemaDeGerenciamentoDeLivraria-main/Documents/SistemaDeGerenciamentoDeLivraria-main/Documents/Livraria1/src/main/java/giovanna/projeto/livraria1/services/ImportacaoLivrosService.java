@@ -0,0 +1,460 @@
+package giovanna.projeto.livraria1.services;
+
+import giovanna.projeto.livraria1.dao.ImportacaoLivrosDAO;
+import giovanna.projeto.livraria1.model.Genero;
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.model.ResultadoImportacao;
+import giovanna.projeto.livraria1.util.GeneroCache;
+import giovanna.projeto.livraria1.util.LeitorCsv;
+import giovanna.projeto.livraria1.util.ProgressoListener;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import javax.xml.rpc.ServiceException;
+
+/**
+ * Importação em massa de livros a partir de arquivos CSV.
+ *
+ * <p>
+ * O arquivo deve ter um cabeçalho com as colunas {@code titulo},
+ * {@code autor}, {@code editora}, {@code genero}, {@code isbn} e
+ * {@code data_publicacao} (em qualquer ordem, separadas por {@code ;} ou
+ * {@code ,}). As datas podem estar em {@code dd/MM/aaaa} ou
+ * {@code aaaa-MM-dd}.
+ * </p>
+ * <p>
+ * A importação roda em duas threads. Uma lê o arquivo em streaming, valida
+ * cada registro com as mesmas regras do cadastro
+ * ({@link LivroService#validarLivro(Livro)}), converte o nome do gênero em ID
+ * (em memória, a partir do {@link GeneroCache}) e monta blocos de registros
+ * no formato do {@code COPY}. A outra envia os blocos ao banco
+ * ({@link ImportacaoLivrosDAO}). Os blocos passam por uma fila limitada: se o
+ * banco ficar para trás, a leitura espera, e a memória usada não depende do
+ * tamanho do arquivo.
+ * </p>
+ * <p>
+ * Registros recusados (inválidos, com gênero inexistente ou com ISBN já
+ * cadastrado ou repetido) não interrompem a importação; são gravados, com o
+ * motivo, num arquivo ao lado do original ({@code <arquivo>.recusados.csv}).
+ * Os demais livros são incluídos numa única transação: ou a importação é
+ * gravada inteira, ou nada é gravado. Depois de gravada, cada livro incluído
+ * é publicado como {@link AlteracaoLivro} (só as etiquetas ficam em memória
+ * até lá).
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class ImportacaoLivrosService {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportacaoLivrosService.class.getName());
+
+    /**
+     * Colunas obrigatórias do cabeçalho do arquivo.
+     */
+    public static final List<String> COLUNAS = List.of("titulo", "autor", "editora", "genero", "isbn", "data_publicacao");
+
+    // Registros por bloco enviado ao banco e blocos que podem aguardar na fila
+    private static final int REGISTROS_POR_BLOCO = 5000;
+    private static final int BLOCOS_NA_FILA = 8;
+
+    // Marca o fim da leitura na fila
+    private static final byte[] FIM = new byte[0];
+
+    private static final DateTimeFormatter[] FORMATOS_DATA = {
+        DateTimeFormatter.ofPattern("dd/MM/uuuu").withResolverStyle(ResolverStyle.STRICT),
+        DateTimeFormatter.ISO_LOCAL_DATE
+    };
+
+    /**
+     * Construtor padrão.
+     */
+    public ImportacaoLivrosService() {
+    }
+
+    /**
+     * Importa os livros de um arquivo CSV.
+     *
+     * @param arquivo Arquivo CSV, em UTF-8.
+     * @param listener Recebe o andamento da leitura, em porcentagem (pode ser
+     * null).
+     * @return Resumo da importação.
+     * @throws ServiceException Caso o arquivo não possa ser lido, o cabeçalho
+     * seja inválido ou ocorra um erro no banco (nesse caso, nada é gravado).
+     */
+    public ResultadoImportacao importarCsv(Path arquivo, ProgressoListener listener) throws ServiceException {
+        Path arquivoRecusados = arquivo.resolveSibling(arquivo.getFileName() + ".recusados.csv");
+        BlockingQueue<byte[]> fila = new ArrayBlockingQueue<>(BLOCOS_NA_FILA);
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "importacao-csv");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long inicio = System.nanoTime();
+        boolean manterRecusados = false;
+
+        try (BufferedWriter recusados = Files.newBufferedWriter(arquivoRecusados, StandardCharsets.UTF_8);
+                ImportacaoLivrosDAO dao = new ImportacaoLivrosDAO()) {
+            recusados.write("linha;isbn;motivo");
+            recusados.newLine();
+
+            Map<String, Integer> generos = carregarGeneros();
+            dao.iniciar();
+
+            // Leitura e validação em outra thread; esta envia os blocos ao banco
+            Future<long[]> leitura = executor.submit(() -> ler(arquivo, generos, fila, recusados, listener));
+            try {
+                for (byte[] bloco = fila.take(); bloco != FIM; bloco = fila.take()) {
+                    dao.copiar(bloco);
+                }
+            } catch (SQLException | InterruptedException e) {
+                leitura.cancel(true); // Libera a leitura, se estiver esperando espaço na fila
+                throw e;
+            }
+            long[] contagem = leitura.get(); // Lança a falha da leitura, se houver
+            long lidos = contagem[0];
+            long[] recusadosTotal = {contagem[1]};
+
+            long copiados = dao.concluirCopia();
+            long fimCopia = System.nanoTime();
+            avisar(listener, 100, "Incluindo " + copiados + " livros...");
+
+            dao.listarRecusados((linha, isbn, motivo) -> {
+                escreverRecusado(recusados, linha, isbn, motivo);
+                recusadosTotal[0]++;
+            });
+            IntStream.Builder incluidos = IntStream.builder();
+            int inseridos = dao.mesclar(incluidos);
+            dao.confirmar();
+            long fim = System.nanoTime();
+            incluidos.build().forEach(etiqueta -> LivroService.publicar(AlteracaoLivro.inclusao(etiqueta)));
+            manterRecusados = recusadosTotal[0] > 0;
+
+            ResultadoImportacao resultado = new ResultadoImportacao(lidos, inseridos, recusadosTotal[0],
+                    recusadosTotal[0] > 0 ? arquivoRecusados : null,
+                    (fimCopia - inicio) / 1_000_000, (fim - fimCopia) / 1_000_000);
+            LOGGER.log(Level.INFO, "Importação de {0} concluída: {1}", new Object[]{arquivo, resultado});
+            return resultado;
+        } catch (ExecutionException ex) {
+            Throwable causa = ex.getCause();
+            if (causa instanceof ServiceException servico) {
+                throw servico;
+            }
+            LOGGER.log(Level.SEVERE, "Erro ao ler o arquivo de importação", causa);
+            throw new ServiceException("Erro ao ler o arquivo: " + causa.getMessage(), causa);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao gravar a importação", ex);
+            throw new ServiceException("Erro ao gravar os livros importados: " + ex.getMessage(), ex);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao acessar os arquivos da importação", ex);
+            throw new ServiceException("Erro ao acessar os arquivos da importação: " + ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Importação interrompida.", ex);
+        } finally {
+            executor.shutdownNow();
+            if (!manterRecusados) {
+                apagar(arquivoRecusados); // Sem recusas, ou importação desfeita
+            }
+        }
+    }
+
+    /**
+     * Lê o arquivo, valida os registros e coloca os blocos no formato do
+     * {@code COPY} na fila. Executada na thread de leitura.
+     *
+     * @return Registros lidos e recusados na validação.
+     */
+    private long[] ler(Path arquivo, Map<String, Integer> generos, BlockingQueue<byte[]> fila,
+            BufferedWriter recusados, ProgressoListener listener) throws Exception {
+        long tamanho = Math.max(1, Files.size(arquivo));
+        long lidos = 0;
+        long invalidos = 0;
+
+        try (ContadorBytes entrada = new ContadorBytes(Files.newInputStream(arquivo));
+                LeitorCsv csv = new LeitorCsv(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            int[] posicoes = mapearColunas(csv.proximoRegistro());
+            StringBuilder bloco = new StringBuilder(REGISTROS_POR_BLOCO * 128);
+            int registrosNoBloco = 0;
+            int percentual = -1;
+
+            for (List<String> registro = csv.proximoRegistro(); registro != null; registro = csv.proximoRegistro()) {
+                if (registro.size() == 1 && registro.get(0).isBlank()) {
+                    continue; // Linha em branco
+                }
+                lidos++;
+                long linha = csv.getLinhaRegistro();
+                Livro livro = new Livro();
+                try {
+                    preencherLivro(livro, registro, posicoes, generos);
+                    LivroService.validarLivro(livro);
+                } catch (ServiceException ex) {
+                    escreverRecusado(recusados, linha, livro.getIsbn(), ex.getMessage());
+                    invalidos++;
+                    continue;
+                }
+
+                acrescentarRegistroCopy(bloco, linha, livro);
+                if (++registrosNoBloco == REGISTROS_POR_BLOCO) {
+                    fila.put(bloco.toString().getBytes(StandardCharsets.UTF_8)); // Espera se a fila estiver cheia
+                    bloco.setLength(0);
+                    registrosNoBloco = 0;
+
+                    int atual = (int) (entrada.getLidos() * 100 / tamanho);
+                    if (atual != percentual) {
+                        percentual = atual;
+                        avisar(listener, Math.min(atual, 99), "Lendo o arquivo: " + lidos + " registros");
+                    }
+                }
+            }
+            if (registrosNoBloco > 0) {
+                fila.put(bloco.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        } finally {
+            fila.put(FIM); // Sempre libera a thread de gravação
+        }
+        return new long[]{lidos, invalidos};
+    }
+
+    /**
+     * Localiza as colunas obrigatórias no cabeçalho.
+     *
+     * @param cabecalho Campos do cabeçalho (null se o arquivo estiver vazio).
+     * @return Posição de cada coluna de {@link #COLUNAS} no registro.
+     * @throws ServiceException Se faltar alguma coluna.
+     */
+    private static int[] mapearColunas(List<String> cabecalho) throws ServiceException {
+        if (cabecalho == null) {
+            throw new ServiceException("Arquivo vazio.");
+        }
+        int[] posicoes = new int[COLUNAS.size()];
+        for (int i = 0; i < COLUNAS.size(); i++) {
+            posicoes[i] = -1;
+            for (int j = 0; j < cabecalho.size(); j++) {
+                if (COLUNAS.get(i).equals(normalizarNomeColuna(cabecalho.get(j)))) {
+                    posicoes[i] = j;
+                    break;
+                }
+            }
+            if (posicoes[i] < 0) {
+                throw new ServiceException("Coluna obrigatória ausente no cabeçalho: " + COLUNAS.get(i)
+                        + ". Colunas esperadas: " + String.join(", ", COLUNAS));
+            }
+        }
+        return posicoes;
+    }
+
+    /**
+     * Normaliza o nome de uma coluna do cabeçalho: sem acentos, minúsculo e
+     * com espaços trocados por sublinhado ("Gênero" → "genero", "Data
+     * Publicação" → "data_publicacao").
+     */
+    private static String normalizarNomeColuna(String nome) {
+        String semAcentos = Normalizer.normalize(nome.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return semAcentos.toLowerCase(Locale.ROOT).replace(' ', '_');
+    }
+
+    /**
+     * Preenche o livro com os campos do registro e resolve o ID do gênero.
+     *
+     * @throws ServiceException Se a data for inválida ou o gênero não
+     * existir.
+     */
+    private static void preencherLivro(Livro livro, List<String> registro, int[] posicoes,
+            Map<String, Integer> generos) throws ServiceException {
+        livro.setTitulo(campo(registro, posicoes[0]));
+        livro.setAutor(campo(registro, posicoes[1]));
+        livro.setEditora(campo(registro, posicoes[2]));
+        livro.setGeneroNome(campo(registro, posicoes[3]));
+        String isbn = campo(registro, posicoes[4]);
+        livro.setIsbn(isbn != null ? isbn.replace("-", "").replace(" ", "") : null);
+
+        String data = campo(registro, posicoes[5]);
+        if (data != null) {
+            livro.setData_publicacao(interpretarData(data));
+        }
+
+        if (livro.getGeneroNome() != null) {
+            Integer generoId = generos.computeIfAbsent(livro.getGeneroNome(), ImportacaoLivrosService::buscarGenero);
+            if (generoId < 0) {
+                throw new ServiceException("Gênero não encontrado: " + livro.getGeneroNome());
+            }
+            livro.setGenero_id(generoId);
+        }
+    }
+
+    /**
+     * Retorna um campo do registro, sem espaços nas pontas, ou null se vazio
+     * ou ausente.
+     */
+    private static String campo(List<String> registro, int posicao) {
+        if (posicao >= registro.size()) {
+            return null;
+        }
+        String valor = registro.get(posicao).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    /**
+     * Interpreta uma data em {@code dd/MM/aaaa} ou {@code aaaa-MM-dd}.
+     *
+     * @throws ServiceException Se a data não estiver em nenhum dos formatos.
+     */
+    private static LocalDate interpretarData(String data) throws ServiceException {
+        for (DateTimeFormatter formato : FORMATOS_DATA) {
+            try {
+                return LocalDate.parse(data, formato);
+            } catch (DateTimeParseException e) {
+                // Tenta o próximo formato
+            }
+        }
+        throw new ServiceException("Data de publicação inválida: " + data);
+    }
+
+    /**
+     * Carrega o dicionário de gêneros (nome → ID) do cache.
+     */
+    private static Map<String, Integer> carregarGeneros() throws SQLException {
+        Map<String, Integer> generos = new HashMap<>();
+        for (Genero genero : GeneroCache.listar()) {
+            generos.put(genero.getNome(), genero.getId());
+        }
+        return generos;
+    }
+
+    /**
+     * Busca um gênero ausente do dicionário (pode ter sido cadastrado por
+     * outra instância da aplicação). Chamada uma única vez por nome.
+     *
+     * @return ID do gênero, ou -1 se não existir.
+     */
+    private static Integer buscarGenero(String nome) {
+        try {
+            Genero genero = GeneroCache.buscarPorNome(nome);
+            return genero != null ? genero.getId() : -1;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Erro ao buscar o gênero " + nome, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Acrescenta um registro ao bloco, no formato texto do {@code COPY}, na
+     * ordem das colunas da tabela temporária.
+     */
+    private static void acrescentarRegistroCopy(StringBuilder bloco, long linha, Livro livro) {
+        bloco.append(linha).append('\t');
+        escaparCopy(bloco, livro.getTitulo()).append('\t');
+        escaparCopy(bloco, livro.getAutor()).append('\t');
+        escaparCopy(bloco, livro.getEditora()).append('\t');
+        bloco.append(livro.getGenero_id()).append('\t');
+        escaparCopy(bloco, livro.getIsbn()).append('\t');
+        bloco.append(livro.getData_publicacao()).append('\n'); // aaaa-MM-dd
+    }
+
+    /**
+     * Escreve um valor no formato texto do {@code COPY}: barra invertida,
+     * tabulação e quebras de linha são escapadas; null vira {@code \N}.
+     */
+    private static StringBuilder escaparCopy(StringBuilder bloco, String valor) {
+        if (valor == null) {
+            return bloco.append("\\N");
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '\\' -> bloco.append("\\\\");
+                case '\t' -> bloco.append("\\t");
+                case '\n' -> bloco.append("\\n");
+                case '\r' -> bloco.append("\\r");
+                default -> bloco.append(c);
+            }
+        }
+        return bloco;
+    }
+
+    /**
+     * Grava um registro recusado. Sincronizado porque as duas threads da
+     * importação gravam no mesmo arquivo (em momentos diferentes).
+     */
+    private static void escreverRecusado(BufferedWriter recusados, long linha, String isbn, String motivo) throws IOException {
+        synchronized (recusados) {
+            recusados.write(linha + ";" + (isbn != null ? isbn : "") + ";\"" + motivo.replace("\"", "\"\"") + "\"");
+            recusados.newLine();
+        }
+    }
+
+    /**
+     * Apaga o arquivo de recusados.
+     */
+    private static void apagar(Path arquivoRecusados) {
+        try {
+            Files.deleteIfExists(arquivoRecusados);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Não foi possível apagar " + arquivoRecusados, e);
+        }
+    }
+
+    private static void avisar(ProgressoListener listener, int percentual, String mensagem) {
+        if (listener != null) {
+            listener.progresso(percentual, 100, mensagem);
+        }
+    }
+
+    /**
+     * Conta os bytes lidos do arquivo, para informar o andamento.
+     */
+    private static final class ContadorBytes extends FilterInputStream {
+
+        private volatile long lidos;
+
+        private ContadorBytes(InputStream entrada) {
+            super(entrada);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                lidos++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                lidos += n;
+            }
+            return n;
+        }
+
+        long getLidos() {
+            return lidos;
+        }
+    }
+}
@@ -0,0 +1,808 @@
+package giovanna.projeto.livraria1.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import giovanna.projeto.livraria1.util.ISBNUtil;
+import giovanna.projeto.livraria1.util.IndiceOpenLibrary;
+import giovanna.projeto.livraria1.util.ProgressoListener;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import javax.xml.rpc.ServiceException;
+
+/**
+ * Geração do índice local da Open Library ({@link IndiceOpenLibrary}) a partir
+ * dos dumps publicados em {@code https://openlibrary.org/developers/dumps}.
+ *
+ * <p>
+ * Os dumps são arquivos gzip com uma linha por registro: tipo, chave,
+ * revisão, data e o registro em JSON, separados por tabulação. Do dump de
+ * edições são extraídos os ISBN-10/13, título, autores, editoras, data de
+ * publicação e assuntos. As edições só trazem a chave dos autores; se o dump
+ * de autores for informado, os nomes são resolvidos por ele (o mapa de nomes
+ * fica em memória), senão é usado o texto de autoria da edição
+ * ({@code by_statement}), quando houver.
+ * </p>
+ * <p>
+ * O arquivo é lido em streaming, sem carregá-lo em memória: uma thread
+ * descompacta e separa lotes de linhas, e as demais (uma por núcleo)
+ * interpretam o JSON em modo token, gravam os registros e acumulam os pares
+ * (ISBN, posição). Cada thread ordena seus pares em rodadas de tamanho
+ * limitado, gravadas em arquivos temporários, que ao final são intercaladas
+ * no arquivo de chaves. A memória usada depende do tamanho das rodadas, não
+ * do dump.
+ * </p>
+ * <p>
+ * O índice é gerado numa pasta temporária e só substitui o anterior no fim;
+ * os dois arquivos levam a mesma geração, conferida na abertura. Os índices
+ * abertos percebem a nova geração e passam a usá-la. No Windows, um arquivo
+ * ainda mapeado por um índice aberto (neste ou em outro programa) não pode
+ * ser substituído, mas pode ser renomeado: ele recebe o sufixo
+ * {@value #SUFIXO_SUBSTITUIDO} e é apagado numa próxima geração.
+ * Também pode ser gerado pela linha de comando ({@link #main(String[])}).
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class IndiceOpenLibraryService {
+
+    private static final Logger LOGGER = Logger.getLogger(IndiceOpenLibraryService.class.getName());
+
+    /**
+     * Pares (ISBN, posição) ordenados em memória por thread antes de gravar
+     * uma rodada (16 bytes cada; propriedade de sistema
+     * {@code livraria.openlibrary.chavesPorRodada}).
+     */
+    public static final int CHAVES_POR_RODADA_PADRAO = Integer.getInteger("livraria.openlibrary.chavesPorRodada", 1 << 20);
+
+    // Linhas por lote entregue às threads e lotes que podem aguardar na fila
+    private static final int LINHAS_POR_LOTE = 2000;
+    private static final int LOTES_POR_THREAD = 2;
+
+    // Marca o fim da leitura na fila
+    private static final List<String> FIM = new ArrayList<>();
+
+    private static final JsonFactory FABRICA = new JsonFactory();
+
+    // Sufixo dos arquivos substituídos que ainda estavam mapeados
+    private static final String SUFIXO_SUBSTITUIDO = ".substituido";
+
+    private final int threads;
+    private final int chavesPorRodada;
+
+    /**
+     * Construtor padrão: uma thread de interpretação por núcleo (menos o da
+     * leitura).
+     */
+    public IndiceOpenLibraryService() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), CHAVES_POR_RODADA_PADRAO);
+    }
+
+    /**
+     * Cria o serviço.
+     *
+     * @param threads Threads de interpretação.
+     * @param chavesPorRodada Pares ordenados em memória por thread antes de
+     * gravar uma rodada.
+     */
+    public IndiceOpenLibraryService(int threads, int chavesPorRodada) {
+        this.threads = Math.max(1, threads);
+        this.chavesPorRodada = Math.max(16, chavesPorRodada);
+    }
+
+    /**
+     * Gera o índice a partir dos dumps.
+     *
+     * @param edicoes Dump de edições ({@code ol_dump_editions_*.txt.gz}).
+     * @param autores Dump de autores ({@code ol_dump_authors_*.txt.gz}), ou
+     * null para usar apenas o texto de autoria das edições.
+     * @param destino Pasta do índice (o índice existente é substituído).
+     * @param listener Recebe o andamento, em porcentagem (pode ser null).
+     * @return Quantidade de ISBNs no índice.
+     * @throws ServiceException Se os arquivos não puderem ser lidos ou
+     * gravados, ou a geração for interrompida (o índice anterior é mantido).
+     */
+    public long gerarIndice(Path edicoes, Path autores, Path destino, ProgressoListener listener) throws ServiceException {
+        long inicio = System.nanoTime();
+        Path temporaria = null;
+        try {
+            Files.createDirectories(destino);
+            apagarSubstituidos(destino);
+            temporaria = Files.createTempDirectory(destino, "geracao");
+
+            long geracao = ThreadLocalRandom.current().nextLong(); // Identifica os arquivos deste índice
+            Map<String, String> nomesAutores = new ConcurrentHashMap<>();
+            if (autores != null) {
+                percorrer(autores, () -> new ProcessadorAutores(nomesAutores), listener, "Lendo autores");
+                LOGGER.log(Level.INFO, "{0} autores carregados", nomesAutores.size());
+            }
+
+            Path registros = temporaria.resolve(IndiceOpenLibrary.ARQUIVO_REGISTROS);
+            List<Path> rodadas = Collections.synchronizedList(new ArrayList<>());
+            AtomicLong edicoesIndexadas = new AtomicLong();
+            AtomicLong edicoesSemIsbn = new AtomicLong();
+            Path pastaRodadas = temporaria;
+            try (GravadorRegistros gravador = new GravadorRegistros(registros, geracao)) {
+                percorrer(edicoes, () -> new ProcessadorEdicoes(nomesAutores, gravador, pastaRodadas, rodadas,
+                        edicoesIndexadas, edicoesSemIsbn), listener, "Lendo edições");
+            }
+
+            avisar(listener, 99, "Ordenando " + rodadas.size() + " rodadas...");
+            Path chaves = temporaria.resolve(IndiceOpenLibrary.ARQUIVO_CHAVES);
+            long quantidade = intercalar(rodadas, chaves, geracao);
+
+            // Os registros primeiro: o arquivo de chaves é o que torna o índice válido. Se o
+            // programa parar entre as duas trocas, as gerações diferem e o índice é recusado.
+            substituir(registros, destino.resolve(IndiceOpenLibrary.ARQUIVO_REGISTROS));
+            substituir(chaves, destino.resolve(IndiceOpenLibrary.ARQUIVO_CHAVES));
+            avisar(listener, 100, quantidade + " ISBNs indexados");
+            LOGGER.log(Level.INFO, "Índice da Open Library gerado em {0}: {1} ISBNs de {2} edições ({3} edições sem ISBN) em {4} s",
+                    new Object[]{destino, quantidade, edicoesIndexadas.get(), edicoesSemIsbn.get(),
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - inicio)});
+            return quantidade;
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao gerar o índice da Open Library", ex);
+            throw new ServiceException("Erro ao gerar o índice da Open Library: " + ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Geração do índice interrompida.", ex);
+        } finally {
+            apagar(temporaria);
+        }
+    }
+
+    /**
+     * Move o arquivo gerado para o lugar do anterior. Se o anterior não puder
+     * ser substituído por estar mapeado (no Windows), ele é renomeado antes.
+     */
+    private static void substituir(Path gerado, Path destino) throws IOException {
+        try {
+            Files.move(gerado, destino, StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileSystemException e) {
+            Path substituido = destino.resolveSibling(destino.getFileName() + "." + System.currentTimeMillis() + SUFIXO_SUBSTITUIDO);
+            Files.move(destino, substituido);
+            Files.move(gerado, destino);
+            LOGGER.log(Level.INFO, "{0} estava em uso e foi renomeado para {1}", new Object[]{destino, substituido.getFileName()});
+        }
+    }
+
+    /**
+     * Apaga os arquivos renomeados por {@link #substituir(Path, Path)} que já
+     * não estão mapeados.
+     */
+    private static void apagarSubstituidos(Path destino) throws IOException {
+        try (Stream<Path> arquivos = Files.list(destino)) {
+            for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                if (arquivo.getFileName().toString().endsWith(SUFIXO_SUBSTITUIDO)) {
+                    try {
+                        Files.delete(arquivo);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.FINE, "{0} ainda em uso", arquivo);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Interpreta uma linha do dump numa das threads de interpretação. Cada
+     * thread tem o seu processador.
+     */
+    private interface Processador {
+
+        void processar(String linha) throws IOException;
+
+        void concluir() throws IOException;
+    }
+
+    /**
+     * Lê o dump e distribui as linhas, em lotes, entre as threads de
+     * interpretação. Retorna quando todas terminarem.
+     */
+    private void percorrer(Path dump, Supplier<Processador> fabrica, ProgressoListener listener, String etapa)
+            throws IOException, InterruptedException {
+        BlockingQueue<List<String>> fila = new ArrayBlockingQueue<>(threads * LOTES_POR_THREAD);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "indice-openlibrary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> trabalhos = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                Processador processador = fabrica.get();
+                trabalhos.add(executor.submit(() -> {
+                    for (List<String> lote = fila.take(); lote != FIM; lote = fila.take()) {
+                        for (String linha : lote) {
+                            processador.processar(linha);
+                        }
+                    }
+                    processador.concluir();
+                    return null;
+                }));
+            }
+
+            long tamanho = Math.max(1, Files.size(dump));
+            try (ContadorBytes entrada = new ContadorBytes(Files.newInputStream(dump));
+                    BufferedReader leitor = new BufferedReader(new InputStreamReader(
+                            new GZIPInputStream(new BufferedInputStream(entrada, 1 << 16), 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+                List<String> lote = new ArrayList<>(LINHAS_POR_LOTE);
+                int percentual = -1;
+                for (String linha = leitor.readLine(); linha != null; linha = leitor.readLine()) {
+                    lote.add(linha);
+                    if (lote.size() == LINHAS_POR_LOTE) {
+                        entregar(fila, lote, trabalhos);
+                        lote = new ArrayList<>(LINHAS_POR_LOTE);
+                        int atual = (int) (entrada.getLidos() * 100 / tamanho);
+                        if (atual != percentual) {
+                            percentual = atual;
+                            avisar(listener, Math.min(atual, 98), etapa + ": " + atual + "%");
+                        }
+                    }
+                }
+                if (!lote.isEmpty()) {
+                    entregar(fila, lote, trabalhos);
+                }
+            }
+            for (int i = 0; i < threads; i++) {
+                entregar(fila, FIM, trabalhos);
+            }
+            for (Future<?> trabalho : trabalhos) {
+                trabalho.get(); // Lança a falha da thread, se houver
+            }
+        } catch (ExecutionException ex) {
+            Throwable causa = ex.getCause();
+            throw causa instanceof IOException io ? io : new IOException(causa);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Coloca o lote na fila, esperando espaço. Enquanto espera, verifica se
+     * alguma thread falhou, para não ficar bloqueado numa fila que ninguém
+     * mais consome.
+     */
+    private static void entregar(BlockingQueue<List<String>> fila, List<String> lote, List<Future<?>> trabalhos)
+            throws InterruptedException, ExecutionException {
+        while (!fila.offer(lote, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<?> trabalho : trabalhos) {
+                if (trabalho.isDone()) {
+                    trabalho.get();
+                    throw new ExecutionException(new IOException("Thread de interpretação encerrada antes do fim do arquivo."));
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna o JSON da linha do dump (a última coluna), ou null se a linha
+     * estiver incompleta.
+     */
+    private static String json(String linha) {
+        int tab = linha.lastIndexOf('\t'); // O JSON não contém tabulações sem escape
+        return tab >= 0 && tab + 1 < linha.length() ? linha.substring(tab + 1) : null;
+    }
+
+    /**
+     * Carrega o nome de cada autor, pela chave ({@code /authors/OL...A}).
+     */
+    private static final class ProcessadorAutores implements Processador {
+
+        private final Map<String, String> nomes;
+
+        private ProcessadorAutores(Map<String, String> nomes) {
+            this.nomes = nomes;
+        }
+
+        @Override
+        public void processar(String linha) throws IOException {
+            String json = json(linha);
+            if (json == null) {
+                return;
+            }
+            String chave = null;
+            String nome = null;
+            try (JsonParser parser = FABRICA.createParser(json)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String campo = parser.currentName();
+                    JsonToken valor = parser.nextToken();
+                    if ("key".equals(campo) && valor == JsonToken.VALUE_STRING) {
+                        chave = parser.getText();
+                    } else if ("name".equals(campo) && valor == JsonToken.VALUE_STRING) {
+                        nome = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Linha inválida no dump de autores ignorada", e);
+                return;
+            }
+            if (chave != null && nome != null && !nome.isBlank()) {
+                nomes.put(chave, nome.trim());
+            }
+        }
+
+        @Override
+        public void concluir() {
+        }
+    }
+
+    /**
+     * Interpreta as edições, grava os registros e acumula os pares (ISBN,
+     * posição) em rodadas ordenadas.
+     */
+    private final class ProcessadorEdicoes implements Processador {
+
+        private final Map<String, String> nomesAutores;
+        private final GravadorRegistros gravador;
+        private final Path pasta;
+        private final List<Path> rodadas;
+        private final AtomicLong indexadas;
+        private final AtomicLong semIsbn;
+        private final long[] chaves = new long[chavesPorRodada];
+        private final long[] posicoes = new long[chavesPorRodada];
+        private final long[] isbns = new long[64];
+        private int quantidade;
+
+        private ProcessadorEdicoes(Map<String, String> nomesAutores, GravadorRegistros gravador, Path pasta,
+                List<Path> rodadas, AtomicLong indexadas, AtomicLong semIsbn) {
+            this.nomesAutores = nomesAutores;
+            this.gravador = gravador;
+            this.pasta = pasta;
+            this.rodadas = rodadas;
+            this.indexadas = indexadas;
+            this.semIsbn = semIsbn;
+        }
+
+        @Override
+        public void processar(String linha) throws IOException {
+            String json = json(linha);
+            if (json == null) {
+                return;
+            }
+            String titulo = null;
+            String chaveAutor = null;
+            String autoria = null;
+            String editora = null;
+            String data = null;
+            String assunto = null;
+            int quantidadeIsbns = 0;
+
+            try (JsonParser parser = FABRICA.createParser(json)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String campo = parser.currentName();
+                    JsonToken valor = parser.nextToken();
+                    switch (campo) {
+                        case "isbn_10", "isbn_13" -> {
+                            if (valor != JsonToken.START_ARRAY) {
+                                parser.skipChildren();
+                                break;
+                            }
+                            for (JsonToken t = parser.nextToken(); t != JsonToken.END_ARRAY; t = parser.nextToken()) {
+                                long chave = t == JsonToken.VALUE_STRING ? ISBNUtil.paraNumero(parser.getText()) : -1;
+                                if (chave >= 0 && quantidadeIsbns < isbns.length) {
+                                    isbns[quantidadeIsbns++] = chave;
+                                }
+                                parser.skipChildren();
+                            }
+                        }
+                        case "title" ->
+                            titulo = texto(parser);
+                        case "by_statement" ->
+                            autoria = texto(parser);
+                        case "publish_date" ->
+                            data = texto(parser);
+                        case "publishers" ->
+                            editora = primeiroTexto(parser);
+                        case "subjects" ->
+                            assunto = primeiroTexto(parser);
+                        case "authors" ->
+                            chaveAutor = primeiraChave(parser);
+                        default ->
+                            parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Linha inválida no dump de edições ignorada", e);
+                return;
+            }
+
+            if (quantidadeIsbns == 0) {
+                semIsbn.incrementAndGet();
+                return;
+            }
+            String autor = chaveAutor != null ? nomesAutores.get(chaveAutor) : null;
+            if (autor == null && autoria != null) {
+                autor = autoria.endsWith(".") ? autoria.substring(0, autoria.length() - 1) : autoria;
+            }
+            long posicao = gravador.gravar(IndiceOpenLibrary.codificar(titulo, autor, editora, data, assunto));
+            for (int i = 0; i < quantidadeIsbns; i++) {
+                chaves[quantidade] = isbns[i];
+                posicoes[quantidade] = posicao;
+                if (++quantidade == chaves.length) {
+                    gravarRodada();
+                }
+            }
+            indexadas.incrementAndGet();
+        }
+
+        @Override
+        public void concluir() throws IOException {
+            if (quantidade > 0) {
+                gravarRodada();
+            }
+        }
+
+        /**
+         * Ordena os pares acumulados e grava-os numa rodada.
+         */
+        private void gravarRodada() throws IOException {
+            ordenar(chaves, posicoes, 0, quantidade);
+            Path rodada = Files.createTempFile(pasta, "rodada", ".bin");
+            try (DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(rodada), 1 << 16))) {
+                for (int i = 0; i < quantidade; i++) {
+                    saida.writeLong(chaves[i]);
+                    saida.writeLong(posicoes[i]);
+                }
+            }
+            rodadas.add(rodada);
+            quantidade = 0;
+        }
+    }
+
+    private static String texto(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            String valor = parser.getText().trim();
+            return valor.isEmpty() ? null : valor;
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static String primeiroTexto(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            return texto(parser);
+        }
+        String primeiro = null;
+        for (JsonToken t = parser.nextToken(); t != JsonToken.END_ARRAY; t = parser.nextToken()) {
+            if (primeiro == null && t == JsonToken.VALUE_STRING) {
+                primeiro = texto(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return primeiro;
+    }
+
+    /**
+     * Lê a chave do primeiro autor de {@code "authors": [{"key": ...}]}.
+     */
+    private static String primeiraChave(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        String chave = null;
+        for (JsonToken t = parser.nextToken(); t != JsonToken.END_ARRAY; t = parser.nextToken()) {
+            if (chave != null || t != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.currentName();
+                JsonToken valor = parser.nextToken();
+                if ("key".equals(campo) && valor == JsonToken.VALUE_STRING) {
+                    chave = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return chave;
+    }
+
+    /**
+     * Grava os registros, um após o outro, sem que nenhum atravesse o limite
+     * de um bloco mapeado ({@link IndiceOpenLibrary#TAMANHO_BLOCO}).
+     * Compartilhado pelas threads.
+     */
+    private static final class GravadorRegistros implements AutoCloseable {
+
+        private final OutputStream saida;
+        private long posicao;
+
+        private GravadorRegistros(Path arquivo, long geracao) throws IOException {
+            this.saida = new BufferedOutputStream(Files.newOutputStream(arquivo), 1 << 20);
+            DataOutputStream cabecalho = new DataOutputStream(saida);
+            cabecalho.writeInt(IndiceOpenLibrary.MAGICO);
+            cabecalho.writeInt(IndiceOpenLibrary.VERSAO);
+            cabecalho.writeLong(geracao);
+            this.posicao = IndiceOpenLibrary.TAMANHO_CABECALHO_REGISTROS;
+        }
+
+        synchronized long gravar(byte[] registro) throws IOException {
+            long livre = IndiceOpenLibrary.TAMANHO_BLOCO - posicao % IndiceOpenLibrary.TAMANHO_BLOCO;
+            if (registro.length > livre) {
+                saida.write(new byte[(int) livre]); // Completa o bloco e começa o registro no próximo
+                posicao += livre;
+            }
+            long inicio = posicao;
+            saida.write(registro);
+            posicao += registro.length;
+            return inicio;
+        }
+
+        @Override
+        public void close() throws IOException {
+            saida.close();
+        }
+    }
+
+    /**
+     * Intercala as rodadas ordenadas no arquivo de chaves. Um ISBN presente
+     * em várias edições fica com a primeira encontrada.
+     *
+     * @return Quantidade de ISBNs gravados.
+     */
+    private static long intercalar(List<Path> rodadas, Path arquivo, long geracao) throws IOException {
+        PriorityQueue<LeitorRodada> fila = new PriorityQueue<>(Math.max(1, rodadas.size()),
+                Comparator.comparingLong((LeitorRodada r) -> r.chave).thenComparingLong(r -> r.posicao));
+        long quantidade = 0;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 20));
+            saida.writeInt(IndiceOpenLibrary.MAGICO);
+            saida.writeInt(IndiceOpenLibrary.VERSAO);
+            saida.writeLong(0); // Quantidade, preenchida no fim
+            saida.writeLong(geracao);
+            try {
+                for (Path rodada : rodadas) {
+                    LeitorRodada leitor = new LeitorRodada(rodada);
+                    if (leitor.avancar()) {
+                        fila.add(leitor);
+                    } else {
+                        leitor.close();
+                    }
+                }
+                long anterior = -1;
+                while (!fila.isEmpty()) {
+                    LeitorRodada leitor = fila.poll();
+                    if (leitor.chave != anterior) {
+                        saida.writeLong(leitor.chave);
+                        saida.writeLong(leitor.posicao);
+                        anterior = leitor.chave;
+                        quantidade++;
+                    }
+                    if (leitor.avancar()) {
+                        fila.add(leitor);
+                    } else {
+                        leitor.close();
+                    }
+                }
+            } finally {
+                for (LeitorRodada leitor : fila) {
+                    leitor.close();
+                }
+            }
+            saida.flush();
+
+            ByteBuffer total = ByteBuffer.allocate(Long.BYTES).putLong(0, quantidade);
+            canal.write(total, 8);
+            canal.force(true);
+        }
+        return quantidade;
+    }
+
+    /**
+     * Lê os pares de uma rodada, em ordem.
+     */
+    private static final class LeitorRodada implements AutoCloseable {
+
+        private final DataInputStream entrada;
+        private long chave;
+        private long posicao;
+
+        private LeitorRodada(Path rodada) throws IOException {
+            this.entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(rodada), 1 << 16));
+        }
+
+        boolean avancar() throws IOException {
+            try {
+                chave = entrada.readLong();
+                posicao = entrada.readLong();
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            entrada.close();
+        }
+    }
+
+    /**
+     * Ordena os pares pela chave (quicksort sobre os dois vetores ao mesmo
+     * tempo, sem criar objetos).
+     *
+     * @param chaves Chaves.
+     * @param valores Valores, na mesma posição das chaves.
+     * @param inicio Primeira posição.
+     * @param fim Posição seguinte à última.
+     */
+    static void ordenar(long[] chaves, long[] valores, int inicio, int fim) {
+        while (fim - inicio > 16) {
+            long a = chaves[inicio];
+            long b = chaves[(inicio + fim) >>> 1];
+            long c = chaves[fim - 1];
+            long pivo = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c)); // Mediana de três
+            int i = inicio;
+            int j = fim - 1;
+            while (i <= j) {
+                while (chaves[i] < pivo) {
+                    i++;
+                }
+                while (chaves[j] > pivo) {
+                    j--;
+                }
+                if (i <= j) {
+                    trocar(chaves, valores, i++, j--);
+                }
+            }
+            // Ordena a parte menor recursivamente e a maior no laço, limitando a pilha
+            if (j - inicio < fim - i) {
+                ordenar(chaves, valores, inicio, j + 1);
+                inicio = i;
+            } else {
+                ordenar(chaves, valores, i, fim);
+                fim = j + 1;
+            }
+        }
+        for (int i = inicio + 1; i < fim; i++) {
+            for (int j = i; j > inicio && chaves[j - 1] > chaves[j]; j--) {
+                trocar(chaves, valores, j, j - 1);
+            }
+        }
+    }
+
+    private static void trocar(long[] chaves, long[] valores, int i, int j) {
+        long chave = chaves[i];
+        chaves[i] = chaves[j];
+        chaves[j] = chave;
+        long valor = valores[i];
+        valores[i] = valores[j];
+        valores[j] = valor;
+    }
+
+    private static void avisar(ProgressoListener listener, int percentual, String mensagem) {
+        if (listener != null) {
+            listener.progresso(percentual, 100, mensagem);
+        }
+    }
+
+    /**
+     * Apaga a pasta temporária da geração e as rodadas que restarem nela.
+     */
+    private static void apagar(Path pasta) {
+        if (pasta == null) {
+            return;
+        }
+        try (Stream<Path> arquivos = Files.list(pasta)) {
+            for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                Files.deleteIfExists(arquivo);
+            }
+            Files.deleteIfExists(pasta);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Não foi possível apagar " + pasta, e);
+        }
+    }
+
+    /**
+     * Conta os bytes lidos do arquivo compactado, para informar o andamento.
+     */
+    private static final class ContadorBytes extends FilterInputStream {
+
+        private volatile long lidos;
+
+        private ContadorBytes(InputStream entrada) {
+            super(entrada);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                lidos++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                lidos += n;
+            }
+            return n;
+        }
+
+        long getLidos() {
+            return lidos;
+        }
+    }
+
+    /**
+     * Gera o índice pela linha de comando.
+     *
+     * <pre>
+     * java ... IndiceOpenLibraryService ol_dump_editions.txt.gz [ol_dump_authors.txt.gz] [pasta]
+     * </pre>
+     *
+     * A pasta padrão é a de {@link IndiceOpenLibrary#diretorioPadrao()}.
+     *
+     * @param args Dump de edições, dump de autores (opcional, "-" para
+     * nenhum) e pasta do índice (opcional).
+     * @throws ServiceException Se a geração falhar.
+     */
+    public static void main(String[] args) throws ServiceException {
+        if (args.length < 1) {
+            System.err.println("Uso: IndiceOpenLibraryService <dump de edições> [<dump de autores> | -] [<pasta do índice>]");
+            System.exit(2);
+        }
+        Path edicoes = Paths.get(args[0]);
+        Path autores = args.length > 1 && !args[1].equals("-") ? Paths.get(args[1]) : null;
+        Path destino = args.length > 2 ? Paths.get(args[2]) : IndiceOpenLibrary.diretorioPadrao();
+        long quantidade = new IndiceOpenLibraryService().gerarIndice(edicoes, autores, destino,
+                (concluido, total, mensagem) -> System.out.println(mensagem));
+        System.out.println(quantidade + " ISBNs indexados em " + destino);
+    }
+}
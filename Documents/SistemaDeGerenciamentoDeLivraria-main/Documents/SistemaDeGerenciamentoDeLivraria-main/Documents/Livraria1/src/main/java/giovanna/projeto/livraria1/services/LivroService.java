@@ -1,10 +1,13 @@
 package giovanna.projeto.livraria1.services;
 
 import giovanna.projeto.livraria1.dao.LivroDAO;
-import giovanna.projeto.livraria1.dao.GeneroDAO;
 import giovanna.projeto.livraria1.model.Livro;
 import giovanna.projeto.livraria1.model.Genero;
+import giovanna.projeto.livraria1.model.ResultadoInsercao;
 import giovanna.projeto.livraria1.util.ConnectionFactory;
+import giovanna.projeto.livraria1.util.ConsultaCancelavel;
+import giovanna.projeto.livraria1.util.GeneroCache;
+import giovanna.projeto.livraria1.util.ISBNUtil;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -15,6 +18,7 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,6 +38,8 @@ import java.util.logging.Logger;
  * <li>Operações CRUD no banco de dados utilizando a classe
  * {@link LivroDAO}.</li>
  * <li>Filtragem e busca de livros por critérios variados.</li>
+ * <li>Publicação das inclusões, alterações e exclusões de livros
+ * ({@link AlteracaoLivro}) para os ouvintes registrados.</li>
  * </ul>
  *
  * @author
@@ -41,50 +47,98 @@ import java.util.logging.Logger;
 public class LivroService {
 
     private static final Logger LOGGER = Logger.getLogger(LivroService.class.getName());
+    private static final List<AlteracaoLivro.Ouvinte> OUVINTES = new CopyOnWriteArrayList<>();
     private final LivroDAO livroDAO;
-    private final GeneroDAO generoDAO;
 
     /**
-     * Construtor padrão. Inicializa os DAOs responsáveis pelas operações no
-     * banco de dados.
+     * Construtor padrão. Inicializa o DAO responsável pelas operações no banco
+     * de dados. Os gêneros são consultados no {@link GeneroCache}.
      */
     public LivroService() {
         this.livroDAO = new LivroDAO();
-        this.generoDAO = new GeneroDAO();
+    }
+
+    /**
+     * Registra um ouvinte das alterações de livros feitas por qualquer
+     * instância deste serviço, pela importação ou pelo enriquecimento.
+     *
+     * @param ouvinte Ouvinte a registrar.
+     */
+    public static void adicionarOuvinte(AlteracaoLivro.Ouvinte ouvinte) {
+        OUVINTES.add(ouvinte);
+    }
+
+    /**
+     * Remove um ouvinte registrado.
+     *
+     * @param ouvinte Ouvinte a remover.
+     */
+    public static void removerOuvinte(AlteracaoLivro.Ouvinte ouvinte) {
+        OUVINTES.remove(ouvinte);
+    }
+
+    /**
+     * Avisa os ouvintes de uma alteração já gravada. Uma falha de um ouvinte
+     * não desfaz a alteração nem impede os demais de serem avisados. Também
+     * usado pela importação ({@link ImportacaoLivrosService}) e pelo
+     * enriquecimento ({@link EnriquecimentoService}) em massa.
+     */
+    static void publicar(AlteracaoLivro alteracao) {
+        for (AlteracaoLivro.Ouvinte ouvinte : OUVINTES) {
+            try {
+                ouvinte.livroAlterado(alteracao);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Erro ao avisar a alteração " + alteracao, ex);
+            }
+        }
     }
 
     /**
      * Valida as informações de um livro.
      *
+     * Também usada pela importação em massa ({@link ImportacaoLivrosService}).
+     * O ISBN deve ter dígito verificador válido ({@link ISBNUtil}); ISBN-10 e
+     * ISBN com hífens ou espaços são aceitos e convertidos em ISBN-13.
+     *
      * @param livro Objeto {@link Livro} a ser validado.
      * @throws ServiceException Caso algum campo obrigatório esteja inválido ou
      * ausente.
      */
-    private void validarLivro(Livro livro) throws ServiceException {
-        LOGGER.info("Iniciando validação do livro...");
+    static void validarLivro(Livro livro) throws ServiceException {
+        LOGGER.fine("Iniciando validação do livro...");
         if (livro.getTitulo() == null || livro.getTitulo().isBlank()) {
             throw new ServiceException("Título é obrigatório.");
         }
-        if (livro.getIsbn() == null || livro.getIsbn().length() != 13) {
-            throw new ServiceException("ISBN deve conter 13 caracteres.");
+        if (livro.getTitulo().length() > 80) {
+            throw new ServiceException("Título deve ter no máximo 80 caracteres.");
+        }
+        if (livro.getIsbn() == null || livro.getIsbn().isBlank()) {
+            throw new ServiceException("ISBN é obrigatório.");
         }
-        // Verifica se contém apenas números
-        if (!livro.getIsbn().matches("\\d+")) { 
-            throw new ServiceException("ISBN deve conter apenas números.");
+        String isbn13 = ISBNUtil.paraIsbn13(livro.getIsbn());
+        if (isbn13 == null) {
+            throw new ServiceException("ISBN inválido: informe um ISBN-10 ou ISBN-13 com o dígito verificador correto.");
         }
+        livro.setIsbn(isbn13);
         if (livro.getAutor() == null || livro.getAutor().isBlank()) {
             throw new ServiceException("Autor é obrigatório.");
         }
+        if (livro.getAutor().length() > 80) {
+            throw new ServiceException("Autor deve ter no máximo 80 caracteres.");
+        }
         if (livro.getEditora() == null || livro.getEditora().isBlank()) {
             throw new ServiceException("Editora é obrigatória.");
         }
+        if (livro.getEditora().length() > 50) {
+            throw new ServiceException("Editora deve ter no máximo 50 caracteres.");
+        }
         if (livro.getGeneroNome() == null || livro.getGeneroNome().isBlank()) {
             throw new ServiceException("Gênero é obrigatório.");
         }
          if (livro.getData_publicacao()== null) {
             throw new ServiceException("Data de publicação é obrigatória.");
         }
-        LOGGER.info("Validação concluída com sucesso.");
+        LOGGER.fine("Validação concluída com sucesso.");
     }
 
     /**
@@ -99,19 +153,87 @@ public class LivroService {
         try {
             validarLivro(livro);
 
-            // Converte o nome do gênero para id_genero
-            int generoId = generoDAO.buscarIdGeneroPorNome(livro.getGeneroNome());
+            // Converte o nome do gênero para id_genero (a partir do cache de gêneros)
+            int generoId = GeneroCache.idPorNome(livro.getGeneroNome());
             livro.setGenero_id(generoId);
 
+            // A etiqueta gerada é preenchida no próprio livro pelo DAO, sem nova consulta
             livroDAO.inserirLivro(livro);
             LOGGER.info("Livro cadastrado com sucesso: " + livro.getTitulo());
-            return livroDAO.busca_porISBN(livro.getIsbn());
+            publicar(AlteracaoLivro.inclusao(livro.getEtiqueta_livro()));
+            return livro;
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Erro ao cadastrar livro", ex);
             throw new ServiceException("Erro ao cadastrar livro: " + ex.getMessage(), ex);
         }
     }
 
+    /**
+     * Cadastra vários livros de uma vez, em lotes de
+     * {@value LivroDAO#TAMANHO_LOTE_INSERCAO_PADRAO}.
+     *
+     * @param livros Livros a cadastrar.
+     * @return Livros cadastrados e recusados.
+     * @throws ServiceException Caso não seja possível acessar o banco.
+     * @see #cadastrarLivros(List, int)
+     */
+    public ResultadoInsercao cadastrarLivros(List<Livro> livros) throws ServiceException {
+        return cadastrarLivros(livros, LivroDAO.TAMANHO_LOTE_INSERCAO_PADRAO);
+    }
+
+    /**
+     * Cadastra vários livros de uma vez.
+     *
+     * Cada livro passa pela mesma validação de {@link #cadastrarLivro(Livro)};
+     * livros inválidos, com gênero inexistente ou com ISBN já cadastrado são
+     * recusados sem interromper o cadastro dos demais. Os livros válidos são
+     * gravados em lotes, uma transação por lote.
+     *
+     * @param livros Livros a cadastrar.
+     * @param tamanhoLote Quantidade de livros por transação.
+     * @return Livros cadastrados (com a etiqueta gerada) e recusados (as
+     * posições se referem à lista recebida).
+     * @throws ServiceException Caso não seja possível acessar o banco.
+     */
+    public ResultadoInsercao cadastrarLivros(List<Livro> livros, int tamanhoLote) throws ServiceException {
+        if (tamanhoLote <= 0) {
+            throw new ServiceException("Tamanho do lote deve ser positivo.");
+        }
+        ResultadoInsercao resultado = new ResultadoInsercao();
+        List<Livro> validos = new ArrayList<>(livros.size());
+        List<Integer> posicoes = new ArrayList<>(livros.size()); // Posição de cada válido na lista recebida
+
+        try {
+            for (int i = 0; i < livros.size(); i++) {
+                Livro livro = livros.get(i);
+                try {
+                    validarLivro(livro);
+                    livro.setGenero_id(GeneroCache.idPorNome(livro.getGeneroNome()));
+                    validos.add(livro);
+                    posicoes.add(i);
+                } catch (ServiceException ex) {
+                    resultado.adicionarFalha(i, livro, ex.getMessage());
+                } catch (SQLException ex) {
+                    resultado.adicionarFalha(i, livro, ex.getMessage()); // Gênero não encontrado
+                }
+            }
+
+            ResultadoInsercao gravacao = livroDAO.inserirLivros(validos, tamanhoLote);
+            for (Livro livro : gravacao.getInseridos()) {
+                resultado.adicionarInserido(livro);
+                publicar(AlteracaoLivro.inclusao(livro.getEtiqueta_livro()));
+            }
+            for (ResultadoInsercao.Falha falha : gravacao.getFalhas()) {
+                resultado.adicionarFalha(posicoes.get(falha.getIndice()), falha.getLivro(), falha.getMotivo());
+            }
+            LOGGER.log(Level.INFO, "Cadastro em lote concluído: {0}", resultado);
+            return resultado;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao cadastrar livros em lote", ex);
+            throw new ServiceException("Erro ao cadastrar livros: " + ex.getMessage(), ex);
+        }
+    }
+
     /**
      * Atualiza as informações de um livro existente.
      *
@@ -127,12 +249,13 @@ public class LivroService {
                 throw new ServiceException("Etiqueta de livro inválida para atualização.");
             }
 
-            // Converte o nome do gênero para id_genero
-            int genero_id = generoDAO.buscarIdGeneroPorNome(livro.getGeneroNome());
+            // Converte o nome do gênero para id_genero (a partir do cache de gêneros)
+            int genero_id = GeneroCache.idPorNome(livro.getGeneroNome());
             livro.setGenero_id(genero_id);
 
             livroDAO.alterarLivro(livro);
             LOGGER.info("Livro atualizado com sucesso: " + livro.getTitulo());
+            publicar(AlteracaoLivro.alteracao(livro.getEtiqueta_livro()));
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Erro ao atualizar livro", ex);
             throw new ServiceException("Erro ao atualizar livro: " + ex.getMessage(), ex);
@@ -154,6 +277,29 @@ public class LivroService {
         }
     }
 
+    /**
+     * Lista uma página de livros, ordenada no banco de dados.
+     *
+     * @param ordenacao Coluna de ordenação.
+     * @param decrescente true para ordem decrescente.
+     * @param ultimo Último livro da página anterior, ou null para a primeira
+     * página.
+     * @param tamanho Quantidade máxima de livros da página.
+     * @return Livros da página.
+     * @throws ServiceException Caso ocorra erro durante a execução.
+     */
+    public List<Livro> listarLivrosPagina(LivroDAO.Ordenacao ordenacao, boolean decrescente, Livro ultimo, int tamanho) throws ServiceException {
+        if (tamanho <= 0) {
+            throw new ServiceException("Tamanho de página inválido: " + tamanho);
+        }
+        try {
+            return livroDAO.consultaLivrosPagina(ordenacao, decrescente, ultimo, tamanho);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao listar página de livros", ex);
+            throw new ServiceException("Erro ao listar livros: " + ex.getMessage(), ex);
+        }
+    }
+
     /**
      * Exclui um livro pelo número de etiqueta.
      *
@@ -167,6 +313,7 @@ public class LivroService {
             }
             livroDAO.excluirLivro(etiqueta);
             LOGGER.info("Livro excluído com sucesso: " + etiqueta);
+            publicar(AlteracaoLivro.exclusao(etiqueta));
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Erro ao excluir livro", ex);
             throw new ServiceException("Erro ao excluir livro: " + ex.getMessage(), ex);
@@ -176,18 +323,19 @@ public class LivroService {
     /**
      * Busca um livro pelo ISBN.
      *
-     * @param isbn ISBN do livro a ser buscado.
-     * @return O livro correspondente ou null se não encontrado.
+     * @param isbn ISBN-10 ou ISBN-13 do livro a ser buscado.
+     * @return O livro correspondente ou null se não encontrado (ou se o ISBN
+     * for inválido, sem consultar o banco).
      * @throws ServiceException Caso ocorra erro durante a execução.
      */
     public Livro buscarPorISBN(String isbn) throws ServiceException {
+        String isbn13 = ISBNUtil.paraIsbn13(isbn);
+        if (isbn13 == null) {
+            return null;
+        }
         try {
-            Livro livro = livroDAO.busca_porISBN(isbn);
-            if (livro != null) {
-                String generoNome = generoDAO.buscarNomeGeneroPorId(livro.getGenero_id());
-                livro.setGeneroNome(generoNome);
-            }
-            return livro;
+            // O nome do gênero já vem da junção com a tabela generos
+            return livroDAO.busca_porISBN(isbn13);
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Erro ao buscar livro por ISBN", ex);
             throw new ServiceException("Erro ao buscar livro por ISBN: " + ex.getMessage(), ex);
@@ -232,7 +380,7 @@ public class LivroService {
      *
      * Este método recebe um array de nomes de gêneros e retorna uma lista com
      * os objetos `Genero` correspondentes a esses nomes, incluindo seus
-     * respectivos IDs. A consulta é feita diretamente no banco de dados.
+     * respectivos IDs. Os gêneros são obtidos do {@link GeneroCache}.
      *
      * @param nomesGeneros Array de nomes de gêneros a serem buscados no banco
      * de dados.
@@ -241,27 +389,14 @@ public class LivroService {
      * @throws SQLException Se ocorrer erro ao acessar o banco de dados.
      */
     public List<Genero> buscarGenerosPorNome(String[] nomesGeneros) throws SQLException {
-        // Consulta SQL para buscar os gêneros pelo nome
-        String sql = "SELECT * FROM generos WHERE nome IN (" + String.join(", ", Collections.nCopies(nomesGeneros.length, "?")) + ")";
-
-        try (Connection conn = ConnectionFactory.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            // Setando os parâmetros da consulta para os nomes dos gêneros
-            for (int i = 0; i < nomesGeneros.length; i++) {
-                stmt.setString(i + 1, nomesGeneros[i]);
-            }
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                List<Genero> generos = new ArrayList<>();
-                while (rs.next()) {
-                    Genero genero = new Genero();
-                    genero.setId(rs.getInt("id"));
-                    genero.setNome(rs.getString("nome"));
-                    generos.add(genero);
-                }
-                return generos;
+        List<Genero> generos = new ArrayList<>();
+        for (String nome : nomesGeneros) {
+            Genero genero = GeneroCache.buscarPorNome(nome);
+            if (genero != null) {
+                generos.add(genero);
             }
         }
+        return generos;
     }
 
     /**
@@ -294,7 +429,7 @@ public class LivroService {
                     livro.setTitulo(rs.getString("titulo"));
                     livro.setAutor(rs.getString("autor"));
                     livro.setGenero_id(Integer.parseInt(rs.getString("genero_id")));
-                    livro.setGeneroNome(generoDAO.buscarNomeGeneroPorId(livro.getGenero_id()));
+                    livro.setGeneroNome(GeneroCache.nomePorId(livro.getGenero_id()));
                     livro.setIsbn(rs.getString("isbn"));
                     livro.setEditora(rs.getString("editora"));
                     livro.setData_publicacao(rs.getDate("data_publicacao").toLocalDate());
@@ -473,7 +608,7 @@ public class LivroService {
                     livro.setTitulo(resultSet.getString("titulo"));
                     livro.setAutor(resultSet.getString("autor"));
                     livro.setGenero_id(Integer.parseInt(resultSet.getString("genero_id")));  // O id do gênero é armazenado no livro
-                    livro.setGeneroNome(generoDAO.buscarNomeGeneroPorId(livro.getGenero_id())); // seta o nome do gênero também.
+                    livro.setGeneroNome(GeneroCache.nomePorId(livro.getGenero_id())); // seta o nome do gênero também (a partir do cache).
                     livro.setIsbn(resultSet.getString("isbn"));
                     livro.setEditora(resultSet.getString("editora"));
                     livro.setData_publicacao(resultSet.getDate("data_publicacao").toLocalDate()); // Converte a data para LocalDate
@@ -497,5 +632,26 @@ public class LivroService {
     }
 }
 
+    /**
+     * Busca livros pelo texto informado, permitindo cancelar a consulta a
+     * partir de outra thread.
+     *
+     * @param filtro Texto digitado pelo usuário.
+     * @param cancelamento Controle de cancelamento da consulta.
+     * @return Livros encontrados, dos mais semelhantes ao texto para os menos.
+     * @throws ServiceException Caso ocorra erro ou a consulta seja cancelada
+     * (verificável com {@link ConsultaCancelavel#isCancelamento(Throwable)}).
+     */
+    public List<Livro> buscarLivrosPorFiltro(String filtro, ConsultaCancelavel cancelamento) throws ServiceException {
+        try {
+            return livroDAO.buscarLivrosPorFiltro(filtro, LivroDAO.LIMITE_BUSCA_PADRAO, cancelamento);
+        } catch (SQLException ex) {
+            if (!ConsultaCancelavel.isCancelamento(ex)) {
+                LOGGER.log(Level.SEVERE, "Erro ao buscar livros por filtro", ex);
+            }
+            throw new ServiceException("Erro ao buscar livros por filtro: " + ex.getMessage(), ex);
+        }
+    }
+
 
 }
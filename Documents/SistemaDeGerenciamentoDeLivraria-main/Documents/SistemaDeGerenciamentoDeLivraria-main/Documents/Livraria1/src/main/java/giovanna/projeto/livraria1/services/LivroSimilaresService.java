@@ -1,22 +1,73 @@
 package giovanna.projeto.livraria1.services;
 
+import giovanna.projeto.livraria1.dao.LivroDAO;
 import giovanna.projeto.livraria1.dao.LivroSimilaresDAO;
 import giovanna.projeto.livraria1.model.Livro;
 import giovanna.projeto.livraria1.util.ConnectionFactory;
+import giovanna.projeto.livraria1.util.GrafoSimilares;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Classe reponsável por intermediar as operações realizadas na classe similaresDAO, responsável por manipulações no banco de dados no que se diz respeito à tabela de livros semelhantes.
+ *
+ * <p>
+ * As consultas de similaridade são respondidas pelo {@link GrafoSimilares},
+ * carregado do banco na inicialização ou no primeiro acesso e compartilhado
+ * por toda a aplicação. O grafo acompanha as inclusões e exclusões manuais
+ * feitas por esta classe, as inclusões e exclusões de livros
+ * ({@link #livroAlterado}) e as gravações da {@link ManutencaoSimilares}
+ * ({@link #atualizarGrafo}), e é recarregado depois do recálculo completo
+ * ({@link #recarregarGrafo()}).
+ * </p>
+ * <p>
+ * Gravações feitas por outros computadores não passam por aqui. Por isso, no
+ * máximo a cada {@link #INTERVALO_VERIFICACAO_MS} ms, um acesso ao grafo
+ * compara a versão das similaridades no banco
+ * ({@link LivroSimilaresDAO.VersaoSimilares}) com a lida na última carga e,
+ * se ela mudou, recarrega o grafo em segundo plano; enquanto isso, as
+ * consultas usam o grafo anterior.
+ * </p>
  * @author Giovanna
  */
 public class LivroSimilaresService {
 
     private static final Logger LOGGER = Logger.getLogger(LivroSimilaresService.class.getName());
+
+    /**
+     * Intervalo mínimo, em milissegundos, entre duas verificações da versão
+     * das similaridades no banco (propriedade de sistema
+     * {@code livraria.similares.verificacaoMs}).
+     */
+    public static final long INTERVALO_VERIFICACAO_MS = Long.getLong("livraria.similares.verificacaoMs", 60_000);
+
+    private static final Object TRAVA_CARGA = new Object();
+
+    private static volatile GrafoSimilares grafo;
+
+    // Versão das similaridades lida antes da última carga (null se não foi possível lê-la)
+    private static volatile LivroSimilaresDAO.VersaoSimilares versaoCarregada;
+    private static volatile long ultimaVerificacao = System.nanoTime();
+    private static final AtomicBoolean verificando = new AtomicBoolean();
+
+    // Livros alterados durante uma carga do grafo, relidos ao final dela (null fora de uma carga)
+    private static Set<Integer> alteradosDuranteCarga;
+    private static Set<Integer> incluidosDuranteCarga;
+    private static Set<Integer> excluidosDuranteCarga;
+
     private LivroSimilaresDAO similaresDAO;
+    private final LivroDAO livroDAO = new LivroDAO();
 
     /**
      * Construtor da classe
@@ -33,8 +84,8 @@ public class LivroSimilaresService {
      * @throws Exception
      */
     public boolean similaridadeExiste(int etiquetaLivro1, int etiquetaLivro2) throws Exception {
-        try(Connection conn = ConnectionFactory.getConnection()) {
-            return similaresDAO.similaridadeExiste(etiquetaLivro1, etiquetaLivro2);
+        try {
+            return getGrafo().ligados(etiquetaLivro1, etiquetaLivro2);
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Erro ao verificar similaridade", ex);
             throw new Exception("Erro ao verificar similaridade: " + ex.getMessage()); // Relança com mensagem mais amigável
@@ -50,6 +101,10 @@ public class LivroSimilaresService {
     public void adicionarLivroSimilar(int etiquetaLivro, int etiquetaSimilar) throws Exception {
         try(Connection conn = ConnectionFactory.getConnection()) {
             similaresDAO.adicionarLivroSimilar(etiquetaLivro, etiquetaSimilar);
+            GrafoSimilares atual = grafoParaAlterar(etiquetaLivro);
+            if (atual != null) {
+                atual.adicionarLigacao(etiquetaLivro, etiquetaSimilar, Float.NaN);
+            }
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Erro ao adicionar similaridade", ex);
             throw new Exception("Erro ao adicionar similaridade: " + ex.getMessage());
@@ -65,6 +120,10 @@ public class LivroSimilaresService {
     public void excluirLivroSimilar(int etiquetaLivro, int etiquetaSimilar) throws Exception {
         try (Connection conn = ConnectionFactory.getConnection()){
             similaresDAO.excluirLivroSimilar(etiquetaLivro, etiquetaSimilar);
+            GrafoSimilares atual = grafoParaAlterar(etiquetaLivro);
+            if (atual != null) {
+                atual.excluirLigacao(etiquetaLivro, etiquetaSimilar);
+            }
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Erro ao excluir similaridade", ex);
             throw new Exception("Erro ao excluir similaridade: " + ex.getMessage());
@@ -72,18 +131,296 @@ public class LivroSimilaresService {
     }
 
     /**
-     * Método que lista os livros que são semelhantes
+     * Método que lista os livros que são semelhantes, a partir do grafo de
+     * similaridades, com a pontuação de cada um ({@link Livro#getSimilaridade()}).
+     * Os incluídos manualmente vêm primeiro; os demais, da maior para a menor
+     * pontuação. Só os dados dos livros são lidos do banco.
      * @param etiquetaLivro é a etiqueta do livro que se deseja ver os semelhantes
      * @return os livros semelhantes
      * @throws SQLException
      * @throws Exception
      */
     public List<Livro> buscarLivrosSemelhantes(int etiquetaLivro) throws SQLException, Exception {
-        try(Connection conn = ConnectionFactory.getConnection()) {
-            return similaresDAO.buscarLivrosSemelhantesEtiquetas(etiquetaLivro);
+        try {
+            GrafoSimilares atual = getGrafo();
+            int[] etiquetas = new int[32];
+            float[] pontuacoes = new float[32];
+            int quantidade;
+            while ((quantidade = atual.vizinhos(etiquetaLivro, etiquetas, pontuacoes)) > etiquetas.length) {
+                etiquetas = new int[quantidade];
+                pontuacoes = new float[quantidade];
+            }
+            if (quantidade == 0) {
+                return new ArrayList<>();
+            }
+
+            List<Integer> consulta = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                consulta.add(etiquetas[i]);
+            }
+            Map<Integer, Livro> porEtiqueta = new HashMap<>();
+            for (Livro livro : livroDAO.buscarLivrosPorEtiquetas(consulta)) {
+                porEtiqueta.put(livro.getEtiqueta_livro(), livro);
+            }
+            List<Livro> livros = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) { // Na ordem do grafo
+                Livro livro = porEtiqueta.get(etiquetas[i]);
+                if (livro != null) {
+                    livro.setSimilaridade(Float.isNaN(pontuacoes[i]) ? null : pontuacoes[i]);
+                    livros.add(livro);
+                }
+            }
+            return livros;
         } catch (Exception ex) {
             LOGGER.log(Level.SEVERE, "Erro ao buscar livros semelhantes", ex);
             throw new Exception("Erro ao buscar livros semelhantes: " + ex.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Lista as etiquetas dos livros semelhantes a um livro, sem consultar o
+     * banco.
+     * @param etiquetaLivro etiqueta do livro
+     * @return as etiquetas, na ordem da tela
+     * @throws Exception Se o grafo não puder ser carregado.
+     */
+    public int[] buscarEtiquetasSemelhantes(int etiquetaLivro) throws Exception {
+        try {
+            return getGrafo().vizinhos(etiquetaLivro);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao buscar livros semelhantes", ex);
+            throw new Exception("Erro ao buscar livros semelhantes: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Lista os semelhantes dos semelhantes de um livro (sem o próprio livro e
+     * os seus semelhantes diretos), sem consultar o banco.
+     * @param etiquetaLivro etiqueta do livro
+     * @param limite quantidade máxima de etiquetas
+     * @return as etiquetas, começando pelos semelhantes dos mais semelhantes
+     * @throws Exception Se o grafo não puder ser carregado.
+     */
+    public int[] buscarEtiquetasSugeridas(int etiquetaLivro, int limite) throws Exception {
+        try {
+            int[] destino = new int[limite];
+            return Arrays.copyOf(destino, getGrafo().vizinhosDeSegundoGrau(etiquetaLivro, destino));
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao buscar livros sugeridos", ex);
+            throw new Exception("Erro ao buscar livros sugeridos: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Retorna o grafo de similaridades, carregando-o do banco no primeiro
+     * acesso (quem chamar durante a carga espera por ela). Se já passou o
+     * intervalo de verificação, confere em segundo plano se o grafo está
+     * desatualizado.
+     * @return o grafo compartilhado
+     * @throws SQLException Se o grafo não puder ser carregado.
+     */
+    public static GrafoSimilares getGrafo() throws SQLException {
+        GrafoSimilares atual = grafo;
+        if (atual != null) {
+            verificarVersao();
+            return atual;
+        }
+        synchronized (TRAVA_CARGA) {
+            if (grafo == null) {
+                carregarGrafo();
+            }
+            return grafo;
+        }
+    }
+
+    /**
+     * Inicia, numa thread de segundo plano, a verificação da versão das
+     * similaridades, se já passou o intervalo desde a última e nenhuma outra
+     * está em andamento. Se a versão mudou, o grafo é recarregado.
+     */
+    private static void verificarVersao() {
+        if (System.nanoTime() - ultimaVerificacao < INTERVALO_VERIFICACAO_MS * 1_000_000
+                || !verificando.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                LivroSimilaresDAO.VersaoSimilares versao = new LivroSimilaresDAO().lerVersaoSimilares();
+                if (!versao.equals(versaoCarregada)) {
+                    LOGGER.log(Level.INFO, "Similaridades alteradas no banco ({0}); recarregando o grafo.", versao);
+                    recarregarGrafo();
+                }
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "Não foi possível verificar se o grafo de similaridades está atualizado", ex);
+            } finally {
+                ultimaVerificacao = System.nanoTime();
+                verificando.set(false);
+            }
+        }, "verificacao-grafo-similares");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Carrega o grafo de similaridades numa thread de segundo plano, para que
+     * as telas não esperem por ele. Chamado na inicialização da aplicação.
+     */
+    public static void carregarGrafoEmSegundoPlano() {
+        Thread thread = new Thread(() -> {
+            try {
+                getGrafo();
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "Grafo de similaridades não carregado; nova tentativa no primeiro acesso", ex);
+            }
+        }, "carga-grafo-similares");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Recarrega o grafo de similaridades inteiro, depois do recálculo
+     * completo. Até o fim da carga, as consultas usam o grafo anterior.
+     * @throws SQLException Se o grafo não puder ser carregado (o grafo
+     * anterior é descartado e recarregado no próximo acesso).
+     */
+    public static void recarregarGrafo() throws SQLException {
+        synchronized (TRAVA_CARGA) {
+            try {
+                carregarGrafo();
+            } catch (SQLException ex) {
+                grafo = null;
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Relê do banco as similaridades dos livros informados, depois que elas
+     * foram gravadas. Nada acontece se o grafo ainda não foi carregado. Se a
+     * leitura falhar, o grafo é descartado e recarregado no próximo acesso.
+     * @param etiquetas etiquetas dos livros cujas similaridades mudaram
+     */
+    public static void atualizarGrafo(Collection<Integer> etiquetas) {
+        GrafoSimilares atual;
+        synchronized (LivroSimilaresService.class) {
+            if (alteradosDuranteCarga != null) {
+                alteradosDuranteCarga.addAll(etiquetas);
+            }
+            atual = grafo;
+        }
+        if (atual == null || etiquetas.isEmpty()) {
+            return;
+        }
+        try {
+            new LivroSimilaresDAO().recarregarLigacoes(etiquetas.toArray(Integer[]::new), atual);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "Grafo de similaridades descartado; será recarregado no próximo acesso", ex);
+            grafo = null;
+        }
+    }
+
+    /**
+     * Acompanha as inclusões e exclusões de livros no grafo. Registrado como
+     * ouvinte do {@link LivroService} na inicialização. Durante uma carga, a
+     * alteração também é guardada para ser aplicada ao grafo carregado, que
+     * pode ter sido lido antes dela.
+     * @param alteracao a alteração gravada
+     */
+    public static void livroAlterado(AlteracaoLivro alteracao) {
+        GrafoSimilares atual;
+        synchronized (LivroSimilaresService.class) {
+            if (excluidosDuranteCarga != null) {
+                switch (alteracao.getTipo()) {
+                    case INCLUIDO ->
+                        incluidosDuranteCarga.add(alteracao.getEtiqueta());
+                    case EXCLUIDO -> {
+                        incluidosDuranteCarga.remove(alteracao.getEtiqueta());
+                        excluidosDuranteCarga.add(alteracao.getEtiqueta());
+                    }
+                    case ALTERADO -> {
+                        // As ligações são relidas pela atualizarGrafo, chamada pela ManutencaoSimilares
+                    }
+                }
+            }
+            atual = grafo;
+        }
+        if (atual == null) {
+            return;
+        }
+        switch (alteracao.getTipo()) {
+            case INCLUIDO ->
+                atual.adicionarLivro(alteracao.getEtiqueta());
+            case EXCLUIDO ->
+                atual.excluirLivro(alteracao.getEtiqueta());
+            case ALTERADO -> {
+                // As similaridades do livro são regravadas pela ManutencaoSimilares
+            }
+        }
+    }
+
+    /**
+     * Grafo a alterar depois de uma gravação manual, registrando o livro para
+     * ser relido se houver uma carga em andamento.
+     */
+    private static GrafoSimilares grafoParaAlterar(int etiquetaLivro) {
+        synchronized (LivroSimilaresService.class) {
+            if (alteradosDuranteCarga != null) {
+                alteradosDuranteCarga.add(etiquetaLivro);
+            }
+            return grafo;
+        }
+    }
+
+    /**
+     * Carrega o grafo e aplica os livros incluídos, excluídos e alterados
+     * durante a carga. Chamado com {@link #TRAVA_CARGA}.
+     */
+    private static void carregarGrafo() throws SQLException {
+        synchronized (LivroSimilaresService.class) {
+            alteradosDuranteCarga = new HashSet<>();
+            incluidosDuranteCarga = new HashSet<>();
+            excluidosDuranteCarga = new HashSet<>();
+        }
+        GrafoSimilares novo;
+        LivroSimilaresDAO.VersaoSimilares versao = null;
+        Set<Integer> alterados;
+        Set<Integer> incluidos;
+        Set<Integer> excluidos;
+        long inicio = System.nanoTime();
+        try {
+            LivroSimilaresDAO similaresDAO = new LivroSimilaresDAO();
+            // Lida antes da carga: uma gravação entre as duas leituras só provoca uma recarga a mais
+            try {
+                versao = similaresDAO.lerVersaoSimilares();
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "Versão das similaridades não lida; o grafo será recarregado na próxima verificação", ex);
+            }
+            novo = similaresDAO.carregarGrafo();
+        } finally {
+            synchronized (LivroSimilaresService.class) {
+                alterados = alteradosDuranteCarga;
+                incluidos = incluidosDuranteCarga;
+                excluidos = excluidosDuranteCarga;
+                alteradosDuranteCarga = null;
+                incluidosDuranteCarga = null;
+                excluidosDuranteCarga = null;
+            }
+        }
+        for (int etiqueta : incluidos) {
+            novo.adicionarLivro(etiqueta);
+        }
+        for (int etiqueta : excluidos) {
+            novo.excluirLivro(etiqueta);
+        }
+        alterados.removeAll(excluidos);
+        if (!alterados.isEmpty()) {
+            new LivroSimilaresDAO().recarregarLigacoes(alterados.toArray(Integer[]::new), novo);
+        }
+        grafo = novo;
+        versaoCarregada = versao;
+        ultimaVerificacao = System.nanoTime();
+        LOGGER.log(Level.INFO, "Grafo de similaridades carregado: {0} livros, {1} ligações, {2} MB, em {3} ms.",
+                new Object[]{novo.getQuantidadeLivros(), novo.getQuantidadeLigacoes(),
+                    novo.estimarMemoria() / (1024 * 1024), (System.nanoTime() - inicio) / 1_000_000});
+    }
+}
@@ -0,0 +1,309 @@
+package giovanna.projeto.livraria1.services;
+
+import giovanna.projeto.livraria1.dao.LivroSimilaresDAO;
+import giovanna.projeto.livraria1.util.ConnectionFactory;
+import giovanna.projeto.livraria1.util.MotorSimilaridade;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mantém a tabela {@code livros_semelhantes} atualizada, em segundo plano, a
+ * partir das alterações de livros publicadas pelo {@link LivroService}.
+ *
+ * <p>
+ * As alterações não são gravadas na hora: ficam pendentes por
+ * {@value #ATRASO_PADRAO_MS} ms a partir da primeira, e todas as que chegarem
+ * nesse intervalo são gravadas juntas, numa única transação. Várias alterações
+ * do mesmo livro viram uma só; um livro incluído ou alterado e logo excluído
+ * não gera gravação alguma (a exclusão do livro já apaga suas similaridades,
+ * pelo {@code ON DELETE CASCADE}).
+ * </p>
+ * <p>
+ * A gravação trata só os livros alterados: carrega no {@link MotorSimilaridade}
+ * os livros pendentes e os que podem ser semelhantes a eles (mesmo gênero,
+ * autor ou editora), exclui numa única instrução as similaridades calculadas
+ * que envolvem os livros pendentes, grava os
+ * {@value MotorSimilaridade#VIZINHOS_PADRAO} vizinhos de cada um e oferece
+ * cada livro pendente aos seus vizinhos mais próximos (até
+ * {@value #FATOR_VIZINHOS_REVERSOS} vezes esse número), cujas listas são
+ * depois cortadas de volta aos {@value MotorSimilaridade#VIZINHOS_PADRAO}
+ * melhores. Similaridades incluídas manualmente são mantidas. Livros
+ * semelhantes só pelo título, sem gênero, autor ou editora em comum, ficam
+ * para o recálculo completo.
+ * </p>
+ * <p>
+ * Se a gravação falhar, o erro é registrado no log e as similaridades desses
+ * livros podem ser corrigidas pelo recálculo completo
+ * ({@link giovanna.projeto.livraria1.util.GerenciadorSimilares}).
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class ManutencaoSimilares implements AlteracaoLivro.Ouvinte {
+
+    private static final Logger LOGGER = Logger.getLogger(ManutencaoSimilares.class.getName());
+
+    /**
+     * Tempo, em milissegundos, que as alterações esperam para serem gravadas
+     * juntas.
+     */
+    public static final long ATRASO_PADRAO_MS = 500;
+
+    /**
+     * Tempo máximo, em segundos, que {@link #encerrar()} espera a última
+     * gravação.
+     */
+    private static final long ESPERA_ENCERRAMENTO_S = 10;
+
+    /**
+     * Quantos vizinhos de um livro alterado, em múltiplos de
+     * {@link MotorSimilaridade#VIZINHOS_PADRAO}, recebem o livro como
+     * candidato à sua própria lista.
+     */
+    private static final int FATOR_VIZINHOS_REVERSOS = 4;
+
+    private static ManutencaoSimilares instancia;
+
+    /**
+     * Grava as similaridades dos livros pendentes.
+     */
+    @FunctionalInterface
+    public interface Aplicador {
+
+        /**
+         * @param pendencias Livros pendentes, na ordem da primeira alteração.
+         * @throws SQLException Caso ocorra um erro no banco.
+         */
+        void aplicar(List<Pendencia> pendencias) throws SQLException;
+    }
+
+    /**
+     * Alterações pendentes de um livro, já combinadas.
+     */
+    public static final class Pendencia {
+
+        private final int etiqueta;
+        private int alteracoes;
+
+        Pendencia(int etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+
+        private void registrar() {
+            alteracoes++;
+        }
+
+        public int getEtiqueta() {
+            return etiqueta;
+        }
+
+        /**
+         * @return Quantidade de alterações combinadas nesta pendência.
+         */
+        public int getAlteracoes() {
+            return alteracoes;
+        }
+    }
+
+    private final Aplicador aplicador;
+    private final long atrasoMs;
+    private final ScheduledExecutorService executor;
+    private final Map<Integer, Pendencia> pendentes = new LinkedHashMap<>();
+    private ScheduledFuture<?> gravacao;
+    private boolean encerrada;
+
+    /**
+     * Retorna a instância usada pela aplicação, que grava no banco.
+     *
+     * @return A instância compartilhada.
+     */
+    public static synchronized ManutencaoSimilares getInstancia() {
+        if (instancia == null) {
+            instancia = new ManutencaoSimilares(ManutencaoSimilares::aplicarNoBanco, ATRASO_PADRAO_MS);
+        }
+        return instancia;
+    }
+
+    /**
+     * Cria um mantenedor.
+     *
+     * @param aplicador Grava as pendências.
+     * @param atrasoMs Tempo que as alterações esperam para serem gravadas
+     * juntas.
+     */
+    public ManutencaoSimilares(Aplicador aplicador, long atrasoMs) {
+        this.aplicador = aplicador;
+        this.atrasoMs = atrasoMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "manutencao-similares");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void livroAlterado(AlteracaoLivro alteracao) {
+        int etiqueta = alteracao.getEtiqueta();
+        synchronized (this) {
+            if (encerrada) {
+                LOGGER.log(Level.WARNING, "Alteração recebida após o encerramento, ignorada: {0}", alteracao);
+                return;
+            }
+            switch (alteracao.getTipo()) {
+                case EXCLUIDO ->
+                    pendentes.remove(etiqueta);
+                case INCLUIDO, ALTERADO ->
+                    pendentes.computeIfAbsent(etiqueta, Pendencia::new).registrar();
+            }
+            if (!pendentes.isEmpty() && gravacao == null) {
+                gravacao = executor.schedule(this::gravar, atrasoMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * @return Quantidade de livros aguardando gravação.
+     */
+    public synchronized int getPendentes() {
+        return pendentes.size();
+    }
+
+    /**
+     * Grava o que estiver pendente, espera a gravação (até
+     * {@value #ESPERA_ENCERRAMENTO_S} s) e encerra a thread. Alterações
+     * recebidas depois disso são ignoradas.
+     */
+    public void encerrar() {
+        synchronized (this) {
+            if (encerrada) {
+                return;
+            }
+            encerrada = true;
+            if (gravacao != null) {
+                gravacao.cancel(false);
+                gravacao = null;
+            }
+        }
+        try {
+            executor.submit(this::gravar).get(ESPERA_ENCERRAMENTO_S, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.log(Level.WARNING, "Similaridades pendentes não gravadas no encerramento", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Grava as pendências acumuladas, na thread do executor.
+     */
+    private void gravar() {
+        List<Pendencia> lote;
+        synchronized (this) {
+            gravacao = null;
+            if (pendentes.isEmpty()) {
+                return;
+            }
+            lote = new ArrayList<>(pendentes.values());
+            pendentes.clear(); // Alterações que chegarem agora agendam a próxima gravação
+        }
+        long inicio = System.nanoTime();
+        try {
+            aplicador.aplicar(lote);
+            LOGGER.log(Level.FINE, "Similaridades de {0} livro(s) atualizadas em {1} ms",
+                    new Object[]{lote.size(), (System.nanoTime() - inicio) / 1_000_000});
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao atualizar as similaridades de " + lote.size()
+                    + " livro(s); o recálculo de similaridades corrige a tabela", e);
+        }
+    }
+
+    /**
+     * Grava as pendências no banco, numa única transação.
+     *
+     * @param pendencias Livros pendentes.
+     * @throws SQLException Caso ocorra um erro no banco (nada é gravado).
+     */
+    public static void aplicarNoBanco(List<Pendencia> pendencias) throws SQLException {
+        Integer[] etiquetas = new Integer[pendencias.size()];
+        for (int i = 0; i < pendencias.size(); i++) {
+            etiquetas[i] = pendencias.get(i).getEtiqueta();
+        }
+
+        try (Connection connection = ConnectionFactory.getConnection()) {
+            connection.setAutoCommit(false);
+            Set<Integer> afetados = new HashSet<>();
+            try {
+                aplicar(connection, etiquetas, afetados);
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
+            LivroSimilaresService.atualizarGrafo(afetados); // Depois do commit, para reler o que foi gravado
+        }
+    }
+
+    /**
+     * Recalcula as similaridades dos livros informados na transação da
+     * conexão, sem confirmá-la. Também usado pelo recálculo completo, para os
+     * livros alterados enquanto ele calculava.
+     *
+     * @param connection Conexão da transação.
+     * @param etiquetas Etiquetas dos livros (os já excluídos são ignorados).
+     * @param afetados Recebe as etiquetas dos livros cujas listas mudaram
+     * (inclusive os informados).
+     * @throws SQLException Caso ocorra um erro no banco.
+     */
+    public static void aplicar(Connection connection, Integer[] etiquetas, Set<Integer> afetados) throws SQLException {
+        LivroSimilaresDAO similaresDAO = new LivroSimilaresDAO();
+        Set<Integer> pendentes = new HashSet<>(Arrays.asList(etiquetas));
+        MotorSimilaridade motor = new MotorSimilaridade();
+        similaresDAO.carregarVizinhanca(connection, etiquetas, motor);
+        motor.preparar();
+        int excluidas = similaresDAO.excluirSimilaresCalculados(connection, etiquetas, afetados);
+
+        int vizinhos = MotorSimilaridade.VIZINHOS_PADRAO;
+        LivroSimilaresDAO.LoteSimilares lote = new LivroSimilaresDAO.LoteSimilares(etiquetas.length * vizinhos * 2);
+        MotorSimilaridade.Calculo calculo = motor.novoCalculo();
+        for (int etiqueta : etiquetas) {
+            int indice = motor.indiceDe(etiqueta);
+            if (indice < 0) {
+                continue; // Excluído antes da gravação
+            }
+            int encontrados = calculo.vizinhos(indice, vizinhos * FATOR_VIZINHOS_REVERSOS);
+            for (int v = 0; v < encontrados; v++) {
+                int vizinho = motor.getEtiqueta(calculo.getIndice(v));
+                float pontuacao = calculo.getPontuacao(v);
+                if (v < vizinhos) {
+                    lote.adicionar(etiqueta, vizinho, pontuacao);
+                }
+                if (!pendentes.contains(vizinho)) { // A lista de um pendente já é calculada por inteiro
+                    lote.adicionar(vizinho, etiqueta, pontuacao);
+                    afetados.add(vizinho);
+                }
+            }
+        }
+        int inseridas = similaresDAO.inserirSimilares(connection, lote);
+        excluidas += similaresDAO.limitarSimilares(connection, afetados.toArray(Integer[]::new), vizinhos);
+        afetados.addAll(pendentes);
+        LOGGER.log(Level.INFO, "Similaridades de {0} livro(s) recalculadas: {1} gravadas, {2} excluídas.",
+                new Object[]{etiquetas.length, inseridas, excluidas});
+    }
+}
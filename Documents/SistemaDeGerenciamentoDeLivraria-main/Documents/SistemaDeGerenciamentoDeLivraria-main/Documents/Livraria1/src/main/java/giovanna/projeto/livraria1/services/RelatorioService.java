@@ -1,31 +1,48 @@
 package giovanna.projeto.livraria1.services;
 
+import giovanna.projeto.livraria1.dao.LivroDAO;
 import giovanna.projeto.livraria1.model.Genero;
 import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.util.FonteDadosLivros;
+import giovanna.projeto.livraria1.util.JasperReportCompiler;
+import giovanna.projeto.livraria1.util.SequenciaLivros;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import javax.swing.JOptionPane;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFFont;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import java.util.logging.Logger;
 import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.export.SimpleExporterInput;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
+import net.sf.jasperreports.pdf.JRPdfExporter;
 
 /**
  * Classe responsável pela geração de relatórios de livros por gênero. Suporta
- * exportação única em formato Excel (XLSX).
+ * exportação em formato Excel (XLSX) e PDF.
  *
  * <p>
- * A classe utiliza o Apache POI para gerar relatórios no formato Excel. O
- * relatório gerado contém livros filtrados por gênero e é salvo com a extensão
- * ".xls", não permitindo outros formatos de exportação.
+ * A classe utiliza o Apache POI para gerar relatórios no formato Excel e o
+ * JasperReports (relatório "relatorios/LivroporGenero.jrxml", distribuído no
+ * jar) para o PDF. O formato é escolhido pela extensão do arquivo: ".pdf" gera
+ * PDF; qualquer outra gera Excel, com a extensão ".xlsx".
  * </p>
  *
  * @author Giovanna
@@ -34,146 +51,265 @@ public class RelatorioService {
 
     private static final Logger LOGGER = Logger.getLogger(RelatorioService.class.getName());
 
-    // Caminho local onde o arquivo .jasper será salvo.
-    private static final String LOCAL_FILE_PATH = System.getProperty("java.io.tmpdir") + "LivroporGenero.jasper"; // Caminho temporário
+    /**
+     * Extensão dos relatórios em Excel.
+     */
+    public static final String EXTENSAO_EXCEL = ".xlsx";
+
+    /**
+     * Extensão dos relatórios em PDF.
+     */
+    public static final String EXTENSAO_PDF = ".pdf";
+
+    // JRXML do relatório em PDF, no classpath
+    private static final String RELATORIO_POR_GENERO = "relatorios/LivroporGenero.jrxml";
 
-    // ID do arquivo no Google Drive
-    private static final String FILE_ID = "149kOD-aDBS5B2-9SGy4QpGiJ9Eufj2MY";
+    // Páginas preenchidas mantidas em memória; as demais vão para o arquivo de troca
+    private static final int PAGINAS_EM_MEMORIA = 20;
+
+    // Blocos do arquivo de troca: tamanho em bytes e quantidade alocada por vez
+    private static final int TAMANHO_BLOCO_TROCA = 4096;
+    private static final int BLOCOS_POR_CRESCIMENTO = 256;
+
+    // Linhas mantidas em memória pela planilha em fluxo; as anteriores vão para o disco
+    private static final int JANELA_LINHAS = 100;
+
+    private static final String[] CABECALHOS = {"Título", "Autor", "Gênero", "ISBN", "Editora", "Data Publicação"};
+
+    // Largura das colunas, em caracteres
+    private static final int[] LARGURAS_COLUNAS = {40, 30, 20, 16, 25, 15};
 
     /**
      * Gera um relatório de livros filtrados por gênero e exporta em formato
-     * Excel (XLS). Este método recebe os nomes dos gêneros selecionados pelo usuário,
-     * busca os respectivos IDs no banco de dados, e utiliza esses IDs para consultar
+     * Excel (XLSX) ou PDF. Este método recebe os nomes dos gêneros selecionados pelo usuário,
+     * busca os respectivos IDs no cache de gêneros, e utiliza esses IDs para consultar
      * os livros do banco.
      *
-     * O relatório gerado é então exportado em formato Excel (.xls).
+     * O relatório gerado é então exportado em PDF, se o caminho terminar em
+     * ".pdf", ou em Excel (.xlsx), lendo os livros do banco por um único
+     * cursor, em fluxo contínuo. Para gerar relatórios em segundo plano, com
+     * as seções carregadas em paralelo, use a {@link FilaRelatorios}.
      *
      * @param generos Array de nomes de gêneros para filtrar os livros.
      * @param caminhoSalvar Caminho para salvar o arquivo gerado. A extensão
-     * ".xls" será adicionada automaticamente, caso necessário.
+     * ".xlsx" será adicionada automaticamente, caso necessário.
      * @throws SQLException Se ocorrer erro ao buscar livros no banco de dados.
      * @throws IOException Se ocorrer erro ao salvar o relatório no disco.
-     * @throws net.sf.jasperreports.engine.JRException Se ocorrer erro ao salvar o relatório no disco.
+     * @throws net.sf.jasperreports.engine.JRException Se ocorrer erro ao compilar, preencher ou exportar o relatório em PDF.
      */
     public void gerarRelatorioPorGenero(String[] generos, String caminhoSalvar)
             throws SQLException, IOException, JRException {
 
-        // Baixar o arquivo .jasper, se necessário
-        baixarArquivoGoogleDrive();
+        // IDs dos gêneros a partir dos nomes fornecidos
+        List<Genero> generosEncontrados = resolverGeneros(generos);
+        Integer[] generosIdsArray = generosEncontrados.stream().map(Genero::getId).toArray(Integer[]::new);
 
-        // Serviço para buscar os IDs dos gêneros a partir dos nomes fornecidos
-        LivroService livroService = new LivroService();
-        List<Genero> generosIds = livroService.buscarGenerosPorNome(generos);
+        // Exportar o relatório, lendo os livros por cursor
+        try (LivroDAO.CursorLivros cursor = new LivroDAO().abrirCursorLivrosPorGeneros(generosIdsArray)) {
+            gerarRelatorio(cursor, juntarNomes(generosEncontrados), normalizarCaminho(caminhoSalvar));
+        }
+    }
 
-        // Extrair apenas os IDs dos gêneros encontrados
-        Integer[] generosIdsArray = new Integer[generosIds.size()];
-        for (int i = 0; i < generosIds.size(); i++) {
-            generosIdsArray[i] = generosIds.get(i).getId();
+    /**
+     * Grava um relatório com os livros informados, em PDF se o caminho
+     * terminar em ".pdf" e em Excel nos demais casos.
+     *
+     * @param livros Livros do relatório, na ordem de impressão (agrupados por
+     * gênero).
+     * @param nomesGeneros Nomes dos gêneros, para o título do relatório em PDF.
+     * @param caminhoSalvar Caminho do arquivo, já com a extensão (ver
+     * {@link #normalizarCaminho(String)}).
+     * @return Quantidade de livros gravados.
+     * @throws SQLException Se ocorrer erro ao ler os livros do banco de dados.
+     * @throws IOException Se ocorrer erro ao salvar o relatório no disco.
+     * @throws JRException Se ocorrer erro ao compilar, preencher ou exportar o
+     * relatório em PDF.
+     */
+    public long gerarRelatorio(SequenciaLivros livros, String nomesGeneros, String caminhoSalvar)
+            throws SQLException, IOException, JRException {
+        if (caminhoSalvar.toLowerCase().endsWith(EXTENSAO_PDF)) {
+            exportarRelatorioParaPdf(livros, nomesGeneros, caminhoSalvar);
+        } else {
+            exportarRelatorioParaExcel(livros, caminhoSalvar);
         }
+        return livros.getQuantidade();
+    }
 
-        // Garantir que a extensão do arquivo seja ".xls"
-        if (!caminhoSalvar.toLowerCase().endsWith(".xls")) {
-            caminhoSalvar += ".xls"; // Adiciona a extensão ".xls" se não estiver presente
+    /**
+     * Busca os gêneros pelos nomes informados, ignorando os inexistentes e
+     * os repetidos, em ordem alfabética (a ordem das seções do relatório).
+     *
+     * @param nomes Nomes dos gêneros.
+     * @return Gêneros encontrados.
+     * @throws SQLException Se ocorrer erro ao carregar o cache de gêneros.
+     */
+    public List<Genero> resolverGeneros(String[] nomes) throws SQLException {
+        String[] nomesLimpos = Arrays.stream(nomes).map(String::trim).filter(nome -> !nome.isEmpty()).toArray(String[]::new);
+        Map<Integer, Genero> porId = new LinkedHashMap<>();
+        for (Genero genero : new LivroService().buscarGenerosPorNome(nomesLimpos)) {
+            porId.putIfAbsent(genero.getId(), genero);
         }
+        List<Genero> generos = new ArrayList<>(porId.values());
+        generos.sort(Comparator.comparing(Genero::getNome, String.CASE_INSENSITIVE_ORDER));
+        return generos;
+    }
 
-        // Buscar os livros filtrados pelos IDs dos gêneros
-        List<Livro> livros = livroService.buscarLivrosPorGenerosPorId(generosIdsArray);
+    /**
+     * Completa a extensão do arquivo do relatório: caminhos terminados em
+     * ".pdf" ou ".xlsx" são mantidos; os demais recebem ".xlsx" (o conteúdo
+     * gerado é OOXML).
+     *
+     * @param caminhoSalvar Caminho escolhido pelo usuário.
+     * @return Caminho com a extensão do formato que será gerado.
+     */
+    public static String normalizarCaminho(String caminhoSalvar) {
+        String minusculo = caminhoSalvar.toLowerCase();
+        if (minusculo.endsWith(EXTENSAO_PDF) || minusculo.endsWith(EXTENSAO_EXCEL)) {
+            return caminhoSalvar;
+        }
+        return caminhoSalvar + EXTENSAO_EXCEL;
+    }
 
-        // Exportar o relatório no formato Excel
-        exportarRelatorioParaExcel(livros, caminhoSalvar);
+    /**
+     * Junta os nomes dos gêneros, para o título do relatório.
+     *
+     * @param generos Gêneros do relatório.
+     * @return Nomes separados por vírgula.
+     */
+    public static String juntarNomes(List<Genero> generos) {
+        return generos.stream().map(Genero::getNome).collect(Collectors.joining(", "));
     }
 
     /**
-     * Exporta um relatório de livros para o formato Excel (XLS).
+     * Exporta o relatório com os livros informados para o formato Excel
+     * (XLSX), em fluxo contínuo.
      *
-     * Este método utiliza a biblioteca Apache POI para criar uma planilha Excel
-     * contendo os dados dos livros, como título, autor, gênero, ISBN, editora e
-     * data de publicação. O relatório é salvo no caminho especificado.
+     * <p>
+     * Os livros são lidos um a um (de um cursor do banco ou das seções de uma
+     * {@link SecoesRelatorio}) e gravados numa {@link SXSSFWorkbook}, que mantém em memória apenas as
+     * últimas {@value #JANELA_LINHAS} linhas e descarrega as demais em um
+     * arquivo temporário compactado. O uso de memória é, portanto, constante,
+     * independentemente do tamanho do relatório. Os estilos são criados uma
+     * única vez e compartilhados por todas as células, e a data de publicação
+     * é gravada como data (e não como texto).
+     * </p>
      *
-     * @param livros Lista de livros para gerar o relatório.
+     * @param livros Livros do relatório, na ordem de impressão.
      * @param caminhoSalvar Caminho para salvar o arquivo Excel gerado.
-     * @throws JRException Se ocorrer erro durante a exportação.
+     * @throws SQLException Se ocorrer erro ao buscar livros no banco de dados.
+     * @throws IOException Se ocorrer erro ao salvar o relatório no disco.
      */
-    private void exportarRelatorioParaExcel(List<Livro> livros, String caminhoSalvar) throws JRException {
-        // Usando Apache POI diretamente para exportação para Excel
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+    private void exportarRelatorioParaExcel(SequenciaLivros livros, String caminhoSalvar) throws SQLException, IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(JANELA_LINHAS);
+        workbook.setCompressTempFiles(true); // Reduz o espaço em disco dos arquivos temporários
+        try {
             Sheet sheet = workbook.createSheet("Relatório de Livros");
 
+            // Estilos compartilhados: um para o cabeçalho e um para as datas
+            Font fonteCabecalho = workbook.createFont();
+            fonteCabecalho.setBold(true);
+            CellStyle estiloCabecalho = workbook.createCellStyle();
+            estiloCabecalho.setFont(fonteCabecalho);
+
+            CellStyle estiloData = workbook.createCellStyle();
+            estiloData.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd/mm/yyyy"));
+
             // Cria o cabeçalho da tabela
             Row headerRow = sheet.createRow(0);
-            String[] headers = {"Título", "Autor", "Gênero", "ISBN", "Editora", "Data Publicação"};
-            for (int i = 0; i < headers.length; i++) {
+            for (int i = 0; i < CABECALHOS.length; i++) {
                 Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                // Estilo opcional para cabeçalho
-                CellStyle headerStyle = workbook.createCellStyle();
-                XSSFFont font = workbook.createFont();
-                font.setBold(true);
-                headerStyle.setFont(font);
-                cell.setCellStyle(headerStyle);
+                cell.setCellValue(CABECALHOS[i]);
+                cell.setCellStyle(estiloCabecalho);
+                sheet.setColumnWidth(i, LARGURAS_COLUNAS[i] * 256); // Largura fixa: autoSize exigiria manter todas as linhas
             }
+            sheet.createFreezePane(0, 1); // Mantém o cabeçalho visível
 
-            // Adiciona os dados dos livros
+            // Adiciona os dados dos livros à medida que são lidos do banco
             int rowNum = 1;
-            for (Livro livro : livros) {
+            for (Livro livro = livros.proximo(); livro != null; livro = livros.proximo()) {
                 Row row = sheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(livro.getTitulo());
-                row.createCell(1).setCellValue(livro.getAutor());
-                row.createCell(2).setCellValue(livro.getGeneroNome());
-                row.createCell(3).setCellValue(livro.getIsbn());
-                row.createCell(4).setCellValue(livro.getEditora());
+                definirTexto(row, 0, livro.getTitulo());
+                definirTexto(row, 1, livro.getAutor());
+                definirTexto(row, 2, livro.getGeneroNome());
+                definirTexto(row, 3, livro.getIsbn());
+                definirTexto(row, 4, livro.getEditora());
                 if (livro.getData_publicacao() != null) {
-                    row.createCell(5).setCellValue(livro.getData_publicacao().toString());
+                    Cell cell = row.createCell(5);
+                    cell.setCellValue(livro.getData_publicacao());
+                    cell.setCellStyle(estiloData);
                 }
             }
 
             // Salva o arquivo Excel no disco
-            try (FileOutputStream fileOut = new FileOutputStream(caminhoSalvar)) {
+            try (OutputStream fileOut = new BufferedOutputStream(new FileOutputStream(caminhoSalvar))) {
                 workbook.write(fileOut);
             }
-            LOGGER.info("Relatório salvo em Excel no caminho: " + caminhoSalvar);
+            LOGGER.info("Relatório salvo em Excel no caminho: " + caminhoSalvar + " (" + livros.getQuantidade() + " livros)");
         } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Erro ao gerar relatório Excel: " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
             LOGGER.severe("Erro ao gerar relatório Excel: " + e.getMessage());
+            throw e;
+        } finally {
+            workbook.dispose(); // Remove os arquivos temporários
+            workbook.close();
         }
     }
 
     /**
-     * Baixa o arquivo .jasper do Google Drive, caso ainda não tenha sido
-     * baixado localmente. Este método verifica se o arquivo já existe no
-     * caminho especificado. Se não existir, ele fará o download do arquivo
-     * usando a URL pública de download do Google Drive.
+     * Exporta o relatório com os livros informados para PDF.
      *
      * <p>
-     * O arquivo é baixado e salvo no caminho local especificado pela variável
-     * {@link #LOCAL_FILE_PATH}. Caso o arquivo já exista no sistema local, ele
-     * não será baixado novamente.
+     * O relatório compilado vem do cache do {@link JasperReportCompiler}, e
+     * os livros são lidos um a um ({@link FonteDadosLivros}) à medida que o
+     * relatório é preenchido. As páginas preenchidas passam por
+     * um {@link JRSwapFileVirtualizer}: só as últimas {@value #PAGINAS_EM_MEMORIA}
+     * ficam em memória e as demais vão para um arquivo de troca temporário,
+     * de forma que relatórios com centenas de milhares de livros são gerados
+     * com memória limitada.
      * </p>
      *
-     * @throws IOException Se ocorrer algum erro durante o processo de download
-     * ou gravação do arquivo.
+     * @param livros Livros do relatório, na ordem de impressão.
+     * @param nomesGeneros Nomes dos gêneros, para o título do relatório.
+     * @param caminhoSalvar Caminho para salvar o arquivo PDF gerado.
+     * @throws JRException Se ocorrer erro ao compilar, preencher ou exportar o
+     * relatório.
      */
-    private void baixarArquivoGoogleDrive() throws IOException {
-        // Verificar se o arquivo já foi baixado
-        File arquivoLocal = new File(LOCAL_FILE_PATH);
-        if (!arquivoLocal.exists()) {
-            // URL de download direto do Google Drive
-            String fileURL = "https://drive.google.com/uc?id=" + FILE_ID + "&export=download";
-            HttpURLConnection connection = (HttpURLConnection) new URL(fileURL).openConnection();
-            connection.setRequestMethod("GET");
-
-            // Baixar o arquivo e salvar no caminho local
-            try (InputStream inputStream = connection.getInputStream(); OutputStream outputStream = new FileOutputStream(LOCAL_FILE_PATH)) {
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                }
-            }
+    private void exportarRelatorioParaPdf(SequenciaLivros livros, String nomesGeneros, String caminhoSalvar)
+            throws JRException {
+        JasperReport relatorio = JasperReportCompiler.obterRelatorio(RELATORIO_POR_GENERO);
+        JRSwapFile arquivoTroca = new JRSwapFile(System.getProperty("java.io.tmpdir"), TAMANHO_BLOCO_TROCA, BLOCOS_POR_CRESCIMENTO);
+        JRSwapFileVirtualizer virtualizador = new JRSwapFileVirtualizer(PAGINAS_EM_MEMORIA, arquivoTroca, true);
+        try {
+            Map<String, Object> parametros = new HashMap<>();
+            parametros.put("GENEROS", nomesGeneros);
+            parametros.put(JRParameter.REPORT_VIRTUALIZER, virtualizador);
 
-            LOGGER.info("Arquivo .jasper baixado para: " + LOCAL_FILE_PATH);
-        } else {
-            LOGGER.info("Arquivo .jasper já existe em: " + LOCAL_FILE_PATH);
+            JasperPrint impressao = JasperFillManager.fillReport(relatorio, parametros, new FonteDadosLivros(livros));
+            virtualizador.setReadOnly(true); // Nenhuma página muda mais: a exportação só lê
+
+            JRPdfExporter exportador = new JRPdfExporter();
+            exportador.setExporterInput(new SimpleExporterInput(impressao));
+            exportador.setExporterOutput(new SimpleOutputStreamExporterOutput(new File(caminhoSalvar)));
+            exportador.exportReport();
+            LOGGER.info("Relatório salvo em PDF no caminho: " + caminhoSalvar + " (" + livros.getQuantidade() + " livros, "
+                    + impressao.getPages().size() + " páginas)");
+        } catch (JRException e) {
+            LOGGER.severe("Erro ao gerar relatório PDF: " + e.getMessage());
+            throw e;
+        } finally {
+            virtualizador.cleanup(); // Remove o arquivo de troca
+        }
+    }
+
+    /**
+     * Cria uma célula de texto, se o valor não for nulo.
+     *
+     * @param row Linha da planilha.
+     * @param coluna Índice da coluna.
+     * @param valor Texto da célula.
+     */
+    private static void definirTexto(Row row, int coluna, String valor) {
+        if (valor != null) {
+            row.createCell(coluna).setCellValue(valor);
         }
     }
 }
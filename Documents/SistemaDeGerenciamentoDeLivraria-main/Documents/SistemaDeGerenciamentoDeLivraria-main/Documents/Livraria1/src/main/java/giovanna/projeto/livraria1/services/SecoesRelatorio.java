@@ -0,0 +1,333 @@
+package giovanna.projeto.livraria1.services;
+
+import giovanna.projeto.livraria1.dao.LivroDAO;
+import giovanna.projeto.livraria1.model.Genero;
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.util.ConsultaCancelavel;
+import giovanna.projeto.livraria1.util.ProgressoListener;
+import giovanna.projeto.livraria1.util.SequenciaLivros;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Livros de um relatório dividido em seções, uma por gênero, lidas em
+ * paralelo e entregues na ordem das seções.
+ *
+ * <p>
+ * Cada seção é lida por um cursor do banco em uma tarefa do executor
+ * informado, que limita quantas consultas rodam ao mesmo tempo. Os livros
+ * lidos passam por um buffer limitado da seção: quando ele enche, a tarefa
+ * espera a leitura ({@link #proximo()}) alcançá-la. A leitura segue a ordem
+ * dos gêneros e esvazia o buffer da seção atual, de forma que, em memória,
+ * ficam no máximo {@code linhasPorSecao} livros por consulta em andamento,
+ * independentemente do tamanho das seções. Se uma seção falhar, as demais
+ * são canceladas e a falha é lançada na leitura.
+ * </p>
+ * <p>
+ * O executor deve atender as tarefas na ordem em que foram enviadas (como os
+ * de {@code Executors.newFixedThreadPool}): assim a seção que está sendo lida
+ * sempre já começou, e as seções seguintes, paradas com o buffer cheio, não a
+ * impedem de rodar.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class SecoesRelatorio implements SequenciaLivros, AutoCloseable {
+
+    /**
+     * Livros lidos à frente, por seção, quando não informado.
+     */
+    public static final int LINHAS_POR_SECAO_PADRAO = 1000;
+
+    // Intervalo em que uma espera pelo buffer confere se o relatório foi cancelado
+    private static final long ESPERA_MS = 100;
+
+    // Marca o fim de uma seção no buffer
+    private static final Livro FIM_SECAO = new Livro();
+
+    /**
+     * Lê os livros de uma seção.
+     */
+    @FunctionalInterface
+    public interface CarregadorSecao {
+
+        /**
+         * Lê os livros de um gênero, na ordem do relatório, entregando cada
+         * um ao consumidor assim que é lido.
+         *
+         * @param genero Gênero da seção.
+         * @param cancelamento Controle de cancelamento da consulta.
+         * @param consumidor Recebe cada livro; pode esperar a leitura do
+         * relatório e lança {@link CancellationException} se ele for
+         * cancelado.
+         * @throws SQLException Caso ocorra um erro no banco ou a consulta seja
+         * cancelada.
+         */
+        void carregar(Genero genero, ConsultaCancelavel cancelamento, Consumer<Livro> consumidor) throws SQLException;
+    }
+
+    /**
+     * Uma seção: o buffer dos livros já lidos e a tarefa que o preenche.
+     */
+    private static final class Secao {
+
+        private final BlockingQueue<Livro> buffer;
+        private final ConsultaCancelavel consulta = new ConsultaCancelavel();
+        private CompletableFuture<Void> carga;
+
+        private Secao(int linhas) {
+            this.buffer = new ArrayBlockingQueue<>(linhas);
+        }
+    }
+
+    private final List<Genero> generos;
+    private final List<Secao> secoes;
+    private final ProgressoListener listener;
+    private volatile boolean cancelada;
+
+    // Estado da leitura, usado apenas pela thread que lê
+    private int proximaSecao;
+    private Secao atual;
+    private volatile long quantidade;
+
+    /**
+     * Inicia a leitura das seções, com o buffer padrão
+     * ({@value #LINHAS_POR_SECAO_PADRAO} livros por seção).
+     *
+     * @param generos Gêneros, na ordem das seções.
+     * @param executor Executor das consultas (atende na ordem de envio).
+     * @param carregador Lê cada seção.
+     * @param listener Recebe o andamento da leitura, em seções (pode ser null).
+     */
+    public SecoesRelatorio(List<Genero> generos, Executor executor, CarregadorSecao carregador, ProgressoListener listener) {
+        this(generos, executor, carregador, listener, LINHAS_POR_SECAO_PADRAO);
+    }
+
+    /**
+     * Inicia a leitura das seções.
+     *
+     * @param generos Gêneros, na ordem das seções.
+     * @param executor Executor das consultas (atende na ordem de envio).
+     * @param carregador Lê cada seção.
+     * @param listener Recebe o andamento da leitura, em seções (pode ser null).
+     * @param linhasPorSecao Livros lidos à frente por seção, no máximo.
+     */
+    public SecoesRelatorio(List<Genero> generos, Executor executor, CarregadorSecao carregador, ProgressoListener listener,
+            int linhasPorSecao) {
+        this.generos = List.copyOf(generos);
+        this.listener = listener;
+        this.secoes = new ArrayList<>(generos.size());
+        for (Genero genero : this.generos) {
+            Secao secao = new Secao(Math.max(1, linhasPorSecao));
+            secoes.add(secao);
+            secao.carga = CompletableFuture.runAsync(() -> {
+                if (cancelada) {
+                    throw new CancellationException(); // Ainda na fila do executor: nem consulta
+                }
+                try {
+                    carregador.carregar(genero, secao.consulta, livro -> entregar(secao, livro));
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+                entregar(secao, FIM_SECAO);
+            }, executor);
+        }
+    }
+
+    /**
+     * Lê uma seção do banco, pelo cursor de {@link LivroDAO}.
+     *
+     * @param genero Gênero da seção.
+     * @param cancelamento Controle de cancelamento da consulta.
+     * @param consumidor Recebe os livros do gênero, ordenados por título.
+     * @throws SQLException Caso ocorra um erro no banco ou a consulta seja
+     * cancelada.
+     */
+    public static void carregarDoBanco(Genero genero, ConsultaCancelavel cancelamento, Consumer<Livro> consumidor) throws SQLException {
+        try (LivroDAO.CursorLivros cursor = new LivroDAO().abrirCursorLivrosPorGeneros(new Integer[]{genero.getId()}, cancelamento)) {
+            for (Livro livro = cursor.proximo(); livro != null; livro = cursor.proximo()) {
+                consumidor.accept(livro);
+            }
+        }
+    }
+
+    /**
+     * Lê todas as seções em paralelo e as junta em uma única lista, na ordem
+     * dos gêneros, sem bloquear quem chama. Cada seção é lida por inteiro para
+     * a memória: serve para resultados exibidos por inteiro, como a prévia da
+     * tela de relatórios, e não para gravar relatórios.
+     *
+     * @param generos Gêneros, na ordem das seções.
+     * @param executor Executor das consultas.
+     * @param carregador Lê cada seção.
+     * @return Futuro com os livros de todas as seções.
+     */
+    public static CompletableFuture<List<Livro>> juntar(List<Genero> generos, Executor executor, CarregadorSecao carregador) {
+        List<CompletableFuture<List<Livro>>> secoes = new ArrayList<>(generos.size());
+        for (Genero genero : generos) {
+            secoes.add(CompletableFuture.supplyAsync(() -> {
+                List<Livro> livros = new ArrayList<>();
+                try {
+                    carregador.carregar(genero, new ConsultaCancelavel(), livros::add);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+                return livros;
+            }, executor));
+        }
+        return CompletableFuture.allOf(secoes.toArray(CompletableFuture[]::new))
+                .thenApply(ignorado -> {
+                    List<Livro> livros = new ArrayList<>();
+                    for (CompletableFuture<List<Livro>> secao : secoes) {
+                        livros.addAll(secao.join());
+                    }
+                    return livros;
+                });
+    }
+
+    @Override
+    public Livro proximo() throws SQLException {
+        while (true) {
+            if (atual == null) {
+                if (proximaSecao == secoes.size()) {
+                    return null;
+                }
+                avisar(proximaSecao, "Gênero: " + generos.get(proximaSecao).getNome());
+                atual = secoes.get(proximaSecao);
+            }
+            Livro livro = aguardar(atual);
+            if (livro != FIM_SECAO) {
+                quantidade++;
+                return livro;
+            }
+            secoes.set(proximaSecao, null); // Seção lida: nada dela fica em memória
+            atual = null;
+            proximaSecao++;
+            if (proximaSecao == secoes.size()) {
+                avisar(proximaSecao, "Concluindo o relatório...");
+            }
+        }
+    }
+
+    @Override
+    public long getQuantidade() {
+        return quantidade;
+    }
+
+    /**
+     * @return Quantidade de seções (gêneros) do relatório.
+     */
+    public int getTotalSecoes() {
+        return generos.size();
+    }
+
+    /**
+     * Cancela as seções ainda não lidas, interrompendo as consultas em
+     * andamento. A próxima leitura lança {@link CancellationException}. Pode ser
+     * chamado de qualquer thread.
+     */
+    public void cancelar() {
+        cancelada = true;
+        for (Secao secao : secoes) {
+            if (secao != null) {
+                secao.consulta.cancelar();
+                secao.carga.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * @return true se {@link #cancelar()} já foi chamado.
+     */
+    public boolean isCancelada() {
+        return cancelada;
+    }
+
+    /**
+     * Cancela o que ainda estiver sendo lido (não tem efeito se todas as
+     * seções já foram lidas).
+     */
+    @Override
+    public void close() {
+        if (proximaSecao < secoes.size()) {
+            cancelar();
+        }
+    }
+
+    /**
+     * Coloca um livro no buffer da seção, esperando a leitura abrir espaço.
+     * Executado pela tarefa da seção.
+     *
+     * @throws CancellationException Se o relatório foi cancelado ou a thread
+     * interrompida durante a espera.
+     */
+    private void entregar(Secao secao, Livro livro) {
+        try {
+            while (!secao.buffer.offer(livro, ESPERA_MS, TimeUnit.MILLISECONDS)) {
+                if (cancelada) {
+                    throw new CancellationException("Relatório cancelado.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Relatório interrompido.");
+        }
+    }
+
+    /**
+     * Espera o próximo livro da seção, ou {@link #FIM_SECAO} no fim dela.
+     *
+     * @throws SQLException A falha da consulta da seção.
+     * @throws CancellationException Se o relatório foi cancelado ou a thread
+     * interrompida.
+     */
+    private Livro aguardar(Secao secao) throws SQLException {
+        try {
+            while (true) {
+                if (cancelada) {
+                    throw new CancellationException("Relatório cancelado.");
+                }
+                Livro livro = secao.buffer.poll(ESPERA_MS, TimeUnit.MILLISECONDS);
+                if (livro != null) {
+                    return livro;
+                }
+                if (secao.carga.isCompletedExceptionally()) {
+                    secao.carga.get(); // Lança a falha da seção
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelar();
+            throw new CancellationException("Relatório interrompido.");
+        } catch (ExecutionException e) {
+            cancelar(); // As outras seções não serão usadas
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException sql) {
+                if (ConsultaCancelavel.isCancelamento(sql)) {
+                    throw new CancellationException("Relatório cancelado.");
+                }
+                throw sql;
+            }
+            if (causa instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new SQLException("Erro ao carregar a seção " + generos.get(proximaSecao).getNome(), causa);
+        }
+    }
+
+    private void avisar(int concluidas, String mensagem) {
+        if (listener != null) {
+            listener.progresso(concluidas, generos.size(), mensagem);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package giovanna.projeto.livraria1.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import giovanna.projeto.livraria1.model.Livro;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache persistente, em disco, das consultas de ISBN à Open Library.
+ *
+ * <p>
+ * As entradas ficam num arquivo de texto com um registro JSON por linha, no
+ * qual cada nova consulta é acrescentada ao final. Na abertura, o arquivo é
+ * lido para a memória (o registro mais recente de cada ISBN prevalece) e as
+ * consultas passam a ser respondidas sem acesso ao disco. Quando o arquivo
+ * acumula registros obsoletos, ele é regravado só com as entradas vigentes.
+ * </p>
+ * <p>
+ * A chave é o ISBN normalizado (sem hífens nem espaços). Também são guardadas
+ * as respostas "não encontrado", com validade menor, para que ISBNs
+ * inexistentes não sejam consultados de novo a cada leitura. O número de
+ * entradas é limitado; ao atingir o limite, a entrada usada há mais tempo é
+ * descartada. Erros de rede não são guardados.
+ * </p>
+ * <p>
+ * Configuração pelas propriedades de sistema
+ * {@code livraria.isbnCache.arquivo},
+ * {@code livraria.isbnCache.validadeHoras},
+ * {@code livraria.isbnCache.validadeNaoEncontradoHoras} e
+ * {@code livraria.isbnCache.maxEntradas}.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class CacheISBN {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheISBN.class.getName());
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Registros no arquivo a partir dos quais ele é regravado (múltiplo das entradas vigentes)
+    private static final int FATOR_COMPACTACAO = 2;
+    private static final int MINIMO_COMPACTACAO = 1000;
+
+    /**
+     * Resultado em cache de uma consulta.
+     */
+    public static final class Entrada {
+
+        private final long gravadoEm;
+        private final String titulo;
+        private final String autor;
+        private final String editora;
+        private final String generoNome;
+        private final LocalDate dataPublicacao;
+        private final boolean encontrado;
+
+        private Entrada(long gravadoEm, Livro livro) {
+            this.gravadoEm = gravadoEm;
+            this.encontrado = livro != null;
+            this.titulo = encontrado ? livro.getTitulo() : null;
+            this.autor = encontrado ? livro.getAutor() : null;
+            this.editora = encontrado ? livro.getEditora() : null;
+            this.generoNome = encontrado ? livro.getGeneroNome() : null;
+            this.dataPublicacao = encontrado ? livro.getData_publicacao() : null;
+        }
+
+        /**
+         * Indica se a Open Library encontrou o livro.
+         *
+         * @return false se a resposta guardada é "não encontrado".
+         */
+        public boolean isEncontrado() {
+            return encontrado;
+        }
+
+        /**
+         * Cria um livro com os dados guardados. Cada chamada retorna um novo
+         * objeto, que pode ser alterado livremente.
+         *
+         * @param isbn ISBN a informar no livro.
+         * @return O livro, ou null se a resposta guardada é "não encontrado".
+         */
+        public Livro getLivro(String isbn) {
+            if (!encontrado) {
+                return null;
+            }
+            Livro livro = new Livro();
+            livro.setTitulo(titulo);
+            livro.setAutor(autor);
+            livro.setEditora(editora);
+            livro.setGeneroNome(generoNome);
+            livro.setData_publicacao(dataPublicacao);
+            livro.setIsbn(isbn);
+            return livro;
+        }
+    }
+
+    private final Path arquivo;
+    private final long validadeMs;
+    private final long validadeNaoEncontradoMs;
+    private final int maxEntradas;
+
+    // Ordem de acesso: a primeira entrada é a usada há mais tempo
+    private final LinkedHashMap<String, Entrada> entradas;
+    private int registrosNoArquivo;
+
+    private long acertos;
+    private long acertosNaoEncontrado;
+    private long faltas;
+
+    /**
+     * Cria o cache com a configuração das propriedades de sistema (por
+     * padrão, em {@code ~/.livraria/cache-isbn.jsonl}, validade de 30 dias,
+     * 1 dia para "não encontrado" e até 50000 entradas).
+     *
+     * @return O cache.
+     */
+    public static CacheISBN criarPadrao() {
+        Path arquivo = Paths.get(System.getProperty("livraria.isbnCache.arquivo",
+                Paths.get(System.getProperty("user.home"), ".livraria", "cache-isbn.jsonl").toString()));
+        return new CacheISBN(arquivo,
+                Duration.ofHours(Long.getLong("livraria.isbnCache.validadeHoras", 30 * 24)),
+                Duration.ofHours(Long.getLong("livraria.isbnCache.validadeNaoEncontradoHoras", 24)),
+                Integer.getInteger("livraria.isbnCache.maxEntradas", 50_000));
+    }
+
+    /**
+     * Cria o cache e carrega as entradas vigentes do arquivo, se existir.
+     *
+     * @param arquivo Arquivo do cache (criado na primeira gravação).
+     * @param validade Validade das respostas com livro.
+     * @param validadeNaoEncontrado Validade das respostas "não encontrado".
+     * @param maxEntradas Quantidade máxima de entradas.
+     */
+    public CacheISBN(Path arquivo, Duration validade, Duration validadeNaoEncontrado, int maxEntradas) {
+        this.arquivo = arquivo;
+        this.validadeMs = validade.toMillis();
+        this.validadeNaoEncontradoMs = validadeNaoEncontrado.toMillis();
+        this.maxEntradas = maxEntradas;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> maisAntiga) {
+                return size() > CacheISBN.this.maxEntradas;
+            }
+        };
+        carregar();
+    }
+
+    /**
+     * Normaliza um ISBN para uso como chave: um ISBN válido é convertido em
+     * ISBN-13, de modo que o ISBN-10 e o ISBN-13 do mesmo livro compartilham
+     * a entrada; nos demais textos, apenas os separadores são removidos.
+     *
+     * @param isbn ISBN digitado.
+     * @return ISBN normalizado.
+     */
+    public static String normalizar(String isbn) {
+        String isbn13 = ISBNUtil.paraIsbn13(isbn);
+        return isbn13 != null ? isbn13 : ISBNUtil.compactar(isbn);
+    }
+
+    /**
+     * Busca uma consulta no cache.
+     *
+     * @param isbn ISBN (normalizado ou não).
+     * @return A entrada vigente, ou null se o ISBN não estiver no cache ou a
+     * entrada tiver expirado.
+     */
+    public synchronized Entrada buscar(String isbn) {
+        String chave = normalizar(isbn);
+        Entrada entrada = entradas.get(chave);
+        if (entrada != null && expirada(entrada, System.currentTimeMillis())) {
+            entradas.remove(chave);
+            entrada = null;
+        }
+        if (entrada == null) {
+            faltas++;
+        } else if (entrada.isEncontrado()) {
+            acertos++;
+        } else {
+            acertosNaoEncontrado++;
+        }
+        return entrada;
+    }
+
+    /**
+     * Guarda o resultado de uma consulta, na memória e no arquivo.
+     *
+     * @param isbn ISBN consultado.
+     * @param livro Livro encontrado, ou null se a Open Library não o
+     * encontrou.
+     */
+    public synchronized void gravar(String isbn, Livro livro) {
+        String chave = normalizar(isbn);
+        Entrada entrada = new Entrada(System.currentTimeMillis(), livro);
+        entradas.put(chave, entrada);
+        try {
+            Files.createDirectories(arquivo.toAbsolutePath().getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                escrever(writer, chave, entrada);
+            }
+            registrosNoArquivo++;
+            if (registrosNoArquivo > Math.max(MINIMO_COMPACTACAO, FATOR_COMPACTACAO * entradas.size())) {
+                compactar();
+            }
+        } catch (IOException e) {
+            // O cache continua funcionando em memória
+            LOGGER.log(Level.WARNING, "Não foi possível gravar o cache de ISBN em " + arquivo, e);
+        }
+    }
+
+    /**
+     * @return Consultas respondidas pelo cache com um livro.
+     */
+    public synchronized long getAcertos() {
+        return acertos;
+    }
+
+    /**
+     * @return Consultas respondidas pelo cache com "não encontrado".
+     */
+    public synchronized long getAcertosNaoEncontrado() {
+        return acertosNaoEncontrado;
+    }
+
+    /**
+     * @return Consultas não respondidas pelo cache.
+     */
+    public synchronized long getFaltas() {
+        return faltas;
+    }
+
+    /**
+     * @return Quantidade de entradas em memória.
+     */
+    public synchronized int getTamanho() {
+        return entradas.size();
+    }
+
+    /**
+     * Retorna as estatísticas de uso do cache.
+     *
+     * @return Entradas, acertos e faltas.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entradas, %d acertos, %d acertos \"não encontrado\", %d faltas",
+                entradas.size(), acertos, acertosNaoEncontrado, faltas);
+    }
+
+    /**
+     * Lê o arquivo para a memória, ignorando entradas expiradas e linhas
+     * inválidas (por exemplo, a última linha de uma gravação interrompida).
+     */
+    private void carregar() {
+        if (!Files.exists(arquivo)) {
+            return;
+        }
+        long agora = System.currentTimeMillis();
+        try (BufferedReader reader = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            for (String linha = reader.readLine(); linha != null; linha = reader.readLine()) {
+                registrosNoArquivo++;
+                try {
+                    JsonNode no = MAPPER.readTree(linha);
+                    String chave = no.path("isbn").asText();
+                    Entrada entrada = ler(no);
+                    if (expirada(entrada, agora)) {
+                        entradas.remove(chave);
+                    } else {
+                        entradas.put(chave, entrada);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.FINE, "Linha inválida no cache de ISBN ignorada", e);
+                }
+            }
+            LOGGER.log(Level.INFO, "Cache de ISBN carregado de {0}: {1} entradas.", new Object[]{arquivo, entradas.size()});
+            if (registrosNoArquivo > FATOR_COMPACTACAO * entradas.size()) {
+                compactar();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Não foi possível ler o cache de ISBN em " + arquivo, e);
+        }
+    }
+
+    /**
+     * Regrava o arquivo apenas com as entradas vigentes. O novo conteúdo é
+     * gravado num arquivo temporário e substitui o antigo de uma vez, para
+     * que uma interrupção não corrompa o cache.
+     *
+     * @throws IOException Se ocorrer um erro de gravação.
+     */
+    private void compactar() throws IOException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporario, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entrada> entrada : entradas.entrySet()) {
+                escrever(writer, entrada.getKey(), entrada.getValue());
+            }
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        registrosNoArquivo = entradas.size();
+        LOGGER.log(Level.FINE, "Cache de ISBN compactado: {0} entradas.", entradas.size());
+    }
+
+    private boolean expirada(Entrada entrada, long agora) {
+        long validade = entrada.isEncontrado() ? validadeMs : validadeNaoEncontradoMs;
+        return agora - entrada.gravadoEm > validade;
+    }
+
+    private static void escrever(BufferedWriter writer, String chave, Entrada entrada) throws IOException {
+        ObjectNode no = MAPPER.createObjectNode();
+        no.put("isbn", chave);
+        no.put("gravadoEm", entrada.gravadoEm);
+        no.put("encontrado", entrada.encontrado);
+        if (entrada.encontrado) {
+            no.put("titulo", entrada.titulo);
+            no.put("autor", entrada.autor);
+            no.put("editora", entrada.editora);
+            no.put("genero", entrada.generoNome);
+            no.put("dataPublicacao", entrada.dataPublicacao != null ? entrada.dataPublicacao.toString() : null);
+        }
+        writer.write(MAPPER.writeValueAsString(no));
+        writer.newLine();
+    }
+
+    private static Entrada ler(JsonNode no) {
+        long gravadoEm = no.path("gravadoEm").asLong();
+        if (!no.path("encontrado").asBoolean()) {
+            return new Entrada(gravadoEm, null);
+        }
+        Livro livro = new Livro();
+        livro.setTitulo(texto(no, "titulo"));
+        livro.setAutor(texto(no, "autor"));
+        livro.setEditora(texto(no, "editora"));
+        livro.setGeneroNome(texto(no, "genero"));
+        String data = texto(no, "dataPublicacao");
+        livro.setData_publicacao(data != null ? LocalDate.parse(data) : null);
+        return new Entrada(gravadoEm, livro);
+    }
+
+    private static String texto(JsonNode no, String campo) {
+        JsonNode valor = no.get(campo);
+        return valor == null || valor.isNull() ? null : valor.asText();
+    }
+}
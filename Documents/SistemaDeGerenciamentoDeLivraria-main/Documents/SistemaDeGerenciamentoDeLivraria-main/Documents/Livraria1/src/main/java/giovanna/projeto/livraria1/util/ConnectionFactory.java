@@ -6,6 +6,7 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
+import javax.sql.DataSource;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,7 +17,10 @@ import java.util.logging.Logger;
  * URL do banco de dados
  * Usuário
  * Senha
- * Utiliza o PostgreSQL
+ * Configurações do pool de conexões (db_pool_*)
+ * Utiliza o PostgreSQL.
+ * Com o pool habilitado, as conexões são emprestadas de um {@link ConnectionPool} e o {@code close()} as devolve ao pool;
+ * caso contrário, cada chamada abre uma nova conexão.
  * @author Giovanna
  */
 public class ConnectionFactory {
@@ -26,6 +30,8 @@ public class ConnectionFactory {
     private static String DB_URL;
     private static String DB_USER;
     private static String DB_PASSWORD;
+    // Pool de conexões, nulo quando desabilitado no "DBConfig.properties".
+    private static ConnectionPool pool;
     
     // Bloco estático para carregar as informações e inicializar.
     static{
@@ -42,6 +48,17 @@ public class ConnectionFactory {
         
         // Tenta carregar o Driver do Postgres, se não conseguir será exibida uma mensagem apropriada. tenta realizar a conexão com base no properties também.
         Class.forName("org.postgresql.Driver");
+
+        // Cria o pool de conexões, caso esteja habilitado.
+        if (Boolean.parseBoolean(properties.getProperty("db_pool_enabled", "true"))) {
+            pool = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD,
+                    (int) lerNumero(properties, "db_pool_min_size", 2),
+                    (int) lerNumero(properties, "db_pool_max_size", 10),
+                    lerNumero(properties, "db_pool_idle_timeout_ms", 300000),
+                    lerNumero(properties, "db_pool_acquire_timeout_ms", 10000),
+                    (int) lerNumero(properties, "db_pool_validation_timeout_s", 2));
+            Runtime.getRuntime().addShutdownHook(new Thread(ConnectionFactory::closeSharedConnection, "pool-conexoes-shutdown"));
+        }
         }   catch (IOException ex) {
             System.out.println("Não foi carregar o arquivo properties");
             LOGGER.log(Level.SEVERE, "Ocorreu um erro ao carregar as informações do arquivo DBConfig.properties",ex);
@@ -53,32 +70,70 @@ public class ConnectionFactory {
             throw new RuntimeException("Driver do PostgreSQL não foi localizado!",ex);
         }
     }
-    private static Connection connection; 
+
+    /**
+     * Lê uma configuração numérica do pool. Um valor inválido não impede a
+     * aplicação de iniciar: é registrado um aviso e usado o valor padrão.
+     * @param properties propriedades do "DBConfig.properties".
+     * @param chave nome da propriedade.
+     * @param padrao valor usado se a propriedade estiver ausente ou inválida.
+     * @return o valor configurado, ou o padrão.
+     */
+    private static long lerNumero(Properties properties, String chave, long padrao) {
+        String valor = properties.getProperty(chave);
+        if (valor == null || valor.isBlank()) {
+            return padrao;
+        }
+        try {
+            long numero = Long.parseLong(valor.trim());
+            if (numero >= 0 && numero <= Integer.MAX_VALUE) {
+                return numero;
+            }
+        } catch (NumberFormatException ex) {
+            // Tratado abaixo, junto com os valores fora da faixa
+        }
+        LOGGER.log(Level.WARNING, "Valor inválido para {0} no DBConfig.properties: \"{1}\"; usando {2}.",
+                new Object[]{chave, valor, padrao});
+        return padrao;
+    }
 
     /**
      * Método para buscar a conexão.
+     * Cada chamada recebe sua própria conexão, que deve ser fechada pelo chamador (try-with-resources).
+     * Com o pool habilitado, fechar a conexão a devolve ao pool.
      * @return a conexão com o banco.
-     * @throws SQLException se houver algum problema na conexão
+     * @throws SQLException se houver algum problema na conexão ou se o tempo de espera do pool se esgotar
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        if (pool != null) {
+            return pool.getConnection();
         }
-        return connection;
+        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
     }
+
     /**
-     *Método para fechar a conexão com o banco de dados.
+     * Método para obter o pool como {@link DataSource}.
+     * @return o pool de conexões, ou null se o pool estiver desabilitado.
+     */
+    public static DataSource getDataSource() {
+        return pool;
+    }
+
+    /**
+     * Método para consultar as métricas do pool (conexões ativas, ociosas e tempo de espera).
+     * @return as métricas atuais, ou null se o pool estiver desabilitado.
+     */
+    public static ConnectionPool.Metricas getMetricasPool() {
+        return pool != null ? pool.getMetricas() : null;
+    }
+
+    /**
+     *Método para fechar o pool de conexões com o banco de dados.
      */
     public static void closeSharedConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                System.out.println("Conexão compartilhada fechada!");
-                LOGGER.info("Conexão compartilhada fechada com sucesso!");
-            } catch (SQLException e) {
-                System.out.println("Erro ao fechar conexão compartilhada.");
-                LOGGER.log(Level.WARNING, "Erro ao fechar conexão compartilhada", e);
-            }
+        if (pool != null) {
+            pool.close();
+            LOGGER.info("Pool de conexões fechado com sucesso!");
         }
     }
 
@@ -0,0 +1,579 @@
+package giovanna.projeto.livraria1.util;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Pool de conexões JDBC com tamanho limitado, utilizado pela
+ * {@link ConnectionFactory}.
+ *
+ * <p>
+ * As conexões entregues são proxies da conexão física: ao chamar
+ * {@code close()} (como fazem os DAOs nos blocos try-with-resources) a conexão
+ * é devolvida ao pool em vez de ser encerrada. Antes de voltar ao pool, uma
+ * transação pendente é desfeita e o autocommit é restaurado. Já
+ * {@code abort(Executor)} encerra a conexão física e a retira do pool, para
+ * os casos em que ela ficou com um estado de sessão que não pode ser desfeito
+ * (por exemplo, uma trava consultiva que não pôde ser liberada). Os
+ * statements e os metadados criados pela conexão também são envolvidos, para
+ * que o seu {@code getConnection()} devolva a conexão emprestada, e não a
+ * física.
+ * </p>
+ *
+ * Recursos:
+ * <ul>
+ * <li>Tamanho mínimo e máximo de conexões.</li>
+ * <li>Remoção de conexões ociosas acima do mínimo.</li>
+ * <li>Validação da conexão ao ser emprestada.</li>
+ * <li>Tempo máximo de espera por uma conexão livre.</li>
+ * <li>Métricas de uso (ativas, ociosas, tempo de espera).</li>
+ * </ul>
+ *
+ * @author Giovanna
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    // Conexões usadas há menos tempo que este intervalo não são revalidadas no empréstimo.
+    private static final long JANELA_SEM_VALIDACAO_MS = 500;
+
+    private final String url;
+    private final String usuario;
+    private final String senha;
+    private final int tamanhoMinimo;
+    private final int tamanhoMaximo;
+    private final long tempoOciosoMs;
+    private final long timeoutAquisicaoMs;
+    private final int timeoutValidacaoSegundos;
+
+    // Limita o número de conexões emprestadas ao mesmo tempo.
+    private final Semaphore permissoes;
+    // Conexões físicas livres; a mais recente fica no início (LIFO).
+    private final Deque<ConexaoOciosa> ociosas = new ArrayDeque<>();
+    private final ScheduledExecutorService manutencao;
+
+    private final AtomicInteger totalConexoes = new AtomicInteger();
+    private final AtomicInteger ativas = new AtomicInteger();
+    private final AtomicLong emprestimos = new AtomicLong();
+    private final AtomicLong esperaTotalNanos = new AtomicLong();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private volatile boolean fechado;
+
+    /**
+     * Cria o pool. As conexões mínimas são abertas em segundo plano pela
+     * tarefa de manutenção, para não atrasar a inicialização da aplicação.
+     *
+     * @param url URL JDBC do banco de dados.
+     * @param usuario Usuário do banco.
+     * @param senha Senha do usuário.
+     * @param tamanhoMinimo Quantidade de conexões mantidas abertas.
+     * @param tamanhoMaximo Quantidade máxima de conexões simultâneas.
+     * @param tempoOciosoMs Tempo que uma conexão pode ficar ociosa antes de
+     * ser fechada (respeitando o mínimo).
+     * @param timeoutAquisicaoMs Tempo máximo de espera por uma conexão livre.
+     * @param timeoutValidacaoSegundos Tempo máximo da validação no empréstimo.
+     */
+    public ConnectionPool(String url, String usuario, String senha, int tamanhoMinimo, int tamanhoMaximo,
+            long tempoOciosoMs, long timeoutAquisicaoMs, int timeoutValidacaoSegundos) {
+        if (tamanhoMaximo < 1 || tamanhoMinimo < 0 || tamanhoMinimo > tamanhoMaximo) {
+            throw new IllegalArgumentException("Tamanhos inválidos para o pool: mínimo=" + tamanhoMinimo + ", máximo=" + tamanhoMaximo);
+        }
+        this.url = url;
+        this.usuario = usuario;
+        this.senha = senha;
+        this.tamanhoMinimo = tamanhoMinimo;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.tempoOciosoMs = tempoOciosoMs;
+        this.timeoutAquisicaoMs = timeoutAquisicaoMs;
+        this.timeoutValidacaoSegundos = timeoutValidacaoSegundos;
+        this.permissoes = new Semaphore(tamanhoMaximo, true);
+
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pool-conexoes-manutencao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalo = Math.max(1000, Math.min(tempoOciosoMs / 2, 30_000));
+        manutencao.scheduleWithFixedDelay(this::executarManutencao, 0, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Empresta uma conexão do pool, aguardando no máximo o tempo de aquisição
+     * configurado.
+     *
+     * @return Conexão pronta para uso; deve ser fechada para voltar ao pool.
+     * @throws SQLException Se o pool estiver fechado, se o tempo de espera se
+     * esgotar ou se não for possível abrir uma nova conexão.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (fechado) {
+            throw new SQLException("O pool de conexões está fechado.");
+        }
+        long inicio = System.nanoTime();
+        try {
+            if (!permissoes.tryAcquire(timeoutAquisicaoMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Tempo esgotado aguardando uma conexão livre ("
+                        + timeoutAquisicaoMs + " ms). " + getMetricas());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido enquanto aguardava uma conexão.", ex);
+        }
+        registrarEspera(System.nanoTime() - inicio);
+
+        try {
+            Connection fisica = obterConexaoFisica();
+            ativas.incrementAndGet();
+            emprestimos.incrementAndGet();
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new ConexaoEmprestada(fisica));
+        } catch (SQLException | RuntimeException ex) {
+            permissoes.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Reaproveita uma conexão ociosa válida ou abre uma nova.
+     */
+    private Connection obterConexaoFisica() throws SQLException {
+        while (true) {
+            ConexaoOciosa ociosa;
+            synchronized (ociosas) {
+                ociosa = ociosas.pollFirst();
+            }
+            if (ociosa == null) {
+                return abrirConexao();
+            }
+            if (validar(ociosa)) {
+                return ociosa.conexao;
+            }
+            LOGGER.fine("Conexão inválida descartada do pool.");
+            descartar(ociosa.conexao);
+        }
+    }
+
+    private boolean validar(ConexaoOciosa ociosa) {
+        if (System.currentTimeMillis() - ociosa.devolvidaEm < JANELA_SEM_VALIDACAO_MS) {
+            return true;
+        }
+        try {
+            return ociosa.conexao.isValid(timeoutValidacaoSegundos);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private Connection abrirConexao() throws SQLException {
+        Connection conexao = DriverManager.getConnection(url, usuario, senha);
+        totalConexoes.incrementAndGet();
+        return conexao;
+    }
+
+    private void descartar(Connection conexao) {
+        totalConexoes.decrementAndGet();
+        try {
+            conexao.close();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.FINE, "Erro ao fechar conexão descartada", ex);
+        }
+    }
+
+    /**
+     * Devolve a conexão física ao pool, desfazendo transações pendentes.
+     */
+    private void devolver(Connection fisica) {
+        ativas.decrementAndGet();
+        try {
+            boolean reutilizavel = !fechado;
+            try {
+                if (!fisica.getAutoCommit()) {
+                    fisica.rollback();
+                    fisica.setAutoCommit(true);
+                }
+                fisica.clearWarnings();
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "Conexão devolvida em estado inválido; será descartada.", ex);
+                reutilizavel = false;
+            }
+            if (reutilizavel) {
+                synchronized (ociosas) {
+                    ociosas.addFirst(new ConexaoOciosa(fisica, System.currentTimeMillis()));
+                }
+            } else {
+                descartar(fisica);
+            }
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    /**
+     * Encerra a conexão física emprestada sem devolvê-la ao pool, liberando a
+     * vaga para uma nova conexão.
+     */
+    private void abortar(Connection fisica) {
+        ativas.decrementAndGet();
+        try {
+            descartar(fisica);
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    /**
+     * Fecha conexões ociosas há mais tempo que o configurado (mantendo o
+     * mínimo) e abre conexões até atingir o tamanho mínimo.
+     */
+    private void executarManutencao() {
+        if (fechado) {
+            return;
+        }
+        long limite = System.currentTimeMillis() - tempoOciosoMs;
+        synchronized (ociosas) {
+            // As mais antigas ficam no fim da fila.
+            Iterator<ConexaoOciosa> it = ociosas.descendingIterator();
+            while (it.hasNext() && totalConexoes.get() > tamanhoMinimo) {
+                ConexaoOciosa ociosa = it.next();
+                if (ociosa.devolvidaEm > limite) {
+                    break;
+                }
+                it.remove();
+                descartar(ociosa.conexao);
+            }
+        }
+        try {
+            while (!fechado && totalConexoes.get() < tamanhoMinimo) {
+                Connection nova = abrirConexao();
+                synchronized (ociosas) {
+                    ociosas.addLast(new ConexaoOciosa(nova, System.currentTimeMillis()));
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "Não foi possível abrir as conexões mínimas do pool", ex);
+        }
+    }
+
+    private void registrarEspera(long nanos) {
+        esperaTotalNanos.addAndGet(nanos);
+        esperaMaximaNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Retorna um retrato das métricas atuais do pool.
+     *
+     * @return Métricas de uso do pool.
+     */
+    public Metricas getMetricas() {
+        int ociosasAgora;
+        synchronized (ociosas) {
+            ociosasAgora = ociosas.size();
+        }
+        long total = emprestimos.get();
+        return new Metricas(ativas.get(), ociosasAgora, totalConexoes.get(), tamanhoMaximo,
+                permissoes.getQueueLength(), total,
+                total == 0 ? 0 : esperaTotalNanos.get() / total / 1_000_000.0,
+                esperaMaximaNanos.get() / 1_000_000.0, timeouts.get());
+    }
+
+    /**
+     * Fecha o pool e todas as conexões ociosas. Conexões emprestadas são
+     * fechadas quando devolvidas.
+     */
+    @Override
+    public void close() {
+        fechado = true;
+        manutencao.shutdownNow();
+        synchronized (ociosas) {
+            for (ConexaoOciosa ociosa : ociosas) {
+                descartar(ociosa.conexao);
+            }
+            ociosas.clear();
+        }
+        LOGGER.info("Pool de conexões fechado.");
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("O pool utiliza as credenciais do DBConfig.properties.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return Logger.getLogger("giovanna.projeto.livraria1.util");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("ConnectionPool não implementa " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Conexão física parada no pool, com o instante em que foi devolvida.
+     */
+    private static final class ConexaoOciosa {
+
+        private final Connection conexao;
+        private final long devolvidaEm;
+
+        private ConexaoOciosa(Connection conexao, long devolvidaEm) {
+            this.conexao = conexao;
+            this.devolvidaEm = devolvidaEm;
+        }
+    }
+
+    /**
+     * Intercepta as chamadas da conexão emprestada: {@code close()} devolve a
+     * conexão ao pool, {@code abort(Executor)} a descarta e as demais chamadas
+     * são repassadas à conexão física.
+     */
+    private final class ConexaoEmprestada implements InvocationHandler {
+
+        private final Connection fisica;
+        private volatile boolean devolvida; // Lida pela manutenção e por quem usa a conexão
+
+        private ConexaoEmprestada(Connection fisica) {
+            this.fisica = fisica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!devolvida) {
+                        devolvida = true;
+                        devolver(fisica);
+                    }
+                    return null;
+                case "abort":
+                    if (!devolvida) {
+                        devolvida = true;
+                        abortar(fisica);
+                    }
+                    return null;
+                case "isClosed":
+                    return devolvida || fisica.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ConexaoPool[" + fisica + (devolvida ? ", devolvida]" : "]");
+                default:
+                    if (devolvida) {
+                        throw new SQLException("A conexão já foi devolvida ao pool.");
+                    }
+                    Object resultado;
+                    try {
+                        resultado = method.invoke(fisica, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                    return envolver((Connection) proxy, method.getReturnType(), resultado);
+            }
+        }
+    }
+
+    /**
+     * Envolve os statements e os metadados criados pela conexão física, para
+     * que {@code getConnection()} devolva a conexão emprestada. Sem isso, quem
+     * fechasse a conexão obtida por esse caminho encerraria a conexão física,
+     * que continuaria contada no pool.
+     */
+    private static Object envolver(Connection emprestada, Class<?> tipo, Object resultado) {
+        if (resultado == null || !(Statement.class.isAssignableFrom(tipo) || DatabaseMetaData.class.equals(tipo))) {
+            return resultado;
+        }
+        return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{tipo},
+                new ObjetoDaConexao(emprestada, resultado));
+    }
+
+    /**
+     * Repassa as chamadas a um statement ou aos metadados da conexão física,
+     * exceto {@code getConnection()}, que devolve a conexão emprestada.
+     */
+    private static final class ObjetoDaConexao implements InvocationHandler {
+
+        private final Connection emprestada;
+        private final Object alvo;
+
+        private ObjetoDaConexao(Connection emprestada, Object alvo) {
+            this.emprestada = emprestada;
+            this.alvo = alvo;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return emprestada;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return alvo.toString();
+                default:
+                    try {
+                        return method.invoke(alvo, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+            }
+        }
+    }
+
+    /**
+     * Métricas do pool em um determinado instante.
+     */
+    public static final class Metricas {
+
+        private final int ativas;
+        private final int ociosas;
+        private final int total;
+        private final int maximo;
+        private final int aguardando;
+        private final long emprestimos;
+        private final double esperaMediaMs;
+        private final double esperaMaximaMs;
+        private final long timeouts;
+
+        private Metricas(int ativas, int ociosas, int total, int maximo, int aguardando, long emprestimos,
+                double esperaMediaMs, double esperaMaximaMs, long timeouts) {
+            this.ativas = ativas;
+            this.ociosas = ociosas;
+            this.total = total;
+            this.maximo = maximo;
+            this.aguardando = aguardando;
+            this.emprestimos = emprestimos;
+            this.esperaMediaMs = esperaMediaMs;
+            this.esperaMaximaMs = esperaMaximaMs;
+            this.timeouts = timeouts;
+        }
+
+        /**
+         * @return Conexões emprestadas no momento.
+         */
+        public int getAtivas() {
+            return ativas;
+        }
+
+        /**
+         * @return Conexões abertas e livres no pool.
+         */
+        public int getOciosas() {
+            return ociosas;
+        }
+
+        /**
+         * @return Total de conexões físicas abertas.
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return Limite de conexões físicas do pool.
+         */
+        public int getMaximo() {
+            return maximo;
+        }
+
+        /**
+         * @return Threads aguardando uma conexão livre.
+         */
+        public int getAguardando() {
+            return aguardando;
+        }
+
+        /**
+         * @return Quantidade de empréstimos realizados desde a criação do pool.
+         */
+        public long getEmprestimos() {
+            return emprestimos;
+        }
+
+        /**
+         * @return Tempo médio de espera por uma conexão, em milissegundos.
+         */
+        public double getEsperaMediaMs() {
+            return esperaMediaMs;
+        }
+
+        /**
+         * @return Maior tempo de espera registrado, em milissegundos.
+         */
+        public double getEsperaMaximaMs() {
+            return esperaMaximaMs;
+        }
+
+        /**
+         * @return Quantidade de pedidos que esgotaram o tempo de espera.
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool[ativas=%d, ociosas=%d, total=%d/%d, aguardando=%d, emprestimos=%d, "
+                    + "esperaMedia=%.2fms, esperaMaxima=%.2fms, timeouts=%d]",
+                    ativas, ociosas, total, maximo, aguardando, emprestimos, esperaMediaMs, esperaMaximaMs, timeouts);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package giovanna.projeto.livraria1.util;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Permite cancelar, a partir de outra thread, uma consulta em execução no
+ * banco de dados.
+ *
+ * <p>
+ * O DAO registra o {@link Statement} da consulta antes de executá-la e o
+ * libera ao terminar. Ao chamar {@link #cancelar()}, o {@code Statement}
+ * registrado recebe {@link Statement#cancel()}, e o banco interrompe a
+ * consulta; a execução termina com uma {@link SQLException} (SQLState
+ * {@value #SQLSTATE_CANCELADA}). Se o cancelamento ocorrer antes do registro,
+ * a consulta nem chega a ser enviada.
+ * </p>
+ * <p>
+ * Cada instância corresponde a uma única consulta e não deve ser reutilizada.
+ * </p>
+ */
+public class ConsultaCancelavel {
+
+    private static final Logger LOGGER = Logger.getLogger(ConsultaCancelavel.class.getName());
+
+    /**
+     * SQLState informado pelo PostgreSQL para consultas canceladas
+     * ({@code query_canceled}).
+     */
+    public static final String SQLSTATE_CANCELADA = "57014";
+
+    private Statement statement; // Statement em execução (null fora da execução)
+    private boolean cancelada;
+
+    /**
+     * Registra o Statement que será executado.
+     *
+     * @param statement Statement da consulta.
+     * @throws SQLException Se a consulta já tiver sido cancelada.
+     */
+    public synchronized void registrar(Statement statement) throws SQLException {
+        if (cancelada) {
+            throw new SQLException("Consulta cancelada antes da execução.", SQLSTATE_CANCELADA);
+        }
+        this.statement = statement;
+    }
+
+    /**
+     * Libera o Statement registrado. Deve ser chamado antes de fechar o
+     * Statement, para que um cancelamento tardio não o alcance.
+     */
+    public synchronized void liberar() {
+        this.statement = null;
+    }
+
+    /**
+     * Cancela a consulta. Pode ser chamado de qualquer thread, mais de uma
+     * vez.
+     */
+    public synchronized void cancelar() {
+        cancelada = true;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // A consulta pode ter terminado nesse meio tempo; não há o que cancelar
+                LOGGER.log(Level.FINE, "Não foi possível cancelar a consulta", e);
+            }
+        }
+    }
+
+    /**
+     * Indica se a consulta foi cancelada.
+     *
+     * @return true se {@link #cancelar()} já foi chamado.
+     */
+    public synchronized boolean isCancelada() {
+        return cancelada;
+    }
+
+    /**
+     * Verifica se uma exceção foi causada pelo cancelamento da consulta.
+     *
+     * @param e Exceção a verificar.
+     * @return true se a exceção (ou uma de suas causas) indica cancelamento.
+     */
+    public static boolean isCancelamento(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql && SQLSTATE_CANCELADA.equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
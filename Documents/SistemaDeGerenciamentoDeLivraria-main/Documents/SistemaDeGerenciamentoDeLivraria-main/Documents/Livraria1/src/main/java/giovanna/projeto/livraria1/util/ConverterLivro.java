@@ -16,6 +16,9 @@ import org.jboss.logging.Logger;
  */
 public class ConverterLivro {
 
+    // Formato das datas completas da API, como "Jul 16, 2005"
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("MMM d, yyyy", Locale.ENGLISH);
+
     /**
      * Converte um objeto Doc da API Open Library em um objeto Livro.
      *
@@ -23,24 +26,43 @@ public class ConverterLivro {
      * @return Um objeto Livro pronto para ser usado no sistema.
      */
     public static Livro fromOpenLibraryDoc(Doc doc) {
+        List<String> publishDates = doc.getPublishDate();
+        String rawDate = publishDates != null && !publishDates.isEmpty() ? publishDates.get(0) : null; // Pega a primeira data disponível
+        return criarLivro(doc.getTitle(), doc.getPrimaryAuthor(), doc.getPrimaryPublisher(), doc.getPrimarySubject(),
+                rawDate, doc.getPrimaryIsbn());
+    }
+
+    /**
+     * Cria um objeto Livro a partir dos campos de um documento da API Open
+     * Library, já extraídos (o primeiro valor de cada lista). Os campos
+     * ausentes recebem o texto "não disponível".
+     *
+     * @param titulo Título do documento.
+     * @param autor Primeiro autor.
+     * @param editora Primeira editora.
+     * @param genero Primeiro assunto.
+     * @param rawDate Primeira data de publicação, sem formatação.
+     * @param isbn ISBN do livro.
+     * @return Um objeto Livro pronto para ser usado no sistema.
+     */
+    public static Livro criarLivro(String titulo, String autor, String editora, String genero, String rawDate, String isbn) {
         Livro livro = new Livro();
 
-        livro.setTitulo(doc.getTitle() != null ? doc.getTitle() : "Título não disponível");
-        livro.setAutor(doc.getPrimaryAuthor() != null ? doc.getPrimaryAuthor() : "Autor não disponível");
-        livro.setEditora(doc.getPrimaryPublisher() != null ? doc.getPrimaryPublisher() : "Editora não disponível");
-        livro.setGeneroNome(doc.getPrimarySubject() != null ? doc.getPrimarySubject() : "Gênero não disponível");
+        livro.setTitulo(titulo != null ? titulo : "Título não disponível");
+        livro.setAutor(autor != null ? autor : "Autor não disponível");
+        livro.setEditora(editora != null ? editora : "Editora não disponível");
+        livro.setGeneroNome(genero != null ? genero : "Gênero não disponível");
         // Tratamento da data de publicação
-        List<String> publishDates = doc.getPublishDate();
-        if (publishDates != null && !publishDates.isEmpty()) {
-            String rawDate = publishDates.get(0); // Pega a primeira data disponível
+        if (rawDate != null) {
             livro.setData_publicacao(parseDataPublicacao(rawDate));
         }
 
         // Preencha o ISBN com o primeiro disponível, caso exista
-        livro.setIsbn(doc.getPrimaryIsbn() != null ? doc.getPrimaryIsbn() : "");
+        livro.setIsbn(isbn != null ? isbn : "");
 
         return livro;
     }
+
     /**
      * Método para formatar a data originada da integração
      * @param rawDate data antes da formatação
@@ -49,13 +71,16 @@ public class ConverterLivro {
     private static LocalDate parseDataPublicacao(String rawDate) {
         try {
             // Tenta converter para uma data completa no formato "Jul 16, 2005"
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM d, yyyy", Locale.ENGLISH);
-            return LocalDate.parse(rawDate, formatter);
+            return LocalDate.parse(rawDate, FORMATO_DATA);
         } catch (DateTimeParseException e1) {
             try {
+                if (rawDate.length() == 10 && rawDate.charAt(4) == '-') {
+                    // Data no formato ISO (e.g., "2005-07-16"), usado pelo Google Books
+                    return LocalDate.parse(rawDate);
+                }
                 // Tenta converter apenas o ano (e.g., "2005")
                 return LocalDate.of(Integer.parseInt(rawDate), 1, 1); // Assume 1º de janeiro
-            } catch (NumberFormatException e2) {
+            } catch (NumberFormatException | DateTimeParseException e2) {
                 // Retorna null se nenhuma conversão funcionar
                LOGGER.log(Logger.Level.WARN, "Formato de data inválido: " + rawDate);
                 return null;
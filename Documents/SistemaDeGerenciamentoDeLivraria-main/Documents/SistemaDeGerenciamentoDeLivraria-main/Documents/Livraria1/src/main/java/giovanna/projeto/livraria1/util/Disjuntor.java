@@ -0,0 +1,341 @@
+package giovanna.projeto.livraria1.util;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Disjuntor (circuit breaker) para chamadas a um serviço externo.
+ *
+ * <p>
+ * Com o disjuntor {@link Estado#FECHADO}, as chamadas passam e o resultado
+ * das últimas {@code janela} chamadas é acompanhado. Quando, com pelo menos
+ * {@code minimoChamadas} na janela, a proporção de falhas ou de chamadas
+ * lentas (acima de {@code limiteLentidao}) atinge o limite configurado, o
+ * disjuntor {@link Estado#ABERTO abre}: as chamadas passam a ser recusadas de
+ * imediato com {@link DisjuntorAbertoException}, sem esperar pelo serviço.
+ * </p>
+ * <p>
+ * Após {@code tempoAberto}, o disjuntor fica {@link Estado#SEMI_ABERTO} e
+ * deixa passar até {@code sondagens} chamadas de teste. Se todas terminarem
+ * bem e a tempo, ele volta a fechar; se alguma falhar ou demorar, volta a
+ * abrir.
+ * </p>
+ * <p>
+ * Para cada estado são contadas as entradas, o tempo acumulado e as chamadas
+ * permitidas, bem-sucedidas, com falha, lentas e recusadas
+ * ({@link #getMetricas()}).
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class Disjuntor {
+
+    private static final Logger LOGGER = Logger.getLogger(Disjuntor.class.getName());
+
+    /**
+     * Estado do disjuntor.
+     */
+    public enum Estado {
+        FECHADO, ABERTO, SEMI_ABERTO
+    }
+
+    /**
+     * Contadores de um estado do disjuntor.
+     */
+    public static final class Metricas {
+
+        private long entradas;
+        private long tempoMs;
+        private long permitidas;
+        private long sucessos;
+        private long falhas;
+        private long lentas;
+        private long recusadas;
+
+        private Metricas() {
+        }
+
+        private Metricas(Metricas outra) {
+            this.entradas = outra.entradas;
+            this.tempoMs = outra.tempoMs;
+            this.permitidas = outra.permitidas;
+            this.sucessos = outra.sucessos;
+            this.falhas = outra.falhas;
+            this.lentas = outra.lentas;
+            this.recusadas = outra.recusadas;
+        }
+
+        /**
+         * @return Vezes em que o disjuntor entrou no estado.
+         */
+        public long getEntradas() {
+            return entradas;
+        }
+
+        /**
+         * @return Tempo total, em milissegundos, passado no estado.
+         */
+        public long getTempoMs() {
+            return tempoMs;
+        }
+
+        /**
+         * @return Chamadas permitidas no estado.
+         */
+        public long getPermitidas() {
+            return permitidas;
+        }
+
+        /**
+         * @return Chamadas concluídas com sucesso e a tempo.
+         */
+        public long getSucessos() {
+            return sucessos;
+        }
+
+        /**
+         * @return Chamadas concluídas com falha.
+         */
+        public long getFalhas() {
+            return falhas;
+        }
+
+        /**
+         * @return Chamadas bem-sucedidas, porém acima do limite de lentidão.
+         */
+        public long getLentas() {
+            return lentas;
+        }
+
+        /**
+         * @return Chamadas recusadas sem consultar o serviço.
+         */
+        public long getRecusadas() {
+            return recusadas;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("entradas=%d, tempo=%d ms, permitidas=%d, sucessos=%d, falhas=%d, lentas=%d, recusadas=%d",
+                    entradas, tempoMs, permitidas, sucessos, falhas, lentas, recusadas);
+        }
+    }
+
+    private final String nome;
+    private final int minimoChamadas;
+    private final double limiteFalhas;
+    private final long limiteLentidaoNs;
+    private final double limiteLentas;
+    private final long tempoAbertoNs;
+    private final int sondagens;
+
+    // Janela circular com o resultado das últimas chamadas
+    private final boolean[] janelaFalhas;
+    private final boolean[] janelaLentas;
+    private int posicao;
+    private int preenchidas;
+    private int falhasNaJanela;
+    private int lentasNaJanela;
+
+    private Estado estado = Estado.FECHADO;
+    private long desde = System.nanoTime();
+    private int sondagensIniciadas;
+    private int sondagensConcluidas;
+    private final Map<Estado, Metricas> metricas = new EnumMap<>(Estado.class);
+
+    /**
+     * Cria o disjuntor, fechado.
+     *
+     * @param nome Nome do serviço protegido, usado nas mensagens.
+     * @param janela Quantidade de chamadas recentes avaliadas.
+     * @param minimoChamadas Chamadas necessárias na janela antes de avaliar os
+     * limites.
+     * @param limiteFalhas Proporção de falhas (0 a 1) que abre o disjuntor.
+     * @param limiteLentidao Duração a partir da qual uma chamada é lenta.
+     * @param limiteLentas Proporção de chamadas lentas (0 a 1) que abre o
+     * disjuntor.
+     * @param tempoAberto Tempo aberto antes de testar o serviço de novo.
+     * @param sondagens Chamadas de teste no estado semiaberto.
+     */
+    public Disjuntor(String nome, int janela, int minimoChamadas, double limiteFalhas, Duration limiteLentidao,
+            double limiteLentas, Duration tempoAberto, int sondagens) {
+        if (janela < 1 || sondagens < 1) {
+            throw new IllegalArgumentException("Janela e sondagens devem ser positivas.");
+        }
+        this.nome = nome;
+        this.janelaFalhas = new boolean[janela];
+        this.janelaLentas = new boolean[janela];
+        this.minimoChamadas = Math.min(Math.max(1, minimoChamadas), janela);
+        this.limiteFalhas = limiteFalhas;
+        this.limiteLentidaoNs = limiteLentidao.toNanos();
+        this.limiteLentas = limiteLentas;
+        this.tempoAbertoNs = tempoAberto.toNanos();
+        this.sondagens = sondagens;
+        for (Estado e : Estado.values()) {
+            metricas.put(e, new Metricas());
+        }
+        metricas.get(Estado.FECHADO).entradas = 1;
+    }
+
+    /**
+     * Pede permissão para uma chamada. Quem recebe a permissão deve
+     * informar o resultado em {@link #registrar(long, boolean)}.
+     *
+     * @return Instante de início da chamada ({@link System#nanoTime()}).
+     * @throws DisjuntorAbertoException Se o disjuntor está aberto ou se as
+     * sondagens do estado semiaberto já estão em andamento.
+     */
+    public synchronized long permitir() throws DisjuntorAbertoException {
+        long agora = System.nanoTime();
+        if (estado == Estado.ABERTO && agora - desde >= tempoAbertoNs) {
+            mudarEstado(Estado.SEMI_ABERTO, agora);
+        }
+        if (estado == Estado.ABERTO || (estado == Estado.SEMI_ABERTO && sondagensIniciadas >= sondagens)) {
+            metricas.get(estado).recusadas++;
+            long esperaMs = getEsperaMs();
+            throw new DisjuntorAbertoException(nome + " está instável; consultas suspensas temporariamente"
+                    + (esperaMs > 0 ? " (nova tentativa em " + (esperaMs + 999) / 1000 + " s)." : "."), esperaMs);
+        }
+        if (estado == Estado.SEMI_ABERTO) {
+            sondagensIniciadas++;
+        }
+        metricas.get(estado).permitidas++;
+        return agora;
+    }
+
+    /**
+     * Registra o resultado de uma chamada permitida.
+     *
+     * @param inicio Valor retornado por {@link #permitir()}.
+     * @param falhou true se a chamada falhou.
+     */
+    public synchronized void registrar(long inicio, boolean falhou) {
+        long agora = System.nanoTime();
+        boolean lenta = !falhou && agora - inicio > limiteLentidaoNs;
+        Metricas m = metricas.get(estado);
+        if (falhou) {
+            m.falhas++;
+        } else if (lenta) {
+            m.lentas++;
+        } else {
+            m.sucessos++;
+        }
+        if (inicio - desde < 0) {
+            return; // Chamada iniciada antes da última mudança de estado: só entra nos contadores
+        }
+
+        switch (estado) {
+            case FECHADO -> {
+                adicionarNaJanela(falhou, lenta);
+                if (preenchidas >= minimoChamadas
+                        && (falhasNaJanela >= limiteFalhas * preenchidas || lentasNaJanela >= limiteLentas * preenchidas)) {
+                    LOGGER.log(Level.WARNING, "{0}: {1} falhas e {2} chamadas lentas nas últimas {3}",
+                            new Object[]{nome, falhasNaJanela, lentasNaJanela, preenchidas});
+                    mudarEstado(Estado.ABERTO, agora);
+                }
+            }
+            case SEMI_ABERTO -> {
+                if (falhou || lenta) {
+                    mudarEstado(Estado.ABERTO, agora);
+                } else if (++sondagensConcluidas >= sondagens) {
+                    mudarEstado(Estado.FECHADO, agora);
+                }
+            }
+            default -> {
+                // Aberto: nenhuma chamada é iniciada neste estado
+            }
+        }
+    }
+
+    /**
+     * Devolve a permissão de uma chamada cancelada antes do resultado (por
+     * exemplo, porque outra fonte respondeu primeiro). A chamada não conta
+     * como sucesso nem como falha; no estado semiaberto, a sondagem volta a
+     * ficar disponível.
+     *
+     * @param inicio Valor retornado por {@link #permitir()}.
+     */
+    public synchronized void cancelar(long inicio) {
+        if (estado == Estado.SEMI_ABERTO && inicio - desde >= 0 && sondagensIniciadas > 0) {
+            sondagensIniciadas--;
+        }
+    }
+
+    /**
+     * Retorna quanto falta para o disjuntor aberto voltar a permitir
+     * chamadas de teste.
+     *
+     * @return Espera em milissegundos; 0 se o disjuntor não está aberto.
+     */
+    public synchronized long getEsperaMs() {
+        if (estado != Estado.ABERTO) {
+            return 0;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(tempoAbertoNs - (System.nanoTime() - desde)));
+    }
+
+    /**
+     * @return O estado atual (o estado aberto passa a semiaberto apenas na
+     * próxima chamada).
+     */
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    /**
+     * Retorna uma cópia dos contadores de cada estado, com o tempo do estado
+     * atual contado até agora.
+     *
+     * @return Contadores por estado.
+     */
+    public synchronized Map<Estado, Metricas> getMetricas() {
+        Map<Estado, Metricas> copia = new EnumMap<>(Estado.class);
+        for (Map.Entry<Estado, Metricas> e : metricas.entrySet()) {
+            copia.put(e.getKey(), new Metricas(e.getValue()));
+        }
+        copia.get(estado).tempoMs += TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - desde);
+        return copia;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return nome + " [" + estado + "] " + getMetricas();
+    }
+
+    private void adicionarNaJanela(boolean falhou, boolean lenta) {
+        if (preenchidas == janelaFalhas.length) {
+            // Remove o resultado mais antigo
+            falhasNaJanela -= janelaFalhas[posicao] ? 1 : 0;
+            lentasNaJanela -= janelaLentas[posicao] ? 1 : 0;
+        } else {
+            preenchidas++;
+        }
+        janelaFalhas[posicao] = falhou;
+        janelaLentas[posicao] = lenta;
+        falhasNaJanela += falhou ? 1 : 0;
+        lentasNaJanela += lenta ? 1 : 0;
+        posicao = (posicao + 1) % janelaFalhas.length;
+    }
+
+    private void mudarEstado(Estado novo, long agora) {
+        metricas.get(estado).tempoMs += TimeUnit.NANOSECONDS.toMillis(agora - desde);
+        LOGGER.log(novo == Estado.FECHADO ? Level.INFO : Level.WARNING, "{0}: disjuntor {1} -> {2}",
+                new Object[]{nome, estado, novo});
+        estado = novo;
+        desde = agora;
+        metricas.get(novo).entradas++;
+        sondagensIniciadas = 0;
+        sondagensConcluidas = 0;
+        if (novo == Estado.FECHADO) {
+            // Recomeça a avaliação do zero
+            preenchidas = 0;
+            posicao = 0;
+            falhasNaJanela = 0;
+            lentasNaJanela = 0;
+        }
+    }
+}
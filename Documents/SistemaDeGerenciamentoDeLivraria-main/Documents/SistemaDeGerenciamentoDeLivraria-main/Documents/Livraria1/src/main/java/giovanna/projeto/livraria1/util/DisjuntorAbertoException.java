@@ -0,0 +1,33 @@
+package giovanna.projeto.livraria1.util;
+
+import java.io.IOException;
+
+/**
+ * Indica que uma chamada foi recusada de imediato pelo {@link Disjuntor},
+ * porque o serviço externo está instável.
+ *
+ * @author Giovanna
+ */
+public class DisjuntorAbertoException extends IOException {
+
+    private final long esperaMs;
+
+    /**
+     * Cria a exceção.
+     *
+     * @param mensagem Mensagem a exibir.
+     * @param esperaMs Tempo estimado até a próxima tentativa ser permitida.
+     */
+    public DisjuntorAbertoException(String mensagem, long esperaMs) {
+        super(mensagem);
+        this.esperaMs = esperaMs;
+    }
+
+    /**
+     * @return Tempo estimado, em milissegundos, até a próxima tentativa ser
+     * permitida.
+     */
+    public long getEsperaMs() {
+        return esperaMs;
+    }
+}
@@ -0,0 +1,73 @@
+package giovanna.projeto.livraria1.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import java.sql.SQLException;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+
+/**
+ * Fonte de dados dos relatórios Jasper que lê os livros de uma
+ * {@link SequenciaLivros} (um cursor do banco, por exemplo) à medida que o
+ * relatório é preenchido, sem carregar o resultado inteiro em memória.
+ *
+ * <p>
+ * Campos disponíveis: {@code titulo}, {@code autor}, {@code genero_nome},
+ * {@code isbn}, {@code editora} e {@code data_publicacao} (como
+ * {@link java.util.Date}).
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class FonteDadosLivros implements JRDataSource {
+
+    private final SequenciaLivros livros;
+    private Livro atual;
+
+    /**
+     * Cria a fonte de dados. A sequência continua sendo de quem a abriu, que
+     * deve fechá-la depois do preenchimento.
+     *
+     * @param livros Livros do relatório, na ordem de impressão.
+     */
+    public FonteDadosLivros(SequenciaLivros livros) {
+        this.livros = livros;
+    }
+
+    @Override
+    public boolean next() throws JRException {
+        try {
+            atual = livros.proximo();
+        } catch (SQLException e) {
+            throw new JRException("Erro ao ler os livros do relatório.", e);
+        }
+        return atual != null;
+    }
+
+    @Override
+    public Object getFieldValue(JRField campo) throws JRException {
+        return switch (campo.getName()) {
+            case "titulo" ->
+                atual.getTitulo();
+            case "autor" ->
+                atual.getAutor();
+            case "genero_nome" ->
+                atual.getGeneroNome();
+            case "isbn" ->
+                atual.getIsbn();
+            case "editora" ->
+                atual.getEditora();
+            case "data_publicacao" ->
+                atual.getData_publicacao() != null ? java.sql.Date.valueOf(atual.getData_publicacao()) : null;
+            default ->
+                throw new JRException("Campo desconhecido no relatório de livros: " + campo.getName());
+        };
+    }
+
+    /**
+     * @return Quantidade de livros lidos até agora.
+     */
+    public long getQuantidade() {
+        return livros.getQuantidade();
+    }
+}
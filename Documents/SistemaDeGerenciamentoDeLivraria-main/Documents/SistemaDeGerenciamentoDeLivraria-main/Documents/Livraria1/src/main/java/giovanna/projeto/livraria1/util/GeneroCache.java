@@ -0,0 +1,202 @@
+package giovanna.projeto.livraria1.util;
+
+import giovanna.projeto.livraria1.dao.GeneroDAO;
+import giovanna.projeto.livraria1.model.Genero;
+import java.sql.SQLException;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache em memória, compartilhado por toda a aplicação, do dicionário de
+ * gêneros (id ↔ nome).
+ *
+ * <p>
+ * Os gêneros são carregados do banco uma única vez, no primeiro acesso, e
+ * mantidos num instantâneo imutável. As leituras não usam trava: apenas leem a
+ * referência do instantâneo atual. As gravações feitas pelo {@link GeneroDAO}
+ * ({@code salvaGenero}, {@code atualizaGenero} e {@code excluiGenero})
+ * atualizam o cache criando um novo instantâneo.
+ * </p>
+ * <p>
+ * Se um gênero não estiver no cache (por exemplo, cadastrado por outra
+ * instância da aplicação), ele é buscado no banco e acrescentado.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public final class GeneroCache {
+
+    private static final Logger LOGGER = Logger.getLogger(GeneroCache.class.getName());
+
+    // Mesma ordenação da listagem do banco (ORDER BY nome), em português
+    private static final Collator COLLATOR = Collator.getInstance(new Locale("pt", "BR"));
+
+    private static final GeneroDAO GENERO_DAO = new GeneroDAO();
+
+    // Instantâneo atual (null enquanto não carregado)
+    private static volatile Instantaneo instantaneo;
+
+    private GeneroCache() {
+    }
+
+    /**
+     * Dicionário imutável de gêneros.
+     */
+    private static final class Instantaneo {
+
+        private final Map<Integer, String> nomePorId; // Ordenado pelo nome
+        private final Map<String, Integer> idPorNome;
+
+        private Instantaneo(Map<Integer, String> nomes) {
+            List<Map.Entry<Integer, String>> entradas = new ArrayList<>(nomes.entrySet());
+            entradas.sort((a, b) -> COLLATOR.compare(a.getValue(), b.getValue()));
+
+            Map<Integer, String> porId = new LinkedHashMap<>();
+            Map<String, Integer> porNome = new HashMap<>();
+            for (Map.Entry<Integer, String> entrada : entradas) {
+                porId.put(entrada.getKey(), entrada.getValue());
+                porNome.put(entrada.getValue(), entrada.getKey());
+            }
+            this.nomePorId = Collections.unmodifiableMap(porId);
+            this.idPorNome = Collections.unmodifiableMap(porNome);
+        }
+    }
+
+    /**
+     * Lista os gêneros, ordenados pelo nome.
+     *
+     * @return Nova lista com os gêneros (pode ser alterada por quem chamou).
+     * @throws SQLException Se ocorrer um erro ao carregar os gêneros.
+     */
+    public static List<Genero> listar() throws SQLException {
+        Map<Integer, String> nomes = obter().nomePorId;
+        List<Genero> generos = new ArrayList<>(nomes.size());
+        for (Map.Entry<Integer, String> entrada : nomes.entrySet()) {
+            generos.add(new Genero(entrada.getKey(), entrada.getValue()));
+        }
+        return generos;
+    }
+
+    /**
+     * Obtém o nome de um gênero.
+     *
+     * @param id ID do gênero.
+     * @return Nome do gênero, ou null se não existir.
+     * @throws SQLException Se ocorrer um erro ao consultar o banco.
+     */
+    public static String nomePorId(int id) throws SQLException {
+        String nome = obter().nomePorId.get(id);
+        if (nome == null) {
+            // Pode ter sido cadastrado por outra instância da aplicação
+            nome = GENERO_DAO.buscarNomeGeneroPorId(id);
+            if (nome != null) {
+                registrar(new Genero(id, nome));
+            }
+        }
+        return nome;
+    }
+
+    /**
+     * Obtém o ID de um gênero pelo nome exato.
+     *
+     * @param nome Nome do gênero.
+     * @return ID do gênero.
+     * @throws SQLException Se o gênero não existir ou ocorrer um erro ao
+     * consultar o banco.
+     */
+    public static int idPorNome(String nome) throws SQLException {
+        Integer id = obter().idPorNome.get(nome);
+        if (id == null) {
+            // Lança SQLException se o gênero não existir
+            id = GENERO_DAO.buscarIdGeneroPorNome(nome);
+            registrar(new Genero(id, nome));
+        }
+        return id;
+    }
+
+    /**
+     * Obtém um gênero pelo nome exato.
+     *
+     * @param nome Nome do gênero.
+     * @return Gênero encontrado, ou null se não existir.
+     * @throws SQLException Se ocorrer um erro ao consultar o banco.
+     */
+    public static Genero buscarPorNome(String nome) throws SQLException {
+        Integer id = obter().idPorNome.get(nome);
+        if (id != null) {
+            return new Genero(id, nome);
+        }
+        Genero genero = GENERO_DAO.buscarGeneroPorNome(nome);
+        if (genero != null) {
+            registrar(genero);
+        }
+        return genero;
+    }
+
+    /**
+     * Inclui ou atualiza um gênero no cache.
+     *
+     * @param genero Gênero salvo no banco (com ID).
+     */
+    public static synchronized void registrar(Genero genero) {
+        if (instantaneo == null) {
+            return; // Ainda não carregado: o gênero virá na carga
+        }
+        Map<Integer, String> nomes = new HashMap<>(instantaneo.nomePorId);
+        nomes.put(genero.getId(), genero.getNome());
+        instantaneo = new Instantaneo(nomes);
+    }
+
+    /**
+     * Remove um gênero do cache.
+     *
+     * @param id ID do gênero excluído.
+     */
+    public static synchronized void remover(int id) {
+        if (instantaneo == null || !instantaneo.nomePorId.containsKey(id)) {
+            return;
+        }
+        Map<Integer, String> nomes = new HashMap<>(instantaneo.nomePorId);
+        nomes.remove(id);
+        instantaneo = new Instantaneo(nomes);
+    }
+
+    /**
+     * Descarta o cache; o próximo acesso recarrega os gêneros do banco.
+     */
+    public static synchronized void invalidar() {
+        instantaneo = null;
+    }
+
+    /**
+     * Obtém o instantâneo atual, carregando-o do banco no primeiro acesso.
+     *
+     * @return Instantâneo atual.
+     * @throws SQLException Se ocorrer um erro ao carregar os gêneros.
+     */
+    private static Instantaneo obter() throws SQLException {
+        Instantaneo atual = instantaneo;
+        if (atual != null) {
+            return atual;
+        }
+        synchronized (GeneroCache.class) {
+            if (instantaneo == null) {
+                Map<Integer, String> nomes = new HashMap<>();
+                for (Genero genero : GENERO_DAO.listaGeneros()) {
+                    nomes.put(genero.getId(), genero.getNome());
+                }
+                instantaneo = new Instantaneo(nomes);
+                LOGGER.log(Level.INFO, "Cache de gêneros carregado: {0} gêneros.", nomes.size());
+            }
+            return instantaneo;
+        }
+    }
+}
@@ -1,28 +1,74 @@
 package giovanna.projeto.livraria1.util;
 
-import giovanna.projeto.livraria1.model.Livro;
-import giovanna.projeto.livraria1.services.LivroService;
+import giovanna.projeto.livraria1.dao.LivroSimilaresDAO;
 import giovanna.projeto.livraria1.services.LivroSimilaresService;
+import giovanna.projeto.livraria1.services.ManutencaoSimilares;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JOptionPane;
 
 /**
  * Classe responsável por gerenciar o cálculo de similaridades entre livros no
- * banco de dados. A classe realiza a comparação de livros dentro do mesmo
- * gênero e adiciona as relações de similaridade.
+ * banco de dados. Cada livro é relacionado aos
+ * {@value MotorSimilaridade#VIZINHOS_PADRAO} livros mais semelhantes a ele,
+ * com a pontuação calculada pelo {@link MotorSimilaridade} (autor, gênero,
+ * título, editora e década de publicação).
  *
  * <p>
- * O cálculo de similaridade envolve a busca de livros do mesmo gênero e a
- * verificação se já existe uma relação de similaridade entre os livros. Se não
- * existir, a similaridade é adicionada para ambos os livros.
+ * O recálculo carrega os dados de todos os livros em memória, exclui as
+ * similaridades calculadas anteriormente (as incluídas manualmente, sem
+ * pontuação, são mantidas) e grava os vizinhos de cada livro em lotes de
+ * {@value #TAMANHO_LOTE} linhas. A tabela fica com no máximo
+ * {@value MotorSimilaridade#VIZINHOS_PADRAO} similaridades calculadas por
+ * livro, em vez de todos os pares de livros de cada gênero.
  * </p>
  * <p>
- * Esta classe utiliza o {@link LivroService} para buscar livros e o
- * {@link LivroSimilaresService} para gerenciar as relações de similaridade.
+ * Todas as instruções são executadas na mesma conexão e na mesma transação:
+ * ou o recálculo é concluído por completo, ou nada é gravado. Depois da
+ * gravação, o grafo de similaridades usado pelas telas é recarregado
+ * ({@link LivroSimilaresService#recarregarGrafo()}).
+ * </p>
+ * <p>
+ * Para catálogos grandes há o recálculo paralelo
+ * ({@link #calcularSimilaridadesEmParalelo(ProgressoListener, int)}, também
+ * executável em lote por {@link #main(String[])}): os livros são divididos
+ * por gênero, e os gêneros com mais de {@value #TAMANHO_PARTICAO} livros em
+ * partes desse tamanho. As partições são calculadas num
+ * {@link ForkJoinPool}; cada thread grava as suas por uma conexão própria do
+ * pool, com {@code COPY}, numa tabela de recálculo, e só no fim as
+ * similaridades calculadas são substituídas, numa única transação. Os livros
+ * incluídos ou alterados durante o cálculo, cujas similaridades a manutenção
+ * incremental já tinha gravado, são recalculados nessa mesma transação
+ * ({@link ManutencaoSimilares#aplicar}). Como o
+ * {@link MotorSimilaridade} não muda depois de preparado, o resultado é o
+ * mesmo do recálculo sequencial.
+ * </p>
+ * <p>
+ * Os dois recálculos usam a mesma trava consultiva do banco, e só um é
+ * executado por vez, mesmo em computadores diferentes. O recálculo paralelo
+ * pode ser cancelado e registra cada gênero gravado, para que um recálculo
+ * interrompido seja retomado de onde parou (o agendamento fica em
+ * {@link giovanna.projeto.livraria1.services.AgendadorSimilares}).
  * </p>
  *
  * @author Giovanna
@@ -31,79 +77,697 @@ public class GerenciadorSimilares {
 
     private static final Logger LOGGER = Logger.getLogger(GerenciadorSimilares.class.getName());
 
+    /**
+     * Linhas de similaridade gravadas por lote.
+     */
+    private static final int TAMANHO_LOTE = 10_000;
+
+    /**
+     * Livros por partição no recálculo paralelo: gêneros maiores são
+     * divididos em partes deste tamanho.
+     */
+    private static final int TAMANHO_PARTICAO = 10_000;
+
+    /**
+     * Partições mais demoradas citadas no resumo do recálculo paralelo.
+     */
+    private static final int PARTICOES_NO_RESUMO = 5;
+
+    /**
+     * Livros de um gênero (ou de uma parte dele) calculados por uma mesma
+     * tarefa do recálculo paralelo, com os tempos medidos no cálculo.
+     */
+    public static final class Particao {
+
+        private final int genero;
+        private final int parte;
+        private final int partes;
+        private final int[] livros;
+        private long linhas;
+        private long calculoNanos;
+        private long gravacaoNanos;
+
+        private Particao(int genero, int parte, int partes, int[] livros) {
+            this.genero = genero;
+            this.parte = parte;
+            this.partes = partes;
+            this.livros = livros;
+        }
+
+        /**
+         * @return Identificador do gênero (0 para os livros sem gênero).
+         */
+        public int getGenero() {
+            return genero;
+        }
+
+        /**
+         * @return Número da parte do gênero, a partir de 1.
+         */
+        public int getParte() {
+            return parte;
+        }
+
+        /**
+         * @return Quantidade de partes em que o gênero foi dividido.
+         */
+        public int getPartes() {
+            return partes;
+        }
+
+        /**
+         * @return Índices dos livros no {@link MotorSimilaridade}.
+         */
+        public int[] getLivros() {
+            return livros;
+        }
+
+        /**
+         * @return Similaridades gravadas pela partição.
+         */
+        public long getLinhas() {
+            return linhas;
+        }
+
+        /**
+         * @return Tempo de cálculo dos vizinhos, em milissegundos.
+         */
+        public long getCalculoMs() {
+            return calculoNanos / 1_000_000;
+        }
+
+        /**
+         * @return Tempo de gravação pelo {@code COPY}, em milissegundos.
+         */
+        public long getGravacaoMs() {
+            return gravacaoNanos / 1_000_000;
+        }
+
+        private long getTotalNanos() {
+            return calculoNanos + gravacaoNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "gênero " + genero + " (parte " + parte + " de " + partes + "): " + livros.length + " livros, "
+                    + linhas + " similaridades, cálculo " + getCalculoMs() + " ms, gravação " + getGravacaoMs() + " ms";
+        }
+    }
+
     /**
      * Calcula as similaridades para todos os livros cadastrados no sistema.
-     * Este método percorre todos os livros e, para cada um, busca outros livros
-     * do mesmo gênero. Se não houver uma relação de similaridade entre os
-     * livros, ela é criada.
      *
-     * <p>
-     * Este método agora usa o novo método `buscarLivrosPorGeneros` para buscar
-     * livros do mesmo gênero e gerenciar a similaridade entre eles.
-     * </p>
+     * @return Quantidade de relações de similaridade criadas.
+     * @throws Exception Se ocorrer um erro durante o processo de cálculo das
+     * similaridades.
+     */
+    public static int calcularSimilaridadesParaLivrosExistentes() throws Exception {
+        return calcularSimilaridadesParaLivrosExistentes(null);
+    }
+
+    /**
+     * Calcula as similaridades para todos os livros cadastrados no sistema,
+     * informando o andamento a cada 1% dos livros processados.
      *
+     * @param progresso Ouvinte do progresso (pode ser nulo).
+     * @return Quantidade de relações de similaridade criadas.
+     * @throws RecalculoEmAndamentoException Se outro recálculo estiver em
+     * andamento.
      * @throws Exception Se ocorrer um erro durante o processo de cálculo das
      * similaridades.
      */
-    public static void calcularSimilaridadesParaLivrosExistentes() throws Exception {
-        // Instancia os serviços necessários
-        LivroService livroService = new LivroService();
-        LivroSimilaresService similaresService = new LivroSimilaresService();
+    public static int calcularSimilaridadesParaLivrosExistentes(ProgressoListener progresso) throws Exception {
+        LivroSimilaresDAO similaresDAO = new LivroSimilaresDAO();
 
-        try (Connection connection = ConnectionFactory.getConnection()) { // Conexão para a transação principal
+        try (Connection connection = ConnectionFactory.getConnection()) { // Conexão da transação do recálculo
             connection.setAutoCommit(false); // Desabilita autocommit para controle transacional
 
             try {
-                // Obtém a lista de todos os livros cadastrados
-                List<Livro> todosOsLivros = livroService.listarLivros();
-
-                // Verifica se há livros cadastrados para processar
-                if (todosOsLivros != null) {
-                    // Para cada livro, busca outros livros do mesmo gênero
-                    for (Livro livro : todosOsLivros) {
-                        // A busca agora utiliza o novo método que retorna livros do mesmo gênero, excluindo o próprio livro
-                        List<Livro> livrosDoMesmoGenero = livroService.buscarLivrosPorGeneros(livro.getGenero_id(), livro.getEtiqueta_livro());
-
-                        if (livrosDoMesmoGenero != null) {
-                            // Verifica e adiciona as relações de similaridade entre os livros
-                            for (Livro livroSimilar : livrosDoMesmoGenero) {
-                                try (Connection innerConnection = ConnectionFactory.getConnection()) { // Conexão interna no loop
-                                    // Verifica se já existe a similaridade, caso contrário, cria a relação
-                                    if (!similaresService.similaridadeExiste(livro.getEtiqueta_livro(), livroSimilar.getEtiqueta_livro())) {
-                                        similaresService.adicionarLivroSimilar(livro.getEtiqueta_livro(), livroSimilar.getEtiqueta_livro());
-                                        similaresService.adicionarLivroSimilar(livroSimilar.getEtiqueta_livro(), livro.getEtiqueta_livro());
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } else {
+                // Trava até o fim da transação: nenhum outro recálculo grava ao mesmo tempo
+                if (!similaresDAO.travarRecalculoNaTransacao(connection)) {
+                    JOptionPane.showMessageDialog(null, "Outro recálculo de similaridades está em andamento. Tente novamente mais tarde.", "Aviso", JOptionPane.INFORMATION_MESSAGE);
+                    throw new RecalculoEmAndamentoException("Outro recálculo de similaridades está em andamento.");
+                }
+                MotorSimilaridade motor = new MotorSimilaridade();
+                similaresDAO.carregarCatalogo(connection, motor);
+
+                if (motor.getQuantidade() == 0) {
                     // Exibe uma mensagem caso não existam livros cadastrados
                     JOptionPane.showMessageDialog(null, "Não há livros cadastrados para calcular similaridades.", "Aviso", JOptionPane.INFORMATION_MESSAGE);
+                    return 0;
                 }
+                motor.preparar();
+
+                int excluidas = similaresDAO.excluirSimilaresCalculados(connection);
+                int total = motor.getQuantidade();
+                int passo = Math.max(1, total / 100);
+                LivroSimilaresDAO.LoteSimilares lote = new LivroSimilaresDAO.LoteSimilares(TAMANHO_LOTE);
+                MotorSimilaridade.Calculo calculo = motor.novoCalculo();
+                int inseridas = 0;
+                for (int i = 0; i < total; i++) {
+                    int vizinhos = calculo.vizinhos(i, MotorSimilaridade.VIZINHOS_PADRAO);
+                    for (int v = 0; v < vizinhos; v++) {
+                        lote.adicionar(motor.getEtiqueta(i), motor.getEtiqueta(calculo.getIndice(v)), calculo.getPontuacao(v));
+                    }
+                    if (lote.getQuantidade() >= TAMANHO_LOTE) {
+                        inseridas += similaresDAO.inserirSimilares(connection, lote);
+                        lote.limpar();
+                    }
+                    if (progresso != null && ((i + 1) % passo == 0 || i + 1 == total)) {
+                        progresso.progresso(i + 1, total, (i + 1) + " de " + total + " livros processados");
+                    }
+                }
+                inseridas += similaresDAO.inserirSimilares(connection, lote);
 
                 // Commit da transação após concluir o processamento
                 connection.commit();
-                System.out.println("Similaridades recalculadas com sucesso!");
+                LOGGER.log(Level.INFO, "Similaridades recalculadas com sucesso: {0} relações criadas ({1} excluídas) para {2} livros.",
+                        new Object[]{inseridas, excluidas, total});
+                try {
+                    LivroSimilaresService.recarregarGrafo();
+                } catch (SQLException ex) {
+                    // O recálculo já foi gravado; o grafo é recarregado no próximo acesso
+                    LOGGER.log(Level.WARNING, "Erro ao recarregar o grafo de similaridades", ex);
+                }
+                return inseridas;
 
             } catch (SQLException ex) {
                 // Caso ocorra erro, faz rollback da transação
                 connection.rollback();
                 LOGGER.log(Level.SEVERE, "Erro durante o recálculo de similaridades (rollback efetuado)", ex);
                 JOptionPane.showMessageDialog(null, "Erro ao calcular similaridades: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-                throw new Exception("Erro ao calcular similaridades (transação revertida): " + ex.getMessage());
+                throw new Exception("Erro ao calcular similaridades (transação revertida): " + ex.getMessage(), ex);
             }
         } catch (SQLException ex) {
             // Tratamento de erro ao obter a conexão
             LOGGER.log(Level.SEVERE, "Erro ao obter conexão para a transação principal", ex);
             JOptionPane.showMessageDialog(null, "Erro ao obter a conexão com o banco de dados: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-            throw new Exception("Erro ao obter a conexão com o banco de dados: " + ex.getMessage());
+            throw new Exception("Erro ao obter a conexão com o banco de dados: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Divide os livros do motor em partições por gênero, das maiores para as
+     * menores (para que as mais demoradas comecem primeiro). Os gêneros com
+     * mais de {@code tamanhoParticao} livros são divididos em partes
+     * aproximadamente iguais.
+     *
+     * @param motor Motor com os livros carregados.
+     * @param tamanhoParticao Quantidade máxima de livros por partição.
+     * @return As partições.
+     */
+    public static List<Particao> particionar(MotorSimilaridade motor, int tamanhoParticao) {
+        int quantidade = motor.getQuantidade();
+        // Gênero na metade alta e índice na baixa: ordenar agrupa por gênero mantendo a ordem dos livros
+        long[] chaves = new long[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            chaves[i] = ((long) motor.getGenero(i) << 32) | i;
+        }
+        Arrays.sort(chaves);
+
+        List<Particao> particoes = new ArrayList<>();
+        int inicio = 0;
+        while (inicio < quantidade) {
+            int genero = (int) (chaves[inicio] >>> 32);
+            int fim = inicio;
+            while (fim < quantidade && (int) (chaves[fim] >>> 32) == genero) {
+                fim++;
+            }
+            int livros = fim - inicio;
+            int partes = (livros + tamanhoParticao - 1) / tamanhoParticao;
+            for (int parte = 0; parte < partes; parte++) {
+                int de = inicio + (int) ((long) livros * parte / partes);
+                int ate = inicio + (int) ((long) livros * (parte + 1) / partes);
+                int[] indices = new int[ate - de];
+                for (int i = de; i < ate; i++) {
+                    indices[i - de] = (int) chaves[i];
+                }
+                particoes.add(new Particao(genero, parte + 1, partes, indices));
+            }
+            inicio = fim;
+        }
+        particoes.sort(Comparator.comparingInt((Particao particao) -> particao.livros.length).reversed());
+        return particoes;
+    }
+
+    /**
+     * Paralelismo padrão do recálculo paralelo: a quantidade de processadores,
+     * limitada às conexões do pool (deixando uma para a conexão principal do
+     * recálculo e uma para o restante do sistema).
+     *
+     * @return Quantidade de threads.
+     */
+    public static int paralelismoPadrao() {
+        int paralelismo = Runtime.getRuntime().availableProcessors();
+        ConnectionPool.Metricas metricas = ConnectionFactory.getMetricasPool();
+        if (metricas != null) {
+            paralelismo = Math.min(paralelismo, metricas.getMaximo() - 2);
+        }
+        return Math.max(1, paralelismo);
+    }
+
+    /**
+     * Recalcula as similaridades de todos os livros em paralelo, com o
+     * paralelismo padrão ({@link #paralelismoPadrao()}).
+     *
+     * @param progresso Ouvinte do progresso (pode ser nulo).
+     * @return Quantidade de relações de similaridade criadas.
+     * @throws RecalculoEmAndamentoException Se outro recálculo estiver em
+     * andamento.
+     * @throws Exception Se ocorrer um erro durante o recálculo (nada é
+     * alterado nas similaridades).
+     */
+    public static int calcularSimilaridadesEmParalelo(ProgressoListener progresso) throws Exception {
+        return calcularSimilaridadesEmParalelo(progresso, 0, null);
+    }
+
+    /**
+     * Recalcula as similaridades de todos os livros em paralelo, sem
+     * possibilidade de cancelamento.
+     *
+     * @param progresso Ouvinte do progresso (pode ser nulo).
+     * @param paralelismo Quantidade de threads (0 para o padrão).
+     * @return Quantidade de relações de similaridade criadas.
+     * @throws RecalculoEmAndamentoException Se outro recálculo estiver em
+     * andamento.
+     * @throws Exception Se ocorrer um erro durante o recálculo (nada é
+     * alterado nas similaridades).
+     * @see #calcularSimilaridadesEmParalelo(ProgressoListener, int,
+     * BooleanSupplier)
+     */
+    public static int calcularSimilaridadesEmParalelo(ProgressoListener progresso, int paralelismo) throws Exception {
+        return calcularSimilaridadesEmParalelo(progresso, paralelismo, null);
+    }
+
+    /**
+     * Recalcula as similaridades de todos os livros em paralelo, dividindo-os
+     * em partições por gênero ({@link #particionar(MotorSimilaridade, int)}).
+     * O andamento é informado ao fim de cada partição, pela thread que a
+     * calculou; o tempo de cada partição é registrado no log (nível
+     * {@code FINE}), com um resumo ao final. Não exibe mensagens na tela, para
+     * poder ser executado em lote.
+     *
+     * <p>
+     * O recálculo fica com a trava consultiva do banco
+     * ({@link LivroSimilaresDAO#travarRecalculo(Connection)}) do início ao
+     * fim, de forma que só um recálculo é executado por vez, mesmo em
+     * computadores diferentes. Cada gênero gravado por completo é registrado
+     * como ponto de retomada: se o recálculo for cancelado, falhar ou o
+     * programa for fechado, a próxima execução aproveita os gêneros já
+     * gravados, desde que o catálogo não tenha mudado (mesma
+     * {@link LivroSimilaresDAO.AssinaturaCatalogo}); caso contrário, começa do
+     * zero.
+     * </p>
+     * <p>
+     * As tabelas do recálculo são criadas pelo {@code ScriptCriacaoTabelas.sql}
+     * ou, em bases antigas, pelo {@code ScriptMigracaoRecalculo.sql}.
+     * </p>
+     *
+     * @param progresso Ouvinte do progresso (pode ser nulo; é chamado por
+     * várias threads).
+     * @param paralelismo Quantidade de threads (0 para o padrão).
+     * @param cancelamento Consultado antes de cada partição; quando devolve
+     * true, as partições restantes não são calculadas (pode ser nulo).
+     * @return Quantidade de relações de similaridade criadas.
+     * @throws RecalculoEmAndamentoException Se outro recálculo estiver em
+     * andamento.
+     * @throws CancellationException Se o recálculo for cancelado (nada é
+     * alterado nas similaridades).
+     * @throws Exception Se ocorrer um erro durante o recálculo (nada é
+     * alterado nas similaridades).
+     */
+    public static int calcularSimilaridadesEmParalelo(ProgressoListener progresso, int paralelismo,
+            BooleanSupplier cancelamento) throws Exception {
+        LivroSimilaresDAO similaresDAO = new LivroSimilaresDAO();
+        // Conexão principal: fica com a trava durante todo o recálculo e faz a substituição no fim
+        try (Connection connection = ConnectionFactory.getConnection()) {
+            if (!similaresDAO.travarRecalculo(connection)) {
+                throw new RecalculoEmAndamentoException("Outro recálculo de similaridades está em andamento.");
+            }
+            try {
+                return recalcularEmParalelo(connection, similaresDAO, progresso, paralelismo, cancelamento);
+            } finally {
+                try {
+                    similaresDAO.descartarFotografia(connection);
+                } catch (SQLException ex) {
+                    LOGGER.log(Level.WARNING, "Erro ao excluir a tabela temporária do recálculo de similaridades", ex);
+                }
+                try {
+                    similaresDAO.liberarRecalculo(connection);
+                } catch (SQLException ex) {
+                    LOGGER.log(Level.SEVERE, "Erro ao liberar a trava do recálculo de similaridades", ex);
+                    descartarConexao(connection);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new Exception("Erro ao iniciar o recálculo de similaridades: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Encerra a conexão em vez de devolvê-la ao pool. Usado quando a trava do
+     * recálculo não pôde ser liberada: a trava pertence à sessão, e uma
+     * conexão devolvida com ela faria todos os recálculos seguintes serem
+     * recusados. Encerrar a sessão libera a trava no banco.
+     */
+    private static void descartarConexao(Connection connection) {
+        try {
+            connection.abort(Runnable::run);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Erro ao encerrar a conexão com a trava do recálculo", ex);
+        }
+    }
+
+    /**
+     * Executa o recálculo paralelo, já com a trava obtida pela conexão
+     * principal.
+     */
+    private static int recalcularEmParalelo(Connection connection, LivroSimilaresDAO similaresDAO, ProgressoListener progresso,
+            int paralelismo, BooleanSupplier cancelamento) throws Exception {
+        long inicio = System.nanoTime();
+        MotorSimilaridade motor = new MotorSimilaridade();
+        long recalculo;
+        Set<Integer> generosConcluidos;
+        try {
+            // Livros e assinatura lidos na mesma fotografia do banco
+            LivroSimilaresDAO.AssinaturaCatalogo assinatura;
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                similaresDAO.carregarCatalogo(connection, motor);
+                assinatura = similaresDAO.lerAssinaturaCatalogo(connection);
+                similaresDAO.registrarFotografia(connection);
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                connection.setAutoCommit(true);
+            }
+            if (motor.getQuantidade() == 0) {
+                LOGGER.info("Não há livros cadastrados para calcular similaridades.");
+                return 0;
+            }
+
+            Long pendente = similaresDAO.buscarRecalculoPendente(connection, assinatura);
+            if (pendente != null) {
+                recalculo = pendente;
+                generosConcluidos = similaresDAO.buscarGenerosConcluidos(connection, recalculo);
+                int descartadas = similaresDAO.descartarGenerosPendentes(connection, recalculo);
+                LOGGER.log(Level.INFO, "Retomando o recálculo de similaridades {0} ({1}): {2} gênero(s) já concluído(s), "
+                        + "{3} linha(s) de gêneros incompletos descartada(s).",
+                        new Object[]{Long.toString(recalculo), assinatura, generosConcluidos.size(), descartadas});
+            } else {
+                recalculo = ThreadLocalRandom.current().nextLong();
+                generosConcluidos = Set.of();
+                similaresDAO.iniciarRecalculo(connection, recalculo, assinatura);
+            }
+            similaresDAO.descartarOutrosRecalculos(connection, recalculo);
+        } catch (SQLException ex) {
+            throw new Exception("Erro ao carregar os livros para o recálculo de similaridades: " + ex.getMessage(), ex);
+        }
+        motor.preparar();
+        long carga = System.nanoTime() - inicio;
+
+        int jaConcluidos = 0;
+        List<Particao> particoes = new ArrayList<>();
+        for (Particao particao : particionar(motor, TAMANHO_PARTICAO)) {
+            if (generosConcluidos.contains(particao.genero)) {
+                jaConcluidos += particao.livros.length;
+            } else {
+                particoes.add(particao);
+            }
+        }
+        int threads = paralelismo > 0 ? paralelismo : paralelismoPadrao();
+        Execucao execucao = new Execucao(motor, particoes, recalculo, similaresDAO, progresso, cancelamento, jaConcluidos);
+
+        long inicioCalculo = System.nanoTime();
+        ForkJoinPool forkJoin = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("recalculo-similares-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        try {
+            forkJoin.invoke(new TarefaParticoes(execucao, 0, particoes.size()));
         } finally {
+            forkJoin.shutdown();
+            execucao.encerrar();
+        }
+        long calculo = System.nanoTime() - inicioCalculo;
+
+        Exception falha = execucao.falha.get();
+        if (falha != null) {
+            LOGGER.log(Level.SEVERE, "Erro durante o recálculo paralelo de similaridades", falha);
+            throw new Exception("Erro ao calcular similaridades (nada foi alterado; os gêneros concluídos serão "
+                    + "aproveitados na próxima execução): " + falha.getMessage(), falha);
+        }
+        if (execucao.cancelado()) {
+            LOGGER.log(Level.INFO, "Recálculo de similaridades {0} cancelado com {1} de {2} livros processados.",
+                    new Object[]{Long.toString(recalculo), execucao.processados.get(), motor.getQuantidade()});
+            throw new CancellationException("Recálculo de similaridades cancelado; será retomado na próxima execução.");
+        }
+
+        long inicioMescla = System.nanoTime();
+        int excluidas;
+        int inseridas;
+        try {
+            connection.setAutoCommit(false);
+            try {
+                excluidas = similaresDAO.excluirSimilaresCalculados(connection);
+                inseridas = similaresDAO.mesclarRecalculo(connection, recalculo);
+                // A exclusão levou o que a manutenção gravou para os livros alterados durante o cálculo
+                Integer[] alterados = similaresDAO.buscarAlteradosAposFotografia(connection);
+                if (alterados.length > 0) {
+                    LOGGER.log(Level.INFO, "{0} livro(s) alterado(s) durante o recálculo de similaridades; recalculando-os.",
+                            alterados.length);
+                    ManutencaoSimilares.aplicar(connection, alterados, new HashSet<>());
+                }
+                similaresDAO.concluirRecalculo(connection, recalculo);
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new Exception("Erro ao gravar as similaridades recalculadas (transação revertida): " + ex.getMessage(), ex);
+        }
+        long mescla = System.nanoTime() - inicioMescla;
+        try {
+            similaresDAO.descartarRecalculo(connection, recalculo);
+        } catch (SQLException ex) {
+            // Só sobram linhas provisórias, excluídas pelo próximo recálculo
+            LOGGER.log(Level.WARNING, "Erro ao descartar as linhas do recálculo " + recalculo, ex);
+        }
+
+        registrarResumo(particoes, threads, motor.getQuantidade(), inseridas, excluidas, carga, calculo, mescla);
+        try {
+            LivroSimilaresService.recarregarGrafo();
+        } catch (SQLException ex) {
+            // O recálculo já foi gravado; o grafo é recarregado no próximo acesso
+            LOGGER.log(Level.WARNING, "Erro ao recarregar o grafo de similaridades", ex);
+        }
+        return inseridas;
+    }
+
+    private static void registrarResumo(List<Particao> particoes, int threads, int livros, int inseridas, int excluidas,
+            long carga, long calculo, long mescla) {
+        long somaParticoes = 0;
+        for (Particao particao : particoes) {
+            somaParticoes += particao.getTotalNanos();
+            LOGGER.log(Level.FINE, "Similaridades: {0}", particao);
+        }
+        List<Particao> maisDemoradas = new ArrayList<>(particoes);
+        maisDemoradas.sort(Comparator.comparingLong(Particao::getTotalNanos).reversed());
+        StringBuilder resumo = new StringBuilder();
+        for (Particao particao : maisDemoradas.subList(0, Math.min(PARTICOES_NO_RESUMO, maisDemoradas.size()))) {
+            resumo.append(System.lineSeparator()).append("  ").append(particao);
+        }
+        // Soma dos tempos das partições / tempo decorrido = aproveitamento das threads
+        LOGGER.log(Level.INFO, "Similaridades recalculadas em paralelo: {0} relações criadas ({1} excluídas) para {2} livros, "
+                + "{3} partições em {4} threads. Carga {5} ms, cálculo e gravação {6} ms (soma das partições {7} ms, {8}x), "
+                + "substituição {9} ms. Partições mais demoradas:{10}",
+                new Object[]{inseridas, excluidas, livros, particoes.size(), threads, carga / 1_000_000, calculo / 1_000_000,
+                    somaParticoes / 1_000_000, String.format("%.1f", (double) somaParticoes / Math.max(calculo, 1)),
+                    mescla / 1_000_000, resumo});
+    }
+
+    /**
+     * Estado compartilhado pelas tarefas de um recálculo paralelo. Cada thread
+     * do {@link ForkJoinPool} tem o seu {@link Trabalhador}, criado na
+     * primeira partição que ela calcula.
+     */
+    private static final class Execucao {
+
+        private final MotorSimilaridade motor;
+        private final List<Particao> particoes;
+        private final long recalculo;
+        private final LivroSimilaresDAO similaresDAO;
+        private final ProgressoListener progresso;
+        private final BooleanSupplier cancelamento;
+        private final Map<Thread, Trabalhador> trabalhadores = new ConcurrentHashMap<>();
+        private final AtomicReference<Exception> falha = new AtomicReference<>();
+        private final AtomicInteger processados;
+        // Partes ainda não gravadas e linhas gravadas de cada gênero
+        private final Map<Integer, AtomicInteger> partesRestantes = new HashMap<>();
+        private final Map<Integer, AtomicLong> linhasPorGenero = new HashMap<>();
+        private volatile boolean interrompido;
+
+        private Execucao(MotorSimilaridade motor, List<Particao> particoes, long recalculo, LivroSimilaresDAO similaresDAO,
+                ProgressoListener progresso, BooleanSupplier cancelamento, int jaConcluidos) {
+            this.motor = motor;
+            this.particoes = particoes;
+            this.recalculo = recalculo;
+            this.similaresDAO = similaresDAO;
+            this.progresso = progresso;
+            this.cancelamento = cancelamento;
+            this.processados = new AtomicInteger(jaConcluidos);
+            for (Particao particao : particoes) {
+                partesRestantes.computeIfAbsent(particao.genero, g -> new AtomicInteger()).incrementAndGet();
+                linhasPorGenero.computeIfAbsent(particao.genero, g -> new AtomicLong());
+            }
+        }
+
+        /**
+         * @return true se o cancelamento foi pedido.
+         */
+        private boolean cancelado() {
+            if (!interrompido && cancelamento != null && cancelamento.getAsBoolean()) {
+                interrompido = true;
+            }
+            return interrompido;
+        }
+
+        /**
+         * Calcula e grava os vizinhos dos livros da partição; a última parte
+         * de um gênero registra o gênero como concluído. Depois de uma falha
+         * ou de um cancelamento, as partições restantes são ignoradas.
+         */
+        private void calcular(Particao particao) {
+            if (falha.get() != null || cancelado()) {
+                return;
+            }
             try {
-                // Bloco de finalização (se necessário, o código de limpeza pode ser adicionado aqui)
-            } catch (Throwable ex) {
-                LOGGER.log(Level.WARNING, "Erro ao finalizar o LivroService", ex);
+                Trabalhador trabalhador = trabalhadores.get(Thread.currentThread());
+                if (trabalhador == null) {
+                    // Só a própria thread inclui a sua entrada, então não há disputa
+                    trabalhador = new Trabalhador(ConnectionFactory.getConnection(), motor.novoCalculo());
+                    trabalhadores.put(Thread.currentThread(), trabalhador);
+                }
+                LivroSimilaresDAO.LoteSimilares lote = trabalhador.lote;
+                lote.limpar();
+
+                long inicio = System.nanoTime();
+                for (int indice : particao.livros) {
+                    int vizinhos = trabalhador.calculo.vizinhos(indice, MotorSimilaridade.VIZINHOS_PADRAO);
+                    for (int v = 0; v < vizinhos; v++) {
+                        lote.adicionar(motor.getEtiqueta(indice), motor.getEtiqueta(trabalhador.calculo.getIndice(v)),
+                                trabalhador.calculo.getPontuacao(v));
+                    }
+                }
+                particao.calculoNanos = System.nanoTime() - inicio;
+
+                inicio = System.nanoTime();
+                particao.linhas = similaresDAO.copiarParaRecalculo(trabalhador.connection, recalculo, particao.genero, lote);
+                particao.gravacaoNanos = System.nanoTime() - inicio;
+
+                linhasPorGenero.get(particao.genero).addAndGet(particao.linhas);
+                if (partesRestantes.get(particao.genero).decrementAndGet() == 0) {
+                    // As linhas das outras partes foram somadas antes de elas decrementarem
+                    similaresDAO.registrarGeneroConcluido(trabalhador.connection, recalculo, particao.genero,
+                            linhasPorGenero.get(particao.genero).get());
+                }
+
+                int concluidos = processados.addAndGet(particao.livros.length);
+                if (progresso != null) {
+                    progresso.progresso(concluidos, motor.getQuantidade(), concluidos + " de " + motor.getQuantidade()
+                            + " livros processados (" + particao + ")");
+                }
+            } catch (SQLException | RuntimeException ex) {
+                falha.compareAndSet(null, ex);
+            }
+        }
+
+        /**
+         * Devolve as conexões dos trabalhadores ao pool.
+         */
+        private void encerrar() {
+            for (Trabalhador trabalhador : trabalhadores.values()) {
+                try {
+                    trabalhador.connection.close();
+                } catch (SQLException ex) {
+                    LOGGER.log(Level.WARNING, "Erro ao devolver a conexão do recálculo", ex);
+                }
             }
+            trabalhadores.clear();
+        }
+    }
+
+    /**
+     * Conexão e estruturas de cálculo de uma thread do recálculo paralelo,
+     * reaproveitadas entre as partições que ela calcula.
+     */
+    private static final class Trabalhador {
+
+        private final Connection connection;
+        private final MotorSimilaridade.Calculo calculo;
+        private final LivroSimilaresDAO.LoteSimilares lote
+                = new LivroSimilaresDAO.LoteSimilares(TAMANHO_PARTICAO * MotorSimilaridade.VIZINHOS_PADRAO);
+
+        private Trabalhador(Connection connection, MotorSimilaridade.Calculo calculo) {
+            this.connection = connection;
+            this.calculo = calculo;
+        }
+    }
+
+    /**
+     * Divide o intervalo de partições ao meio até restar uma, que é calculada
+     * pela thread que a recebeu.
+     */
+    private static final class TarefaParticoes extends RecursiveAction {
+
+        private final Execucao execucao;
+        private final int de;
+        private final int ate;
+
+        private TarefaParticoes(Execucao execucao, int de, int ate) {
+            this.execucao = execucao;
+            this.de = de;
+            this.ate = ate;
+        }
+
+        @Override
+        protected void compute() {
+            if (ate - de <= 1) {
+                if (ate > de) {
+                    execucao.calcular(execucao.particoes.get(de));
+                }
+                return;
+            }
+            int meio = (de + ate) >>> 1;
+            invokeAll(new TarefaParticoes(execucao, de, meio), new TarefaParticoes(execucao, meio, ate));
+        }
+    }
+
+    /**
+     * Executa o recálculo paralelo em lote, fora da interface gráfica.
+     *
+     * @param args Opcionalmente, a quantidade de threads (o padrão é
+     * {@link #paralelismoPadrao()}).
+     * @throws Exception Se o recálculo falhar.
+     */
+    public static void main(String[] args) throws Exception {
+        int paralelismo = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        try {
+            int inseridas = calcularSimilaridadesEmParalelo(
+                    (concluido, total, mensagem) -> LOGGER.info(mensagem), paralelismo);
+            LOGGER.log(Level.INFO, "Recálculo em lote concluído: {0} similaridades.", inseridas);
+        } catch (RecalculoEmAndamentoException ex) {
+            LOGGER.warning(ex.getMessage());
+        } finally {
+            ConnectionFactory.closeSharedConnection();
         }
     }
 }
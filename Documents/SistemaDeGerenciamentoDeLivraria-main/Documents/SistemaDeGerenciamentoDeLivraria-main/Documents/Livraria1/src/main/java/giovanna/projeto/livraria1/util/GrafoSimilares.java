@@ -0,0 +1,844 @@
+package giovanna.projeto.livraria1.util;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Grafo em memória dos livros semelhantes (tabela {@code livros_semelhantes}),
+ * consultado pelas telas sem ir ao banco.
+ *
+ * <p>
+ * As ligações ficam no formato de linhas esparsas comprimidas (CSR): cada
+ * livro é uma linha, {@code inicio[linha]} e {@code inicio[linha + 1]}
+ * delimitam os seus vizinhos em {@code vizinhos}, que guarda as linhas dos
+ * livros semelhantes, e {@code pontuacoes} guarda a pontuação de cada ligação
+ * em centésimos (a precisão exibida nas telas), ou {@code MANUAL} para as
+ * incluídas manualmente. Os vizinhos de cada livro ficam ordenados como na
+ * tela: os manuais primeiro, depois da maior para a menor pontuação. A
+ * etiqueta é convertida em linha por uma tabela de espalhamento de endereçamento
+ * aberto, também em vetores de {@code int}; nada é guardado em objetos por
+ * livro ou por ligação, e com um milhão de livros e 50 milhões de ligações o
+ * grafo ocupa cerca de 270 MB.
+ * </p>
+ * <p>
+ * O grafo é montado de uma vez pelo {@link Construtor} e alterado aos poucos
+ * depois disso: uma linha alterada passa a ser guardada à parte, em vetores só
+ * dela, e o vetor único é refeito ({@link #compactar()}) quando as linhas
+ * alteradas passam de um oitavo das linhas. Um livro excluído deixa de ser
+ * devolvido nas consultas, mesmo pelos livros que ainda apontam para ele.
+ * </p>
+ * <p>
+ * As consultas podem ser feitas por várias threads ao mesmo tempo; as
+ * alterações esperam as consultas em andamento.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class GrafoSimilares {
+
+    /**
+     * Quantidade mínima de linhas alteradas para que o grafo seja compactado.
+     */
+    private static final int COMPACTAR_APOS_MINIMO = 1024;
+
+    private static final byte MANUAL = -1;
+    private static final int[] SEM_VIZINHOS = new int[0];
+    private static final byte[] SEM_PONTUACOES = new byte[0];
+
+    // Marcas das consultas de segundo grau, uma por thread
+    private static final ThreadLocal<Marcador> MARCADORES = ThreadLocal.withInitial(Marcador::new);
+
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+
+    // Livros, pela linha
+    private final IndiceEtiquetas indice;
+    private int quantidadeLinhas;
+    private int excluidos;
+    private int[] etiquetas;
+    private boolean[] excluido;
+
+    // Ligações da carga, no formato CSR
+    private int linhasBase;
+    private int[] inicio;
+    private int[] vizinhos;
+    private byte[] pontuacoes;
+
+    // Linhas alteradas depois da carga (null se a linha ainda está no vetor único)
+    private int[][] vizinhosAlterados;
+    private byte[][] pontuacoesAlteradas;
+    private int linhasAlteradas;
+    private long quantidadeLigacoes;
+
+    private GrafoSimilares(Construtor construtor) {
+        this.indice = construtor.indice;
+        this.quantidadeLinhas = construtor.livros;
+        this.etiquetas = construtor.etiquetas;
+        this.excluido = new boolean[etiquetas.length];
+        this.linhasBase = construtor.livros;
+        this.inicio = construtor.inicio;
+        this.vizinhos = construtor.vizinhos;
+        this.pontuacoes = construtor.pontuacoes;
+        this.vizinhosAlterados = new int[etiquetas.length][];
+        this.pontuacoesAlteradas = new byte[etiquetas.length][];
+        this.quantidadeLigacoes = construtor.ligacoes;
+    }
+
+    /**
+     * Cria um grafo vazio.
+     *
+     * @return O grafo, sem livros.
+     */
+    public static GrafoSimilares vazio() {
+        return new Construtor(0, 0).construir();
+    }
+
+    /**
+     * Monta o grafo de uma vez. Todos os livros são registrados primeiro
+     * ({@link #adicionarLivro}); depois, as ligações são informadas agrupadas
+     * por livro, na ordem em que os livros foram registrados (como vêm de um
+     * {@code ORDER BY etiqueta_livro} quando os livros são registrados na
+     * ordem da etiqueta), sem ligações repetidas.
+     */
+    public static final class Construtor {
+
+        private final IndiceEtiquetas indice;
+        private int[] etiquetas;
+        private int livros;
+        private int[] inicio;
+        private int[] vizinhos;
+        private byte[] pontuacoes;
+        private int ligacoes;
+        private int linhaAtual = -1;
+        private long[] ordenacao = new long[64];
+
+        /**
+         * @param livros Quantidade esperada de livros (os vetores crescem se
+         * vierem mais).
+         * @param ligacoes Quantidade esperada de ligações.
+         */
+        public Construtor(int livros, int ligacoes) {
+            this.indice = new IndiceEtiquetas(livros);
+            this.etiquetas = new int[Math.max(livros, 16)];
+            this.vizinhos = new int[Math.max(ligacoes, 16)];
+            this.pontuacoes = new byte[vizinhos.length];
+        }
+
+        /**
+         * Registra um livro.
+         *
+         * @param etiqueta Etiqueta do livro.
+         * @throws IllegalStateException Se alguma ligação já foi informada.
+         */
+        public void adicionarLivro(int etiqueta) {
+            if (linhaAtual >= 0) {
+                throw new IllegalStateException("Os livros devem ser registrados antes das ligações.");
+            }
+            if (indice.linha(etiqueta) >= 0) {
+                return;
+            }
+            if (livros == etiquetas.length) {
+                etiquetas = Arrays.copyOf(etiquetas, livros * 2);
+            }
+            etiquetas[livros] = etiqueta;
+            indice.incluir(etiqueta, livros++);
+        }
+
+        /**
+         * Informa uma ligação.
+         *
+         * @param livro Etiqueta do livro.
+         * @param semelhante Etiqueta do livro semelhante.
+         * @param pontuacao Pontuação de 0 a 1, ou {@link Float#NaN} se a
+         * ligação foi incluída manualmente.
+         * @throws IllegalArgumentException Se algum dos livros não foi
+         * registrado, ou se as ligações do livro já foram informadas antes das
+         * de outro livro.
+         */
+        public void adicionarLigacao(int livro, int semelhante, float pontuacao) {
+            int linha = linhaRegistrada(livro);
+            int destino = linhaRegistrada(semelhante);
+            if (linha < linhaAtual) {
+                throw new IllegalArgumentException("Ligações do livro " + livro + " fora da ordem dos livros.");
+            }
+            if (inicio == null) {
+                inicio = new int[livros + 1];
+            }
+            avancarAte(linha);
+            if (ligacoes == vizinhos.length) {
+                int capacidade = ligacoes + Math.max(ligacoes / 2, 16);
+                vizinhos = Arrays.copyOf(vizinhos, capacidade);
+                pontuacoes = Arrays.copyOf(pontuacoes, capacidade);
+            }
+            vizinhos[ligacoes] = destino;
+            pontuacoes[ligacoes++] = codificar(pontuacao);
+        }
+
+        /**
+         * Conclui a montagem. O construtor não deve mais ser usado.
+         *
+         * @return O grafo montado.
+         */
+        public GrafoSimilares construir() {
+            if (inicio == null) {
+                inicio = new int[livros + 1];
+            }
+            avancarAte(livros);
+            if (vizinhos.length != ligacoes) {
+                vizinhos = Arrays.copyOf(vizinhos, ligacoes);
+                pontuacoes = Arrays.copyOf(pontuacoes, ligacoes);
+            }
+            ordenacao = null;
+            return new GrafoSimilares(this);
+        }
+
+        private int linhaRegistrada(int etiqueta) {
+            int linha = indice.linha(etiqueta);
+            if (linha < 0) {
+                throw new IllegalArgumentException("Livro não registrado: " + etiqueta);
+            }
+            return linha;
+        }
+
+        /**
+         * Fecha a linha atual, ordenando os seus vizinhos, e as linhas sem
+         * ligações até {@code linha}.
+         */
+        private void avancarAte(int linha) {
+            if (linha == linhaAtual) {
+                return;
+            }
+            if (linhaAtual >= 0) {
+                ordenarLinha(inicio[linhaAtual], ligacoes);
+            }
+            for (int r = linhaAtual + 1; r <= linha; r++) {
+                inicio[r] = ligacoes;
+            }
+            linhaAtual = linha;
+        }
+
+        private void ordenarLinha(int de, int ate) {
+            int tamanho = ate - de;
+            if (tamanho < 2) {
+                return;
+            }
+            if (ordenacao.length < tamanho) {
+                ordenacao = new long[Math.max(tamanho, ordenacao.length * 2)];
+            }
+            for (int i = 0; i < tamanho; i++) {
+                ordenacao[i] = chaveOrdenacao(pontuacoes[de + i], vizinhos[de + i]);
+            }
+            Arrays.sort(ordenacao, 0, tamanho);
+            for (int i = 0; i < tamanho; i++) {
+                vizinhos[de + i] = (int) ordenacao[i];
+                pontuacoes[de + i] = pontuacaoDaChave(ordenacao[i]);
+            }
+        }
+    }
+
+    /**
+     * Índice etiqueta → linha, por endereçamento aberto com sondagem linear.
+     * As etiquetas nunca são removidas (a linha de um livro excluído é só
+     * marcada).
+     */
+    private static final class IndiceEtiquetas {
+
+        private static final int LIVRE = Integer.MIN_VALUE;
+
+        private int[] chaves;
+        private int[] linhas;
+        private int ocupadas;
+
+        IndiceEtiquetas(int capacidade) {
+            int tamanho = Integer.highestOneBit(Math.max(capacidade, 8) * 2 - 1) * 2; // Carga de no máximo 50%
+            chaves = new int[tamanho];
+            linhas = new int[tamanho];
+            Arrays.fill(chaves, LIVRE);
+        }
+
+        int linha(int etiqueta) {
+            int mascara = chaves.length - 1;
+            for (int i = espalhar(etiqueta) & mascara;; i = (i + 1) & mascara) {
+                int chave = chaves[i];
+                if (chave == etiqueta) {
+                    return linhas[i];
+                }
+                if (chave == LIVRE) {
+                    return -1;
+                }
+            }
+        }
+
+        void incluir(int etiqueta, int linha) {
+            if ((ocupadas + 1) * 2 > chaves.length) {
+                redimensionar();
+            }
+            int mascara = chaves.length - 1;
+            int i = espalhar(etiqueta) & mascara;
+            while (chaves[i] != LIVRE && chaves[i] != etiqueta) {
+                i = (i + 1) & mascara;
+            }
+            if (chaves[i] == LIVRE) {
+                ocupadas++;
+            }
+            chaves[i] = etiqueta;
+            linhas[i] = linha;
+        }
+
+        long memoria() {
+            return 8L * chaves.length;
+        }
+
+        private void redimensionar() {
+            int[] chavesAntigas = chaves;
+            int[] linhasAntigas = linhas;
+            chaves = new int[chavesAntigas.length * 2];
+            linhas = new int[chaves.length];
+            Arrays.fill(chaves, LIVRE);
+            ocupadas = 0;
+            for (int i = 0; i < chavesAntigas.length; i++) {
+                if (chavesAntigas[i] != LIVRE) {
+                    incluir(chavesAntigas[i], linhasAntigas[i]);
+                }
+            }
+        }
+
+        private static int espalhar(int etiqueta) {
+            int h = etiqueta * 0x9E3779B9; // Etiquetas sequenciais não caem em posições vizinhas
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Marcas dos livros já visitados numa consulta de segundo grau. A geração
+     * evita limpar o vetor a cada consulta.
+     */
+    private static final class Marcador {
+
+        private int[] marcas = new int[0];
+        private int geracao;
+
+        int novaGeracao(int linhas) {
+            if (marcas.length < linhas) {
+                marcas = new int[Math.max(linhas, marcas.length + marcas.length / 2)];
+                geracao = 0;
+            }
+            if (++geracao == Integer.MAX_VALUE) {
+                Arrays.fill(marcas, 0);
+                geracao = 1;
+            }
+            return geracao;
+        }
+    }
+
+    /**
+     * @return Quantidade de livros no grafo.
+     */
+    public int getQuantidadeLivros() {
+        trava.readLock().lock();
+        try {
+            return quantidadeLinhas - excluidos;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Quantidade de ligações guardadas, inclusive as que ainda
+     * apontam para livros excluídos (removidas na próxima compactação).
+     */
+    public long getQuantidadeLigacoes() {
+        trava.readLock().lock();
+        try {
+            return quantidadeLigacoes;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param etiqueta Etiqueta do livro.
+     * @return Se o livro está no grafo.
+     */
+    public boolean contem(int etiqueta) {
+        trava.readLock().lock();
+        try {
+            return linhaAtiva(etiqueta) >= 0;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param etiqueta Etiqueta do livro.
+     * @return Quantidade de livros semelhantes ao livro (0 se o livro não
+     * estiver no grafo).
+     */
+    public int grau(int etiqueta) {
+        trava.readLock().lock();
+        try {
+            int linha = linhaAtiva(etiqueta);
+            if (linha < 0) {
+                return 0;
+            }
+            if (excluidos == 0) {
+                return tamanhoLinha(linha);
+            }
+            int[] vs = vetorVizinhos(linha);
+            int de = inicioLinha(linha);
+            int ate = de + tamanhoLinha(linha);
+            int grau = 0;
+            for (int i = de; i < ate; i++) {
+                if (!excluido[vs[i]]) {
+                    grau++;
+                }
+            }
+            return grau;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copia os livros semelhantes a um livro, na ordem da tela (os incluídos
+     * manualmente primeiro, depois da maior para a menor pontuação).
+     *
+     * @param etiqueta Etiqueta do livro.
+     * @param destino Recebe as etiquetas dos semelhantes, até o seu tamanho.
+     * @param pontuacoesDestino Recebe as pontuações, de 0 a 1, ou
+     * {@link Float#NaN} para as incluídas manualmente (pode ser null).
+     * @return Quantidade de livros semelhantes, que pode ser maior que o
+     * tamanho de {@code destino}.
+     */
+    public int vizinhos(int etiqueta, int[] destino, float[] pontuacoesDestino) {
+        trava.readLock().lock();
+        try {
+            int linha = linhaAtiva(etiqueta);
+            if (linha < 0) {
+                return 0;
+            }
+            int[] vs = vetorVizinhos(linha);
+            byte[] ps = vetorPontuacoes(linha);
+            int de = inicioLinha(linha);
+            int ate = de + tamanhoLinha(linha);
+            int encontrados = 0;
+            for (int i = de; i < ate; i++) {
+                int vizinho = vs[i];
+                if (excluido[vizinho]) {
+                    continue;
+                }
+                if (encontrados < destino.length) {
+                    destino[encontrados] = etiquetas[vizinho];
+                    if (pontuacoesDestino != null) {
+                        pontuacoesDestino[encontrados] = decodificar(ps[i]);
+                    }
+                }
+                encontrados++;
+            }
+            return encontrados;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param etiqueta Etiqueta do livro.
+     * @return Etiquetas dos livros semelhantes, na ordem da tela.
+     */
+    public int[] vizinhos(int etiqueta) {
+        int[] destino = new int[32];
+        int encontrados;
+        while ((encontrados = vizinhos(etiqueta, destino, null)) > destino.length) {
+            destino = new int[encontrados]; // Alterado entre as duas leituras: tenta de novo
+        }
+        return Arrays.copyOf(destino, encontrados);
+    }
+
+    /**
+     * @param livro Etiqueta do livro.
+     * @param semelhante Etiqueta do possível semelhante.
+     * @return Se {@code semelhante} está entre os semelhantes de
+     * {@code livro}.
+     */
+    public boolean ligados(int livro, int semelhante) {
+        trava.readLock().lock();
+        try {
+            int linha = linhaAtiva(livro);
+            int destino = linhaAtiva(semelhante);
+            return linha >= 0 && destino >= 0 && posicaoNaLinha(linha, destino) >= 0;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copia os semelhantes dos semelhantes de um livro, sem repetições e sem
+     * o próprio livro e os seus semelhantes diretos. Vêm primeiro os
+     * semelhantes dos semelhantes mais próximos.
+     *
+     * @param etiqueta Etiqueta do livro.
+     * @param destino Recebe as etiquetas; a consulta para quando ele enche.
+     * @return Quantidade de etiquetas copiadas.
+     */
+    public int vizinhosDeSegundoGrau(int etiqueta, int[] destino) {
+        trava.readLock().lock();
+        try {
+            int linha = linhaAtiva(etiqueta);
+            if (linha < 0 || destino.length == 0) {
+                return 0;
+            }
+            Marcador marcador = MARCADORES.get();
+            int geracao = marcador.novaGeracao(quantidadeLinhas);
+            int[] marcas = marcador.marcas;
+
+            int[] vs = vetorVizinhos(linha);
+            int de = inicioLinha(linha);
+            int ate = de + tamanhoLinha(linha);
+            marcas[linha] = geracao;
+            for (int i = de; i < ate; i++) {
+                marcas[vs[i]] = geracao;
+            }
+
+            int encontrados = 0;
+            for (int i = de; i < ate; i++) {
+                int vizinho = vs[i];
+                if (excluido[vizinho]) {
+                    continue;
+                }
+                int[] vs2 = vetorVizinhos(vizinho);
+                int de2 = inicioLinha(vizinho);
+                int ate2 = de2 + tamanhoLinha(vizinho);
+                for (int j = de2; j < ate2; j++) {
+                    int candidato = vs2[j];
+                    if (marcas[candidato] == geracao || excluido[candidato]) {
+                        continue;
+                    }
+                    marcas[candidato] = geracao;
+                    destino[encontrados++] = etiquetas[candidato];
+                    if (encontrados == destino.length) {
+                        return encontrados;
+                    }
+                }
+            }
+            return encontrados;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Acrescenta um livro sem ligações (nada acontece se ele já estiver no
+     * grafo).
+     *
+     * @param etiqueta Etiqueta do livro.
+     */
+    public void adicionarLivro(int etiqueta) {
+        trava.writeLock().lock();
+        try {
+            linhaParaAlterar(etiqueta);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retira um livro e as suas ligações. As ligações de outros livros para
+     * ele deixam de ser devolvidas.
+     *
+     * @param etiqueta Etiqueta do livro.
+     */
+    public void excluirLivro(int etiqueta) {
+        trava.writeLock().lock();
+        try {
+            int linha = linhaAtiva(etiqueta);
+            if (linha < 0) {
+                return;
+            }
+            excluido[linha] = true;
+            excluidos++;
+            substituirLinha(linha, SEM_VIZINHOS, SEM_PONTUACOES);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inclui uma ligação, ou altera a pontuação dela se já existir. Livros
+     * que não estão no grafo são acrescentados.
+     *
+     * @param livro Etiqueta do livro.
+     * @param semelhante Etiqueta do livro semelhante.
+     * @param pontuacao Pontuação de 0 a 1, ou {@link Float#NaN} para uma
+     * ligação incluída manualmente.
+     */
+    public void adicionarLigacao(int livro, int semelhante, float pontuacao) {
+        trava.writeLock().lock();
+        try {
+            int linha = linhaParaAlterar(livro);
+            int destino = linhaParaAlterar(semelhante);
+            int[] vs = vetorVizinhos(linha);
+            byte[] ps = vetorPontuacoes(linha);
+            int de = inicioLinha(linha);
+            int tamanho = tamanhoLinha(linha);
+            int existente = posicaoNaLinha(linha, destino);
+
+            int[] novosVizinhos = new int[existente >= 0 ? tamanho : tamanho + 1];
+            byte[] novasPontuacoes = new byte[novosVizinhos.length];
+            long chave = chaveOrdenacao(codificar(pontuacao), destino);
+            int n = 0;
+            boolean incluida = false;
+            for (int i = de; i < de + tamanho; i++) {
+                if (vs[i] == destino) {
+                    continue;
+                }
+                if (!incluida && chave < chaveOrdenacao(ps[i], vs[i])) {
+                    novosVizinhos[n] = destino;
+                    novasPontuacoes[n++] = codificar(pontuacao);
+                    incluida = true;
+                }
+                novosVizinhos[n] = vs[i];
+                novasPontuacoes[n++] = ps[i];
+            }
+            if (!incluida) {
+                novosVizinhos[n] = destino;
+                novasPontuacoes[n] = codificar(pontuacao);
+            }
+            substituirLinha(linha, novosVizinhos, novasPontuacoes);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Exclui uma ligação.
+     *
+     * @param livro Etiqueta do livro.
+     * @param semelhante Etiqueta do livro semelhante.
+     * @return Se a ligação existia.
+     */
+    public boolean excluirLigacao(int livro, int semelhante) {
+        trava.writeLock().lock();
+        try {
+            int linha = linhaAtiva(livro);
+            int destino = indice.linha(semelhante);
+            int posicao = linha >= 0 && destino >= 0 ? posicaoNaLinha(linha, destino) : -1;
+            if (posicao < 0) {
+                return false;
+            }
+            int[] vs = vetorVizinhos(linha);
+            byte[] ps = vetorPontuacoes(linha);
+            int de = inicioLinha(linha);
+            int tamanho = tamanhoLinha(linha);
+            int[] novosVizinhos = new int[tamanho - 1];
+            byte[] novasPontuacoes = new byte[tamanho - 1];
+            System.arraycopy(vs, de, novosVizinhos, 0, posicao);
+            System.arraycopy(vs, de + posicao + 1, novosVizinhos, posicao, tamanho - posicao - 1);
+            System.arraycopy(ps, de, novasPontuacoes, 0, posicao);
+            System.arraycopy(ps, de + posicao + 1, novasPontuacoes, posicao, tamanho - posicao - 1);
+            substituirLinha(linha, novosVizinhos, novasPontuacoes);
+            return true;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Substitui todas as ligações de um livro, por exemplo depois de
+     * relê-las do banco. Livros que não estão no grafo são acrescentados.
+     *
+     * @param livro Etiqueta do livro.
+     * @param semelhantes Etiquetas dos livros semelhantes, sem repetições.
+     * @param pontuacoesSemelhantes Pontuações, de 0 a 1, ou {@link Float#NaN}
+     * para as incluídas manualmente.
+     * @param quantidade Quantidade de ligações nos vetores.
+     */
+    public void substituirLigacoes(int livro, int[] semelhantes, float[] pontuacoesSemelhantes, int quantidade) {
+        long[] ordenacao = new long[quantidade];
+        trava.writeLock().lock();
+        try {
+            int linha = linhaParaAlterar(livro);
+            for (int i = 0; i < quantidade; i++) {
+                ordenacao[i] = chaveOrdenacao(codificar(pontuacoesSemelhantes[i]), linhaParaAlterar(semelhantes[i]));
+            }
+            Arrays.sort(ordenacao);
+            int[] novosVizinhos = new int[quantidade];
+            byte[] novasPontuacoes = new byte[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                novosVizinhos[i] = (int) ordenacao[i];
+                novasPontuacoes[i] = pontuacaoDaChave(ordenacao[i]);
+            }
+            substituirLinha(linha, novosVizinhos, novasPontuacoes);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Refaz o vetor único de ligações com as linhas alteradas, descartando as
+     * ligações para livros excluídos. Chamado automaticamente quando as linhas
+     * alteradas passam de um oitavo das linhas.
+     */
+    public void compactar() {
+        trava.writeLock().lock();
+        try {
+            long total = 0;
+            for (int linha = 0; linha < quantidadeLinhas; linha++) {
+                total += tamanhoLinha(linha);
+            }
+            int[] novoInicio = new int[quantidadeLinhas + 1];
+            int[] novosVizinhos = new int[(int) total];
+            byte[] novasPontuacoes = new byte[novosVizinhos.length];
+            int n = 0;
+            for (int linha = 0; linha < quantidadeLinhas; linha++) {
+                novoInicio[linha] = n;
+                int[] vs = vetorVizinhos(linha);
+                byte[] ps = vetorPontuacoes(linha);
+                int de = inicioLinha(linha);
+                int ate = de + tamanhoLinha(linha);
+                for (int i = de; i < ate; i++) {
+                    if (!excluido[vs[i]]) {
+                        novosVizinhos[n] = vs[i];
+                        novasPontuacoes[n++] = ps[i];
+                    }
+                }
+            }
+            novoInicio[quantidadeLinhas] = n;
+            inicio = novoInicio;
+            vizinhos = n == novosVizinhos.length ? novosVizinhos : Arrays.copyOf(novosVizinhos, n);
+            pontuacoes = n == novasPontuacoes.length ? novasPontuacoes : Arrays.copyOf(novasPontuacoes, n);
+            linhasBase = quantidadeLinhas;
+            Arrays.fill(vizinhosAlterados, null);
+            Arrays.fill(pontuacoesAlteradas, null);
+            linhasAlteradas = 0;
+            quantidadeLigacoes = n;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Estima a memória ocupada pelo grafo, somando o tamanho dos vetores (sem
+     * os cabeçalhos dos objetos).
+     *
+     * @return Memória aproximada, em bytes.
+     */
+    public long estimarMemoria() {
+        trava.readLock().lock();
+        try {
+            long memoria = indice.memoria() + 4L * etiquetas.length + excluido.length
+                    + 4L * inicio.length + 5L * vizinhos.length + 8L * vizinhosAlterados.length;
+            for (int linha = 0; linha < quantidadeLinhas; linha++) {
+                if (vizinhosAlterados[linha] != null) {
+                    memoria += 5L * vizinhosAlterados[linha].length;
+                }
+            }
+            return memoria;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private int linhaAtiva(int etiqueta) {
+        int linha = indice.linha(etiqueta);
+        return linha >= 0 && !excluido[linha] ? linha : -1;
+    }
+
+    /**
+     * Linha do livro, acrescentando-o se não estiver no grafo (ou se tiver
+     * sido excluído).
+     */
+    private int linhaParaAlterar(int etiqueta) {
+        int linha = indice.linha(etiqueta);
+        if (linha >= 0) {
+            if (excluido[linha]) {
+                excluido[linha] = false;
+                excluidos--;
+            }
+            return linha;
+        }
+        if (quantidadeLinhas == etiquetas.length) {
+            int capacidade = Math.max(16, quantidadeLinhas + quantidadeLinhas / 2);
+            etiquetas = Arrays.copyOf(etiquetas, capacidade);
+            excluido = Arrays.copyOf(excluido, capacidade);
+            vizinhosAlterados = Arrays.copyOf(vizinhosAlterados, capacidade);
+            pontuacoesAlteradas = Arrays.copyOf(pontuacoesAlteradas, capacidade);
+        }
+        linha = quantidadeLinhas++;
+        etiquetas[linha] = etiqueta;
+        indice.incluir(etiqueta, linha);
+        return linha;
+    }
+
+    private int[] vetorVizinhos(int linha) {
+        int[] alterados = vizinhosAlterados[linha];
+        return alterados != null ? alterados : linha < linhasBase ? vizinhos : SEM_VIZINHOS;
+    }
+
+    private byte[] vetorPontuacoes(int linha) {
+        byte[] alteradas = pontuacoesAlteradas[linha];
+        return alteradas != null ? alteradas : linha < linhasBase ? pontuacoes : SEM_PONTUACOES;
+    }
+
+    private int inicioLinha(int linha) {
+        return vizinhosAlterados[linha] != null || linha >= linhasBase ? 0 : inicio[linha];
+    }
+
+    private int tamanhoLinha(int linha) {
+        int[] alterados = vizinhosAlterados[linha];
+        if (alterados != null) {
+            return alterados.length;
+        }
+        return linha < linhasBase ? inicio[linha + 1] - inicio[linha] : 0;
+    }
+
+    /**
+     * @return Posição de {@code destino} entre os vizinhos da linha, ou -1.
+     */
+    private int posicaoNaLinha(int linha, int destino) {
+        int[] vs = vetorVizinhos(linha);
+        int de = inicioLinha(linha);
+        int ate = de + tamanhoLinha(linha);
+        for (int i = de; i < ate; i++) {
+            if (vs[i] == destino) {
+                return i - de;
+            }
+        }
+        return -1;
+    }
+
+    private void substituirLinha(int linha, int[] novosVizinhos, byte[] novasPontuacoes) {
+        quantidadeLigacoes += novosVizinhos.length - tamanhoLinha(linha);
+        if (vizinhosAlterados[linha] == null) {
+            linhasAlteradas++;
+        }
+        vizinhosAlterados[linha] = novosVizinhos;
+        pontuacoesAlteradas[linha] = novasPontuacoes;
+        if (linhasAlteradas > Math.max(COMPACTAR_APOS_MINIMO, linhasBase / 8)) {
+            compactar();
+        }
+    }
+
+    private static byte codificar(float pontuacao) {
+        if (Float.isNaN(pontuacao)) {
+            return MANUAL;
+        }
+        return (byte) Math.max(0, Math.min(100, Math.round(pontuacao * 100)));
+    }
+
+    private static float decodificar(byte pontuacao) {
+        return pontuacao == MANUAL ? Float.NaN : pontuacao / 100f;
+    }
+
+    /**
+     * Chave que ordena os vizinhos como na tela: manuais primeiro, depois da
+     * maior para a menor pontuação e, no empate, pela linha.
+     */
+    private static long chaveOrdenacao(byte pontuacao, int linha) {
+        long ordem = pontuacao == MANUAL ? 0 : 101 - pontuacao;
+        return ordem << 32 | linha;
+    }
+
+    private static byte pontuacaoDaChave(long chave) {
+        int ordem = (int) (chave >>> 32);
+        return ordem == 0 ? MANUAL : (byte) (101 - ordem);
+    }
+}
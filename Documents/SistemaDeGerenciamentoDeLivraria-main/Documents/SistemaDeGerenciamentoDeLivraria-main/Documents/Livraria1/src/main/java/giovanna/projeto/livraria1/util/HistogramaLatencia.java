@@ -0,0 +1,103 @@
+package giovanna.projeto.livraria1.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências, para acompanhar os percentis de tempo de
+ * resposta sem guardar cada medida.
+ *
+ * <p>
+ * As medidas são contadas em faixas logarítmicas (8 faixas por potência de 2,
+ * erro máximo de 12,5%), de 1 µs a vários dias, em contadores atômicos:
+ * registrar uma medida não bloqueia nem cria objetos.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class HistogramaLatencia {
+
+    // Faixas de 0 a 15 µs, uma por microssegundo; depois 8 por potência de 2
+    private static final int LINEARES = 16;
+    private static final int SUBFAIXAS = 8;
+    private static final int MAIOR_EXPOENTE = 40;
+    private static final int FAIXAS = LINEARES + (MAIOR_EXPOENTE - 3) * SUBFAIXAS;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(FAIXAS);
+
+    /**
+     * Registra uma medida.
+     *
+     * @param nanos Duração em nanossegundos.
+     */
+    public void registrar(long nanos) {
+        contagens.incrementAndGet(faixa(TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos))));
+    }
+
+    /**
+     * @return Quantidade de medidas registradas.
+     */
+    public long getContagem() {
+        long total = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            total += contagens.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Retorna o percentil das medidas (o limite superior da faixa em que ele
+     * cai).
+     *
+     * @param percentil Percentil, de 0 a 1 (por exemplo, 0.95).
+     * @return Latência em milissegundos (arredondada para cima), ou 0 se não
+     * há medidas.
+     */
+    public long percentilMs(double percentil) {
+        long[] copia = new long[FAIXAS];
+        long total = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            copia[i] = contagens.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(percentil * total));
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= alvo) {
+                return (limiteSuperiorMicros(i) + 999) / 1000;
+            }
+        }
+        return (limiteSuperiorMicros(FAIXAS - 1) + 999) / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d, p50=%d ms, p95=%d ms, p99=%d ms",
+                getContagem(), percentilMs(0.50), percentilMs(0.95), percentilMs(0.99));
+    }
+
+    private static int faixa(long micros) {
+        if (micros < LINEARES) {
+            return (int) micros;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(micros);
+        if (expoente > MAIOR_EXPOENTE) {
+            return FAIXAS - 1;
+        }
+        int subfaixa = (int) (micros >>> (expoente - 3)) & (SUBFAIXAS - 1);
+        return LINEARES + (expoente - 4) * SUBFAIXAS + subfaixa;
+    }
+
+    private static long limiteSuperiorMicros(int faixa) {
+        if (faixa < LINEARES) {
+            return faixa + 1;
+        }
+        int expoente = (faixa - LINEARES) / SUBFAIXAS + 4;
+        int subfaixa = (faixa - LINEARES) % SUBFAIXAS;
+        return (long) (SUBFAIXAS + subfaixa + 1) << (expoente - 3);
+    }
+}
@@ -1,84 +1,605 @@
 package giovanna.projeto.livraria1.util;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import giovanna.projeto.livraria1.model.Doc;
 import giovanna.projeto.livraria1.model.Livro;
-import giovanna.projeto.livraria1.model.OpenLibraryBook;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
-import java.util.Scanner;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Cliente para obter os dados de um livro pelo ISBN em fontes externas
+ * ({@link ProvedorMetadados}): por padrão, a busca da Open Library e, como
+ * segunda fonte, o Google Books, que cobre melhor os títulos brasileiros.
+ *
+ * <p>
+ * As consultas são assíncronas ({@link CompletableFuture}) e escalonadas
+ * (hedged requests): a fonte preferida é consultada primeiro e, se não
+ * responder dentro do percentil 95 da sua própria latência (ou se não
+ * encontrar o livro), a fonte seguinte também é consultada. A primeira
+ * resposta com o livro é usada e a outra consulta é cancelada. Cada fonte
+ * tem um {@link HistogramaLatencia} e contadores de vitórias
+ * ({@link #getEstatisticas()}). As fontes HTTP ({@link ProvedorHttp})
+ * repetem falhas de rede e respostas 429/5xx e têm o seu próprio
+ * {@link Disjuntor}: se uma fonte passa a falhar ou a demorar, ela é recusada
+ * de imediato com {@link DisjuntorAbertoException} e a seguinte assume.
+ * </p>
+ * <p>
+ * Consultas simultâneas do mesmo ISBN compartilham uma única consulta (cada
+ * chamador recebe sua própria cópia do livro).
+ * </p>
+ * <p>
+ * Se houver um {@link IndiceOpenLibrary índice local} gerado a partir do dump
+ * da Open Library, ele é consultado antes de tudo, sem acesso à rede. As
+ * respostas das fontes (inclusive "não encontrado") são guardadas no
+ * {@link CacheISBN}. A configuração padrão fica no arquivo
+ * {@code ApiConfig.properties}; as URLs podem ser trocadas, por exemplo,
+ * para servidores locais nos testes.
+ * </p>
  *
  * @author giova
  */
 public class ISBNApiClient {
 
     private static final Logger LOGGER = Logger.getLogger(ISBNApiClient.class.getName());
-    private static final String API_URL = "https://openlibrary.org/search.json?isbn=";
+
+    private static final String ARQUIVO_CONFIGURACAO = "ApiConfig.properties";
+
+    /**
+     * Percentil padrão da latência usado como espera antes da consulta
+     * escalonada.
+     */
+    public static final double PERCENTIL_ESCALONAMENTO_PADRAO = 0.95;
+
+    /**
+     * Espera padrão antes da consulta escalonada, enquanto não há medidas
+     * suficientes da fonte anterior.
+     */
+    public static final Duration ESPERA_ESCALONAMENTO_PADRAO = Duration.ofMillis(1500);
+
+    // Medidas necessárias para usar o percentil, e espera mínima
+    private static final int MINIMO_AMOSTRAS = 20;
+    private static final long ESPERA_MINIMA_MS = 20;
+
+    // Instância padrão, criada no primeiro uso
+    private static final class Padrao {
+
+        private static final ISBNApiClient INSTANCIA = criarPadrao();
+    }
 
     /**
-     * Busca informações de um livro na API Open Library pelo ISBN.
+     * Estatísticas de uso de uma fonte.
+     */
+    public static final class EstatisticasProvedor {
+
+        private final String nome;
+        private final HistogramaLatencia latencias = new HistogramaLatencia();
+        private final AtomicLong consultas = new AtomicLong();
+        private final AtomicLong escalonadas = new AtomicLong();
+        private final AtomicLong vitorias = new AtomicLong();
+        private final AtomicLong canceladas = new AtomicLong();
+
+        private EstatisticasProvedor(String nome) {
+            this.nome = nome;
+        }
+
+        /**
+         * @return Nome da fonte.
+         */
+        public String getNome() {
+            return nome;
+        }
+
+        /**
+         * @return Latências das consultas concluídas sem erro (encontrado ou
+         * não).
+         */
+        public HistogramaLatencia getLatencias() {
+            return latencias;
+        }
+
+        /**
+         * @return Consultas iniciadas na fonte.
+         */
+        public long getConsultas() {
+            return consultas.get();
+        }
+
+        /**
+         * @return Consultas iniciadas porque a fonte anterior demorou além da
+         * espera (as demais foram iniciadas por ser a primeira fonte ou
+         * porque as anteriores não encontraram o livro).
+         */
+        public long getEscalonadas() {
+            return escalonadas.get();
+        }
+
+        /**
+         * @return Consultas em que esta fonte deu a resposta usada.
+         */
+        public long getVitorias() {
+            return vitorias.get();
+        }
+
+        /**
+         * @return Consultas canceladas porque outra fonte respondeu antes.
+         */
+        public long getCanceladas() {
+            return canceladas.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: consultas=%d, escalonadas=%d, vitórias=%d, canceladas=%d, %s",
+                    nome, getConsultas(), getEscalonadas(), getVitorias(), getCanceladas(), latencias);
+        }
+    }
+
+    private final List<ProvedorMetadados> provedores;
+    private final List<EstatisticasProvedor> estatisticas;
+    private final double percentilEscalonamento;
+    private final long esperaEscalonamentoPadraoMs;
+    private final CacheISBN cache;
+    private final IndiceOpenLibrary indiceLocal;
+
+    // Consultas em andamento, por ISBN, compartilhadas entre chamadores simultâneos
+    private final ConcurrentHashMap<String, CompletableFuture<Livro>> emAndamento = new ConcurrentHashMap<>();
+    private final AtomicLong consultasCompartilhadas = new AtomicLong();
+    private final AtomicLong acertosIndiceLocal = new AtomicLong();
+
+    /**
+     * Cria o cliente da Open Library, sem disjuntor nem índice local e com a
+     * leitura das respostas em modo {@link LeitorOpenLibrary.Modo#STREAMING}.
      *
-     * @param isbn O ISBN do livro a ser buscado.
-     * @return Um objeto Livro preenchido com os dados da API, ou null se não
-     * encontrado.
+     * @param urlBase URL da busca, à qual o ISBN é acrescentado.
+     * @param tempoConexao Tempo máximo para abrir a conexão.
+     * @param tempoLeitura Tempo máximo de espera pela resposta.
+     * @param maxTentativas Quantidade máxima de tentativas por consulta (1 =
+     * sem repetição).
+     * @param esperaInicial Espera base antes da segunda tentativa (dobra a
+     * cada nova tentativa).
+     * @param cache Cache das consultas, ou null para não usar cache.
      */
-public static Livro buscarLivroPorISBN(String isbn) {
-    try {
-        // Formata a URL com o ISBN fornecido pelo usuário
-        URL url = new URL(API_URL + isbn);
-        LOGGER.info("URL Gerada: " + url);
+    public ISBNApiClient(String urlBase, Duration tempoConexao, Duration tempoLeitura, int maxTentativas,
+            Duration esperaInicial, CacheISBN cache) {
+        this(urlBase, tempoConexao, tempoLeitura, maxTentativas, esperaInicial, cache, null, LeitorOpenLibrary.Modo.STREAMING, null);
+    }
 
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
+    /**
+     * Cria o cliente, tendo a Open Library como única fonte.
+     *
+     * @param urlBase URL da busca, à qual o ISBN é acrescentado.
+     * @param tempoConexao Tempo máximo para abrir a conexão.
+     * @param tempoLeitura Tempo máximo de espera pela resposta.
+     * @param maxTentativas Quantidade máxima de tentativas por consulta (1 =
+     * sem repetição).
+     * @param esperaInicial Espera base antes da segunda tentativa (dobra a
+     * cada nova tentativa).
+     * @param cache Cache das consultas, ou null para não usar cache.
+     * @param disjuntor Disjuntor das tentativas, ou null para não usar.
+     * @param modoLeitura Forma de interpretar as respostas.
+     * @param indiceLocal Índice local consultado antes da API, ou null para
+     * não usar.
+     */
+    public ISBNApiClient(String urlBase, Duration tempoConexao, Duration tempoLeitura, int maxTentativas,
+            Duration esperaInicial, CacheISBN cache, Disjuntor disjuntor, LeitorOpenLibrary.Modo modoLeitura,
+            IndiceOpenLibrary indiceLocal) {
+        this(List.of(new ProvedorOpenLibrary(urlBase, tempoConexao, tempoLeitura, maxTentativas, esperaInicial, disjuntor, modoLeitura)),
+                cache, indiceLocal, PERCENTIL_ESCALONAMENTO_PADRAO, ESPERA_ESCALONAMENTO_PADRAO);
+    }
 
-        if (connection.getResponseCode() == 200) {
-            try (Scanner scanner = new Scanner(connection.getInputStream())) {
-                StringBuilder jsonResponse = new StringBuilder();
-                while (scanner.hasNext()) {
-                    jsonResponse.append(scanner.nextLine());
-                }
+    /**
+     * Cria o cliente com várias fontes, consultadas em ordem de preferência.
+     *
+     * @param provedores Fontes, da preferida para a menos preferida.
+     * @param cache Cache das consultas, ou null para não usar cache.
+     * @param indiceLocal Índice local consultado antes das fontes, ou null
+     * para não usar.
+     * @param percentilEscalonamento Percentil (0 a 1) da latência de uma
+     * fonte após o qual a fonte seguinte também é consultada.
+     * @param esperaEscalonamentoPadrao Espera usada enquanto a fonte não tem
+     * medidas suficientes para o percentil.
+     */
+    public ISBNApiClient(List<? extends ProvedorMetadados> provedores, CacheISBN cache, IndiceOpenLibrary indiceLocal,
+            double percentilEscalonamento, Duration esperaEscalonamentoPadrao) {
+        if (provedores.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos uma fonte de dados.");
+        }
+        this.provedores = List.copyOf(provedores);
+        List<EstatisticasProvedor> lista = new ArrayList<>();
+        for (ProvedorMetadados provedor : provedores) {
+            lista.add(new EstatisticasProvedor(provedor.getNome()));
+        }
+        this.estatisticas = Collections.unmodifiableList(lista);
+        this.percentilEscalonamento = percentilEscalonamento;
+        this.esperaEscalonamentoPadraoMs = esperaEscalonamentoPadrao.toMillis();
+        this.cache = cache;
+        this.indiceLocal = indiceLocal;
+    }
 
-                // Processa a resposta JSON
-                ObjectMapper mapper = new ObjectMapper();
-                OpenLibraryBook openLibraryBook = mapper.readValue(jsonResponse.toString(), OpenLibraryBook.class);
+    /**
+     * Retorna o cliente padrão da aplicação, configurado pelo arquivo
+     * {@code ApiConfig.properties}, com o cache de ISBN padrão e o índice
+     * local da pasta padrão (usado assim que for gerado, e reaberto a cada
+     * nova geração).
+     *
+     * @return O cliente compartilhado.
+     */
+    public static ISBNApiClient padrao() {
+        return Padrao.INSTANCIA;
+    }
 
-                // Verifica se há documentos retornados
-                if (openLibraryBook.getDocs() == null || openLibraryBook.getDocs().isEmpty()) {
-                    LOGGER.warning("Nenhum documento encontrado para o ISBN: " + isbn);
-                    return null;
-                }
+    /**
+     * Busca informações de um livro pelo ISBN.
+     *
+     * A consulta é respondida pelo índice local, se houver e tiver o ISBN, ou
+     * pelo cache quando o ISBN já foi consultado recentemente; caso
+     * contrário, as fontes são consultadas (veja a descrição da classe) e a
+     * resposta (inclusive "não encontrado") é guardada no cache.
+     *
+     * @param isbn O ISBN-10 ou ISBN-13 do livro a ser buscado.
+     * @return Futuro com o livro preenchido com os dados da fonte, ou null se
+     * nenhuma o encontrou. Completa com erro de imediato se o ISBN for
+     * inválido ({@link IllegalArgumentException}); com erro se todas as
+     * fontes falharem, por exemplo com {@link DisjuntorAbertoException} se a
+     * Open Library estiver instável.
+     */
+    public CompletableFuture<Livro> buscarLivroPorISBN(String isbn) {
+        long numero = ISBNUtil.paraNumero(isbn);
+        if (numero < 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("ISBN inválido: " + isbn));
+        }
+        String chave = ISBNUtil.formatar(numero);
+        if (indiceLocal != null) {
+            Livro local = indiceLocal.buscar(chave);
+            if (local != null) {
+                acertosIndiceLocal.incrementAndGet();
+                LOGGER.log(Level.FINE, "ISBN {0} respondido pelo índice local", chave);
+                return CompletableFuture.completedFuture(local);
+            }
+        }
+        if (cache != null) {
+            CacheISBN.Entrada emCache = cache.buscar(chave);
+            if (emCache != null) {
+                LOGGER.log(Level.FINE, "ISBN {0} respondido pelo cache ({1})", new Object[]{chave, cache});
+                return CompletableFuture.completedFuture(emCache.getLivro(chave));
+            }
+        }
+
+        // Junta-se a uma consulta do mesmo ISBN já em andamento, se houver
+        CompletableFuture<Livro> nova = new CompletableFuture<>();
+        CompletableFuture<Livro> existente = emAndamento.putIfAbsent(chave, nova);
+        if (existente != null) {
+            consultasCompartilhadas.incrementAndGet();
+            LOGGER.log(Level.FINE, "ISBN {0} já está sendo consultado; aguardando a mesma resposta", chave);
+            return existente.thenApply(ISBNApiClient::copiar);
+        }
+
+        consultar(chave).whenComplete((livro, erro) -> {
+            emAndamento.remove(chave, nova); // O cache já foi gravado: consultas seguintes o usam
+            if (erro != null) {
+                nova.completeExceptionally(erro);
+            } else {
+                nova.complete(livro);
+            }
+        });
+        return nova.thenApply(ISBNApiClient::copiar);
+    }
+
+    /**
+     * Consulta as fontes e grava a resposta no cache. O livro não encontrado
+     * só é guardado se todas as fontes responderam sem erro; se alguma falhou,
+     * a próxima consulta tenta de novo.
+     *
+     * @param chave ISBN-13.
+     * @return Futuro com o livro, ou null se não encontrado.
+     */
+    private CompletableFuture<Livro> consultar(String chave) {
+        Escalonamento escalonamento = new Escalonamento(chave);
+        escalonamento.iniciarProxima(false);
+        return escalonamento.resultado
+                .whenComplete((livro, erro) -> {
+                    Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+                    if (erro == null && cache != null && (livro != null || escalonamento.semFalhas())) {
+                        // Falhas não são guardadas, nem um "não encontrado" em que alguma fonte falhou
+                        cache.gravar(chave, livro);
+                    } else if (causa instanceof DisjuntorAbertoException) {
+                        LOGGER.log(Level.FINE, "Consulta do ISBN {0} recusada: {1}", new Object[]{chave, causa.getMessage()});
+                    } else if (erro != null) {
+                        LOGGER.log(Level.SEVERE, "Erro ao buscar livro pelo ISBN: " + chave, erro);
+                    }
+                });
+    }
+
+    /**
+     * Consulta escalonada (hedged request) de um ISBN nas fontes.
+     *
+     * <p>
+     * A primeira fonte é consultada de imediato. Se ela não responder dentro
+     * do percentil configurado da sua própria latência, a fonte seguinte
+     * também é consultada, e assim por diante. Se uma fonte termina sem o
+     * livro (não encontrado ou erro) e não há outra consulta em andamento, a
+     * seguinte é consultada na hora. A primeira fonte que encontra o livro
+     * vence, e as consultas ainda em andamento são canceladas. Se nenhuma
+     * encontra, o resultado é null quando ao menos uma respondeu "não
+     * encontrado", ou o erro da fonte preferida quando todas falharam.
+     * </p>
+     */
+    private final class Escalonamento {
+
+        private final String isbn;
+        private final CompletableFuture<Livro> resultado = new CompletableFuture<>();
+        private final CompletableFuture<?>[] consultas = new CompletableFuture<?>[provedores.size()];
+        private int iniciadas;
+        private int concluidas;
+        private boolean naoEncontrado;
+        private Throwable erro;
 
-                // Itera pelos documentos para localizar o ISBN-13 fornecido
-                for (Doc doc : openLibraryBook.getDocs()) {
-                    List<String> isbns = doc.getIsbn(); // Obtém a lista de ISBNs do documento
-                    if (isbns != null && isbns.contains(isbn)) {
-                        LOGGER.info("Documento correspondente ao ISBN encontrado.");
-                        Livro livro = ConverterLivro.fromOpenLibraryDoc(doc);
-                        livro.setIsbn(isbn); // Garante que o ISBN usado seja o correto
-                        return livro;
+        Escalonamento(String isbn) {
+            this.isbn = isbn;
+        }
+
+        /**
+         * Inicia a consulta na próxima fonte, se ainda houver alguma e o
+         * resultado não tiver sido obtido.
+         *
+         * @param escalonada true se iniciada porque a anterior demorou.
+         */
+        synchronized void iniciarProxima(boolean escalonada) {
+            if (resultado.isDone() || iniciadas == provedores.size()) {
+                return;
+            }
+            int indice = iniciadas++;
+            ProvedorMetadados provedor = provedores.get(indice);
+            EstatisticasProvedor estatistica = estatisticas.get(indice);
+            estatistica.consultas.incrementAndGet();
+            if (escalonada) {
+                estatistica.escalonadas.incrementAndGet();
+                LOGGER.log(Level.FINE, "ISBN {0}: {1} demorou; consultando também {2}",
+                        new Object[]{isbn, provedores.get(indice - 1).getNome(), provedor.getNome()});
+            }
+
+            long inicio = System.nanoTime();
+            CompletableFuture<Livro> consulta;
+            try {
+                consulta = provedor.buscar(isbn);
+            } catch (RuntimeException e) {
+                consulta = CompletableFuture.failedFuture(e);
+            }
+            consultas[indice] = consulta;
+            if (indice + 1 < provedores.size()) {
+                // Se esta ainda for a última consulta iniciada após a espera, escalona para a próxima fonte
+                CompletableFuture.delayedExecutor(esperaEscalonamento(indice), TimeUnit.MILLISECONDS).execute(() -> {
+                    synchronized (this) {
+                        if (iniciadas == indice + 1) {
+                            iniciarProxima(true);
+                        }
+                    }
+                });
+            }
+            consulta.whenComplete((livro, falha) -> concluir(indice, inicio, livro, falha));
+        }
+
+        /**
+         * Indica se nenhuma fonte consultada terminou com erro.
+         *
+         * @return true se todas as fontes que terminaram responderam.
+         */
+        synchronized boolean semFalhas() {
+            return erro == null;
+        }
+
+        private synchronized void concluir(int indice, long inicio, Livro livro, Throwable falha) {
+            Throwable causa = falha instanceof CompletionException && falha.getCause() != null ? falha.getCause() : falha;
+            EstatisticasProvedor estatistica = estatisticas.get(indice);
+            if (causa instanceof CancellationException) {
+                estatistica.canceladas.incrementAndGet();
+                return;
+            }
+            if (causa == null) {
+                estatistica.latencias.registrar(System.nanoTime() - inicio);
+            }
+            concluidas++;
+            if (resultado.isDone()) {
+                return;
+            }
+            if (causa == null && livro != null) {
+                estatistica.vitorias.incrementAndGet();
+                for (int i = 0; i < iniciadas; i++) {
+                    if (i != indice) {
+                        consultas[i].cancel(true);
                     }
                 }
+                resultado.complete(livro);
+                return;
+            }
+            if (causa == null) {
+                naoEncontrado = true;
+            } else if (erro == null) {
+                erro = causa; // Guarda o erro da fonte preferida que falhou primeiro
+            } else {
+                LOGGER.log(Level.FINE, "ISBN " + isbn + ": falha também em " + provedores.get(indice).getNome(), causa);
+            }
+            if (concluidas == iniciadas) {
+                if (iniciadas < provedores.size()) {
+                    iniciarProxima(false);
+                } else if (naoEncontrado) {
+                    resultado.complete(null);
+                } else {
+                    resultado.completeExceptionally(erro);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna quanto esperar pela fonte antes de consultar também a seguinte:
+     * o percentil configurado da latência da fonte, ou a espera padrão
+     * enquanto não há medidas suficientes.
+     *
+     * @param indice Posição da fonte.
+     * @return Espera em milissegundos.
+     */
+    private long esperaEscalonamento(int indice) {
+        HistogramaLatencia latencias = estatisticas.get(indice).latencias;
+        if (latencias.getContagem() < MINIMO_AMOSTRAS) {
+            return esperaEscalonamentoPadraoMs;
+        }
+        return Math.max(ESPERA_MINIMA_MS, latencias.percentilMs(percentilEscalonamento));
+    }
 
-                LOGGER.warning("Nenhum documento com o ISBN exato foi encontrado.");
-                return null;
+    /**
+     * Retorna as fontes consultadas, em ordem de preferência.
+     *
+     * @return Fontes.
+     */
+    public List<ProvedorMetadados> getProvedores() {
+        return provedores;
+    }
+
+    /**
+     * Retorna as estatísticas de cada fonte (latência, vitórias,
+     * escalonamentos e cancelamentos), na ordem das fontes.
+     *
+     * @return Estatísticas por fonte.
+     */
+    public List<EstatisticasProvedor> getEstatisticas() {
+        return estatisticas;
+    }
+
+    /**
+     * Retorna o cache de consultas, para acompanhar as estatísticas de uso.
+     *
+     * @return O cache de ISBN, ou null se o cliente não usa cache.
+     */
+    public CacheISBN getCache() {
+        return cache;
+    }
+
+    /**
+     * Retorna o disjuntor da fonte preferida, para acompanhar o estado e as
+     * métricas.
+     *
+     * @return O disjuntor, ou null se a fonte preferida não usa disjuntor.
+     */
+    public Disjuntor getDisjuntor() {
+        return provedores.get(0) instanceof ProvedorHttp http ? http.getDisjuntor() : null;
+    }
+
+    /**
+     * Retorna quantas consultas aproveitaram uma requisição do mesmo ISBN já
+     * em andamento.
+     *
+     * @return Quantidade de consultas compartilhadas.
+     */
+    public long getConsultasCompartilhadas() {
+        return consultasCompartilhadas.get();
+    }
+
+    /**
+     * Retorna o índice local da Open Library.
+     *
+     * @return O índice, ou null se o cliente não usa índice local.
+     */
+    public IndiceOpenLibrary getIndiceLocal() {
+        return indiceLocal;
+    }
+
+    /**
+     * Retorna quantas consultas foram respondidas pelo índice local.
+     *
+     * @return Quantidade de consultas.
+     */
+    public long getAcertosIndiceLocal() {
+        return acertosIndiceLocal.get();
+    }
+
+    /**
+     * Cria uma cópia do livro, para que cada chamador possa alterar a sua.
+     */
+    private static Livro copiar(Livro livro) {
+        if (livro == null) {
+            return null;
+        }
+        Livro copia = new Livro();
+        copia.setTitulo(livro.getTitulo());
+        copia.setAutor(livro.getAutor());
+        copia.setEditora(livro.getEditora());
+        copia.setGeneroNome(livro.getGeneroNome());
+        copia.setData_publicacao(livro.getData_publicacao());
+        copia.setIsbn(livro.getIsbn());
+        return copia;
+    }
+
+    /**
+     * Cria o cliente padrão a partir do arquivo {@code ApiConfig.properties}
+     * (os valores ausentes assumem o padrão).
+     *
+     * @return O cliente configurado.
+     */
+    private static ISBNApiClient criarPadrao() {
+        Properties propriedades = new Properties();
+        try (InputStream entrada = ISBNApiClient.class.getClassLoader().getResourceAsStream(ARQUIVO_CONFIGURACAO)) {
+            if (entrada != null) {
+                propriedades.load(entrada);
+            } else {
+                LOGGER.log(Level.WARNING, "Arquivo {0} não localizado; usando a configuração padrão.", ARQUIVO_CONFIGURACAO);
             }
-        } else {
-            LOGGER.warning("Erro na requisição para o ISBN: " + isbn + " - Código de resposta: " + connection.getResponseCode());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Erro ao ler " + ARQUIVO_CONFIGURACAO + "; usando a configuração padrão.", e);
+        }
+        List<ProvedorMetadados> provedores = new ArrayList<>();
+        provedores.add(new ProvedorOpenLibrary(
+                propriedades.getProperty("openlibrary_url", ProvedorOpenLibrary.URL_PADRAO),
+                duracao(propriedades, "openlibrary_connect_timeout_ms", 5000),
+                duracao(propriedades, "openlibrary_read_timeout_ms", 10000),
+                Integer.parseInt(propriedades.getProperty("openlibrary_max_tentativas", "3")),
+                duracao(propriedades, "openlibrary_espera_inicial_ms", 200),
+                criarDisjuntor("Open Library", "openlibrary_", propriedades),
+                LeitorOpenLibrary.modo(propriedades.getProperty("openlibrary_leitor"))));
+        if (Boolean.parseBoolean(propriedades.getProperty("googlebooks_habilitado", "true"))) {
+            provedores.add(new ProvedorGoogleBooks(
+                    propriedades.getProperty("googlebooks_url", ProvedorGoogleBooks.URL_PADRAO),
+                    duracao(propriedades, "googlebooks_connect_timeout_ms", 5000),
+                    duracao(propriedades, "googlebooks_read_timeout_ms", 10000),
+                    Integer.parseInt(propriedades.getProperty("googlebooks_max_tentativas", "2")),
+                    duracao(propriedades, "googlebooks_espera_inicial_ms", 200),
+                    criarDisjuntor("Google Books", "googlebooks_", propriedades)));
         }
-    } catch (IOException e) {
-        LOGGER.log(Level.SEVERE, "Erro ao buscar livro pelo ISBN: " + isbn, e);
+        return new ISBNApiClient(provedores, CacheISBN.criarPadrao(), IndiceOpenLibrary.acompanhar(IndiceOpenLibrary.diretorioPadrao()),
+                Integer.parseInt(propriedades.getProperty("escalonamento_percentil", "95")) / 100.0,
+                duracao(propriedades, "escalonamento_espera_padrao_ms", ESPERA_ESCALONAMENTO_PADRAO.toMillis()));
     }
 
-    return null;
-}
+    /**
+     * Cria o disjuntor de uma fonte a partir das propriedades com o prefixo
+     * informado.
+     */
+    private static Disjuntor criarDisjuntor(String nome, String prefixo, Properties propriedades) {
+        return new Disjuntor(nome,
+                Integer.parseInt(propriedades.getProperty(prefixo + "disjuntor_janela", "20")),
+                Integer.parseInt(propriedades.getProperty(prefixo + "disjuntor_minimo_chamadas", "5")),
+                Integer.parseInt(propriedades.getProperty(prefixo + "disjuntor_falhas_pct", "50")) / 100.0,
+                duracao(propriedades, prefixo + "disjuntor_lentidao_ms", 4000),
+                Integer.parseInt(propriedades.getProperty(prefixo + "disjuntor_lentas_pct", "80")) / 100.0,
+                duracao(propriedades, prefixo + "disjuntor_aberto_ms", 30000),
+                Integer.parseInt(propriedades.getProperty(prefixo + "disjuntor_sondagens", "2")));
+    }
+
+    private static Duration duracao(Properties propriedades, String chave, long padraoMs) {
+        return Duration.ofMillis(Long.parseLong(propriedades.getProperty(chave, Long.toString(padraoMs))));
+    }
 
     /**
      * Método para preencher a data, que na requisição vem como somente o ano de publicação
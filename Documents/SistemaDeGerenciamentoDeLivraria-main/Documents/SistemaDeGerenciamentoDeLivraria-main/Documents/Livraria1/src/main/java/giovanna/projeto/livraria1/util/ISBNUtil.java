@@ -0,0 +1,190 @@
+package giovanna.projeto.livraria1.util;
+
+/**
+ * Validação e conversão de ISBN-10 e ISBN-13.
+ *
+ * <p>
+ * Os métodos aceitam qualquer {@link CharSequence} e ignoram hífens e espaços.
+ * O texto é percorrido uma única vez, sem expressões regulares nem textos
+ * intermediários: {@link #valido(CharSequence)} e
+ * {@link #paraNumero(CharSequence)} não criam objetos, e as conversões criam
+ * apenas o texto retornado. Isso permite validar grandes volumes (importação
+ * em lote) e recusar um ISBN inválido antes de consultar o banco ou a Open
+ * Library.
+ * </p>
+ * <p>
+ * Internamente, um ISBN válido é representado pelo ISBN-13 como número
+ * ({@code long}); os ISBN-10 são convertidos com o prefixo 978.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public final class ISBNUtil {
+
+    private static final long PREFIXO_978 = 978_000_000_000L; // 978 seguido de 9 dígitos
+    private static final long UM_BILHAO = 1_000_000_000L;
+
+    private ISBNUtil() {
+    }
+
+    /**
+     * Verifica se o texto é um ISBN-10 ou ISBN-13 com dígito verificador
+     * correto.
+     *
+     * @param isbn ISBN, com ou sem hífens e espaços.
+     * @return true se válido.
+     */
+    public static boolean valido(CharSequence isbn) {
+        return paraNumero(isbn) >= 0;
+    }
+
+    /**
+     * Converte um ISBN-10 ou ISBN-13 válido no ISBN-13 como número.
+     *
+     * @param isbn ISBN, com ou sem hífens e espaços.
+     * @return O ISBN-13 como número, ou -1 se o texto não é um ISBN válido.
+     */
+    public static long paraNumero(CharSequence isbn) {
+        if (isbn == null) {
+            return -1;
+        }
+        long valor = 0;
+        int digitos = 0;
+        int soma10 = 0; // Pesos 10 a 1 do ISBN-10
+        int soma13 = 0; // Pesos 1 e 3 alternados do ISBN-13
+        boolean x = false;
+        for (int i = 0, n = isbn.length(); i < n; i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            if (x) {
+                return -1; // O "X" só pode ser o último caractere
+            }
+            int d;
+            if (c >= '0' && c <= '9') {
+                d = c - '0';
+                valor = valor * 10 + d;
+            } else if ((c == 'X' || c == 'x') && digitos == 9) {
+                d = 10;
+                x = true;
+            } else {
+                return -1;
+            }
+            if (++digitos > 13) {
+                return -1;
+            }
+            soma10 += d * (11 - digitos);
+            soma13 += (digitos & 1) == 1 ? d : 3 * d;
+        }
+        if (digitos == 13) {
+            return soma13 % 10 == 0 ? valor : -1;
+        }
+        if (digitos == 10 && soma10 % 11 == 0) {
+            return converter10(x ? valor : valor / 10);
+        }
+        return -1;
+    }
+
+    /**
+     * Converte um ISBN-10 ou ISBN-13 válido em ISBN-13, só com dígitos.
+     *
+     * @param isbn ISBN, com ou sem hífens e espaços.
+     * @return O ISBN-13, ou null se o texto não é um ISBN válido.
+     */
+    public static String paraIsbn13(CharSequence isbn) {
+        long numero = paraNumero(isbn);
+        return numero < 0 ? null : formatar(numero);
+    }
+
+    /**
+     * Converte um ISBN-10 ou ISBN-13 válido em ISBN-10, só com dígitos (e
+     * "X").
+     *
+     * @param isbn ISBN, com ou sem hífens e espaços.
+     * @return O ISBN-10, ou null se o texto não é um ISBN válido ou é um
+     * ISBN-13 sem ISBN-10 correspondente (prefixo 979).
+     */
+    public static String paraIsbn10(CharSequence isbn) {
+        long numero = paraNumero(isbn);
+        if (numero < 0 || numero / (UM_BILHAO * 10) != 978) {
+            return null;
+        }
+        long nove = numero / 10 % UM_BILHAO;
+        char[] texto = new char[10];
+        int soma = 0;
+        for (int i = 8; i >= 0; i--) {
+            int d = (int) (nove % 10);
+            texto[i] = (char) ('0' + d);
+            soma += d * (10 - i);
+            nove /= 10;
+        }
+        int verificador = (11 - soma % 11) % 11;
+        texto[9] = verificador == 10 ? 'X' : (char) ('0' + verificador);
+        return new String(texto);
+    }
+
+    /**
+     * Formata o ISBN-13 numérico como texto de 13 dígitos.
+     *
+     * @param numero ISBN-13 retornado por {@link #paraNumero(CharSequence)}.
+     * @return O ISBN-13.
+     */
+    public static String formatar(long numero) {
+        char[] texto = new char[13];
+        for (int i = 12; i >= 0; i--) {
+            texto[i] = (char) ('0' + numero % 10);
+            numero /= 10;
+        }
+        return new String(texto);
+    }
+
+    /**
+     * Remove do texto tudo que não é dígito ou "X" (convertido em
+     * maiúsculo), sem validar. Usado quando o texto precisa ser guardado
+     * mesmo que não seja um ISBN válido.
+     *
+     * @param isbn Texto digitado.
+     * @return O texto compacto (o próprio texto, se já estiver compacto), ou
+     * "" se for null.
+     */
+    public static String compactar(CharSequence isbn) {
+        if (isbn == null) {
+            return "";
+        }
+        int n = isbn.length();
+        int i = 0;
+        while (i < n && ((isbn.charAt(i) >= '0' && isbn.charAt(i) <= '9') || isbn.charAt(i) == 'X')) {
+            i++;
+        }
+        if (i == n) {
+            return isbn.toString();
+        }
+        StringBuilder compacto = new StringBuilder(n).append(isbn, 0, i);
+        for (; i < n; i++) {
+            char c = isbn.charAt(i);
+            if (c >= '0' && c <= '9') {
+                compacto.append(c);
+            } else if (c == 'X' || c == 'x') {
+                compacto.append('X');
+            }
+        }
+        return compacto.toString();
+    }
+
+    /**
+     * Converte os 9 primeiros dígitos de um ISBN-10 em ISBN-13 (prefixo 978
+     * e novo dígito verificador).
+     */
+    private static long converter10(long nove) {
+        long semVerificador = PREFIXO_978 + nove;
+        int soma = 0;
+        long resto = semVerificador;
+        for (int i = 12; i >= 1; i--) {
+            int d = (int) (resto % 10);
+            soma += (i & 1) == 1 ? d : 3 * d;
+            resto /= 10;
+        }
+        return semVerificador * 10 + (10 - soma % 10) % 10;
+    }
+}
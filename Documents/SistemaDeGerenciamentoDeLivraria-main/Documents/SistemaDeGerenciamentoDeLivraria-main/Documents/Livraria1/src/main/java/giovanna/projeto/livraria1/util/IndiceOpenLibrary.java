@@ -0,0 +1,382 @@
+package giovanna.projeto.livraria1.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Índice local de edições da Open Library, para consultar livros pelo ISBN
+ * sem acesso à internet.
+ *
+ * <p>
+ * O índice é gerado a partir do dump de edições da Open Library
+ * ({@code IndiceOpenLibraryService}) e fica numa pasta com dois arquivos,
+ * mapeados em memória (o sistema operacional carrega apenas as páginas
+ * consultadas):
+ * </p>
+ * <ul>
+ * <li>{@value #ARQUIVO_CHAVES}: cabeçalho ({@value #MAGICO}, versão,
+ * quantidade e geração) seguido de pares (ISBN-13 como número, posição do registro),
+ * de 16 bytes cada, em ordem crescente de ISBN. A busca é binária: cerca de
+ * 26 comparações para 50 milhões de ISBNs.</li>
+ * <li>{@value #ARQUIVO_REGISTROS}: cabeçalho ({@value #MAGICO}, versão e
+ * geração) seguido dos registros, com título, autor, editora,
+ * data de publicação e assunto, cada um como tamanho (2 bytes) e texto em
+ * UTF-8. Um registro nunca atravessa um limite de
+ * {@value #TAMANHO_BLOCO} bytes, o tamanho de cada mapeamento.</li>
+ * </ul>
+ * <p>
+ * A geração é um número aleatório sorteado a cada geração do índice e
+ * gravado nos dois arquivos. Os arquivos são substituídos um de cada vez; se
+ * o programa parar entre as duas substituições, as gerações diferem e o
+ * índice é recusado na abertura, em vez de apontar para registros de outro
+ * índice.
+ * </p>
+ * <p>
+ * Um índice aberto confere a geração do arquivo de chaves no máximo a cada
+ * {@link #INTERVALO_VERIFICACAO_PADRAO} e, se o índice foi gerado de novo,
+ * passa a consultar os arquivos novos, sem precisar reiniciar o programa. O
+ * Java não permite desfazer um mapeamento: o anterior é liberado pela coleta
+ * de lixo, quando não há mais consultas usando-o. Por isso, no Windows, a
+ * geração não consegue substituir arquivos ainda mapeados e os renomeia
+ * ({@code IndiceOpenLibraryService}).
+ * </p>
+ * <p>
+ * ISBN-10 são convertidos para ISBN-13 ({@link ISBNUtil#paraNumero}), tanto
+ * na geração quanto na consulta.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class IndiceOpenLibrary {
+
+    private static final Logger LOGGER = Logger.getLogger(IndiceOpenLibrary.class.getName());
+
+    /**
+     * Nome do arquivo de chaves.
+     */
+    public static final String ARQUIVO_CHAVES = "edicoes.idx";
+
+    /**
+     * Nome do arquivo de registros.
+     */
+    public static final String ARQUIVO_REGISTROS = "edicoes.dat";
+
+    /**
+     * Identificação do arquivo de chaves.
+     */
+    public static final int MAGICO = 0x4C564958; // "LVIX"
+
+    /**
+     * Versão do formato.
+     */
+    public static final int VERSAO = 2;
+
+    /**
+     * Tamanho do cabeçalho do arquivo de chaves.
+     */
+    public static final int TAMANHO_CABECALHO = 24;
+
+    /**
+     * Tamanho do cabeçalho do arquivo de registros.
+     */
+    public static final int TAMANHO_CABECALHO_REGISTROS = 16;
+
+    /**
+     * Tamanho de cada par (ISBN, posição) no arquivo de chaves.
+     */
+    public static final int TAMANHO_CHAVE = 16;
+
+    /**
+     * Tamanho de cada mapeamento em memória (1 GiB).
+     */
+    public static final int TAMANHO_BLOCO = 1 << 30;
+
+    /**
+     * Intervalo mínimo entre duas verificações da geração do índice
+     * (propriedade de sistema {@code livraria.openlibrary.verificacaoMs}).
+     */
+    public static final Duration INTERVALO_VERIFICACAO_PADRAO
+            = Duration.ofMillis(Long.getLong("livraria.openlibrary.verificacaoMs", 60_000));
+
+    // Tamanho máximo de cada campo do registro, em caracteres
+    private static final int[] TAMANHO_CAMPOS = {80, 80, 50, 40, 50};
+
+    /**
+     * Os dois arquivos de uma geração do índice, mapeados em memória.
+     */
+    private static final class Mapeamento {
+
+        private final long geracao;
+        private final long quantidade;
+        private final MappedByteBuffer[] chaves;
+        private final MappedByteBuffer[] registros;
+
+        private Mapeamento(Path diretorio) throws IOException {
+            this.chaves = mapear(diretorio.resolve(ARQUIVO_CHAVES));
+            this.registros = mapear(diretorio.resolve(ARQUIVO_REGISTROS));
+            if (chaves.length == 0 || chaves[0].getInt(0) != MAGICO || chaves[0].getInt(4) != VERSAO
+                    || registros.length == 0 || registros[0].getInt(0) != MAGICO || registros[0].getInt(4) != VERSAO) {
+                throw new IOException("Índice da Open Library inválido ou de outra versão: " + diretorio);
+            }
+            if (chaves[0].getLong(16) != registros[0].getLong(8)) {
+                throw new IOException("Arquivos de chaves e de registros de gerações diferentes (substituição incompleta): " + diretorio);
+            }
+            this.geracao = chaves[0].getLong(16);
+            this.quantidade = chaves[0].getLong(8);
+        }
+    }
+
+    private final Path diretorio;
+    private final long intervaloVerificacaoNanos;
+    private final AtomicBoolean verificando = new AtomicBoolean();
+    private volatile Mapeamento mapeamento; // null enquanto a pasta não tem um índice válido
+    private volatile long ultimaVerificacao;
+
+    private IndiceOpenLibrary(Path diretorio, Duration intervaloVerificacao) {
+        this.diretorio = diretorio;
+        this.intervaloVerificacaoNanos = intervaloVerificacao.toNanos();
+        this.ultimaVerificacao = System.nanoTime();
+    }
+
+    /**
+     * Abre o índice da pasta informada, conferindo a geração no intervalo
+     * padrão ({@link #INTERVALO_VERIFICACAO_PADRAO}).
+     *
+     * @param diretorio Pasta do índice.
+     * @return O índice, ou null se a pasta não contém um índice válido.
+     */
+    public static IndiceOpenLibrary abrir(Path diretorio) {
+        return abrir(diretorio, INTERVALO_VERIFICACAO_PADRAO);
+    }
+
+    /**
+     * Abre o índice da pasta informada.
+     *
+     * @param diretorio Pasta do índice.
+     * @param intervaloVerificacao Intervalo mínimo entre duas verificações da
+     * geração.
+     * @return O índice, ou null se a pasta não contém um índice válido.
+     */
+    public static IndiceOpenLibrary abrir(Path diretorio, Duration intervaloVerificacao) {
+        if (!Files.exists(diretorio.resolve(ARQUIVO_CHAVES)) || !Files.exists(diretorio.resolve(ARQUIVO_REGISTROS))) {
+            return null;
+        }
+        IndiceOpenLibrary indice = new IndiceOpenLibrary(diretorio, intervaloVerificacao);
+        return indice.recarregar() ? indice : null;
+    }
+
+    /**
+     * Abre o índice da pasta informada mesmo que ela ainda não tenha um
+     * índice válido: até que um seja gerado, as consultas não encontram
+     * nenhum ISBN.
+     *
+     * @param diretorio Pasta do índice.
+     * @return O índice.
+     */
+    public static IndiceOpenLibrary acompanhar(Path diretorio) {
+        IndiceOpenLibrary indice = new IndiceOpenLibrary(diretorio, INTERVALO_VERIFICACAO_PADRAO);
+        if (lerGeracao(diretorio) != null) {
+            indice.recarregar();
+        }
+        return indice;
+    }
+
+    /**
+     * Retorna a pasta padrão do índice (propriedade de sistema
+     * {@code livraria.openlibrary.indice}; por padrão,
+     * {@code ~/.livraria/openlibrary}).
+     *
+     * @return Caminho da pasta.
+     */
+    public static Path diretorioPadrao() {
+        String configurado = System.getProperty("livraria.openlibrary.indice");
+        return configurado != null ? Paths.get(configurado) : Paths.get(System.getProperty("user.home"), ".livraria", "openlibrary");
+    }
+
+    /**
+     * Busca um livro pelo ISBN.
+     *
+     * @param isbn ISBN-10 ou ISBN-13 (normalizado ou não).
+     * @return O livro, com o ISBN-13, ou null se o ISBN é inválido ou não
+     * está no índice.
+     */
+    public Livro buscar(CharSequence isbn) {
+        long chave = ISBNUtil.paraNumero(isbn);
+        Mapeamento atual = getMapeamento();
+        if (chave < 0 || atual == null) {
+            return null;
+        }
+        long inicio = 0;
+        long fim = atual.quantidade - 1;
+        while (inicio <= fim) {
+            long meio = (inicio + fim) >>> 1;
+            long posicao = TAMANHO_CABECALHO + meio * TAMANHO_CHAVE;
+            long lida = ler(atual.chaves, posicao);
+            if (lida < chave) {
+                inicio = meio + 1;
+            } else if (lida > chave) {
+                fim = meio - 1;
+            } else {
+                return lerRegistro(atual.registros, ler(atual.chaves, posicao + 8), ISBNUtil.formatar(chave));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Quantidade de ISBNs no índice (0 enquanto a pasta não tem um
+     * índice válido).
+     */
+    public long getQuantidade() {
+        Mapeamento atual = getMapeamento();
+        return atual != null ? atual.quantidade : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "IndiceOpenLibrary[" + diretorio + ", " + getQuantidade() + " ISBNs]";
+    }
+
+    /**
+     * Retorna o mapeamento atual, reabrindo o índice antes se já passou o
+     * intervalo de verificação e a geração do arquivo de chaves mudou. Só uma
+     * thread verifica por vez; as demais usam o mapeamento atual.
+     */
+    private Mapeamento getMapeamento() {
+        Mapeamento atual = mapeamento;
+        if (System.nanoTime() - ultimaVerificacao < intervaloVerificacaoNanos || !verificando.compareAndSet(false, true)) {
+            return atual;
+        }
+        try {
+            Long geracao = lerGeracao(diretorio);
+            if (geracao != null && (atual == null || geracao != atual.geracao)) {
+                recarregar();
+            }
+        } finally {
+            ultimaVerificacao = System.nanoTime();
+            verificando.set(false);
+        }
+        return mapeamento;
+    }
+
+    /**
+     * Mapeia os arquivos da pasta. Em caso de erro (por exemplo, no meio de
+     * uma substituição), o mapeamento anterior continua em uso.
+     *
+     * @return true se o índice foi aberto.
+     */
+    private boolean recarregar() {
+        try {
+            Mapeamento novo = new Mapeamento(diretorio);
+            mapeamento = novo;
+            LOGGER.log(Level.INFO, "Índice local da Open Library aberto: {0} ISBNs em {1}",
+                    new Object[]{novo.quantidade, diretorio});
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Não foi possível abrir o índice local da Open Library em " + diretorio, e);
+            return false;
+        }
+    }
+
+    /**
+     * Lê a geração no cabeçalho do arquivo de chaves, sem mapeá-lo.
+     *
+     * @return A geração, ou null se o arquivo não existe ou não é um índice
+     * desta versão.
+     */
+    private static Long lerGeracao(Path diretorio) {
+        try (FileChannel canal = FileChannel.open(diretorio.resolve(ARQUIVO_CHAVES), StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            while (cabecalho.hasRemaining() && canal.read(cabecalho) >= 0) {
+                // Lê até completar o cabeçalho ou o arquivo acabar
+            }
+            if (cabecalho.hasRemaining() || cabecalho.getInt(0) != MAGICO || cabecalho.getInt(4) != VERSAO) {
+                return null;
+            }
+            return cabecalho.getLong(16);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Codifica um registro no formato do arquivo de registros. Os textos são
+     * limitados ao tamanho das colunas do cadastro.
+     *
+     * @param titulo Título.
+     * @param autor Autor.
+     * @param editora Editora.
+     * @param dataPublicacao Data de publicação, como veio da Open Library.
+     * @param genero Primeiro assunto.
+     * @return O registro codificado.
+     */
+    public static byte[] codificar(String titulo, String autor, String editora, String dataPublicacao, String genero) {
+        String[] campos = {titulo, autor, editora, dataPublicacao, genero};
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(128);
+        for (int i = 0; i < campos.length; i++) {
+            String campo = campos[i];
+            if (campo == null) {
+                saida.write(0xFF); // Tamanho 0xFFFF = ausente
+                saida.write(0xFF);
+                continue;
+            }
+            if (campo.length() > TAMANHO_CAMPOS[i]) {
+                campo = campo.substring(0, TAMANHO_CAMPOS[i]);
+            }
+            byte[] bytes = campo.getBytes(StandardCharsets.UTF_8);
+            saida.write(bytes.length >>> 8);
+            saida.write(bytes.length);
+            saida.write(bytes, 0, bytes.length);
+        }
+        return saida.toByteArray();
+    }
+
+    private static Livro lerRegistro(MappedByteBuffer[] registros, long posicao, String isbn) {
+        ByteBuffer bloco = registros[(int) (posicao / TAMANHO_BLOCO)].duplicate(); // Cópia da posição, para uso concorrente
+        bloco.position((int) (posicao % TAMANHO_BLOCO));
+        String[] campos = new String[TAMANHO_CAMPOS.length];
+        for (int i = 0; i < campos.length; i++) {
+            int tamanho = bloco.getShort() & 0xFFFF;
+            if (tamanho == 0xFFFF) {
+                continue;
+            }
+            byte[] bytes = new byte[tamanho];
+            bloco.get(bytes);
+            campos[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return ConverterLivro.criarLivro(campos[0], campos[1], campos[2], campos[4], campos[3], isbn);
+    }
+
+    private static long ler(MappedByteBuffer[] blocos, long posicao) {
+        return blocos[(int) (posicao / TAMANHO_BLOCO)].getLong((int) (posicao % TAMANHO_BLOCO));
+    }
+
+    /**
+     * Mapeia o arquivo em blocos de {@value #TAMANHO_BLOCO} bytes, somente
+     * leitura.
+     */
+    private static MappedByteBuffer[] mapear(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            MappedByteBuffer[] blocos = new MappedByteBuffer[(int) ((tamanho + TAMANHO_BLOCO - 1) / TAMANHO_BLOCO)];
+            for (int i = 0; i < blocos.length; i++) {
+                long inicio = (long) i * TAMANHO_BLOCO;
+                blocos[i] = canal.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(TAMANHO_BLOCO, tamanho - inicio));
+            }
+            return blocos; // O mapeamento continua válido após fechar o canal
+        }
+    }
+}
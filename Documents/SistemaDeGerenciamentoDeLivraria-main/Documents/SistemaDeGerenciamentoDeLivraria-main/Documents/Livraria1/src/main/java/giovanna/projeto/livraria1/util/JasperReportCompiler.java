@@ -1,5 +1,10 @@
 package giovanna.projeto.livraria1.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import net.sf.jasperreports.engine.JasperCompileManager;
 import net.sf.jasperreports.engine.JasperReport;
 import net.sf.jasperreports.engine.JRException;
@@ -7,6 +12,14 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Compilação dos relatórios Jasper.
+ *
+ * <p>
+ * Os relatórios são distribuídos como JRXML no próprio jar e compilados uma
+ * única vez, no primeiro uso; o {@link JasperReport} compilado fica em memória
+ * e é reaproveitado por todos os preenchimentos seguintes (inclusive
+ * simultâneos, pois não é alterado pelo preenchimento).
+ * </p>
  *
  * @author giova
  */
@@ -14,6 +27,9 @@ public class JasperReportCompiler {
     
     private static final Logger LOGGER = Logger.getLogger(JasperReportCompiler.class.getName());
 
+    // Relatórios já compilados, pelo caminho do JRXML no classpath
+    private static final Map<String, JasperReport> RELATORIOS = new ConcurrentHashMap<>();
+
     /**
      * Compila o relatório Jasper a partir de um arquivo JRXML.
      * @param jrxmlPath Caminho para o arquivo JRXML.
@@ -30,4 +46,47 @@ public class JasperReportCompiler {
             throw new JRException("Erro ao compilar o relatório Jasper", e);
         }
     }
+
+    /**
+     * Retorna o relatório compilado a partir de um JRXML do classpath,
+     * compilando-o apenas na primeira chamada.
+     *
+     * @param recurso Caminho do JRXML no classpath (por exemplo,
+     * "relatorios/LivroporGenero.jrxml").
+     * @return O relatório compilado.
+     * @throws JRException Se o JRXML não existir ou não puder ser compilado.
+     */
+    public static JasperReport obterRelatorio(String recurso) throws JRException {
+        JasperReport relatorio = RELATORIOS.get(recurso);
+        if (relatorio != null) {
+            return relatorio;
+        }
+        synchronized (RELATORIOS) {
+            // Outra thread pode ter compilado enquanto esta esperava
+            relatorio = RELATORIOS.get(recurso);
+            if (relatorio == null) {
+                relatorio = compilarRecurso(recurso);
+                RELATORIOS.put(recurso, relatorio);
+            }
+            return relatorio;
+        }
+    }
+
+    private static JasperReport compilarRecurso(String recurso) throws JRException {
+        long inicio = System.nanoTime();
+        try (InputStream jrxml = JasperReportCompiler.class.getClassLoader().getResourceAsStream(recurso)) {
+            if (jrxml == null) {
+                throw new JRException("Relatório não encontrado no classpath: " + recurso);
+            }
+            JasperReport relatorio = JasperCompileManager.compileReport(jrxml);
+            LOGGER.log(Level.INFO, "Relatório {0} compilado em {1} ms",
+                    new Object[]{recurso, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)});
+            return relatorio;
+        } catch (IOException e) {
+            throw new JRException("Erro ao ler o relatório: " + recurso, e);
+        } catch (JRException e) {
+            LOGGER.log(Level.SEVERE, "Erro ao compilar o relatório Jasper: " + recurso, e);
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,198 @@
+package giovanna.projeto.livraria1.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitor de arquivos CSV (RFC 4180), registro a registro, sem carregar o
+ * arquivo inteiro na memória.
+ *
+ * <p>
+ * Aceita campos entre aspas (com aspas duplicadas e quebras de linha dentro
+ * do campo), finais de linha {@code \n} ou {@code \r\n} e a marca de ordem de
+ * bytes (BOM) no início do arquivo. O separador ({@code ;} ou {@code ,}) é
+ * detectado pela primeira linha, já que planilhas em português costumam
+ * exportar com ponto e vírgula.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class LeitorCsv implements Closeable {
+
+    private final Reader reader;
+    private final char[] buffer = new char[1 << 16];
+    private int posicao;
+    private int limite;
+
+    private final char separador;
+    private final StringBuilder campo = new StringBuilder();
+
+    private long linha = 1; // Linha física atual do arquivo
+    private long linhaRegistro; // Linha em que começou o último registro lido
+
+    /**
+     * Cria o leitor, detectando o separador pela primeira linha.
+     *
+     * @param reader Origem dos dados (não precisa ter buffer).
+     * @throws IOException Se ocorrer um erro de leitura.
+     */
+    public LeitorCsv(Reader reader) throws IOException {
+        this.reader = reader;
+        preencher();
+        if (limite > 0 && buffer[0] == '\uFEFF') {
+            posicao = 1; // Ignora o BOM
+        }
+        this.separador = detectarSeparador();
+    }
+
+    /**
+     * Cria o leitor com um separador fixo.
+     *
+     * @param reader Origem dos dados (não precisa ter buffer).
+     * @param separador Separador de campos.
+     * @throws IOException Se ocorrer um erro de leitura.
+     */
+    public LeitorCsv(Reader reader, char separador) throws IOException {
+        this.reader = reader;
+        preencher();
+        if (limite > 0 && buffer[0] == '\uFEFF') {
+            posicao = 1;
+        }
+        this.separador = separador;
+    }
+
+    /**
+     * Lê o próximo registro.
+     *
+     * @return Campos do registro, ou null no fim do arquivo.
+     * @throws IOException Se ocorrer um erro de leitura ou o arquivo terminar
+     * dentro de um campo entre aspas.
+     */
+    public List<String> proximoRegistro() throws IOException {
+        int c = ler();
+        if (c == -1) {
+            return null;
+        }
+        linhaRegistro = linha;
+
+        List<String> campos = new ArrayList<>();
+        boolean entreAspas = false;
+        boolean campoComAspas = false;
+        campo.setLength(0);
+
+        while (true) {
+            if (c == -1) {
+                if (entreAspas) {
+                    throw new IOException("Aspas não fechadas no registro iniciado na linha " + linhaRegistro);
+                }
+                campos.add(campo.toString());
+                return campos;
+            }
+            if (entreAspas) {
+                if (c == '"') {
+                    int proximo = ler();
+                    if (proximo != '"') {
+                        entreAspas = false; // Fim do campo entre aspas
+                        c = proximo;
+                        continue;
+                    }
+                    campo.append('"'); // Aspas duplicadas
+                } else {
+                    if (c == '\n') {
+                        linha++;
+                    }
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.length() == 0 && !campoComAspas) {
+                entreAspas = true;
+                campoComAspas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+                campoComAspas = false;
+            } else if (c == '\n') {
+                linha++;
+                campos.add(campo.toString());
+                return campos;
+            } else if (c != '\r') {
+                campo.append((char) c);
+            }
+            c = ler();
+        }
+    }
+
+    /**
+     * Retorna a linha do arquivo em que começou o último registro lido.
+     *
+     * @return Número da linha (a partir de 1).
+     */
+    public long getLinhaRegistro() {
+        return linhaRegistro;
+    }
+
+    /**
+     * Retorna o separador de campos em uso.
+     *
+     * @return O separador.
+     */
+    public char getSeparador() {
+        return separador;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Escolhe entre {@code ;} e {@code ,} pelo que aparecer mais na primeira
+     * linha (fora de aspas).
+     *
+     * @return O separador detectado.
+     */
+    private char detectarSeparador() {
+        int pontoEVirgula = 0;
+        int virgula = 0;
+        boolean entreAspas = false;
+        for (int i = posicao; i < limite && buffer[i] != '\n'; i++) {
+            char c = buffer[i];
+            if (c == '"') {
+                entreAspas = !entreAspas;
+            } else if (!entreAspas && c == ';') {
+                pontoEVirgula++;
+            } else if (!entreAspas && c == ',') {
+                virgula++;
+            }
+        }
+        return pontoEVirgula > virgula ? ';' : ',';
+    }
+
+    /**
+     * Lê o próximo caractere do buffer, recarregando-o quando necessário.
+     *
+     * @return O caractere, ou -1 no fim do arquivo.
+     * @throws IOException Se ocorrer um erro de leitura.
+     */
+    private int ler() throws IOException {
+        if (posicao >= limite) {
+            preencher();
+            if (limite <= 0) {
+                return -1;
+            }
+        }
+        return buffer[posicao++];
+    }
+
+    /**
+     * Recarrega o buffer a partir do reader.
+     *
+     * @throws IOException Se ocorrer um erro de leitura.
+     */
+    private void preencher() throws IOException {
+        posicao = 0;
+        limite = reader.read(buffer, 0, buffer.length);
+    }
+}
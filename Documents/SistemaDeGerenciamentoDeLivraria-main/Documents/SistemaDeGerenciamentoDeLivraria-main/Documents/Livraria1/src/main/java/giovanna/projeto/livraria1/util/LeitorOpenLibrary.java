@@ -0,0 +1,228 @@
+package giovanna.projeto.livraria1.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import giovanna.projeto.livraria1.model.Doc;
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.model.OpenLibraryBook;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Interpreta as respostas da busca da Open Library ({@code search.json}),
+ * localizando o documento do ISBN consultado e convertendo-o em
+ * {@link Livro}.
+ *
+ * <p>
+ * Há dois modos:
+ * </p>
+ * <ul>
+ * <li>{@link Modo#STREAMING} (padrão): percorre os tokens com o
+ * {@link JsonParser}, lê apenas título, autor, editora, assunto, data de
+ * publicação e ISBNs, pula os demais campos sem criar objetos e para no
+ * primeiro documento com o ISBN consultado, sem ler o resto da resposta.</li>
+ * <li>{@link Modo#DATABIND}: converte a resposta inteira em
+ * {@link OpenLibraryBook}/{@link Doc} (inclusive os campos não mapeados) e
+ * procura o documento na lista. Mantido como alternativa e como base de
+ * comparação.</li>
+ * </ul>
+ * <p>
+ * Os dois modos produzem o mesmo livro, pelo {@link ConverterLivro}.
+ * </p>
+ *
+ * @author giova
+ */
+public final class LeitorOpenLibrary {
+
+    /**
+     * Forma de interpretar a resposta.
+     */
+    public enum Modo {
+        STREAMING, DATABIND
+    }
+
+    // Fábrica e leitor Jackson compartilhados; são imutáveis e podem ser usados por várias threads
+    private static final JsonFactory FABRICA = new JsonFactory();
+    private static final ObjectReader LEITOR = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(OpenLibraryBook.class);
+
+    private LeitorOpenLibrary() {
+    }
+
+    /**
+     * Lê a resposta da busca e retorna o livro do ISBN consultado.
+     *
+     * @param corpo Corpo da resposta (já descompactado).
+     * @param isbn ISBN normalizado, como aparece na lista {@code isbn} dos
+     * documentos.
+     * @param modo Forma de interpretar a resposta.
+     * @return O livro, com o ISBN consultado, ou null se nenhum documento o
+     * contém.
+     * @throws IOException Se a resposta não for um JSON válido.
+     */
+    public static Livro ler(InputStream corpo, String isbn, Modo modo) throws IOException {
+        return modo == Modo.DATABIND ? lerDatabind(corpo, isbn) : lerStreaming(corpo, isbn);
+    }
+
+    /**
+     * Converte o nome do modo (sem diferenciar maiúsculas), como aparece no
+     * arquivo de configuração.
+     *
+     * @param nome Nome do modo, ou null.
+     * @return O modo; {@link Modo#STREAMING} se o nome for nulo ou
+     * desconhecido.
+     */
+    public static Modo modo(String nome) {
+        return nome != null && nome.trim().equalsIgnoreCase(Modo.DATABIND.name()) ? Modo.DATABIND : Modo.STREAMING;
+    }
+
+    private static Livro lerDatabind(InputStream corpo, String isbn) throws IOException {
+        OpenLibraryBook openLibraryBook = LEITOR.readValue(corpo);
+        if (openLibraryBook.getDocs() == null) {
+            return null;
+        }
+        // Itera pelos documentos para localizar o ISBN fornecido
+        for (Doc doc : openLibraryBook.getDocs()) {
+            List<String> isbns = doc.getIsbn();
+            if (isbns != null && isbns.contains(isbn)) {
+                Livro livro = ConverterLivro.fromOpenLibraryDoc(doc);
+                livro.setIsbn(isbn); // Garante que o ISBN usado seja o correto
+                return livro;
+            }
+        }
+        return null;
+    }
+
+    private static Livro lerStreaming(InputStream corpo, String isbn) throws IOException {
+        try (JsonParser parser = FABRICA.createParser(corpo)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "A resposta não é um objeto JSON");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.currentName();
+                JsonToken valor = parser.nextToken();
+                if (!"docs".equals(campo) || valor != JsonToken.START_ARRAY) {
+                    parser.skipChildren(); // numFound, q, etc.
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Livro livro = lerDoc(parser, isbn);
+                    if (livro != null) {
+                        return livro; // O restante da resposta não é lido
+                    }
+                }
+                return null;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Lê um documento, com o parser posicionado no seu início, até o fim do
+     * objeto. Os campos podem vir em qualquer ordem, por isso a decisão só é
+     * tomada no fim.
+     *
+     * @return O livro, se o documento contém o ISBN; senão, null.
+     */
+    private static Livro lerDoc(JsonParser parser, String isbn) throws IOException {
+        String titulo = null;
+        String autor = null;
+        String editora = null;
+        String genero = null;
+        String data = null;
+        boolean contemIsbn = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = parser.currentName();
+            parser.nextToken();
+            switch (campo) {
+                case "title" ->
+                    titulo = parser.currentToken() == JsonToken.VALUE_STRING ? parser.getText() : pular(parser);
+                case "author_name" ->
+                    autor = primeiroTexto(parser);
+                case "publisher" ->
+                    editora = primeiroTexto(parser);
+                case "subject" ->
+                    genero = primeiroTexto(parser);
+                case "publish_date" ->
+                    data = primeiroTexto(parser);
+                case "isbn" ->
+                    contemIsbn = contem(parser, isbn);
+                default ->
+                    parser.skipChildren();
+            }
+        }
+        return contemIsbn ? ConverterLivro.criarLivro(titulo, autor, editora, genero, data, isbn) : null;
+    }
+
+    /**
+     * Retorna o primeiro texto de uma lista e pula os demais elementos.
+     */
+    private static String primeiroTexto(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            return pular(parser);
+        }
+        String primeiro = null;
+        boolean primeiroElemento = true;
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (primeiroElemento && token == JsonToken.VALUE_STRING) {
+                primeiro = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+            primeiroElemento = false;
+        }
+        return primeiro;
+    }
+
+    /**
+     * Verifica se a lista contém o texto procurado, comparando os caracteres
+     * diretamente no buffer do parser, sem criar uma String por elemento.
+     */
+    private static boolean contem(JsonParser parser, String procurado) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            pular(parser);
+            return false;
+        }
+        boolean encontrado = false;
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token == JsonToken.VALUE_STRING) {
+                encontrado = encontrado || textoIgual(parser, procurado);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return encontrado;
+    }
+
+    private static boolean textoIgual(JsonParser parser, String procurado) throws IOException {
+        if (parser.getTextLength() != procurado.length()) {
+            return false;
+        }
+        char[] texto = parser.getTextCharacters();
+        int inicio = parser.getTextOffset();
+        for (int i = 0; i < procurado.length(); i++) {
+            if (texto[inicio + i] != procurado.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Pula o valor atual (e seus filhos, se for objeto ou lista).
+     *
+     * @return Sempre null, para uso nas atribuições.
+     */
+    private static String pular(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+}
@@ -0,0 +1,82 @@
+package giovanna.projeto.livraria1.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limitador de taxa no modelo de balde de fichas (token bucket).
+ *
+ * <p>
+ * O balde recebe fichas continuamente, na taxa configurada, até a capacidade
+ * máxima (a rajada). Cada operação consome uma ficha; sem ficha disponível,
+ * {@link #adquirir()} espera o tempo necessário para a próxima. Assim, após
+ * um período ocioso, até {@code rajada} operações passam de imediato, e a
+ * taxa média nunca ultrapassa a configurada.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class LimitadorTaxa {
+
+    private final double fichasPorNano;
+    private final double capacidade;
+
+    private double fichas; // Pode ficar negativo: fichas já reservadas por quem está esperando
+    private long ultimaReposicao;
+
+    /**
+     * Cria o limitador, com o balde cheio.
+     *
+     * @param porSegundo Operações permitidas por segundo, em média.
+     * @param rajada Operações permitidas de uma vez após um período ocioso.
+     */
+    public LimitadorTaxa(double porSegundo, int rajada) {
+        if (porSegundo <= 0 || rajada < 1) {
+            throw new IllegalArgumentException("Taxa e rajada devem ser positivas.");
+        }
+        this.fichasPorNano = porSegundo / TimeUnit.SECONDS.toNanos(1);
+        this.capacidade = rajada;
+        this.fichas = rajada;
+        this.ultimaReposicao = System.nanoTime();
+    }
+
+    /**
+     * Consome uma ficha, esperando se o balde estiver vazio.
+     *
+     * @throws InterruptedException Se a thread for interrompida durante a
+     * espera.
+     */
+    public void adquirir() throws InterruptedException {
+        long espera;
+        synchronized (this) {
+            repor();
+            fichas -= 1; // Reserva a ficha; a espera cobre o déficit
+            espera = fichas >= 0 ? 0 : (long) Math.ceil(-fichas / fichasPorNano);
+        }
+        if (espera > 0) {
+            TimeUnit.NANOSECONDS.sleep(espera);
+        }
+    }
+
+    /**
+     * Tenta consumir uma ficha sem esperar.
+     *
+     * @return true se havia ficha disponível.
+     */
+    public synchronized boolean tentarAdquirir() {
+        repor();
+        if (fichas >= 1) {
+            fichas -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Acrescenta as fichas acumuladas desde a última reposição.
+     */
+    private void repor() {
+        long agora = System.nanoTime();
+        fichas = Math.min(capacidade, fichas + (agora - ultimaReposicao) * fichasPorNano);
+        ultimaReposicao = agora;
+    }
+}
@@ -0,0 +1,588 @@
+package giovanna.projeto.livraria1.util;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Calcula a similaridade entre livros e os vizinhos mais semelhantes de cada
+ * livro.
+ *
+ * <p>
+ * A pontuação de um par de livros vai de 0 a 1 e soma: autor em comum
+ * ({@value #PESO_AUTOR}), mesmo gênero ({@value #PESO_GENERO}), palavras em
+ * comum no título ({@value #PESO_TITULO} vezes o índice de Jaccard das
+ * palavras), mesma editora ({@value #PESO_EDITORA}) e proximidade da década
+ * de publicação ({@value #PESO_DECADA} na mesma década, diminuindo até zero a
+ * {@value #DECADAS_PROXIMIDADE} décadas de distância). Só pares com pelo menos
+ * {@value #PONTUACAO_MINIMA} são considerados semelhantes: o mesmo gênero
+ * basta, a mesma editora sozinha não.
+ * </p>
+ * <p>
+ * Os livros são carregados com {@link #adicionar} e indexados por
+ * {@link #preparar()}. Os candidatos de um livro não são todos os livros do
+ * catálogo: são os que têm autor, editora ou palavra do título em comum com
+ * ele (pelos índices invertidos) e os livros do mesmo gênero com a década de
+ * publicação mais próxima. Como um livro do mesmo gênero sem mais nada em
+ * comum só pontua pelo gênero e pela década, os mais próximos na década bastam
+ * para encontrar os melhores vizinhos, e um gênero de 20 mil livros não obriga
+ * a comparar cada livro com todos os outros. Autores, editoras e palavras com
+ * mais de {@value #LIMITE_LISTA_CANDIDATOS} livros são comuns demais para
+ * distinguir um livro: contam na pontuação, mas não trazem candidatos.
+ * </p>
+ * <p>
+ * Depois de {@link #preparar()}, o motor não muda e pode ser consultado por
+ * várias threads, cada uma com o seu {@link Calculo}.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class MotorSimilaridade {
+
+    /**
+     * Quantidade padrão de vizinhos mantidos por livro.
+     */
+    public static final int VIZINHOS_PADRAO = 20;
+
+    public static final float PESO_AUTOR = 0.35f;
+    public static final float PESO_GENERO = 0.25f;
+    public static final float PESO_TITULO = 0.20f;
+    public static final float PESO_EDITORA = 0.10f;
+    public static final float PESO_DECADA = 0.10f;
+
+    /**
+     * Pontuação mínima para dois livros serem considerados semelhantes.
+     */
+    public static final float PONTUACAO_MINIMA = 0.25f;
+
+    /**
+     * Distância, em décadas, a partir da qual a década de publicação deixa de
+     * pontuar.
+     */
+    public static final int DECADAS_PROXIMIDADE = 4;
+
+    /**
+     * Quantidade máxima de livros de um autor, editora ou palavra do título
+     * para que ele seja usado na busca de candidatos.
+     */
+    public static final int LIMITE_LISTA_CANDIDATOS = 2000;
+
+    private static final int SEM_ANO = Integer.MIN_VALUE;
+    private static final int[] NENHUM = new int[0];
+    private static final Pattern SEPARADOR_AUTORES = Pattern.compile("[,;&/]|\\s+e\\s+|\\s+and\\s+");
+    private static final Pattern SEPARADOR_PALAVRAS = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Set<String> PALAVRAS_IGNORADAS = Set.of(
+            "the", "and", "for", "with", "from", "uma", "umas", "uns", "com", "para", "por", "pelo", "pela",
+            "pelos", "pelas", "sem", "sob", "sobre", "que", "das", "dos", "nas", "nos", "ele", "ela", "del",
+            "los", "las", "une", "des", "les", "volume", "vol", "edicao", "edition");
+
+    // Livros, pelo índice de carga
+    private int quantidade;
+    private int[] etiquetas = new int[1024];
+    private int[] generos = new int[1024];
+    private int[] decadas = new int[1024];
+    private int[] editoras = new int[1024];
+    private int[][] autores = new int[1024][];
+    private int[][] palavras = new int[1024][];
+
+    // Dicionários usados só durante a carga
+    private Map<String, Integer> dicionarioAutores = new HashMap<>();
+    private Map<String, Integer> dicionarioEditoras = new HashMap<>();
+    private Map<String, Integer> dicionarioPalavras = new HashMap<>();
+
+    // Índices invertidos, criados por preparar()
+    private int[][] livrosPorAutor;
+    private int[][] livrosPorEditora;
+    private int[][] livrosPorPalavra;
+    private Map<Integer, int[]> livrosPorGenero; // Ordenados pela década (sem ano no fim)
+    private boolean preparado;
+
+    /**
+     * Adiciona um livro ao catálogo.
+     *
+     * @param etiqueta Etiqueta do livro.
+     * @param titulo Título.
+     * @param autor Autor(es), separados por vírgula, ponto e vírgula ou "e".
+     * @param editora Editora.
+     * @param generoId ID do gênero (0 ou negativo se não houver).
+     * @param dataPublicacao Data de publicação (pode ser null).
+     * @return Índice do livro no motor.
+     */
+    public int adicionar(int etiqueta, String titulo, String autor, String editora, int generoId, LocalDate dataPublicacao) {
+        if (preparado) {
+            throw new IllegalStateException("O motor já foi preparado.");
+        }
+        if (quantidade == etiquetas.length) {
+            int capacidade = quantidade * 2;
+            etiquetas = Arrays.copyOf(etiquetas, capacidade);
+            generos = Arrays.copyOf(generos, capacidade);
+            decadas = Arrays.copyOf(decadas, capacidade);
+            editoras = Arrays.copyOf(editoras, capacidade);
+            autores = Arrays.copyOf(autores, capacidade);
+            palavras = Arrays.copyOf(palavras, capacidade);
+        }
+        int i = quantidade++;
+        etiquetas[i] = etiqueta;
+        generos[i] = Math.max(generoId, 0);
+        decadas[i] = dataPublicacao != null ? Math.floorDiv(dataPublicacao.getYear(), 10) : SEM_ANO;
+        String nomeEditora = normalizar(editora);
+        editoras[i] = nomeEditora.isEmpty() ? -1 : codigo(dicionarioEditoras, nomeEditora);
+        autores[i] = codigos(dicionarioAutores, SEPARADOR_AUTORES.split(normalizar(autor)), false);
+        palavras[i] = codigos(dicionarioPalavras, SEPARADOR_PALAVRAS.split(normalizar(titulo)), true);
+        return i;
+    }
+
+    /**
+     * Cria os índices invertidos. Deve ser chamado depois da carga e antes
+     * dos cálculos.
+     */
+    public void preparar() {
+        if (preparado) {
+            return;
+        }
+        livrosPorAutor = inverter(autores, dicionarioAutores.size());
+        livrosPorPalavra = inverter(palavras, dicionarioPalavras.size());
+        int[][] editorasPorLivro = new int[quantidade][];
+        for (int i = 0; i < quantidade; i++) {
+            editorasPorLivro[i] = editoras[i] < 0 ? NENHUM : new int[]{editoras[i]};
+        }
+        livrosPorEditora = inverter(editorasPorLivro, dicionarioEditoras.size());
+
+        Map<Integer, int[]> contagem = new HashMap<>();
+        for (int i = 0; i < quantidade; i++) {
+            if (generos[i] > 0) {
+                contagem.computeIfAbsent(generos[i], g -> new int[1])[0]++;
+            }
+        }
+        livrosPorGenero = new HashMap<>();
+        Map<Integer, int[]> posicao = new HashMap<>();
+        contagem.forEach((genero, total) -> {
+            livrosPorGenero.put(genero, new int[total[0]]);
+            posicao.put(genero, new int[1]);
+        });
+        for (int i = 0; i < quantidade; i++) {
+            if (generos[i] > 0) {
+                livrosPorGenero.get(generos[i])[posicao.get(generos[i])[0]++] = i;
+            }
+        }
+        for (int[] livros : livrosPorGenero.values()) {
+            ordenarPorDecada(livros);
+        }
+
+        dicionarioAutores = null; // Não são mais necessários
+        dicionarioEditoras = null;
+        dicionarioPalavras = null;
+        preparado = true;
+    }
+
+    /**
+     * @return Quantidade de livros carregados.
+     */
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    /**
+     * @param indice Índice do livro no motor.
+     * @return Etiqueta do livro.
+     */
+    public int getEtiqueta(int indice) {
+        return etiquetas[indice];
+    }
+
+    /**
+     * @param indice Índice do livro no motor.
+     * @return Identificador do gênero do livro, ou 0 se ele não tem gênero.
+     */
+    public int getGenero(int indice) {
+        return generos[indice];
+    }
+
+    /**
+     * Procura o índice de um livro pela etiqueta (busca linear).
+     *
+     * @param etiqueta Etiqueta do livro.
+     * @return Índice no motor, ou -1 se o livro não foi carregado.
+     */
+    public int indiceDe(int etiqueta) {
+        for (int i = 0; i < quantidade; i++) {
+            if (etiquetas[i] == etiqueta) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Calcula a pontuação de similaridade entre dois livros.
+     *
+     * @param a Índice do primeiro livro.
+     * @param b Índice do segundo livro.
+     * @return Pontuação, de 0 a 1.
+     */
+    public float pontuacao(int a, int b) {
+        float pontuacao = 0;
+        if (generos[a] > 0 && generos[a] == generos[b]) {
+            pontuacao += PESO_GENERO;
+        }
+        if (temEmComum(autores[a], autores[b])) {
+            pontuacao += PESO_AUTOR;
+        }
+        if (editoras[a] >= 0 && editoras[a] == editoras[b]) {
+            pontuacao += PESO_EDITORA;
+        }
+        pontuacao += PESO_TITULO * jaccard(palavras[a], palavras[b]);
+        if (decadas[a] != SEM_ANO && decadas[b] != SEM_ANO) {
+            int distancia = Math.abs(decadas[a] - decadas[b]);
+            if (distancia < DECADAS_PROXIMIDADE) {
+                pontuacao += PESO_DECADA * (1f - (float) distancia / DECADAS_PROXIMIDADE);
+            }
+        }
+        return pontuacao;
+    }
+
+    /**
+     * Cria o estado de um cálculo de vizinhos. Cada thread deve usar o seu.
+     *
+     * @return Um novo cálculo.
+     */
+    public Calculo novoCalculo() {
+        if (!preparado) {
+            throw new IllegalStateException("Chame preparar() antes de calcular.");
+        }
+        return new Calculo();
+    }
+
+    /**
+     * Calcula os vizinhos de um livro por vez, reaproveitando a memória entre
+     * os livros. Não é seguro para uso por várias threads.
+     */
+    public final class Calculo {
+
+        private final int[] marca = new int[quantidade];
+        private int geracao;
+        private int[] indices = new int[VIZINHOS_PADRAO];
+        private float[] pontuacoes = new float[VIZINHOS_PADRAO];
+        private int encontrados;
+        private int limite;
+
+        private Calculo() {
+        }
+
+        /**
+         * Calcula os vizinhos mais semelhantes de um livro, da maior para a
+         * menor pontuação.
+         *
+         * @param indice Índice do livro no motor.
+         * @param k Quantidade máxima de vizinhos.
+         * @return Quantidade de vizinhos encontrados (lidos com
+         * {@link #getIndice(int)} e {@link #getPontuacao(int)}).
+         */
+        public int vizinhos(int indice, int k) {
+            if (indices.length < k) {
+                indices = new int[k];
+                pontuacoes = new float[k];
+            }
+            limite = k;
+            encontrados = 0;
+            if (++geracao == 0) { // Reinicia as marcas quando o contador dá a volta
+                Arrays.fill(marca, 0);
+                geracao = 1;
+            }
+            marca[indice] = geracao;
+
+            for (int autor : autores[indice]) {
+                avaliarLista(indice, livrosPorAutor[autor]);
+            }
+            if (editoras[indice] >= 0) {
+                avaliarLista(indice, livrosPorEditora[editoras[indice]]);
+            }
+            for (int palavra : palavras[indice]) {
+                avaliarLista(indice, livrosPorPalavra[palavra]);
+            }
+            if (generos[indice] > 0) {
+                avaliarGenero(indice, livrosPorGenero.get(generos[indice]), k);
+            }
+
+            // O heap tem o pior no topo: retira do pior para o melhor
+            for (int fim = encontrados - 1; fim > 0; fim--) {
+                trocar(0, fim);
+                descer(0, fim);
+            }
+            return encontrados;
+        }
+
+        /**
+         * @param posicao Posição do vizinho (0 é o mais semelhante).
+         * @return Índice do vizinho no motor.
+         */
+        public int getIndice(int posicao) {
+            return indices[posicao];
+        }
+
+        /**
+         * @param posicao Posição do vizinho (0 é o mais semelhante).
+         * @return Pontuação do vizinho.
+         */
+        public float getPontuacao(int posicao) {
+            return pontuacoes[posicao];
+        }
+
+        private void avaliarLista(int indice, int[] livros) {
+            if (livros.length > LIMITE_LISTA_CANDIDATOS) {
+                return;
+            }
+            for (int outro : livros) {
+                avaliar(indice, outro);
+            }
+        }
+
+        /**
+         * Avalia os livros do gênero com a década mais próxima: parte da
+         * posição da década do livro e avança para os dois lados, sempre pelo
+         * mais próximo, até avaliar k livros ainda não vistos.
+         */
+        private void avaliarGenero(int indice, int[] livros, int k) {
+            int comAno = livros.length;
+            while (comAno > 0 && decadas[livros[comAno - 1]] == SEM_ANO) {
+                comAno--;
+            }
+            int restantes = k;
+            if (decadas[indice] != SEM_ANO) {
+                int direita = inicioDecada(livros, comAno, decadas[indice]);
+                int esquerda = direita - 1;
+                while (restantes > 0 && (esquerda >= 0 || direita < comAno)) {
+                    boolean irParaDireita = esquerda < 0 || (direita < comAno
+                            && decadas[livros[direita]] - decadas[indice] <= decadas[indice] - decadas[livros[esquerda]]);
+                    int outro = irParaDireita ? livros[direita++] : livros[esquerda--];
+                    if (avaliar(indice, outro)) {
+                        restantes--;
+                    }
+                }
+            }
+            // Sem ano (do livro ou dos demais), a década não pontua: qualquer livro do gênero serve
+            int inicio = decadas[indice] != SEM_ANO ? comAno : 0;
+            for (int i = inicio; i < livros.length && restantes > 0; i++) {
+                if (avaliar(indice, livros[i])) {
+                    restantes--;
+                }
+            }
+        }
+
+        /**
+         * Avalia um candidato ainda não visto.
+         *
+         * @return true se o candidato ainda não tinha sido visto.
+         */
+        private boolean avaliar(int indice, int outro) {
+            if (marca[outro] == geracao) {
+                return false;
+            }
+            marca[outro] = geracao;
+            float pontuacao = pontuacao(indice, outro);
+            if (pontuacao < PONTUACAO_MINIMA) {
+                return true;
+            }
+            if (encontrados < limite) {
+                indices[encontrados] = outro;
+                pontuacoes[encontrados] = pontuacao;
+                subir(encontrados++);
+            } else if (melhor(outro, pontuacao, indices[0], pontuacoes[0])) {
+                indices[0] = outro;
+                pontuacoes[0] = pontuacao;
+                descer(0, encontrados);
+            }
+            return true;
+        }
+
+        /**
+         * Ordem dos vizinhos: maior pontuação e, no empate, menor etiqueta.
+         */
+        private boolean melhor(int a, float pontuacaoA, int b, float pontuacaoB) {
+            return pontuacaoA > pontuacaoB || (pontuacaoA == pontuacaoB && etiquetas[a] < etiquetas[b]);
+        }
+
+        private void subir(int posicao) {
+            while (posicao > 0) {
+                int pai = (posicao - 1) / 2;
+                if (!melhor(indices[pai], pontuacoes[pai], indices[posicao], pontuacoes[posicao])) {
+                    return;
+                }
+                trocar(pai, posicao);
+                posicao = pai;
+            }
+        }
+
+        private void descer(int posicao, int tamanho) {
+            while (true) {
+                int pior = posicao;
+                for (int filho = 2 * posicao + 1; filho <= 2 * posicao + 2 && filho < tamanho; filho++) {
+                    if (melhor(indices[pior], pontuacoes[pior], indices[filho], pontuacoes[filho])) {
+                        pior = filho;
+                    }
+                }
+                if (pior == posicao) {
+                    return;
+                }
+                trocar(posicao, pior);
+                posicao = pior;
+            }
+        }
+
+        private void trocar(int a, int b) {
+            int indice = indices[a];
+            indices[a] = indices[b];
+            indices[b] = indice;
+            float pontuacao = pontuacoes[a];
+            pontuacoes[a] = pontuacoes[b];
+            pontuacoes[b] = pontuacao;
+        }
+    }
+
+    /**
+     * Normaliza um texto para comparação: sem acentos, em minúsculas e sem
+     * espaços repetidos.
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcentos = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return semAcentos.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    private static int codigo(Map<String, Integer> dicionario, String valor) {
+        return dicionario.computeIfAbsent(valor, v -> dicionario.size());
+    }
+
+    /**
+     * Converte as partes de um texto em códigos, sem repetições e em ordem
+     * crescente. Nas palavras de título, as curtas (menos de 3 letras) e as
+     * muito comuns são descartadas.
+     */
+    private static int[] codigos(Map<String, Integer> dicionario, String[] partes, boolean palavrasDeTitulo) {
+        int[] codigos = new int[partes.length];
+        int total = 0;
+        for (String parte : partes) {
+            String valor = parte.trim();
+            boolean descartar = valor.isEmpty()
+                    || (palavrasDeTitulo && (valor.length() < 3 || PALAVRAS_IGNORADAS.contains(valor)));
+            if (!descartar) {
+                codigos[total++] = codigo(dicionario, valor);
+            }
+        }
+        if (total == 0) {
+            return NENHUM;
+        }
+        int[] unicos = Arrays.copyOf(codigos, total);
+        Arrays.sort(unicos);
+        int distintos = 1;
+        for (int i = 1; i < unicos.length; i++) {
+            if (unicos[i] != unicos[distintos - 1]) {
+                unicos[distintos++] = unicos[i];
+            }
+        }
+        return distintos == unicos.length ? unicos : Arrays.copyOf(unicos, distintos);
+    }
+
+    /**
+     * Cria o índice invertido (código -> livros) a partir dos códigos de cada
+     * livro.
+     */
+    private int[][] inverter(int[][] codigosPorLivro, int totalCodigos) {
+        int[] contagem = new int[totalCodigos];
+        for (int i = 0; i < quantidade; i++) {
+            for (int codigo : codigosPorLivro[i]) {
+                contagem[codigo]++;
+            }
+        }
+        int[][] livros = new int[totalCodigos][];
+        for (int codigo = 0; codigo < totalCodigos; codigo++) {
+            livros[codigo] = new int[contagem[codigo]];
+            contagem[codigo] = 0;
+        }
+        for (int i = 0; i < quantidade; i++) {
+            for (int codigo : codigosPorLivro[i]) {
+                livros[codigo][contagem[codigo]++] = i;
+            }
+        }
+        return livros;
+    }
+
+    /**
+     * Ordena os livros pela década, com os livros sem ano no fim.
+     */
+    private void ordenarPorDecada(int[] livros) {
+        long[] chaves = new long[livros.length];
+        for (int i = 0; i < livros.length; i++) {
+            int decada = decadas[livros[i]];
+            long ordem = decada == SEM_ANO ? Integer.MAX_VALUE : decada;
+            chaves[i] = (ordem << 32) | livros[i];
+        }
+        Arrays.sort(chaves);
+        for (int i = 0; i < livros.length; i++) {
+            livros[i] = (int) chaves[i];
+        }
+    }
+
+    /**
+     * Primeira posição, entre os livros com ano, com década maior ou igual à
+     * informada.
+     */
+    private int inicioDecada(int[] livros, int comAno, int decada) {
+        int inicio = 0;
+        int fim = comAno;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (decadas[livros[meio]] < decada) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    private static boolean temEmComum(int[] a, int[] b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                return true;
+            }
+            if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    private static float jaccard(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0f;
+        }
+        int comuns = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                comuns++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (float) comuns / (a.length + b.length - comuns);
+    }
+}
@@ -0,0 +1,20 @@
+package giovanna.projeto.livraria1.util;
+
+/**
+ * Interface para acompanhar o progresso de processamentos longos, como o
+ * recálculo de similaridades ou a importação de livros.
+ *
+ * @author Giovanna
+ */
+@FunctionalInterface
+public interface ProgressoListener {
+
+    /**
+     * Informa o andamento do processamento.
+     *
+     * @param concluido Quantidade de etapas concluídas.
+     * @param total Quantidade total de etapas.
+     * @param mensagem Descrição da etapa atual.
+     */
+    void progresso(int concluido, int total, String mensagem);
+}
@@ -0,0 +1,187 @@
+package giovanna.projeto.livraria1.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import giovanna.projeto.livraria1.model.Livro;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Consulta à API de volumes do Google Books
+ * ({@code https://www.googleapis.com/books/v1/volumes?q=isbn:}), que tem boa
+ * cobertura de títulos brasileiros.
+ *
+ * <p>
+ * A resposta é lida em modo token, como no {@link LeitorOpenLibrary}: do
+ * primeiro volume com o ISBN consultado são lidos título, primeiro autor,
+ * editora, data de publicação e primeira categoria.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class ProvedorGoogleBooks extends ProvedorHttp {
+
+    /**
+     * URL padrão da busca, à qual o ISBN é acrescentado.
+     */
+    public static final String URL_PADRAO = "https://www.googleapis.com/books/v1/volumes?q=isbn:";
+
+    private static final JsonFactory FABRICA = new JsonFactory();
+
+    private final String urlBase;
+
+    /**
+     * Cria a fonte.
+     *
+     * @param urlBase URL da busca, à qual o ISBN é acrescentado.
+     * @param tempoConexao Tempo máximo para abrir a conexão.
+     * @param tempoLeitura Tempo máximo de espera pela resposta.
+     * @param maxTentativas Quantidade máxima de tentativas por consulta.
+     * @param esperaInicial Espera base antes da segunda tentativa.
+     * @param disjuntor Disjuntor das tentativas, ou null para não usar.
+     */
+    public ProvedorGoogleBooks(String urlBase, Duration tempoConexao, Duration tempoLeitura, int maxTentativas,
+            Duration esperaInicial, Disjuntor disjuntor) {
+        super("Google Books", tempoConexao, tempoLeitura, maxTentativas, esperaInicial, disjuntor);
+        this.urlBase = urlBase;
+    }
+
+    @Override
+    protected URI criarUri(String isbn) {
+        return URI.create(urlBase + isbn);
+    }
+
+    @Override
+    protected Livro ler(InputStream corpo, String isbn) throws IOException {
+        return lerVolumes(corpo, isbn);
+    }
+
+    /**
+     * Lê a resposta da busca de volumes.
+     *
+     * @param corpo Corpo da resposta.
+     * @param isbn ISBN-13 consultado.
+     * @return O livro, ou null se nenhum volume tem o ISBN.
+     * @throws IOException Se o JSON for inválido.
+     */
+    static Livro lerVolumes(InputStream corpo, String isbn) throws IOException {
+        try (JsonParser parser = FABRICA.createParser(corpo)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Resposta do Google Books não é um objeto JSON.");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.currentName();
+                JsonToken valor = parser.nextToken();
+                if (!"items".equals(campo) || valor != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Livro livro = lerVolume(parser, isbn);
+                    if (livro != null) {
+                        return livro; // Não é preciso ler o resto da resposta
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Lê um volume ({@code {"volumeInfo": {...}}}), deixando o parser no fim
+     * do objeto.
+     *
+     * @return O livro, ou null se o volume tem outro ISBN.
+     */
+    private static Livro lerVolume(JsonParser parser, String isbn) throws IOException {
+        Livro livro = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = parser.currentName();
+            JsonToken valor = parser.nextToken();
+            if ("volumeInfo".equals(campo) && valor == JsonToken.START_OBJECT) {
+                livro = lerInformacoes(parser, isbn);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return livro;
+    }
+
+    private static Livro lerInformacoes(JsonParser parser, String isbn) throws IOException {
+        String titulo = null;
+        String autor = null;
+        String editora = null;
+        String data = null;
+        String categoria = null;
+        boolean temIdentificadores = false;
+        boolean mesmoIsbn = false;
+        long chave = ISBNUtil.paraNumero(isbn);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = parser.currentName();
+            JsonToken valor = parser.nextToken();
+            switch (campo) {
+                case "title" ->
+                    titulo = valor == JsonToken.VALUE_STRING ? parser.getText() : pular(parser);
+                case "publisher" ->
+                    editora = valor == JsonToken.VALUE_STRING ? parser.getText() : pular(parser);
+                case "publishedDate" ->
+                    data = valor == JsonToken.VALUE_STRING ? parser.getText() : pular(parser);
+                case "authors" ->
+                    autor = primeiroTexto(parser);
+                case "categories" ->
+                    categoria = primeiroTexto(parser);
+                case "industryIdentifiers" -> {
+                    if (valor != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String nomeCampo = parser.currentName();
+                            JsonToken t = parser.nextToken();
+                            if ("identifier".equals(nomeCampo) && t == JsonToken.VALUE_STRING) {
+                                temIdentificadores = true;
+                                mesmoIsbn |= ISBNUtil.paraNumero(parser.getText()) == chave;
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    }
+                }
+                default ->
+                    parser.skipChildren();
+            }
+        }
+        if (temIdentificadores && !mesmoIsbn) {
+            return null;
+        }
+        if (data != null && data.length() == 7) {
+            data += "-01"; // "2005-07": assume o primeiro dia do mês
+        }
+        return ConverterLivro.criarLivro(titulo, autor, editora, categoria, data, isbn);
+    }
+
+    private static String primeiroTexto(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            return pular(parser);
+        }
+        String primeiro = null;
+        for (JsonToken t = parser.nextToken(); t != JsonToken.END_ARRAY; t = parser.nextToken()) {
+            if (primeiro == null && t == JsonToken.VALUE_STRING) {
+                primeiro = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return primeiro;
+    }
+
+    private static String pular(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+}
@@ -0,0 +1,259 @@
+package giovanna.projeto.livraria1.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Base das fontes de dados consultadas por HTTP.
+ *
+ * <p>
+ * As requisições são assíncronas e usam um único {@link HttpClient} por
+ * fonte, que mantém as conexões abertas entre as consultas e negocia HTTP/2
+ * quando o servidor aceita. As respostas são pedidas compactadas (gzip).
+ * Falhas de rede, tempo esgotado e respostas 429/5xx são repetidas, com
+ * espera exponencial e aleatória entre as tentativas. Cada tentativa passa
+ * pelo {@link Disjuntor} da fonte, se houver. Cancelar a consulta cancela a
+ * requisição em andamento e as tentativas seguintes.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public abstract class ProvedorHttp implements ProvedorMetadados {
+
+    private static final Logger LOGGER = Logger.getLogger(ProvedorHttp.class.getName());
+
+    private final String nome;
+    private final HttpClient cliente;
+    private final Duration tempoLeitura;
+    private final int maxTentativas;
+    private final long esperaInicialMs;
+    private final Disjuntor disjuntor;
+
+    /**
+     * Cria a fonte.
+     *
+     * @param nome Nome da fonte.
+     * @param tempoConexao Tempo máximo para abrir a conexão.
+     * @param tempoLeitura Tempo máximo de espera pela resposta.
+     * @param maxTentativas Quantidade máxima de tentativas por consulta (1 =
+     * sem repetição).
+     * @param esperaInicial Espera base antes da segunda tentativa (dobra a
+     * cada nova tentativa).
+     * @param disjuntor Disjuntor das tentativas, ou null para não usar.
+     */
+    protected ProvedorHttp(String nome, Duration tempoConexao, Duration tempoLeitura, int maxTentativas,
+            Duration esperaInicial, Disjuntor disjuntor) {
+        this.nome = nome;
+        this.tempoLeitura = tempoLeitura;
+        this.maxTentativas = Math.max(1, maxTentativas);
+        this.esperaInicialMs = esperaInicial.toMillis();
+        this.disjuntor = disjuntor;
+        this.cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2) // Volta para HTTP/1.1 se o servidor não aceitar
+                .connectTimeout(tempoConexao)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Monta o endereço da consulta do ISBN.
+     *
+     * @param isbn ISBN-13.
+     * @return Endereço da consulta.
+     */
+    protected abstract URI criarUri(String isbn);
+
+    /**
+     * Interpreta o corpo (já descompactado) de uma resposta 200.
+     *
+     * @param corpo Corpo da resposta.
+     * @param isbn ISBN-13 consultado.
+     * @return O livro, ou null se a resposta não o contém.
+     * @throws IOException Se a resposta for inválida.
+     */
+    protected abstract Livro ler(InputStream corpo, String isbn) throws IOException;
+
+    @Override
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * @return O disjuntor das tentativas, ou null se a fonte não usa.
+     */
+    public Disjuntor getDisjuntor() {
+        return disjuntor;
+    }
+
+    @Override
+    public CompletableFuture<Livro> buscar(String isbn) {
+        HttpRequest requisicao = HttpRequest.newBuilder(criarUri(isbn))
+                .timeout(tempoLeitura)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        LOGGER.log(Level.FINE, "Consultando {0}", requisicao.uri());
+
+        Envio envio = new Envio();
+        CompletableFuture<Livro> resultado = enviar(requisicao, 1, envio)
+                .thenApply(resposta -> interpretar(resposta, isbn));
+        resultado.whenComplete((livro, erro) -> {
+            if (resultado.isCancelled()) {
+                envio.cancelar();
+            }
+        });
+        return resultado;
+    }
+
+    /**
+     * Tentativa em andamento de uma consulta, para poder cancelá-la.
+     */
+    private static final class Envio {
+
+        private volatile boolean cancelado;
+        private volatile CompletableFuture<?> tentativa;
+
+        void cancelar() {
+            cancelado = true;
+            CompletableFuture<?> atual = tentativa;
+            if (atual != null) {
+                atual.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Envia a requisição, repetindo-a em caso de falha de rede ou resposta
+     * 429/5xx. Cada tentativa passa pelo disjuntor; se ele recusar, a
+     * consulta falha de imediato, sem novas tentativas.
+     *
+     * @param requisicao Requisição a enviar.
+     * @param tentativa Número da tentativa atual (a partir de 1).
+     * @param envio Estado da consulta, para o cancelamento.
+     * @return Futuro com a resposta.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> enviar(HttpRequest requisicao, int tentativa, Envio envio) {
+        if (envio.cancelado) {
+            return CompletableFuture.failedFuture(new CancellationException());
+        }
+        long inicio;
+        try {
+            inicio = disjuntor != null ? disjuntor.permitir() : 0;
+        } catch (DisjuntorAbertoException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<HttpResponse<byte[]>> atual = cliente.sendAsync(requisicao, HttpResponse.BodyHandlers.ofByteArray());
+        envio.tentativa = atual;
+        if (envio.cancelado) {
+            atual.cancel(true); // Cancelada enquanto a tentativa era iniciada
+        }
+        return atual
+                .handle((resposta, erro) -> {
+                    Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+                    if (causa instanceof CancellationException) {
+                        if (disjuntor != null) {
+                            disjuntor.cancelar(inicio);
+                        }
+                        return CompletableFuture.<HttpResponse<byte[]>>failedFuture(causa);
+                    }
+                    boolean repetir = causa != null ? causa instanceof IOException : deveRepetir(resposta.statusCode());
+                    if (disjuntor != null) {
+                        disjuntor.registrar(inicio, repetir); // Falhas de rede e respostas 429/5xx contam como falha
+                    }
+                    if (!repetir || tentativa >= maxTentativas) {
+                        return causa == null
+                                ? CompletableFuture.completedFuture(resposta)
+                                : CompletableFuture.<HttpResponse<byte[]>>failedFuture(causa);
+                    }
+
+                    long espera = calcularEspera(tentativa);
+                    LOGGER.log(Level.WARNING, "Tentativa {0} para {1} falhou ({2}); repetindo em {3} ms",
+                            new Object[]{tentativa, requisicao.uri(), causa != null ? causa : "HTTP " + resposta.statusCode(), espera});
+                    return CompletableFuture.runAsync(() -> {
+                    }, CompletableFuture.delayedExecutor(espera, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignorado -> enviar(requisicao, tentativa + 1, envio));
+                })
+                .thenCompose(futuro -> futuro);
+    }
+
+    /**
+     * Indica se uma resposta com o código informado deve ser repetida.
+     */
+    private static boolean deveRepetir(int codigo) {
+        return codigo == 429 || codigo >= 500;
+    }
+
+    /**
+     * Calcula a espera antes da próxima tentativa: um valor aleatório entre
+     * metade e o total da espera exponencial, para que clientes que falharam
+     * juntos não repitam todos ao mesmo tempo.
+     *
+     * @param tentativa Número da tentativa que falhou.
+     * @return Espera em milissegundos.
+     */
+    private long calcularEspera(int tentativa) {
+        long exponencial = esperaInicialMs << Math.min(tentativa - 1, 10);
+        return exponencial / 2 + ThreadLocalRandom.current().nextLong(exponencial / 2 + 1);
+    }
+
+    /**
+     * Interpreta a resposta.
+     *
+     * @param resposta Resposta HTTP.
+     * @param isbn ISBN consultado.
+     * @return O livro encontrado, ou null se a fonte não o encontrou.
+     */
+    private Livro interpretar(HttpResponse<byte[]> resposta, String isbn) {
+        if (resposta.statusCode() != 200) {
+            throw new CompletionException(new IOException(
+                    "Erro na requisição para o ISBN: " + isbn + " - Código de resposta: " + resposta.statusCode()));
+        }
+
+        Livro livro;
+        try (InputStream corpo = descompactar(resposta)) {
+            livro = ler(corpo, isbn);
+        } catch (IOException e) {
+            throw new CompletionException(new IOException("Resposta inválida de " + nome + " para o ISBN: " + isbn, e));
+        }
+
+        if (livro == null) {
+            LOGGER.log(Level.FINE, "{0}: nenhum documento com o ISBN {1}.", new Object[]{nome, isbn});
+        } else {
+            LOGGER.log(Level.FINE, "{0}: documento correspondente ao ISBN {1} encontrado.", new Object[]{nome, isbn});
+        }
+        return livro;
+    }
+
+    /**
+     * Retorna o corpo da resposta, descompactado se o servidor o enviou em
+     * gzip.
+     */
+    private static InputStream descompactar(HttpResponse<byte[]> resposta) throws IOException {
+        InputStream corpo = new ByteArrayInputStream(resposta.body());
+        boolean gzip = resposta.headers().firstValue("Content-Encoding")
+                .map(valor -> valor.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        return gzip ? new GZIPInputStream(corpo) : corpo;
+    }
+
+    @Override
+    public String toString() {
+        return nome;
+    }
+}
@@ -0,0 +1,31 @@
+package giovanna.projeto.livraria1.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fonte de dados de livros consultada pelo {@link ISBNApiClient}.
+ *
+ * @author Giovanna
+ */
+public interface ProvedorMetadados {
+
+    /**
+     * @return Nome da fonte, usado nas mensagens e estatísticas.
+     */
+    String getNome();
+
+    /**
+     * Busca um livro pelo ISBN.
+     *
+     * <p>
+     * Cancelar o futuro retornado deve interromper a consulta (a requisição
+     * em andamento e as novas tentativas), pois o cliente cancela as
+     * consultas que perderam para outra fonte.
+     * </p>
+     *
+     * @param isbn ISBN-13 válido, só com dígitos.
+     * @return Futuro com o livro, ou null se a fonte não o encontrou.
+     */
+    CompletableFuture<Livro> buscar(String isbn);
+}
@@ -0,0 +1,53 @@
+package giovanna.projeto.livraria1.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Consulta à API de busca da Open Library
+ * ({@code https://openlibrary.org/search.json?isbn=}). As respostas são
+ * interpretadas pelo {@link LeitorOpenLibrary}.
+ *
+ * @author Giovanna
+ */
+public class ProvedorOpenLibrary extends ProvedorHttp {
+
+    /**
+     * URL padrão da busca, à qual o ISBN é acrescentado.
+     */
+    public static final String URL_PADRAO = "https://openlibrary.org/search.json?isbn=";
+
+    private final String urlBase;
+    private final LeitorOpenLibrary.Modo modoLeitura;
+
+    /**
+     * Cria a fonte.
+     *
+     * @param urlBase URL da busca, à qual o ISBN é acrescentado.
+     * @param tempoConexao Tempo máximo para abrir a conexão.
+     * @param tempoLeitura Tempo máximo de espera pela resposta.
+     * @param maxTentativas Quantidade máxima de tentativas por consulta.
+     * @param esperaInicial Espera base antes da segunda tentativa.
+     * @param disjuntor Disjuntor das tentativas, ou null para não usar.
+     * @param modoLeitura Forma de interpretar as respostas.
+     */
+    public ProvedorOpenLibrary(String urlBase, Duration tempoConexao, Duration tempoLeitura, int maxTentativas,
+            Duration esperaInicial, Disjuntor disjuntor, LeitorOpenLibrary.Modo modoLeitura) {
+        super("Open Library", tempoConexao, tempoLeitura, maxTentativas, esperaInicial, disjuntor);
+        this.urlBase = urlBase;
+        this.modoLeitura = modoLeitura;
+    }
+
+    @Override
+    protected URI criarUri(String isbn) {
+        return URI.create(urlBase + isbn);
+    }
+
+    @Override
+    protected Livro ler(InputStream corpo, String isbn) throws IOException {
+        return LeitorOpenLibrary.ler(corpo, isbn, modoLeitura);
+    }
+}
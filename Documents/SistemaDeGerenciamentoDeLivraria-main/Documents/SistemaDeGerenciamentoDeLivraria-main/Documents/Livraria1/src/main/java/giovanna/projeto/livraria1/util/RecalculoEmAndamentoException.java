@@ -0,0 +1,20 @@
+package giovanna.projeto.livraria1.util;
+
+/**
+ * Indica que o recálculo de similaridades não foi iniciado porque outro
+ * recálculo, deste ou de outro computador, está em andamento (a trava
+ * consultiva do banco está ocupada).
+ *
+ * @author Giovanna
+ */
+public class RecalculoEmAndamentoException extends Exception {
+
+    /**
+     * Cria a exceção.
+     *
+     * @param mensagem Mensagem a exibir.
+     */
+    public RecalculoEmAndamentoException(String mensagem) {
+        super(mensagem);
+    }
+}
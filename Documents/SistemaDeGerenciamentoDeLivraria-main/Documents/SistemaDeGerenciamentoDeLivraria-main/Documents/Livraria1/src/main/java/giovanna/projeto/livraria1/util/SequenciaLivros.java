@@ -0,0 +1,27 @@
+package giovanna.projeto.livraria1.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import java.sql.SQLException;
+
+/**
+ * Livros lidos um a um, sob demanda, como os de um cursor do banco. É o que os
+ * relatórios consomem, seja de uma única consulta, seja de várias seções
+ * carregadas em paralelo.
+ *
+ * @author Giovanna
+ */
+public interface SequenciaLivros {
+
+    /**
+     * Lê o próximo livro.
+     *
+     * @return O livro, ou null no fim da sequência.
+     * @throws SQLException Caso ocorra um erro ao ler do banco.
+     */
+    Livro proximo() throws SQLException;
+
+    /**
+     * @return Quantidade de livros lidos até agora.
+     */
+    long getQuantidade();
+}
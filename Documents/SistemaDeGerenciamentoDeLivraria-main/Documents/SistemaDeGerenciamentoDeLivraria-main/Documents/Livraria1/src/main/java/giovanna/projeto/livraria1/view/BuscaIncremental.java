@@ -0,0 +1,166 @@
+package giovanna.projeto.livraria1.view;
+
+import giovanna.projeto.livraria1.util.ConsultaCancelavel;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Busca enquanto o usuário digita, sem bloquear a interface.
+ *
+ * <p>
+ * Cada alteração do texto reinicia um temporizador; a consulta só é disparada
+ * quando o usuário para de digitar pelo intervalo configurado (debounce). A
+ * consulta roda numa thread própria, fora da thread de eventos do Swing. Ao
+ * disparar uma nova consulta, a anterior, se ainda estiver em execução, é
+ * cancelada no banco com {@link java.sql.Statement#cancel()}. Somente o
+ * resultado da consulta mais recente é entregue à tela.
+ * </p>
+ * <p>
+ * Todos os métodos públicos devem ser chamados na thread de eventos do Swing;
+ * os callbacks de resultado e de erro também são executados nela.
+ * </p>
+ *
+ * @param <T> Tipo do resultado da consulta.
+ */
+public class BuscaIncremental<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(BuscaIncremental.class.getName());
+
+    /**
+     * Intervalo padrão, em milissegundos, sem digitação antes de disparar a
+     * consulta. Pode ser alterado pela propriedade de sistema
+     * {@code livraria.busca.debounceMs}.
+     */
+    public static final int ATRASO_PADRAO_MS = Integer.getInteger("livraria.busca.debounceMs", 300);
+
+    /**
+     * Consulta executada em segundo plano.
+     *
+     * @param <T> Tipo do resultado.
+     */
+    @FunctionalInterface
+    public interface Consulta<T> {
+
+        /**
+         * Executa a consulta.
+         *
+         * @param texto Texto digitado.
+         * @param cancelamento Controle de cancelamento a ser repassado ao DAO.
+         * @return Resultado da consulta.
+         * @throws Exception Caso ocorra erro ou a consulta seja cancelada.
+         */
+        T executar(String texto, ConsultaCancelavel cancelamento) throws Exception;
+    }
+
+    private final Consulta<T> consulta;
+    private final Consumer<T> aoConcluir;
+    private final Consumer<Exception> aoFalhar;
+    private final Timer temporizador;
+
+    // Uma única thread: a consulta seguinte só começa depois que a anterior, já cancelada, termina
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "busca-incremental");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private String textoPendente;
+    private ConsultaCancelavel emExecucao; // Controle da consulta mais recente
+    private long geracao; // Identifica a consulta mais recente
+
+    /**
+     * Cria a busca.
+     *
+     * @param atrasoMs Intervalo sem digitação, em milissegundos, antes de
+     * disparar a consulta.
+     * @param consulta Consulta executada em segundo plano.
+     * @param aoConcluir Recebe o resultado da consulta mais recente.
+     * @param aoFalhar Recebe os erros da consulta mais recente (consultas
+     * canceladas não são informadas).
+     */
+    public BuscaIncremental(int atrasoMs, Consulta<T> consulta, Consumer<T> aoConcluir, Consumer<Exception> aoFalhar) {
+        this.consulta = consulta;
+        this.aoConcluir = aoConcluir;
+        this.aoFalhar = aoFalhar;
+        this.temporizador = new Timer(atrasoMs, e -> disparar());
+        this.temporizador.setRepeats(false);
+    }
+
+    /**
+     * Agenda a busca pelo texto informado, reiniciando o intervalo de espera.
+     *
+     * @param texto Texto digitado.
+     */
+    public void agendar(String texto) {
+        textoPendente = texto;
+        temporizador.restart();
+    }
+
+    /**
+     * Descarta a busca agendada e cancela a que estiver em execução.
+     */
+    public void cancelar() {
+        temporizador.stop();
+        textoPendente = null;
+        geracao++; // Nenhum resultado em andamento será publicado
+        if (emExecucao != null) {
+            emExecucao.cancelar();
+            emExecucao = null;
+        }
+    }
+
+    /**
+     * Cancela qualquer busca e libera a thread de execução.
+     */
+    public void encerrar() {
+        cancelar();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Dispara a consulta pelo último texto agendado, cancelando a anterior.
+     */
+    private void disparar() {
+        String texto = textoPendente;
+        cancelar();
+        if (texto == null) {
+            return;
+        }
+
+        final long geracaoDaBusca = geracao;
+        final ConsultaCancelavel cancelamento = new ConsultaCancelavel();
+        emExecucao = cancelamento;
+
+        executor.execute(() -> {
+            if (cancelamento.isCancelada()) {
+                return; // Superada antes de começar
+            }
+            try {
+                T resultado = consulta.executar(texto, cancelamento);
+                SwingUtilities.invokeLater(() -> {
+                    if (geracaoDaBusca == geracao) {
+                        emExecucao = null;
+                        aoConcluir.accept(resultado);
+                    }
+                });
+            } catch (Exception ex) {
+                if (cancelamento.isCancelada()) {
+                    LOGGER.log(Level.FINE, "Busca superada cancelada: {0}", texto);
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (geracaoDaBusca == geracao) {
+                        emExecucao = null;
+                        aoFalhar.accept(ex);
+                    }
+                });
+            }
+        });
+    }
+}
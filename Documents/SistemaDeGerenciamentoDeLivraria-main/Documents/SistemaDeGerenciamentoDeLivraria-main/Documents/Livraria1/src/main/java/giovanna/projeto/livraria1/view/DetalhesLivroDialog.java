@@ -46,7 +46,7 @@ public class DetalhesLivroDialog extends JDialog {
 
         // Configuração da tabela de livros similares
         modeloTabelaSimilares = new DefaultTableModel(
-                new String[]{"Etiqueta", "Título", "Autor"}, 0
+                new String[]{"Etiqueta", "Título", "Autor", "Similaridade"}, 0
         );
         tabelaSimilares = new JTable(modeloTabelaSimilares);
         JScrollPane scrollPaneSimilares = new JScrollPane(tabelaSimilares);
@@ -121,12 +121,13 @@ public class DetalhesLivroDialog extends JDialog {
         // Limpa os dados da tabela antes de inserir os novos
         modeloTabelaSimilares.setRowCount(0);
 
-        // Adiciona os livros similares na tabela
+        // Adiciona os livros similares na tabela, dos mais semelhantes para os menos
         for (Livro similar : similares) {
             modeloTabelaSimilares.addRow(new Object[]{
                 similar.getEtiqueta_livro(),
                 similar.getTitulo(),
-                similar.getAutor()
+                similar.getAutor(),
+                similar.getSimilaridade() != null ? String.format("%.0f%%", similar.getSimilaridade() * 100) : "Manual"
             });
         }
     }
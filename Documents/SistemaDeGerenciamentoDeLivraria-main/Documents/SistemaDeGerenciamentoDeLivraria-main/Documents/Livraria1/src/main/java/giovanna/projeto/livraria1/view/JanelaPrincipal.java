@@ -1,12 +1,23 @@
 package giovanna.projeto.livraria1.view;
 
+import giovanna.projeto.livraria1.model.ResultadoEnriquecimento;
+import giovanna.projeto.livraria1.model.ResultadoImportacao;
+import giovanna.projeto.livraria1.services.AgendadorSimilares;
+import giovanna.projeto.livraria1.services.EnriquecimentoService;
+import giovanna.projeto.livraria1.services.ImportacaoLivrosService;
+import giovanna.projeto.livraria1.services.ManutencaoSimilares;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.xml.rpc.ServiceException;
 
 /**
@@ -32,6 +43,13 @@ public class JanelaPrincipal extends JFrame {
         setTitle("Sistema Livraria");
         setSize(1000, 700);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                ManutencaoSimilares.getInstancia().encerrar(); // Grava as similaridades pendentes antes de sair
+                AgendadorSimilares.getInstancia().encerrar(); // Cancela o recálculo agendado ou em andamento
+            }
+        });
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
 
@@ -70,6 +88,9 @@ public class JanelaPrincipal extends JFrame {
                 Logger.getLogger(JanelaPrincipal.class.getName()).log(Level.SEVERE, null, ex);
             }
         });
+        menuCadastro.addSeparator();
+        adicionarItemMenu(menuCadastro, "Importar livros (CSV)...", e -> importarLivrosCsv());
+        adicionarItemMenu(menuCadastro, "Completar dados pelo ISBN...", e -> enriquecerLivros());
 
         // Menu Relatório
         JMenu menuRelatorio = new JMenu("Relatórios");
@@ -180,6 +201,113 @@ public class JanelaPrincipal extends JFrame {
         return btnFechar;
     }
 
+    /**
+     * Importa livros de um arquivo CSV escolhido pelo usuário. A importação
+     * roda em segundo plano, com uma janela de andamento, e o resumo é
+     * exibido ao final.
+     */
+    private void importarLivrosCsv() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Importar livros");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Arquivos CSV", "csv"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path arquivo = fileChooser.getSelectedFile().toPath();
+
+        ProgressMonitor monitor = new ProgressMonitor(this, "Importando " + arquivo.getFileName(), "", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+
+        new SwingWorker<ResultadoImportacao, Void>() {
+            @Override
+            protected ResultadoImportacao doInBackground() throws Exception {
+                return new ImportacaoLivrosService().importarCsv(arquivo, (concluido, total, mensagem)
+                        -> SwingUtilities.invokeLater(() -> {
+                            monitor.setProgress(concluido);
+                            monitor.setNote(mensagem);
+                        }));
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    ResultadoImportacao resultado = get();
+                    String mensagem = "Livros inseridos: " + resultado.getInseridos()
+                            + "\nRegistros recusados: " + resultado.getRecusados()
+                            + (resultado.getArquivoRecusados() != null ? "\nDetalhes em: " + resultado.getArquivoRecusados() : "")
+                            + "\nTempo: " + (resultado.getTempoCopiaMs() + resultado.getTempoMesclagemMs()) / 1000.0 + " s";
+                    JOptionPane.showMessageDialog(JanelaPrincipal.this, mensagem, "Importação concluída", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    Logger.getLogger(JanelaPrincipal.class.getName()).log(Level.SEVERE, "Erro na importação", ex.getCause());
+                    exibirErro("Erro na importação: " + ex.getCause().getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Completa, pela Open Library, os dados ausentes dos livros cadastrados. A
+     * execução roda em segundo plano, com uma janela de andamento; ao
+     * cancelar, o progresso é salvo e a próxima execução continua de onde
+     * parou.
+     */
+    private void enriquecerLivros() {
+        int opcao = JOptionPane.showConfirmDialog(this,
+                "Consultar a Open Library para completar os livros com dados ausentes?",
+                "Completar dados pelo ISBN", JOptionPane.OK_CANCEL_OPTION);
+        if (opcao != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        ProgressMonitor monitor = new ProgressMonitor(this, "Completando dados dos livros", "", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+
+        SwingWorker<ResultadoEnriquecimento, Void> worker = new SwingWorker<>() {
+            @Override
+            protected ResultadoEnriquecimento doInBackground() throws Exception {
+                return new EnriquecimentoService().enriquecerIncompletos(EnriquecimentoService.checkpointPadrao(),
+                        (concluido, total, mensagem) -> SwingUtilities.invokeLater(() -> {
+                            if (monitor.isCanceled()) {
+                                cancel(true); // Interrompe a execução, que salva o progresso
+                                return;
+                            }
+                            monitor.setMaximum(Math.max(total, 1));
+                            monitor.setProgress(concluido);
+                            monitor.setNote(mensagem);
+                        }));
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                if (isCancelled()) {
+                    JOptionPane.showMessageDialog(JanelaPrincipal.this,
+                            "Execução cancelada. O progresso foi salvo e será retomado na próxima execução.",
+                            "Completar dados pelo ISBN", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                try {
+                    ResultadoEnriquecimento resultado = get();
+                    String mensagem = "Livros atualizados: " + resultado.getAtualizados()
+                            + "\nSem dados novos: " + resultado.getSemAlteracao()
+                            + "\nNão encontrados: " + resultado.getNaoEncontrados()
+                            + "\nFalhas (serão repetidas): " + resultado.getFalhas().size()
+                            + "\nTempo: " + resultado.getDuracaoMs() / 1000.0 + " s";
+                    JOptionPane.showMessageDialog(JanelaPrincipal.this, mensagem, "Dados completados", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    Logger.getLogger(JanelaPrincipal.class.getName()).log(Level.SEVERE, "Erro ao completar os dados", ex.getCause());
+                    exibirErro("Erro ao completar os dados: " + ex.getCause().getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
     /**
      * Método para exibir uma mensagem de erro para o usuário em caso de falha.
      *
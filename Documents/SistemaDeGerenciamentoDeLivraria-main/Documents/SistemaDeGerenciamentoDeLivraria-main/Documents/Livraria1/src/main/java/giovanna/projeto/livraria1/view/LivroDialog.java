@@ -1,14 +1,13 @@
 package giovanna.projeto.livraria1.view;
 
 import com.toedter.calendar.JDateChooser;
-import giovanna.projeto.livraria1.dao.GeneroDAO;
-import giovanna.projeto.livraria1.dao.LivroDAO;
 import giovanna.projeto.livraria1.model.Genero;
 import giovanna.projeto.livraria1.model.Livro;
 import giovanna.projeto.livraria1.services.GeneroService;
 import giovanna.projeto.livraria1.services.LivroService;
 import giovanna.projeto.livraria1.services.LivroSimilaresService;
 import giovanna.projeto.livraria1.util.AutoComplete;
+import giovanna.projeto.livraria1.util.GeneroCache;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -42,7 +41,7 @@ public class LivroDialog extends JDialog {
 
     // Tabela de livros similares
     private final DefaultTableModel modeloTabelaSimilares = new DefaultTableModel(
-            new String[]{"Etiqueta", "Título", "Autor"}, 0
+            new String[]{"Etiqueta", "Título", "Autor", "Similaridade"}, 0
     );
     private final JTable tabelaLivrosSimilares = new JTable(modeloTabelaSimilares);
 
@@ -55,8 +54,6 @@ public class LivroDialog extends JDialog {
     // Serviços
     private final LivroSimilaresService similaresService;
     private final LivroService livroService;
-    private final LivroDAO livroDAO;
-    private final GeneroDAO generoDAO;
 
     // Objeto Livro em edição
     private Livro livro;
@@ -74,8 +71,6 @@ public class LivroDialog extends JDialog {
         this.livro = livro;
         this.similaresService = new LivroSimilaresService();
         this.livroService = new LivroService();
-        this.livroDAO = new LivroDAO();
-        this.generoDAO = new GeneroDAO();
 
         setTitle(livro == null ? "Incluir Livro" : "Editar Livro");
         setSize(700, 600);
@@ -169,7 +164,7 @@ public class LivroDialog extends JDialog {
         txtAutores.setText(livro.getAutor());
         txtISBN.setText(livro.getIsbn());
         txtEditora.setText(livro.getEditora());
-        txtGenero.setText(generoDAO.buscarNomeGeneroPorId(livro.getGenero_id()));
+        txtGenero.setText(GeneroCache.nomePorId(livro.getGenero_id()));
         LocalDate localData = livro.getData_publicacao();
         if (localData != null) {
             Date date = Date.from(localData.atStartOfDay(ZoneId.systemDefault()).toInstant());
@@ -204,7 +199,7 @@ public class LivroDialog extends JDialog {
                 Livro livroParaSalvar = prepararLivroParaSalvar();
 
                 // Verifica se o ISBN já está cadastrado
-                Livro livroExistente = livroDAO.busca_porISBN(livroParaSalvar.getIsbn());
+                Livro livroExistente = livroService.buscarPorISBN(livroParaSalvar.getIsbn()); // Normaliza o ISBN digitado
                 if (livroExistente != null) {
                     JOptionPane.showMessageDialog(this, "Livro com este ISBN já está cadastrado!");
                     return;
@@ -224,9 +219,7 @@ public class LivroDialog extends JDialog {
                 dispose();
             }
 
-            // Após salvar ou atualizar, adiciona similares automaticamente
-            adicionarSimilaresAutomaticamente(livro);
-
+            // As similaridades por gênero são atualizadas em segundo plano (ManutencaoSimilares)
             carregarLivrosSimilares(); // Atualiza a tabela de similares
             dispose(); // Fecha o diálogo
         } catch (HeadlessException | ServiceException ex) {
@@ -311,49 +304,6 @@ public class LivroDialog extends JDialog {
         }
     }
 
-    /**
-     * Adiciona livros similares automaticamente ao livro recém-cadastrado.
-     *
-     * @param livro Livro recém-cadastrado.
-     * @throws SQLException Caso ocorra erro na comunicação com o banco de
-     * dados.
-     */
-    private void adicionarSimilaresAutomaticamente(Livro livro) throws SQLException, Exception {
-        try {
-            // Verifica se o livro tem um gênero
-            if (livro.getGeneroNome() != null && !livro.getGeneroNome().isEmpty()) {
-                // Procura livros com o mesmo gênero
-                List<Livro> livrosSimilares = livroDAO.buscarLivrosPorGeneros(livro.getGenero_id(), livro.getEtiqueta_livro());
-
-                // Filtra os livros que já estão como similares para evitar duplicidade
-                for (Livro similar : livrosSimilares) {
-                    if (!livroSimilaresExistem(livro.getEtiqueta_livro(), similar.getEtiqueta_livro())) {
-                        // Adiciona o livro similar
-                        similaresService.adicionarLivroSimilar(livro.getEtiqueta_livro(), similar.getEtiqueta_livro());
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erro ao adicionar livros similares automaticamente", e);
-            throw new SQLException("Erro ao adicionar livros similares automaticamente.", e);
-        }
-    }
-
-    /**
-     * Verifica se o livro similar já foi adicionado à lista de similares.
-     *
-     * @param etiquetaLivro Etiqueta do livro principal.
-     * @param etiquetaSimilar Etiqueta do livro similar.
-     * @return true se o livro já foi adicionado como similar, caso contrário
-     * false.
-     * @throws SQLException Caso ocorra erro na comunicação com o banco de
-     * dados.
-     */
-    private boolean livroSimilaresExistem(int etiquetaLivro, int etiquetaSimilar) throws SQLException, Exception {
-        // Verifica se já existe um vínculo entre os livros no banco de dados
-        return similaresService.similaridadeExiste(etiquetaLivro, etiquetaSimilar);
-    }
-
     /**
      * Método para carregar os livros que são similares em comparação com o
      * livro selecionado.
@@ -369,7 +319,8 @@ public class LivroDialog extends JDialog {
             modeloTabelaSimilares.setRowCount(0); // Limpa a tabela
             for (Livro similar : similares) {
                 if (similar.getEtiqueta_livro() != livro.getEtiqueta_livro()) { // Evita auto-referência
-                    modeloTabelaSimilares.addRow(new Object[]{similar.getEtiqueta_livro(), similar.getTitulo(), similar.getAutor()});
+                    modeloTabelaSimilares.addRow(new Object[]{similar.getEtiqueta_livro(), similar.getTitulo(), similar.getAutor(),
+                        similar.getSimilaridade() != null ? String.format("%.0f%%", similar.getSimilaridade() * 100) : "Manual"});
 
                 }
             }
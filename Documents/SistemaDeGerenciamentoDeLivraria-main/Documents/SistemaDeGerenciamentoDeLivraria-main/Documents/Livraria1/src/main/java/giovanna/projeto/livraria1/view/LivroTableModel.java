@@ -0,0 +1,272 @@
+package giovanna.projeto.livraria1.view;
+
+import giovanna.projeto.livraria1.dao.LivroDAO.Ordenacao;
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.services.LivroService;
+
+import javax.swing.JOptionPane;
+import javax.swing.JTable;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Modelo de tabela do catálogo de livros que carrega as linhas sob demanda.
+ *
+ * <p>
+ * Em vez de ler a tabela inteira ao abrir a tela, o modelo busca uma página
+ * de cada vez (paginação por posição no banco) e só pede a próxima quando a
+ * tabela precisa exibir linhas próximas do fim do que já foi carregado, ou
+ * seja, conforme o usuário rola a tela. As páginas são buscadas fora da
+ * thread de eventos do Swing e acrescentadas com um único evento por página.
+ * </p>
+ * <p>
+ * O modelo também pode exibir uma lista fixa (por exemplo, o resultado de um
+ * filtro), caso em que não há paginação.
+ * </p>
+ */
+public class LivroTableModel extends AbstractTableModel {
+
+    private static final Logger LOGGER = Logger.getLogger(LivroTableModel.class.getName());
+
+    /**
+     * Quantidade de livros buscados por página.
+     */
+    public static final int TAMANHO_PAGINA_PADRAO = 200;
+
+    // Quantas linhas antes do fim do que já foi carregado a próxima página é solicitada
+    private static final int MARGEM_PRE_CARREGAMENTO = 50;
+
+    private static final String[] COLUNAS = {"Etiqueta", "ISBN", "Título", "Autores", "Editora", "Gênero", "Data Publicação"};
+
+    // Ordenação correspondente a cada coluna (null quando a coluna não pode ser ordenada no banco)
+    private static final Ordenacao[] ORDENACAO_POR_COLUNA = {
+        Ordenacao.ETIQUETA, Ordenacao.ISBN, Ordenacao.TITULO, Ordenacao.AUTOR, Ordenacao.EDITORA, null, Ordenacao.DATA_PUBLICACAO
+    };
+
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final LivroService service;
+    private final int tamanhoPagina;
+    private final List<Livro> livros = new ArrayList<>(); // Linhas já carregadas
+
+    private Ordenacao ordenacao = Ordenacao.ETIQUETA;
+    private boolean decrescente;
+    private boolean paginado; // true quando as linhas vêm da listagem paginada
+    private boolean fim; // true quando não há mais páginas a buscar
+    private boolean carregando; // true enquanto uma página está sendo buscada
+    private int geracao; // Incrementada a cada recarga, descarta páginas de cargas anteriores
+
+    /**
+     * Cria o modelo com o tamanho de página padrão.
+     *
+     * @param service Serviço usado para buscar as páginas.
+     */
+    public LivroTableModel(LivroService service) {
+        this(service, TAMANHO_PAGINA_PADRAO);
+    }
+
+    /**
+     * Cria o modelo.
+     *
+     * @param service Serviço usado para buscar as páginas.
+     * @param tamanhoPagina Quantidade de livros por página.
+     */
+    public LivroTableModel(LivroService service, int tamanhoPagina) {
+        this.service = service;
+        this.tamanhoPagina = tamanhoPagina;
+    }
+
+    /**
+     * Descarta as linhas carregadas e busca a primeira página com a ordenação
+     * atual.
+     */
+    public void recarregar() {
+        geracao++;
+        livros.clear();
+        paginado = true;
+        fim = false;
+        carregando = false;
+        fireTableDataChanged();
+        carregarProximaPagina();
+    }
+
+    /**
+     * Exibe uma lista fixa de livros, sem paginação, na ordem recebida.
+     *
+     * @param lista Livros a exibir.
+     */
+    public void exibir(List<Livro> lista) {
+        geracao++;
+        livros.clear();
+        livros.addAll(lista);
+        paginado = false;
+        fim = true;
+        carregando = false;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Ordena a tabela pela coluna informada. Um novo clique na mesma coluna
+     * inverte a direção. Colunas sem ordenação no banco são ignoradas.
+     *
+     * @param coluna Índice da coluna no modelo.
+     */
+    public void ordenarPorColuna(int coluna) {
+        if (coluna < 0 || coluna >= ORDENACAO_POR_COLUNA.length || ORDENACAO_POR_COLUNA[coluna] == null) {
+            return;
+        }
+        Ordenacao nova = ORDENACAO_POR_COLUNA[coluna];
+        decrescente = nova == ordenacao && !decrescente;
+        ordenacao = nova;
+
+        if (paginado) {
+            recarregar(); // A ordenação é feita pelo banco, recomeçando da primeira página
+        } else {
+            ordenarListaFixa();
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Liga o clique no cabeçalho da tabela à ordenação do modelo.
+     *
+     * @param tabela Tabela que utiliza este modelo.
+     */
+    public void instalarOrdenacao(JTable tabela) {
+        tabela.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int coluna = tabela.columnAtPoint(e.getPoint());
+                if (coluna >= 0) {
+                    ordenarPorColuna(tabela.convertColumnIndexToModel(coluna));
+                }
+            }
+        });
+    }
+
+    /**
+     * Obtém o livro exibido em uma linha.
+     *
+     * @param linha Índice da linha no modelo.
+     * @return Livro da linha.
+     */
+    public Livro getLivro(int linha) {
+        return livros.get(linha);
+    }
+
+    @Override
+    public int getRowCount() {
+        return livros.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int coluna) {
+        return COLUNAS[coluna];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int coluna) {
+        return coluna == 0 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int linha, int coluna) {
+        // A tabela só consulta as linhas visíveis: perto do fim, solicita a próxima página
+        if (linha >= livros.size() - MARGEM_PRE_CARREGAMENTO) {
+            carregarProximaPagina();
+        }
+
+        Livro livro = livros.get(linha);
+        return switch (coluna) {
+            case 0 ->
+                livro.getEtiqueta_livro();
+            case 1 ->
+                livro.getIsbn();
+            case 2 ->
+                livro.getTitulo();
+            case 3 ->
+                livro.getAutor();
+            case 4 ->
+                livro.getEditora();
+            case 5 ->
+                livro.getGeneroNome();
+            case 6 ->
+                livro.getData_publicacao() != null ? FORMATO_DATA.format(livro.getData_publicacao()) : "";
+            default ->
+                null;
+        };
+    }
+
+    /**
+     * Busca a próxima página em segundo plano, se houver e se nenhuma busca
+     * estiver em andamento.
+     */
+    private void carregarProximaPagina() {
+        if (!paginado || fim || carregando) {
+            return;
+        }
+        carregando = true;
+
+        final int geracaoDaBusca = geracao;
+        final Ordenacao ordenacaoDaBusca = ordenacao;
+        final boolean decrescenteDaBusca = decrescente;
+        final Livro ultimo = livros.isEmpty() ? null : livros.get(livros.size() - 1);
+
+        new SwingWorker<List<Livro>, Void>() {
+            @Override
+            protected List<Livro> doInBackground() throws Exception {
+                return service.listarLivrosPagina(ordenacaoDaBusca, decrescenteDaBusca, ultimo, tamanhoPagina);
+            }
+
+            @Override
+            protected void done() {
+                if (geracaoDaBusca != geracao) {
+                    return; // Página de uma carga anterior (recarga ou troca de ordenação)
+                }
+                carregando = false;
+                try {
+                    List<Livro> pagina = get();
+                    fim = pagina.size() < tamanhoPagina;
+                    if (!pagina.isEmpty()) {
+                        int inicio = livros.size();
+                        livros.addAll(pagina);
+                        fireTableRowsInserted(inicio, livros.size() - 1);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    // Interrompe a paginação para não repetir o erro a cada repintura; "Atualizar" recomeça
+                    fim = true;
+                    LOGGER.log(Level.SEVERE, "Erro ao carregar página de livros", ex.getCause());
+                    JOptionPane.showMessageDialog(null, "Erro ao carregar livros: " + ex.getCause().getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Ordena a lista fixa em memória, com a mesma chave usada no banco.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void ordenarListaFixa() {
+        Comparator<Livro> comparador = Comparator.comparing(livro -> (Comparable) ordenacao.valorChave(livro),
+                Comparator.nullsFirst(Comparator.naturalOrder()));
+        comparador = comparador.thenComparingInt(Livro::getEtiqueta_livro);
+        Collections.sort(livros, decrescente ? comparador.reversed() : comparador);
+    }
+}
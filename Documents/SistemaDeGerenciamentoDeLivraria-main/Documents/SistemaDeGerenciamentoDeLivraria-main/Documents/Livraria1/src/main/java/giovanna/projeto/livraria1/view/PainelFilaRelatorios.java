@@ -0,0 +1,161 @@
+package giovanna.projeto.livraria1.view;
+
+import giovanna.projeto.livraria1.services.FilaRelatorios;
+import giovanna.projeto.livraria1.services.FilaRelatorios.Tarefa;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Painel que exibe a fila de relatórios em segundo plano, com o estado e o
+ * andamento de cada relatório, e permite cancelá-los.
+ *
+ * <p>
+ * A tabela é atualizada periodicamente (a cada {@value #INTERVALO_ATUALIZACAO_MS}
+ * ms) enquanto o painel está visível na janela, lendo o estado das tarefas
+ * da {@link FilaRelatorios}; a geração dos relatórios nunca roda na thread de
+ * eventos do Swing.
+ * </p>
+ *
+ * @author Giovanna
+ */
+public class PainelFilaRelatorios extends JPanel {
+
+    private static final int INTERVALO_ATUALIZACAO_MS = 500;
+
+    private final FilaRelatorios fila;
+    private final ModeloFila modelo = new ModeloFila();
+    private final JTable tabela = new JTable(modelo);
+    private final Timer atualizacao = new Timer(INTERVALO_ATUALIZACAO_MS, e -> atualizar());
+
+    /**
+     * Cria o painel da fila informada.
+     *
+     * @param fila Fila de relatórios exibida.
+     */
+    public PainelFilaRelatorios(FilaRelatorios fila) {
+        super(new BorderLayout());
+        this.fila = fila;
+        setBorder(BorderFactory.createTitledBorder("Fila de relatórios"));
+
+        tabela.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        tabela.getColumnModel().getColumn(0).setMaxWidth(50);
+        JScrollPane rolagem = new JScrollPane(tabela);
+        rolagem.setPreferredSize(new Dimension(600, 140));
+        add(rolagem, BorderLayout.CENTER);
+
+        JButton btnCancelar = new JButton("Cancelar");
+        JButton btnLimpar = new JButton("Limpar encerrados");
+        btnCancelar.addActionListener(e -> cancelarSelecionados());
+        btnLimpar.addActionListener(e -> {
+            fila.removerEncerradas();
+            atualizar();
+        });
+        JPanel botoes = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        botoes.add(btnCancelar);
+        botoes.add(btnLimpar);
+        add(botoes, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Relê o estado das tarefas da fila.
+     */
+    public void atualizar() {
+        modelo.atualizar(fila.getTarefas());
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        atualizar();
+        atualizacao.start(); // Só atualiza enquanto o painel está na janela
+    }
+
+    @Override
+    public void removeNotify() {
+        atualizacao.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Cancela as tarefas selecionadas na tabela.
+     */
+    private void cancelarSelecionados() {
+        int[] linhas = tabela.getSelectedRows();
+        if (linhas.length == 0) {
+            JOptionPane.showMessageDialog(this, "Selecione os relatórios a cancelar.", "Fila de relatórios", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        for (int linha : linhas) {
+            modelo.getTarefa(tabela.convertRowIndexToModel(linha)).cancelar();
+        }
+        atualizar();
+    }
+
+    /**
+     * Modelo da tabela de tarefas.
+     */
+    private static final class ModeloFila extends AbstractTableModel {
+
+        private static final String[] COLUNAS = {"Nº", "Gêneros", "Arquivo", "Estado", "Andamento", "Livros", "Tempo (s)", "Mensagem"};
+
+        private List<Tarefa> tarefas = new ArrayList<>();
+
+        void atualizar(List<Tarefa> atuais) {
+            if (atuais.equals(tarefas)) {
+                // Mesmas tarefas: só os valores mudam, e a seleção é mantida
+                if (!tarefas.isEmpty()) {
+                    fireTableRowsUpdated(0, tarefas.size() - 1);
+                }
+                return;
+            }
+            tarefas = atuais;
+            fireTableDataChanged();
+        }
+
+        Tarefa getTarefa(int linha) {
+            return tarefas.get(linha);
+        }
+
+        @Override
+        public int getRowCount() {
+            return tarefas.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUNAS.length;
+        }
+
+        @Override
+        public String getColumnName(int coluna) {
+            return COLUNAS[coluna];
+        }
+
+        @Override
+        public Object getValueAt(int linha, int coluna) {
+            Tarefa tarefa = tarefas.get(linha);
+            return switch (coluna) {
+                case 0 ->
+                    tarefa.getId();
+                case 1 ->
+                    tarefa.getGeneros();
+                case 2 ->
+                    tarefa.getCaminho();
+                case 3 ->
+                    tarefa.getEstado();
+                case 4 ->
+                    tarefa.getTotalSecoes() > 0 ? tarefa.getSecoesLidas() + "/" + tarefa.getTotalSecoes() + " gênero(s)" : "";
+                case 5 ->
+                    tarefa.getLivros();
+                case 6 ->
+                    String.format("%.1f", tarefa.getDuracaoMs() / 1000.0);
+                default ->
+                    tarefa.getMensagem();
+            };
+        }
+    }
+}
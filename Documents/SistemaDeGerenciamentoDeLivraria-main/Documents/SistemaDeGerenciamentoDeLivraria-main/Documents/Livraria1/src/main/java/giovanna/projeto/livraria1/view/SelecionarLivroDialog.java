@@ -13,7 +13,11 @@ import java.awt.event.KeyEvent;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.xml.rpc.ServiceException;
 import static org.hibernate.query.sqm.SqmTreeTransformationLogger.LOGGER;
 import org.jboss.logging.Logger;
@@ -25,6 +29,8 @@ import org.jboss.logging.Logger;
  */
 public class SelecionarLivroDialog extends JDialog {
 
+    private static final int LIMITE_SUGESTOES = 200; // Semelhantes dos semelhantes listados primeiro
+
     private final DefaultTableModel modeloTabelaLivros;  // Modelo da tabela de livros
     private final JTable tabelaLivros;                    // Tabela para exibição dos livros
     private final JButton btnOk;                          // Botão OK
@@ -107,24 +113,29 @@ public class SelecionarLivroDialog extends JDialog {
 
     /**
      * Carrega a lista de livros disponíveis para seleção, excluindo o livro
-     * atual e os que já são semelhantes. Preenche a tabela com os livros para
-     * que o usuário possa selecioná-los.
+     * atual e os que já são semelhantes. Os semelhantes dos semelhantes vêm
+     * primeiro, como sugestão. Preenche a tabela com os livros para que o
+     * usuário possa selecioná-los.
      */
     private void carregarLivros() throws Exception {
         try {
-            // Verifica os que já são similares e os armazena
+            // Verifica os que já são similares e os sugeridos, pelo grafo de similaridades
             LivroSimilaresService similaresService = new LivroSimilaresService();
-            List<Livro> livrosJaSimilares = similaresService.buscarLivrosSemelhantes(etiquetaLivroAtual);
-
-            List<Integer> etiquetasJaSimilares = new ArrayList<>();
-
-            for (Livro livro : livrosJaSimilares) {
-                etiquetasJaSimilares.add(livro.getEtiqueta_livro());
+            int[] etiquetasJaSimilares = similaresService.buscarEtiquetasSemelhantes(etiquetaLivroAtual);
+            Arrays.sort(etiquetasJaSimilares);
+            int[] sugeridas = similaresService.buscarEtiquetasSugeridas(etiquetaLivroAtual, LIMITE_SUGESTOES);
+            Map<Integer, Integer> ordemSugestao = new HashMap<>();
+            for (int i = 0; i < sugeridas.length; i++) {
+                ordemSugestao.put(sugeridas[i], i);
             }
+
             livrosDisponiveis = livroService.listarLivros();
             //Remove livros já similares e o livro atual da listagem
             livrosDisponiveis.removeIf(livro -> livro.getEtiqueta_livro() == etiquetaLivroAtual
-                    || etiquetasJaSimilares.contains(livro.getEtiqueta_livro()));
+                    || Arrays.binarySearch(etiquetasJaSimilares, livro.getEtiqueta_livro()) >= 0);
+            // Ordenação estável: os demais mantêm a ordem da listagem
+            livrosDisponiveis.sort(Comparator.comparingInt(
+                    livro -> ordemSugestao.getOrDefault(livro.getEtiqueta_livro(), Integer.MAX_VALUE)));
             atualizarTabelaFiltrada(""); // Atualiza a tabela com todos os livros disponíveis
 
         } catch (ServiceException ex) {
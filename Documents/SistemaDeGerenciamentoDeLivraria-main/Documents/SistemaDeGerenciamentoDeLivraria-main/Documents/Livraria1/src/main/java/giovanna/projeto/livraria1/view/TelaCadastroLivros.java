@@ -2,22 +2,23 @@ package giovanna.projeto.livraria1.view;
 
 import giovanna.projeto.livraria1.model.Livro;
 import giovanna.projeto.livraria1.services.LivroService;
+import giovanna.projeto.livraria1.util.DisjuntorAbertoException;
 import giovanna.projeto.livraria1.util.ISBNApiClient;
+import giovanna.projeto.livraria1.util.ISBNUtil;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
-import java.awt.event.KeyAdapter;
-import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.xml.rpc.ServiceException;
 
 /**
@@ -27,14 +28,18 @@ import javax.xml.rpc.ServiceException;
  */
 public class TelaCadastroLivros extends JPanel {
 
-    private final DefaultTableModel modeloTabela; // Modelo da tabela de livros
+    private final LivroTableModel modeloTabela; // Modelo da tabela de livros, carregado por páginas
     private final JTable tabelaLivros; // Tabela para exibir livros
     private final JPanel btnPanel; // Painel de botões de ação
     private LivroDialog livroDialog; // Diálogo de inclusão/edição de livros
     private static final Logger LOGGER = Logger.getLogger(TelaCadastroLivros.class.getName()); // Logger para captura de erros
+    private static final String PLACEHOLDER_PESQUISA = "FIltrar dados"; // Texto de dica do campo de pesquisa
     private JFrame parentFrame; // Referência ao frame pai
     private final JTextField txtPesquisa; // Campo de pesquisa
     private final JButton btnAtualizar; // Botão de atualização da tabela
+    private final LivroService livroService = new LivroService(); // Serviço compartilhado pela tela
+    private final BuscaIncremental<List<Livro>> busca; // Busca com espera, em segundo plano e cancelável
+    private boolean trocandoPlaceholder; // Indica que o texto do campo de pesquisa está sendo trocado pelo placeholder, sem ação do usuário
 
     /**
      * Construtor da classe TelaCadastroLivros. Inicializa a interface gráfica e
@@ -50,7 +55,7 @@ public class TelaCadastroLivros extends JPanel {
         // Painel superior com botão de atualização e filtrar dados
         JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
         // Texto de dica (placeholder)
-        String placeholder = "FIltrar dados";
+        String placeholder = PLACEHOLDER_PESQUISA;
         // Campo de pesquisa e suas configurações
         txtPesquisa = new JTextField(20); // Campo de pesquisa
         // Configuração inicial do placeholder
@@ -63,7 +68,7 @@ public class TelaCadastroLivros extends JPanel {
             public void focusGained(FocusEvent e) {
                 // Remove o placeholder ao ganhar o foco
                 if (txtPesquisa.getText().equals(placeholder)) {
-                    txtPesquisa.setText("");
+                    trocarTextoPesquisa("");
                     txtPesquisa.setForeground(Color.BLACK);
                 }
             }
@@ -72,16 +77,31 @@ public class TelaCadastroLivros extends JPanel {
             public void focusLost(FocusEvent e) {
                 // Restaura o placeholder se o campo estiver vazio ao perder o foco
                 if (txtPesquisa.getText().isEmpty()) {
-                    txtPesquisa.setText(placeholder);
+                    trocarTextoPesquisa(placeholder);
                     txtPesquisa.setForeground(Color.LIGHT_GRAY);
                 }
             }
         });
 
-        txtPesquisa.addKeyListener(new KeyAdapter() {
+        // Busca conforme o texto muda; a consulta só é disparada após uma pausa na digitação
+        txtPesquisa.getDocument().addDocumentListener(new DocumentListener() {
             @Override
-            public void keyReleased(KeyEvent e) {
-                filtrarLivros(txtPesquisa.getText().trim()); // Filtra os livros conforme o texto
+            public void insertUpdate(DocumentEvent e) {
+                if (!trocandoPlaceholder) {
+                    filtrarLivros(txtPesquisa.getText().trim());
+                }
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                if (!trocandoPlaceholder) {
+                    filtrarLivros(txtPesquisa.getText().trim());
+                }
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Alterações de atributos não mudam o texto
             }
         });
         btnAtualizar = new JButton("Atualizar"); // Botão de atualizar tabela
@@ -92,11 +112,14 @@ public class TelaCadastroLivros extends JPanel {
         topPanel.add(txtPesquisa);
         add(topPanel, BorderLayout.NORTH);
 
-        // Configuração da tabela com cabeçalhos
-        modeloTabela = new DefaultTableModel(
-                new String[]{"Etiqueta", "ISBN", "Título", "Autores", "Editora", "Gênero", "Data Publicação"}, 0
-        );
+        // Configuração da tabela: as páginas são buscadas conforme a rolagem
+        modeloTabela = new LivroTableModel(livroService);
         tabelaLivros = new JTable(modeloTabela); // Tabela para exibir os livros
+        modeloTabela.instalarOrdenacao(tabelaLivros); // Clique no cabeçalho ordena no banco
+        busca = new BuscaIncremental<>(BuscaIncremental.ATRASO_PADRAO_MS,
+                livroService::buscarLivrosPorFiltro, // Consulta cancelável, fora da thread do Swing
+                modeloTabela::exibir, // Somente o resultado da busca mais recente chega aqui
+                this::exibirErroFiltro);
         JScrollPane scrollPane = new JScrollPane(tabelaLivros); // Adiciona a tabela ao scroll pane
         add(scrollPane, BorderLayout.CENTER);
 
@@ -146,37 +169,12 @@ public class TelaCadastroLivros extends JPanel {
     }
 
     /**
-     * Carrega os livros cadastrados no banco de dados e atualiza a tabela.
+     * Recarrega a tabela a partir da primeira página de livros cadastrados.
+     * As demais páginas são buscadas conforme o usuário rola a tabela.
      */
     private void carregarLivros() {
-        try {
-            LivroService service = new LivroService();
-            List<Livro> livros = service.listarLivros(); // Obtém a lista de livros cadastrados
-            atualizarModeloTabela(livros); // Atualiza a tabela com os livros obtidos
-        } catch (ServiceException ex) {
-            JOptionPane.showMessageDialog(this, "Erro ao carregar livros: " + ex.getMessage());
-            LOGGER.log(Level.SEVERE, "Erro ao carregar livros", ex);
-        }
-    }
-
-    /**
-     * Atualiza os dados exibidos na tabela.
-     *
-     * @param livros Lista de livros a serem exibidos.
-     */
-    private void atualizarModeloTabela(List<Livro> livros) {
-        modeloTabela.setRowCount(0); // Limpa a tabela
-        for (Livro livro : livros) {
-            modeloTabela.addRow(new Object[]{
-                livro.getEtiqueta_livro(),
-                livro.getIsbn(),
-                livro.getTitulo(),
-                livro.getAutor(),
-                livro.getEditora(),
-                livro.getGeneroNome(),
-                livro.getData_publicacao()
-            });
-        }
+        busca.cancelar(); // Resultados de uma busca em andamento não devem sobrescrever a listagem
+        modeloTabela.recarregar();
     }
 
     /**
@@ -204,11 +202,10 @@ public class TelaCadastroLivros extends JPanel {
             return;
         }
 
-        int etiqueta = (int) modeloTabela.getValueAt(linhaSelecionada, 0); // Obtém a etiqueta do livro
+        int etiqueta = modeloTabela.getLivro(linhaSelecionada).getEtiqueta_livro(); // Obtém a etiqueta do livro
 
         try {
-            LivroService service = new LivroService();
-            Livro livro = service.buscaPorEtiqueta(etiqueta); // Busca o livro pelo método de etiqueta
+            Livro livro = livroService.buscaPorEtiqueta(etiqueta); // Busca o livro pelo método de etiqueta
             if (livro != null) {
                 abrirLivroDialog(livro); // Abre o diálogo de edição
             } else {
@@ -230,15 +227,14 @@ public class TelaCadastroLivros extends JPanel {
             return;
         }
 
-        int etiqueta = (int) modeloTabela.getValueAt(linhaSelecionada, 0); // Obtém a etiqueta do livro
+        int etiqueta = modeloTabela.getLivro(linhaSelecionada).getEtiqueta_livro(); // Obtém a etiqueta do livro
 
         int confirmacao = JOptionPane.showConfirmDialog(this,
                 "Deseja realmente excluir este livro?", "Confirmação de exclusão", JOptionPane.YES_NO_OPTION);
 
         if (confirmacao == JOptionPane.YES_OPTION) {
             try {
-                LivroService service = new LivroService();
-                service.excluirLivro(etiqueta); // Exclui o livro
+                livroService.excluirLivro(etiqueta); // Exclui o livro
                 carregarLivros(); // Atualiza a tabela
                 JOptionPane.showMessageDialog(this, "Livro excluído com sucesso!");
             } catch (HeadlessException | ServiceException ex) {
@@ -252,14 +248,14 @@ public class TelaCadastroLivros extends JPanel {
      * Abre o diálogo para cadastro de livro via ISBN.
      */
     private void abrirDialogoISBN() {
-        String isbn = JOptionPane.showInputDialog(this, "Informe o ISBN-13 do livro:", "Cadastrar pelo ISBN", JOptionPane.PLAIN_MESSAGE);
+        String isbn = JOptionPane.showInputDialog(this, "Informe o ISBN (10 ou 13 dígitos) do livro:", "Cadastrar pelo ISBN", JOptionPane.PLAIN_MESSAGE);
 
         if (isbn != null && !isbn.trim().isEmpty()) {
-            isbn = isbn.replaceAll("[^0-9]", ""); // Remove qualquer caractere não numérico
-            if (isbn.length() == 13) {
-                cadastrarLivroISBN(isbn); // Realiza o cadastro do livro via ISBN
+            String isbn13 = ISBNUtil.paraIsbn13(isbn); // Aceita hífens e espaços; ISBN-10 é convertido
+            if (isbn13 != null) {
+                cadastrarLivroISBN(isbn13); // Realiza o cadastro do livro via ISBN
             } else {
-                JOptionPane.showMessageDialog(this, "ISBN inválido. Verifique se o mesmo contém 13 dígitos.", "Erro", JOptionPane.ERROR_MESSAGE);
+                JOptionPane.showMessageDialog(this, "ISBN inválido. Verifique os dígitos informados.", "Erro", JOptionPane.ERROR_MESSAGE);
                 LOGGER.log(Level.SEVERE, "ISBN inválido.");
             }
         }
@@ -268,39 +264,88 @@ public class TelaCadastroLivros extends JPanel {
     /**
      * Realiza o cadastro ou atualização de um livro usando a API OpenLibrary.
      *
+     * A consulta à API é feita em segundo plano; o diálogo do livro é aberto
+     * quando a resposta chega.
+     *
      * @param isbn ISBN-13 do livro.
      */
     public void cadastrarLivroISBN(String isbn) {
-        try {
-            Livro livro = ISBNApiClient.buscarLivroPorISBN(isbn); // Busca o livro via API
-            if (livro != null) {
-                abrirLivroDialog(livro); // Abre o diálogo de edição com os dados do livro
-            } else {
-                JOptionPane.showMessageDialog(this, "Livro não encontrado na API.", "Erro", JOptionPane.ERROR_MESSAGE);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        ISBNApiClient.padrao().buscarLivroPorISBN(isbn) // Busca o livro via API
+                .whenComplete((livro, erro) -> SwingUtilities.invokeLater(() -> {
+            setCursor(Cursor.getDefaultCursor());
+            if (erro != null) {
+                Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+                if (causa instanceof DisjuntorAbertoException) {
+                    // Serviço instável: a consulta nem foi feita; o livro pode ser cadastrado manualmente
+                    JOptionPane.showMessageDialog(this, causa.getMessage() + "\nCadastre o livro manualmente ou tente mais tarde.",
+                            "Open Library indisponível", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                JOptionPane.showMessageDialog(this, "Erro ao buscar livro pelo ISBN: " + causa.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-        } catch (HeadlessException | SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Erro ao buscar livro pelo ISBN: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-            LOGGER.log(Level.SEVERE, "Erro ao buscar livro pelo ISBN", ex);
-        }
+            try {
+                if (livro != null) {
+                    abrirLivroDialog(livro); // Abre o diálogo de edição com os dados do livro
+                } else {
+                    JOptionPane.showMessageDialog(this, "Livro não encontrado na API.", "Erro", JOptionPane.ERROR_MESSAGE);
+                }
+            } catch (HeadlessException | SQLException ex) {
+                JOptionPane.showMessageDialog(this, "Erro ao buscar livro pelo ISBN: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                LOGGER.log(Level.SEVERE, "Erro ao buscar livro pelo ISBN", ex);
+            }
+        }));
     }
 
     /**
      * Filtra os livros exibidos na tabela com base no texto fornecido. O filtro
      * é aplicado em colunas como título, autor, gênero e ISBN.
      *
+     * <p>
+     * A consulta é agendada e só é executada após uma pausa na digitação; a
+     * tabela é atualizada quando o resultado da busca mais recente chega.
+     * </p>
+     *
      * @param texto Texto digitado pelo usuário no campo de filtro.
      */
     private void filtrarLivros(String texto) {
+        if (texto.equals(PLACEHOLDER_PESQUISA)) {
+            return; // O placeholder não é um filtro
+        }
+        if (texto.isEmpty()) {
+            carregarLivros(); // Sem filtro, volta à listagem paginada
+            return;
+        }
+        busca.agendar(texto);
+    }
+
+    /**
+     * Troca o texto do campo de pesquisa ao mostrar ou remover o placeholder,
+     * sem disparar a busca: apenas ganhar ou perder o foco não deve recarregar
+     * a tabela.
+     *
+     * @param texto Novo texto do campo.
+     */
+    private void trocarTextoPesquisa(String texto) {
+        trocandoPlaceholder = true;
         try {
-            LivroService service = new LivroService();
-            List<Livro> livrosFiltrados = service.buscarLivrosPorFiltro(texto); // Busca os livros que correspondem ao filtro
-            atualizarModeloTabela(livrosFiltrados); // Atualiza a tabela com os livros filtrados
-        } catch (ServiceException ex) {
-            JOptionPane.showMessageDialog(this, "Erro ao filtrar livros: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-            LOGGER.log(Level.SEVERE, "Erro ao filtrar livros", ex);
+            txtPesquisa.setText(texto);
+        } finally {
+            trocandoPlaceholder = false;
         }
     }
 
+    /**
+     * Exibe o erro de uma busca que falhou.
+     *
+     * @param ex Exceção da busca.
+     */
+    private void exibirErroFiltro(Exception ex) {
+        JOptionPane.showMessageDialog(this, "Erro ao filtrar livros: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        LOGGER.log(Level.SEVERE, "Erro ao filtrar livros", ex);
+    }
+
     /**
      * Atualiza a tabela com os livros cadastrados.
      *
@@ -6,10 +6,8 @@ import giovanna.projeto.livraria1.model.Livro;
 import giovanna.projeto.livraria1.services.LivroService;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Date;
@@ -35,15 +33,12 @@ public class TelaFiltrarLivros extends JPanel {
     private final JButton btnLimparFiltros = new JButton("Limpar Filtros");
 
     // Modelo e tabela para exibição dos resultados dos filtros
-    private final DefaultTableModel modeloTabela;
+    private final LivroTableModel modeloTabela;
     private final JTable tabelaLivros;
 
     // Serviço para acesso aos livros no banco de dados
     private final LivroService livroService;
 
-    // Formato de exibição da data para a tabela
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-
     // Botão para visualizar os detalhes do livro
     private final JButton btnDetalhes = new JButton("Detalhes");
 
@@ -63,10 +58,9 @@ public class TelaFiltrarLivros extends JPanel {
         add(panelFiltros, BorderLayout.NORTH);
 
         // Configuração da tabela para exibição dos resultados
-        modeloTabela = new DefaultTableModel(
-                new String[]{"Etiqueta", "Título", "Autor", "Editora", "Gênero", "ISBN", "Data Publicação"}, 0
-        );
+        modeloTabela = new LivroTableModel(livroService);
         tabelaLivros = new JTable(modeloTabela);
+        modeloTabela.instalarOrdenacao(tabelaLivros);
         JScrollPane scrollPane = new JScrollPane(tabelaLivros);
         add(scrollPane, BorderLayout.CENTER);
 
@@ -205,25 +199,14 @@ public class TelaFiltrarLivros extends JPanel {
      * @throws SQLException caso ocorra um erro ao acessar o banco de dados.
      */
     private void carregarLivros(String titulo, String autor, String genero, String isbn, LocalDate data_publicacao) throws SQLException {
+        if (titulo == null && autor == null && genero == null && isbn == null && data_publicacao == null) {
+            // Sem filtros, exibe o catálogo completo por páginas
+            modeloTabela.recarregar();
+            return;
+        }
         // Obtém os livros filtrados através do serviço
         List<Livro> livros = livroService.filtrarLivros(titulo, autor, isbn, genero, data_publicacao);
-        // Limpa a tabela antes de adicionar novos resultados
-        modeloTabela.setRowCount(0);
-
-        // Adiciona cada livro à tabela
-        for (Livro livro : livros) {
-            modeloTabela.addRow(new Object[]{
-                livro.getEtiqueta_livro(),
-                livro.getTitulo(),
-                livro.getAutor(),
-                livro.getEditora(),
-                livro.getGeneroNome(),
-                livro.getIsbn(),
-                livro.getData_publicacao() != null
-                ? dateFormat.format(java.sql.Date.valueOf(livro.getData_publicacao()))
-                : "" // Formata a data na tabela
-            });
-        }
+        modeloTabela.exibir(livros);
     }
 
     /**
@@ -237,7 +220,7 @@ public class TelaFiltrarLivros extends JPanel {
         }
 
         // Obtém a etiqueta do livro selecionado
-        int etiqueta = (int) modeloTabela.getValueAt(linhaSelecionada, 0);
+        int etiqueta = modeloTabela.getLivro(linhaSelecionada).getEtiqueta_livro();
 
         try {
             Livro livro = livroService.buscaPorEtiqueta(etiqueta); // Busca o livro pelo serviço
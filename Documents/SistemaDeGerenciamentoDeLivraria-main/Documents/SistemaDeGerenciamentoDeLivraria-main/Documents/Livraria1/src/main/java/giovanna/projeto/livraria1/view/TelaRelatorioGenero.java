@@ -2,32 +2,36 @@ package giovanna.projeto.livraria1.view;
 
 import giovanna.projeto.livraria1.model.Genero;
 import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.services.FilaRelatorios;
 import giovanna.projeto.livraria1.services.GeneroService;
-import giovanna.projeto.livraria1.services.LivroService;
 import giovanna.projeto.livraria1.services.RelatorioService;
 import giovanna.projeto.livraria1.util.AutoComplete;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.io.IOException;
-import java.sql.Date;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import net.sf.jasperreports.engine.JRException;
+import javax.xml.rpc.ServiceException;
 
 /**
  * Classe responsável por exibir relatórios de livros filtrados por gênero.
  * Permite visualizar os resultados em uma tabela e salvar o relatório em
- * formato XLS.
+ * formato XLSX ou PDF.
  * <p>
  * Esta classe fornece uma interface para que o usuário possa filtrar livros por
  * gênero, atualizar os resultados na tabela e salvar o relatório gerado em
- * formato XLS.
+ * formato XLSX ou PDF.
+ * </p>
+ * <p>
+ * A prévia e os relatórios são gerados em segundo plano pela
+ * {@link FilaRelatorios}, com uma consulta por gênero em paralelo; os
+ * relatórios pedidos aparecem na fila, no rodapé da tela, onde podem ser
+ * acompanhados e cancelados.
  * </p>
  */
 public class TelaRelatorioGenero extends JPanel {
@@ -41,6 +45,8 @@ public class TelaRelatorioGenero extends JPanel {
     private final DefaultTableModel modeloTabela; // Modelo da tabela
     private List<Genero> generos; // Lista de gêneros para autocomplete
     private final JPopupMenu popupGenero = new JPopupMenu(); // Popup para autocomplete
+    private final FilaRelatorios fila = FilaRelatorios.getInstancia(); // Fila compartilhada pela aplicação
+    private final PainelFilaRelatorios painelFila; // Relatórios em andamento
 
     /**
      * Construtor para inicializar o painel de relatório. Configura os
@@ -73,12 +79,17 @@ public class TelaRelatorioGenero extends JPanel {
         tabelaRelatorio = new JTable(modeloTabela);
         add(new JScrollPane(tabelaRelatorio), BorderLayout.CENTER);
 
+        // Fila de relatórios em segundo plano
+        painelFila = new PainelFilaRelatorios(fila);
+        add(painelFila, BorderLayout.SOUTH);
+
         // Configura o autocomplete para o campo de gênero
         configurarAutocompletarGenero();
     }
 
     /**
-     * Atualiza os dados da tabela com base nos gêneros informados.
+     * Atualiza os dados da tabela com base nos gêneros informados. Os livros
+     * de cada gênero são buscados em paralelo, fora da thread de eventos.
      *
      * @param e Evento de ação disparado pelo botão "Atualizar".
      */
@@ -92,22 +103,23 @@ public class TelaRelatorioGenero extends JPanel {
         // Split para pegar todos os gêneros separados por vírgula
         String[] generosArray = generosTexto.split(",");
 
-        LivroService livroService = new LivroService();
-        List<Livro> livros = new ArrayList<>();
-
-        // Para cada gênero informado, buscar os livros
-        for (String generoNome : generosArray) {
-            Genero genero = new GeneroService().buscarGeneroPorNome(generoNome.trim());  // Buscar gênero pelo nome
-            if (genero != null) {
-                livros.addAll(livroService.buscarLivrosPorGenero(genero.getId()));  // Buscar livros pelo ID do gênero
+        btnAtualizar.setEnabled(false);
+        fila.carregarLivros(generosArray).whenComplete((livros, erro) -> SwingUtilities.invokeLater(() -> {
+            btnAtualizar.setEnabled(true);
+            if (erro != null) {
+                Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+                Logger.getLogger(TelaRelatorioGenero.class.getName()).log(Level.SEVERE, "Erro ao carregar a prévia do relatório", causa);
+                JOptionPane.showMessageDialog(this, "Erro ao buscar os livros: " + causa.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-        }
-
-        atualizarTabela(livros); // Atualiza a tabela com os livros encontrados
+            atualizarTabela(livros); // Atualiza a tabela com os livros encontrados
+        }));
     }
 
     /**
-     * Salva o relatório em formato XLS com base nos dados exibidos na tabela.
+     * Pede à fila um relatório em formato XLSX ou PDF com os livros dos
+     * gêneros informados. O formato é o do filtro escolhido na janela de
+     * salvamento; o relatório é gerado em segundo plano.
      *
      * @param e Evento de ação disparado pelo botão "Salvar".
      */
@@ -121,38 +133,29 @@ public class TelaRelatorioGenero extends JPanel {
         try {
             JFileChooser fileChooser = new JFileChooser();
             fileChooser.setDialogTitle("Salvar Relatório");
+            FileNameExtensionFilter filtroExcel = new FileNameExtensionFilter("Planilha Excel (*.xlsx)", "xlsx");
+            FileNameExtensionFilter filtroPdf = new FileNameExtensionFilter("Documento PDF (*.pdf)", "pdf");
+            fileChooser.addChoosableFileFilter(filtroExcel);
+            fileChooser.addChoosableFileFilter(filtroPdf);
+            fileChooser.setFileFilter(filtroExcel);
             int userSelection = fileChooser.showSaveDialog(this);
 
             if (userSelection == JFileChooser.APPROVE_OPTION) {
-                String filePath = fileChooser.getSelectedFile().getAbsolutePath()+".xls";
-                RelatorioService relatorioService = new RelatorioService();
-
-                List<Livro> livros = new ArrayList<>();
-                for (int i = 0; i < modeloTabela.getRowCount(); i++) {
-                    Livro livro = new Livro();
-                    livro.setTitulo((String) modeloTabela.getValueAt(i, 0));
-                    livro.setAutor((String) modeloTabela.getValueAt(i, 1));
-                    livro.setGeneroNome((String) modeloTabela.getValueAt(i, 2));
-                    livro.setIsbn((String) modeloTabela.getValueAt(i, 3));
-                    livro.setEditora((String) modeloTabela.getValueAt(i, 4));
-
-                    Object dataObj = modeloTabela.getValueAt(i, 5);
-                    if (dataObj instanceof java.sql.Date) {
-                        livro.setData_publicacao(((Date) dataObj).toLocalDate());
-                    }
-
-                    livros.add(livro); // Adiciona o livro à lista
+                // A extensão é completada pelo serviço, se necessário
+                String filePath = fileChooser.getSelectedFile().getAbsolutePath();
+                if (fileChooser.getFileFilter() == filtroPdf && !filePath.toLowerCase().endsWith(RelatorioService.EXTENSAO_PDF)) {
+                    filePath += RelatorioService.EXTENSAO_PDF;
                 }
 
-                // Salva o relatório no formato XLS
-                relatorioService.gerarRelatorioPorGenero(generosTexto.split(","), filePath);
-
-                JOptionPane.showMessageDialog(this, "Relatório salvo com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
+                // Entra na fila; o andamento aparece no painel da fila
+                FilaRelatorios.Tarefa tarefa = fila.enfileirar(generosTexto.split(","), filePath);
+                painelFila.atualizar();
+                Logger.getLogger(TelaRelatorioGenero.class.getName()).log(Level.INFO, "Relatório pedido: {0}", tarefa);
             }
         } catch (HeadlessException ex) {
             JOptionPane.showMessageDialog(this, "Erro ao salvar relatório: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-        } catch (SQLException | IOException | JRException ex) {
-            Logger.getLogger(TelaRelatorioGenero.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (ServiceException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Fila de relatórios", JOptionPane.WARNING_MESSAGE);
         }
     }
 
@@ -0,0 +1,214 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.services.AgendadorSimilares;
+import giovanna.projeto.livraria1.services.AgendadorSimilares.Estado;
+import giovanna.projeto.livraria1.services.AgendadorSimilares.Tarefa;
+import giovanna.projeto.livraria1.util.ProgressoListener;
+import giovanna.projeto.livraria1.util.RecalculoEmAndamentoException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do {@link AgendadorSimilares}: horário do recálculo agendado
+ * ({@link AgendadorSimilares#proximaExecucao(LocalTime, ZonedDateTime)}),
+ * andamento, cancelamento e recálculos agendados ignorados, com o recálculo
+ * simulado em vez do banco.
+ *
+ * @author giova
+ */
+public class AgendadorSimilaresTest {
+
+    private static final ZoneId SAO_PAULO = ZoneId.of("America/Sao_Paulo");
+    private static final ZoneId NOVA_YORK = ZoneId.of("America/New_York");
+
+    /**
+     * Recálculo simulado: executa a ação configurada e responde a data do
+     * último recálculo concluído.
+     */
+    private static final class RecalculoSimulado implements AgendadorSimilares.Recalculo {
+
+        private interface Acao {
+
+            int executar(ProgressoListener progresso, BooleanSupplier cancelamento) throws Exception;
+        }
+
+        private volatile Acao acao = (progresso, cancelamento) -> 0;
+        private volatile Timestamp ultimoConcluido;
+        private final AtomicInteger execucoes = new AtomicInteger();
+        private final CountDownLatch consultado = new CountDownLatch(1);
+
+        @Override
+        public int executar(ProgressoListener progresso, int paralelismo, BooleanSupplier cancelamento) throws Exception {
+            execucoes.incrementAndGet();
+            return acao.executar(progresso, cancelamento);
+        }
+
+        @Override
+        public Timestamp buscarUltimoConcluido() {
+            consultado.countDown();
+            return ultimoConcluido;
+        }
+
+        @Override
+        public boolean existePendente() {
+            return false;
+        }
+    }
+
+    private final RecalculoSimulado recalculo = new RecalculoSimulado();
+    private final AgendadorSimilares agendador = new AgendadorSimilares(1, recalculo);
+
+    @AfterEach
+    void encerrar() {
+        agendador.encerrar();
+    }
+
+    private static void aguardar(BooleanSupplier condicao, String descricao) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condicao.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < limite, "Tempo esgotado: " + descricao);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testProximaExecucaoNoMesmoDiaOuNoSeguinte() {
+        LocalTime tresDaManha = LocalTime.of(3, 0);
+        ZonedDateTime madrugada = ZonedDateTime.of(LocalDateTime.of(2024, 5, 10, 1, 30), SAO_PAULO);
+        ZonedDateTime tarde = ZonedDateTime.of(LocalDateTime.of(2024, 5, 10, 15, 0), SAO_PAULO);
+        ZonedDateTime noHorario = ZonedDateTime.of(LocalDateTime.of(2024, 5, 10, 3, 0), SAO_PAULO);
+
+        Assertions.assertEquals(LocalDateTime.of(2024, 5, 10, 3, 0),
+                AgendadorSimilares.proximaExecucao(tresDaManha, madrugada).toLocalDateTime());
+        Assertions.assertEquals(LocalDateTime.of(2024, 5, 11, 3, 0),
+                AgendadorSimilares.proximaExecucao(tresDaManha, tarde).toLocalDateTime());
+        Assertions.assertEquals(LocalDateTime.of(2024, 5, 11, 3, 0),
+                AgendadorSimilares.proximaExecucao(tresDaManha, noHorario).toLocalDateTime(), "Sempre depois de agora.");
+    }
+
+    @Test
+    void testProximaExecucaoAcompanhaOHorarioDeVerao() {
+        // Em 10/03/2024 os relógios de Nova York pularam das 2h para as 3h
+        ZonedDateTime vespera = ZonedDateTime.of(LocalDateTime.of(2024, 3, 9, 12, 0), NOVA_YORK);
+
+        ZonedDateTime proxima = AgendadorSimilares.proximaExecucao(LocalTime.of(4, 0), vespera);
+
+        Assertions.assertEquals(LocalDateTime.of(2024, 3, 10, 4, 0), proxima.toLocalDateTime());
+        Assertions.assertEquals(15, Duration.between(vespera, proxima).toHours(), "Uma hora a menos no dia da mudança.");
+    }
+
+    @Test
+    void testAndamentoChegaATarefaEAosOuvintes() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        recalculo.acao = (progresso, cancelamento) -> {
+            progresso.progresso(5, 10, "Gênero: Romance");
+            liberar.await();
+            return 42;
+        };
+        List<String> recebidos = new CopyOnWriteArrayList<>();
+        agendador.adicionarOuvinte((concluido, total, mensagem) -> recebidos.add(concluido + "/" + total + " " + mensagem));
+
+        Tarefa tarefa = agendador.executarAgora();
+        aguardar(() -> !recebidos.isEmpty(), "andamento"); // Os ouvintes são avisados depois da tarefa
+
+        Assertions.assertEquals(Estado.EM_EXECUCAO, tarefa.getEstado());
+        Assertions.assertEquals(10, tarefa.getTotalLivros());
+        Assertions.assertEquals("Gênero: Romance", tarefa.getMensagem());
+        Assertions.assertEquals(List.of("5/10 Gênero: Romance"), recebidos);
+        Assertions.assertSame(tarefa, agendador.executarAgora(), "Pedido durante a execução devolve a tarefa em andamento.");
+
+        liberar.countDown();
+        aguardar(() -> tarefa.getEstado().isEncerrado(), "fim da tarefa");
+        Assertions.assertEquals(Estado.CONCLUIDA, tarefa.getEstado());
+        Assertions.assertEquals(42, tarefa.getRelacoes());
+        Assertions.assertEquals(1, recalculo.execucoes.get());
+        Assertions.assertNotSame(tarefa, agendador.executarAgora(), "Depois de encerrada, um novo pedido cria outra tarefa.");
+    }
+
+    @Test
+    void testCancelarDuranteAExecucao() throws Exception {
+        CountDownLatch iniciado = new CountDownLatch(1);
+        recalculo.acao = (progresso, cancelamento) -> {
+            iniciado.countDown();
+            while (!cancelamento.getAsBoolean()) {
+                Thread.sleep(5);
+            }
+            throw new CancellationException();
+        };
+
+        Tarefa tarefa = agendador.executarAgora();
+        Assertions.assertTrue(iniciado.await(2, TimeUnit.SECONDS));
+        tarefa.cancelar();
+        aguardar(() -> tarefa.getEstado().isEncerrado(), "cancelamento");
+
+        Assertions.assertEquals(Estado.CANCELADA, tarefa.getEstado());
+        Assertions.assertNull(tarefa.getErro());
+        tarefa.cancelar(); // Sem efeito em tarefa encerrada
+        Assertions.assertEquals(Estado.CANCELADA, tarefa.getEstado());
+    }
+
+    @Test
+    void testRecalculoEmOutroComputadorIgnoraATarefa() throws Exception {
+        recalculo.acao = (progresso, cancelamento) -> {
+            throw new RecalculoEmAndamentoException("Outro recálculo de similaridades está em andamento.");
+        };
+
+        Tarefa tarefa = agendador.executarAgora();
+        aguardar(() -> tarefa.getEstado().isEncerrado(), "fim da tarefa");
+
+        Assertions.assertEquals(Estado.IGNORADA, tarefa.getEstado());
+        Assertions.assertNull(tarefa.getErro());
+    }
+
+    @Test
+    void testConcluidoHaPouco() {
+        Instant agora = Instant.parse("2024-05-10T15:00:00Z");
+
+        Assertions.assertFalse(AgendadorSimilares.isConcluidoHaPouco(null, agora), "Nunca concluído.");
+        Assertions.assertTrue(AgendadorSimilares.isConcluidoHaPouco(Timestamp.from(agora.minus(Duration.ofHours(11))), agora));
+        Assertions.assertFalse(AgendadorSimilares.isConcluidoHaPouco(
+                Timestamp.from(agora.minus(AgendadorSimilares.INTERVALO_MINIMO_AGENDADO)), agora));
+        Assertions.assertFalse(AgendadorSimilares.isConcluidoHaPouco(Timestamp.from(agora.minus(Duration.ofHours(13))), agora));
+    }
+
+    @Test
+    void testAgendadoIgnoradoSeConcluidoHaPouco() throws Exception {
+        recalculo.ultimoConcluido = Timestamp.from(Instant.now().minus(Duration.ofHours(1)));
+
+        agendador.agendarDiariamente(LocalTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(100)));
+        Assertions.assertTrue(recalculo.consultado.await(2, TimeUnit.SECONDS), "O horário agendado chegou.");
+        Thread.sleep(100);
+
+        Assertions.assertNull(agendador.getAtual(), "Nenhuma tarefa criada.");
+        Assertions.assertEquals(0, recalculo.execucoes.get());
+        Assertions.assertNotNull(agendador.getProximaExecucao(), "O agendamento continua para o dia seguinte.");
+    }
+
+    @Test
+    void testAgendadoExecutaSeOUltimoFoiHaMaisTempo() throws Exception {
+        recalculo.ultimoConcluido = Timestamp.from(Instant.now().minus(Duration.ofHours(13)));
+
+        agendador.agendarDiariamente(LocalTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(100)));
+        aguardar(() -> agendador.getAtual() != null && agendador.getAtual().getEstado().isEncerrado(), "recálculo agendado");
+
+        Tarefa tarefa = agendador.getAtual();
+        Assertions.assertTrue(tarefa.isAgendada());
+        Assertions.assertEquals(Estado.CONCLUIDA, tarefa.getEstado());
+        Assertions.assertEquals(1, recalculo.execucoes.get());
+    }
+}
@@ -0,0 +1,158 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.util.CacheISBN;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testes do {@link CacheISBN}: validade, respostas "não encontrado", descarte
+ * da entrada usada há mais tempo e recarga do arquivo após a compactação.
+ *
+ * @author giova
+ */
+public class CacheISBNTest {
+
+    private static final String DOM_CASMURRO = "9788535910667";
+    private static final String ODISSEIA = "9780140449136";
+    private static final String INEXISTENTE = "9780306406157";
+
+    @TempDir
+    Path pasta;
+
+    private Path arquivo() {
+        return pasta.resolve("cache-isbn.jsonl");
+    }
+
+    private static Livro livro(String titulo) {
+        Livro livro = new Livro();
+        livro.setTitulo(titulo);
+        livro.setAutor("Autor de " + titulo);
+        livro.setEditora("Editora");
+        livro.setGeneroNome("Romance");
+        livro.setData_publicacao(LocalDate.of(1899, 1, 1));
+        return livro;
+    }
+
+    private long linhasNoArquivo() throws IOException {
+        try (Stream<String> linhas = Files.lines(arquivo(), StandardCharsets.UTF_8)) {
+            return linhas.count();
+        }
+    }
+
+    @Test
+    void testEntradaExpira() throws InterruptedException {
+        CacheISBN cache = new CacheISBN(arquivo(), Duration.ofMillis(50), Duration.ofDays(1), 100);
+        cache.gravar(DOM_CASMURRO, livro("Dom Casmurro"));
+
+        CacheISBN.Entrada entrada = cache.buscar(DOM_CASMURRO);
+        Assertions.assertNotNull(entrada);
+        Assertions.assertEquals("Dom Casmurro", entrada.getLivro(DOM_CASMURRO).getTitulo());
+        Assertions.assertEquals(DOM_CASMURRO, entrada.getLivro(DOM_CASMURRO).getIsbn());
+
+        Thread.sleep(80);
+        Assertions.assertNull(cache.buscar(DOM_CASMURRO), "A entrada expirada não responde mais.");
+        Assertions.assertEquals(0, cache.getTamanho(), "A entrada expirada sai da memória.");
+        Assertions.assertEquals(1, cache.getAcertos());
+        Assertions.assertEquals(1, cache.getFaltas());
+    }
+
+    @Test
+    void testNaoEncontradoTemValidadePropria() throws InterruptedException {
+        CacheISBN cache = new CacheISBN(arquivo(), Duration.ofDays(1), Duration.ofMillis(50), 100);
+        cache.gravar(DOM_CASMURRO, livro("Dom Casmurro"));
+        cache.gravar(INEXISTENTE, null);
+
+        CacheISBN.Entrada naoEncontrado = cache.buscar(INEXISTENTE);
+        Assertions.assertNotNull(naoEncontrado);
+        Assertions.assertFalse(naoEncontrado.isEncontrado());
+        Assertions.assertNull(naoEncontrado.getLivro(INEXISTENTE));
+        Assertions.assertEquals(1, cache.getAcertosNaoEncontrado());
+
+        Thread.sleep(80);
+        Assertions.assertNull(cache.buscar(INEXISTENTE), "O \"não encontrado\" vale menos tempo.");
+        Assertions.assertNotNull(cache.buscar(DOM_CASMURRO), "O livro encontrado continua valendo.");
+    }
+
+    @Test
+    void testIsbn10EIsbn13CompartilhamAEntrada() {
+        CacheISBN cache = new CacheISBN(arquivo(), Duration.ofDays(1), Duration.ofDays(1), 100);
+        cache.gravar("0-14-044913-2", livro("The Odyssey"));
+
+        Assertions.assertEquals("The Odyssey", cache.buscar(ODISSEIA).getLivro(ODISSEIA).getTitulo());
+        Assertions.assertEquals(1, cache.getTamanho());
+    }
+
+    @Test
+    void testDescartaAEntradaUsadaHaMaisTempo() {
+        CacheISBN cache = new CacheISBN(arquivo(), Duration.ofDays(1), Duration.ofDays(1), 2);
+        cache.gravar(DOM_CASMURRO, livro("Dom Casmurro"));
+        cache.gravar(ODISSEIA, livro("The Odyssey"));
+        Assertions.assertNotNull(cache.buscar(DOM_CASMURRO)); // A Odisseia passa a ser a usada há mais tempo
+
+        cache.gravar(INEXISTENTE, null);
+
+        Assertions.assertEquals(2, cache.getTamanho());
+        Assertions.assertNull(cache.buscar(ODISSEIA));
+        Assertions.assertNotNull(cache.buscar(DOM_CASMURRO));
+        Assertions.assertNotNull(cache.buscar(INEXISTENTE));
+    }
+
+    @Test
+    void testRecarregaDoArquivo() throws IOException {
+        CacheISBN cache = new CacheISBN(arquivo(), Duration.ofDays(1), Duration.ofDays(1), 100);
+        cache.gravar(DOM_CASMURRO, livro("Dom Casmurro"));
+        cache.gravar(INEXISTENTE, null);
+        // Última linha gravada pela metade, como numa gravação interrompida
+        Files.writeString(arquivo(), "{\"isbn\":\"97801404", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        CacheISBN recarregado = new CacheISBN(arquivo(), Duration.ofDays(1), Duration.ofDays(1), 100);
+
+        Assertions.assertEquals(2, recarregado.getTamanho());
+        Livro livro = recarregado.buscar(DOM_CASMURRO).getLivro(DOM_CASMURRO);
+        Assertions.assertEquals("Dom Casmurro", livro.getTitulo());
+        Assertions.assertEquals("Autor de Dom Casmurro", livro.getAutor());
+        Assertions.assertEquals(LocalDate.of(1899, 1, 1), livro.getData_publicacao());
+        Assertions.assertFalse(recarregado.buscar(INEXISTENTE).isEncontrado());
+    }
+
+    @Test
+    void testCompactaNaAberturaERecarrega() throws IOException {
+        CacheISBN cache = new CacheISBN(arquivo(), Duration.ofDays(1), Duration.ofDays(1), 100);
+        for (int i = 1; i <= 5; i++) {
+            cache.gravar(DOM_CASMURRO, livro("Dom Casmurro " + i)); // O registro mais recente prevalece
+        }
+        cache.gravar(ODISSEIA, livro("The Odyssey"));
+        Assertions.assertEquals(6, linhasNoArquivo());
+
+        CacheISBN compactado = new CacheISBN(arquivo(), Duration.ofDays(1), Duration.ofDays(1), 100);
+        Assertions.assertEquals(2, linhasNoArquivo(), "Registros obsoletos são removidos na abertura.");
+        Assertions.assertEquals("Dom Casmurro 5", compactado.buscar(DOM_CASMURRO).getLivro(DOM_CASMURRO).getTitulo());
+
+        CacheISBN recarregado = new CacheISBN(arquivo(), Duration.ofDays(1), Duration.ofDays(1), 100);
+        Assertions.assertEquals(2, recarregado.getTamanho());
+        Assertions.assertEquals("Dom Casmurro 5", recarregado.buscar(DOM_CASMURRO).getLivro(DOM_CASMURRO).getTitulo());
+        Assertions.assertEquals("The Odyssey", recarregado.buscar(ODISSEIA).getLivro(ODISSEIA).getTitulo());
+    }
+
+    @Test
+    void testCompactaDuranteAsGravacoes() throws IOException {
+        CacheISBN cache = new CacheISBN(arquivo(), Duration.ofDays(1), Duration.ofDays(1), 100);
+        for (int i = 1; i <= 1001; i++) {
+            cache.gravar(DOM_CASMURRO, livro("Dom Casmurro " + i));
+        }
+
+        Assertions.assertEquals(1, linhasNoArquivo(), "Acima de 1000 registros o arquivo é regravado.");
+        CacheISBN recarregado = new CacheISBN(arquivo(), Duration.ofDays(1), Duration.ofDays(1), 100);
+        Assertions.assertEquals("Dom Casmurro 1001", recarregado.buscar(DOM_CASMURRO).getLivro(DOM_CASMURRO).getTitulo());
+    }
+}
@@ -0,0 +1,66 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.util.Disjuntor;
+import giovanna.projeto.livraria1.util.DisjuntorAbertoException;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes das transições de estado do {@link Disjuntor}.
+ *
+ * @author giova
+ */
+public class DisjuntorTest {
+
+    private static Disjuntor criar(Duration limiteLentidao, Duration tempoAberto) {
+        return new Disjuntor("Teste", 4, 4, 0.5, limiteLentidao, 0.5, tempoAberto, 2);
+    }
+
+    @Test
+    void testAbreComFalhasEFechaAposSondagens() throws Exception {
+        Disjuntor disjuntor = criar(Duration.ofSeconds(5), Duration.ofMillis(50));
+        disjuntor.registrar(disjuntor.permitir(), false);
+        disjuntor.registrar(disjuntor.permitir(), false);
+        disjuntor.registrar(disjuntor.permitir(), true);
+        Assertions.assertEquals(Disjuntor.Estado.FECHADO, disjuntor.getEstado(), "Abaixo do mínimo de chamadas.");
+        disjuntor.registrar(disjuntor.permitir(), true);
+        Assertions.assertEquals(Disjuntor.Estado.ABERTO, disjuntor.getEstado(), "2 falhas em 4 chamadas atingem 50%.");
+        Assertions.assertThrows(DisjuntorAbertoException.class, disjuntor::permitir);
+
+        Thread.sleep(60);
+        long sondagem1 = disjuntor.permitir();
+        long sondagem2 = disjuntor.permitir();
+        Assertions.assertEquals(Disjuntor.Estado.SEMI_ABERTO, disjuntor.getEstado());
+        Assertions.assertThrows(DisjuntorAbertoException.class, disjuntor::permitir, "Só duas sondagens por vez.");
+        disjuntor.registrar(sondagem1, false);
+        disjuntor.registrar(sondagem2, false);
+        Assertions.assertEquals(Disjuntor.Estado.FECHADO, disjuntor.getEstado());
+
+        Map<Disjuntor.Estado, Disjuntor.Metricas> metricas = disjuntor.getMetricas();
+        Assertions.assertEquals(2, metricas.get(Disjuntor.Estado.FECHADO).getEntradas());
+        Assertions.assertEquals(1, metricas.get(Disjuntor.Estado.ABERTO).getRecusadas());
+        Assertions.assertEquals(1, metricas.get(Disjuntor.Estado.SEMI_ABERTO).getRecusadas());
+        Assertions.assertEquals(2, metricas.get(Disjuntor.Estado.SEMI_ABERTO).getSucessos());
+    }
+
+    @Test
+    void testChamadasLentasAbremEReabremNaSondagem() throws Exception {
+        Disjuntor disjuntor = criar(Duration.ZERO, Duration.ofMillis(50));
+        for (int i = 0; i < 4; i++) {
+            long inicio = disjuntor.permitir();
+            Thread.sleep(2);
+            disjuntor.registrar(inicio, false);
+        }
+        Assertions.assertEquals(Disjuntor.Estado.ABERTO, disjuntor.getEstado());
+        Assertions.assertEquals(4, disjuntor.getMetricas().get(Disjuntor.Estado.FECHADO).getLentas());
+
+        Thread.sleep(60);
+        long sondagem = disjuntor.permitir();
+        Thread.sleep(2);
+        disjuntor.registrar(sondagem, false);
+        Assertions.assertEquals(Disjuntor.Estado.ABERTO, disjuntor.getEstado(), "Sondagem lenta deve reabrir.");
+        Assertions.assertTrue(disjuntor.getEsperaMs() > 0);
+    }
+}
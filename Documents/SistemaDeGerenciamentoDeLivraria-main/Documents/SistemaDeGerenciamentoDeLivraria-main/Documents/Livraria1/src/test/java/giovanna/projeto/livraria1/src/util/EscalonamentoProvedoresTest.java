@@ -0,0 +1,214 @@
+package giovanna.projeto.livraria1.src.util;
+
+import com.sun.net.httpserver.HttpServer;
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.util.CacheISBN;
+import giovanna.projeto.livraria1.util.HistogramaLatencia;
+import giovanna.projeto.livraria1.util.ISBNApiClient;
+import giovanna.projeto.livraria1.util.LeitorOpenLibrary;
+import giovanna.projeto.livraria1.util.ProvedorGoogleBooks;
+import giovanna.projeto.livraria1.util.ProvedorOpenLibrary;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testes da consulta escalonada do {@link ISBNApiClient} em duas fontes,
+ * contra servidores HTTP locais que imitam a Open Library e o Google Books
+ * com atrasos programados.
+ *
+ * @author giova
+ */
+public class EscalonamentoProvedoresTest {
+
+    private static final String ISBN = "9788535910667";
+    private static final String OPEN_LIBRARY_ENCONTRADO = "{\"numFound\":1,\"docs\":[{\"title\":\"Dom Casmurro\","
+            + "\"author_name\":[\"Machado de Assis\"],\"publisher\":[\"Garnier\"],\"publish_date\":[\"1899\"],"
+            + "\"isbn\":[\"" + ISBN + "\"]}]}";
+    private static final String OPEN_LIBRARY_VAZIO = "{\"numFound\":0,\"docs\":[]}";
+    private static final String GOOGLE_ENCONTRADO = "{\"kind\":\"books#volumes\",\"totalItems\":1,\"items\":[{\"id\":\"x\","
+            + "\"volumeInfo\":{\"title\":\"Dom Casmurro\",\"authors\":[\"Machado de Assis\"],\"publisher\":\"Penguin-Companhia\","
+            + "\"publishedDate\":\"2016-05-20\",\"categories\":[\"Fiction\"],\"industryIdentifiers\":["
+            + "{\"type\":\"ISBN_10\",\"identifier\":\"8535910662\"},{\"type\":\"ISBN_13\",\"identifier\":\"" + ISBN + "\"}]}}]}";
+    private static final String GOOGLE_VAZIO = "{\"kind\":\"books#volumes\",\"totalItems\":0}";
+
+    /**
+     * Servidor local com resposta e atraso programados.
+     */
+    private static final class Servidor {
+
+        private final HttpServer servidor;
+        private final AtomicInteger requisicoes = new AtomicInteger();
+        private volatile String corpo;
+        private volatile int codigo = 200;
+        private volatile long atrasoMs;
+
+        Servidor(String caminho, String corpo) throws IOException {
+            this.corpo = corpo;
+            servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            servidor.createContext(caminho, troca -> {
+                requisicoes.incrementAndGet();
+                try {
+                    Thread.sleep(atrasoMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (codigo != 200) {
+                    troca.sendResponseHeaders(codigo, -1);
+                    troca.close();
+                    return;
+                }
+                byte[] dados = this.corpo.getBytes(StandardCharsets.UTF_8);
+                troca.getResponseHeaders().add("Content-Type", "application/json");
+                troca.sendResponseHeaders(200, dados.length);
+                try (OutputStream saida = troca.getResponseBody()) {
+                    saida.write(dados);
+                } catch (IOException e) {
+                    // O cliente cancelou a consulta e fechou a conexão
+                }
+            });
+            servidor.setExecutor(Executors.newCachedThreadPool());
+            servidor.start();
+        }
+
+        String url(String caminho) {
+            return "http://127.0.0.1:" + servidor.getAddress().getPort() + caminho;
+        }
+
+        void parar() {
+            servidor.stop(0);
+        }
+    }
+
+    private Servidor openLibrary;
+    private Servidor google;
+
+    @TempDir
+    Path diretorio;
+
+    @BeforeEach
+    void iniciarServidores() throws IOException {
+        openLibrary = new Servidor("/search.json", OPEN_LIBRARY_ENCONTRADO);
+        google = new Servidor("/books/v1/volumes", GOOGLE_ENCONTRADO);
+    }
+
+    @AfterEach
+    void pararServidores() {
+        openLibrary.parar();
+        google.parar();
+    }
+
+    private ISBNApiClient criarCliente(Duration esperaPadrao) {
+        return criarCliente(esperaPadrao, null);
+    }
+
+    private ISBNApiClient criarCliente(Duration esperaPadrao, CacheISBN cache) {
+        return new ISBNApiClient(List.of(
+                new ProvedorOpenLibrary(openLibrary.url("/search.json?isbn="), Duration.ofSeconds(2), Duration.ofSeconds(5),
+                        1, Duration.ofMillis(10), null, LeitorOpenLibrary.Modo.STREAMING),
+                new ProvedorGoogleBooks(google.url("/books/v1/volumes?q=isbn:"), Duration.ofSeconds(2), Duration.ofSeconds(5),
+                        1, Duration.ofMillis(10), null)),
+                cache, null, 0.95, esperaPadrao);
+    }
+
+    @Test
+    void testSegundaFonteVenceQuandoAPrimeiraDemora() {
+        openLibrary.atrasoMs = 2000;
+        ISBNApiClient cliente = criarCliente(Duration.ofMillis(100));
+
+        long inicio = System.nanoTime();
+        Livro livro = cliente.buscarLivroPorISBN(ISBN).join();
+        long decorrido = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        Assertions.assertEquals("Penguin-Companhia", livro.getEditora(), "A resposta deve vir do Google Books.");
+        Assertions.assertEquals(2016, livro.getData_publicacao().getYear());
+        Assertions.assertTrue(decorrido < 1500, "Não deve esperar a Open Library: " + decorrido + " ms");
+        ISBNApiClient.EstatisticasProvedor ol = cliente.getEstatisticas().get(0);
+        ISBNApiClient.EstatisticasProvedor gb = cliente.getEstatisticas().get(1);
+        Assertions.assertEquals(1, gb.getEscalonadas());
+        Assertions.assertEquals(1, gb.getVitorias());
+        Assertions.assertEquals(1, ol.getCanceladas(), "A consulta à Open Library deve ser cancelada.");
+        Assertions.assertEquals(0, ol.getVitorias());
+    }
+
+    @Test
+    void testPrimeiraFonteRapidaNaoEscalona() throws InterruptedException {
+        ISBNApiClient cliente = criarCliente(Duration.ofMillis(1000));
+
+        Livro livro = cliente.buscarLivroPorISBN(ISBN).join();
+        Thread.sleep(1100); // Passa da espera: o escalonamento não deve acontecer depois da resposta
+
+        Assertions.assertEquals("Garnier", livro.getEditora());
+        Assertions.assertEquals(0, google.requisicoes.get());
+        Assertions.assertEquals(1, cliente.getEstatisticas().get(0).getVitorias());
+        Assertions.assertEquals(1, cliente.getEstatisticas().get(0).getLatencias().getContagem());
+    }
+
+    @Test
+    void testNaoEncontradoOuFalhaNaPrimeiraConsultaASegundaNaHora() {
+        ISBNApiClient cliente = criarCliente(Duration.ofSeconds(10));
+
+        openLibrary.corpo = OPEN_LIBRARY_VAZIO;
+        Livro livro = cliente.buscarLivroPorISBN(ISBN).join();
+        Assertions.assertEquals("Penguin-Companhia", livro.getEditora());
+
+        openLibrary.codigo = 500;
+        livro = cliente.buscarLivroPorISBN("0306406152").join();
+        Assertions.assertNull(livro, "O Google Books devolve outro ISBN: não é o livro procurado.");
+
+        Assertions.assertEquals(2, google.requisicoes.get());
+        Assertions.assertEquals(0, cliente.getEstatisticas().get(1).getEscalonadas(), "Consultada sem esperar.");
+    }
+
+    @Test
+    void testNenhumaFonteEncontra() {
+        openLibrary.corpo = OPEN_LIBRARY_VAZIO;
+        google.corpo = GOOGLE_VAZIO;
+
+        Assertions.assertNull(criarCliente(Duration.ofSeconds(10)).buscarLivroPorISBN(ISBN).join());
+    }
+
+    @Test
+    void testNaoEncontradoComFalhaNaoVaiParaOCache() {
+        CacheISBN cache = new CacheISBN(diretorio.resolve("cache.jsonl"), Duration.ofDays(1), Duration.ofDays(1), 100);
+        ISBNApiClient cliente = criarCliente(Duration.ofSeconds(10), cache);
+        openLibrary.codigo = 500;
+        google.corpo = GOOGLE_VAZIO;
+
+        Assertions.assertNull(cliente.buscarLivroPorISBN(ISBN).join());
+        Assertions.assertNull(cache.buscar(ISBN), "Com uma fonte em falha, o \"não encontrado\" não é confiável.");
+
+        openLibrary.codigo = 200;
+        openLibrary.corpo = OPEN_LIBRARY_VAZIO;
+        Assertions.assertNull(cliente.buscarLivroPorISBN(ISBN).join());
+        CacheISBN.Entrada entrada = cache.buscar(ISBN);
+        Assertions.assertNotNull(entrada, "Todas as fontes responderam: o \"não encontrado\" é guardado.");
+        Assertions.assertFalse(entrada.isEncontrado());
+        Assertions.assertEquals(2, google.requisicoes.get());
+    }
+
+    @Test
+    void testPercentilDoHistograma() {
+        HistogramaLatencia histograma = new HistogramaLatencia();
+        for (int ms = 1; ms <= 100; ms++) {
+            histograma.registrar(TimeUnit.MILLISECONDS.toNanos(ms));
+        }
+
+        Assertions.assertEquals(100, histograma.getContagem());
+        long p95 = histograma.percentilMs(0.95);
+        Assertions.assertTrue(p95 >= 95 && p95 <= 95 * 1.125 + 1, "p95 = " + p95);
+        Assertions.assertEquals(0, new HistogramaLatencia().percentilMs(0.95));
+    }
+}
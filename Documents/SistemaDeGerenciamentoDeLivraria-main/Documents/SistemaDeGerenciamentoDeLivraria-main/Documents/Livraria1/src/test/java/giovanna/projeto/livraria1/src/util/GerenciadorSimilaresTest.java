@@ -0,0 +1,59 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.util.GerenciadorSimilares;
+import giovanna.projeto.livraria1.util.MotorSimilaridade;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes da divisão dos livros em partições do recálculo paralelo
+ * ({@link GerenciadorSimilares#particionar(MotorSimilaridade, int)}).
+ *
+ * @author giova
+ */
+public class GerenciadorSimilaresTest {
+
+    @Test
+    void testParticoesPorGeneroDasMaioresParaAsMenores() {
+        MotorSimilaridade motor = new MotorSimilaridade();
+        // Gênero 1 com 25 livros, gênero 2 com 4 e 3 livros sem gênero, intercalados
+        int[] generos = new int[32];
+        for (int i = 0; i < generos.length; i++) {
+            generos[i] = i % 8 == 7 ? 2 : i % 8 == 3 && i < 24 ? 0 : 1;
+            motor.adicionar(100 + i, "Livro " + i, null, null, generos[i], null);
+        }
+        motor.preparar();
+
+        List<GerenciadorSimilares.Particao> particoes = GerenciadorSimilares.particionar(motor, 10);
+
+        boolean[] visto = new boolean[generos.length];
+        int anterior = Integer.MAX_VALUE;
+        for (GerenciadorSimilares.Particao particao : particoes) {
+            int[] livros = particao.getLivros();
+            Assertions.assertTrue(livros.length <= 10, "Nenhuma partição passa do tamanho máximo.");
+            Assertions.assertTrue(livros.length <= anterior, "Das maiores para as menores.");
+            anterior = livros.length;
+            for (int indice : livros) {
+                Assertions.assertEquals(generos[indice], particao.getGenero(), "Só livros do gênero da partição.");
+                Assertions.assertFalse(visto[indice], "Cada livro em uma única partição.");
+                visto[indice] = true;
+            }
+        }
+        for (boolean livroVisto : visto) {
+            Assertions.assertTrue(livroVisto, "Todos os livros são calculados.");
+        }
+        // 25 livros do gênero 1 em 3 partes (8, 8 e 9), 4 do gênero 2 e 3 sem gênero
+        Assertions.assertEquals(5, particoes.size());
+        Assertions.assertEquals(9, particoes.get(0).getLivros().length);
+        Assertions.assertEquals(3, particoes.get(0).getPartes());
+    }
+
+    @Test
+    void testCatalogoVazioNaoTemParticoes() {
+        MotorSimilaridade motor = new MotorSimilaridade();
+        motor.preparar();
+
+        Assertions.assertTrue(GerenciadorSimilares.particionar(motor, 10).isEmpty());
+    }
+}
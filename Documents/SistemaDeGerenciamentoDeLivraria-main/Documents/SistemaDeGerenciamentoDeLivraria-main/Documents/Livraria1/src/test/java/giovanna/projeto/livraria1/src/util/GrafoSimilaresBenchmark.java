@@ -0,0 +1,137 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.util.GrafoSimilares;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Mede as consultas do {@link GrafoSimilares} num grafo sintético, com
+ * etiquetas sequenciais a partir de 10000 e os semelhantes de cada livro
+ * sorteados entre todos os livros (o pior caso para o cache do processador).
+ * Com um milhão de livros e 50 vizinhos por livro, o grafo tem 50 milhões de
+ * ligações.
+ *
+ * <p>
+ * A memória ocupada pelo grafo ({@link GrafoSimilares#estimarMemoria()}) é
+ * impressa ao montá-lo. Para executar:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=giovanna.projeto.livraria1.src.util.GrafoSimilaresBenchmark}
+ * (ou "Run File" na IDE).
+ * </p>
+ *
+ * @author giova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class GrafoSimilaresBenchmark {
+
+    private static final int PRIMEIRA_ETIQUETA = 10_000;
+
+    @Param({"100000", "1000000"})
+    private int livros;
+
+    @Param({"20", "50"})
+    private int vizinhosPorLivro;
+
+    private GrafoSimilares grafo;
+    private int[] destino;
+    private float[] pontuacoes;
+    private int[] segundoGrau;
+    private SplittableRandom aleatorio;
+
+    @Setup(Level.Trial)
+    public void montar() {
+        SplittableRandom sorteio = new SplittableRandom(42);
+        long inicio = System.nanoTime();
+        GrafoSimilares.Construtor construtor = new GrafoSimilares.Construtor(livros, livros * vizinhosPorLivro);
+        for (int i = 0; i < livros; i++) {
+            construtor.adicionarLivro(PRIMEIRA_ETIQUETA + i);
+        }
+        for (int i = 0; i < livros; i++) {
+            for (int v = 0; v < vizinhosPorLivro; v++) {
+                // Repetições são raras e não mudam a medida; o banco não as permite
+                construtor.adicionarLigacao(PRIMEIRA_ETIQUETA + i, PRIMEIRA_ETIQUETA + sorteio.nextInt(livros),
+                        v == 0 ? Float.NaN : sorteio.nextInt(25, 101) / 100f);
+            }
+        }
+        grafo = construtor.construir();
+        long memoria = grafo.estimarMemoria();
+        System.out.printf("%nGrafo: %d livros, %d ligações, montado em %d ms, %.1f MB (%.2f bytes por ligação)%n",
+                grafo.getQuantidadeLivros(), grafo.getQuantidadeLigacoes(), (System.nanoTime() - inicio) / 1_000_000,
+                memoria / (1024.0 * 1024.0), (double) memoria / grafo.getQuantidadeLigacoes());
+
+        destino = new int[vizinhosPorLivro];
+        pontuacoes = new float[vizinhosPorLivro];
+        segundoGrau = new int[vizinhosPorLivro * vizinhosPorLivro];
+        aleatorio = new SplittableRandom(7);
+    }
+
+    private int etiquetaSorteada() {
+        return PRIMEIRA_ETIQUETA + aleatorio.nextInt(livros);
+    }
+
+    @Benchmark
+    public int vizinhos(Blackhole bh) {
+        int encontrados = grafo.vizinhos(etiquetaSorteada(), destino, pontuacoes);
+        bh.consume(destino);
+        bh.consume(pontuacoes);
+        return encontrados;
+    }
+
+    @Benchmark
+    public int grau() {
+        return grafo.grau(etiquetaSorteada());
+    }
+
+    @Benchmark
+    public boolean ligados() {
+        return grafo.ligados(etiquetaSorteada(), etiquetaSorteada());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int vizinhosDeSegundoGrau(Blackhole bh) {
+        int encontrados = grafo.vizinhosDeSegundoGrau(etiquetaSorteada(), segundoGrau);
+        bh.consume(segundoGrau);
+        return encontrados;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean incluirEExcluirLigacao() {
+        int livro = etiquetaSorteada();
+        int semelhante = etiquetaSorteada();
+        grafo.adicionarLigacao(livro, semelhante, 0.5f);
+        return grafo.excluirLigacao(livro, semelhante);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(GrafoSimilaresBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opcoes).run();
+    }
+}
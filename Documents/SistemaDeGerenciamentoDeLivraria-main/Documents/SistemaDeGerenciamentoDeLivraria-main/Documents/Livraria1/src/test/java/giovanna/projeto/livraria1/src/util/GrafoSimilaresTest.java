@@ -0,0 +1,176 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.util.GrafoSimilares;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes das consultas e das alterações do {@link GrafoSimilares}.
+ *
+ * @author giova
+ */
+public class GrafoSimilaresTest {
+
+    private static final float DELTA = 1e-6f;
+
+    /**
+     * Livros 10 a 60; 10 → 20 (0,5), 30 (manual), 40 (0,9); 20 → 30, 50;
+     * 40 → 10, 60.
+     */
+    private static GrafoSimilares exemplo() {
+        GrafoSimilares.Construtor construtor = new GrafoSimilares.Construtor(6, 7);
+        for (int etiqueta = 10; etiqueta <= 60; etiqueta += 10) {
+            construtor.adicionarLivro(etiqueta);
+        }
+        construtor.adicionarLigacao(10, 20, 0.5f);
+        construtor.adicionarLigacao(10, 30, Float.NaN);
+        construtor.adicionarLigacao(10, 40, 0.9f);
+        construtor.adicionarLigacao(20, 30, 0.4f);
+        construtor.adicionarLigacao(20, 50, 0.3f);
+        construtor.adicionarLigacao(40, 10, 0.9f);
+        construtor.adicionarLigacao(40, 60, 0.6f);
+        return construtor.construir();
+    }
+
+    @Test
+    void testVizinhosNaOrdemDaTela() {
+        GrafoSimilares grafo = exemplo();
+
+        int[] etiquetas = new int[2];
+        float[] pontuacoes = new float[2];
+        Assertions.assertEquals(3, grafo.vizinhos(10, etiquetas, pontuacoes), "Devolve o total mesmo com o destino menor.");
+        Assertions.assertArrayEquals(new int[]{30, 40}, etiquetas);
+        Assertions.assertTrue(Float.isNaN(pontuacoes[0]), "Manual primeiro.");
+        Assertions.assertEquals(0.9f, pontuacoes[1], DELTA);
+
+        Assertions.assertArrayEquals(new int[]{30, 40, 20}, grafo.vizinhos(10));
+        Assertions.assertEquals(3, grafo.grau(10));
+        Assertions.assertEquals(0, grafo.grau(30));
+        Assertions.assertEquals(0, grafo.grau(99));
+        Assertions.assertTrue(grafo.ligados(10, 40));
+        Assertions.assertFalse(grafo.ligados(30, 10), "As ligações têm direção.");
+        Assertions.assertEquals(6, grafo.getQuantidadeLivros());
+        Assertions.assertEquals(7, grafo.getQuantidadeLigacoes());
+    }
+
+    @Test
+    void testVizinhosDeSegundoGrauSemRepetirNemOsDiretos() {
+        GrafoSimilares grafo = exemplo();
+        int[] destino = new int[10];
+
+        int encontrados = grafo.vizinhosDeSegundoGrau(10, destino);
+
+        // 30 não tem vizinhos; 40 → 10 (o próprio) e 60; 20 → 30 (direto) e 50
+        Assertions.assertArrayEquals(new int[]{60, 50}, Arrays.copyOf(destino, encontrados));
+        Assertions.assertEquals(1, grafo.vizinhosDeSegundoGrau(10, new int[1]), "Para quando o destino enche.");
+        Assertions.assertEquals(0, grafo.vizinhosDeSegundoGrau(99, destino));
+    }
+
+    @Test
+    void testAlteracoesDepoisDaCarga() {
+        GrafoSimilares grafo = exemplo();
+
+        grafo.adicionarLigacao(10, 50, 0.7f);
+        grafo.adicionarLigacao(10, 20, Float.NaN); // Passa a ser manual
+        grafo.adicionarLigacao(70, 10, 0.8f); // Livro novo
+        Assertions.assertTrue(grafo.excluirLigacao(10, 40));
+        Assertions.assertFalse(grafo.excluirLigacao(10, 40));
+
+        int[] etiquetas = new int[4];
+        float[] pontuacoes = new float[4];
+        Assertions.assertEquals(3, grafo.vizinhos(10, etiquetas, pontuacoes));
+        Assertions.assertArrayEquals(new int[]{20, 30, 50, 0}, etiquetas, "Manuais pela ordem da linha, depois a pontuação.");
+        Assertions.assertEquals(0.7f, pontuacoes[2], DELTA);
+        Assertions.assertArrayEquals(new int[]{10}, grafo.vizinhos(70));
+        Assertions.assertEquals(7, grafo.getQuantidadeLivros());
+
+        grafo.substituirLigacoes(20, new int[]{60, 10}, new float[]{0.3f, 0.6f}, 2);
+        Assertions.assertArrayEquals(new int[]{10, 60}, grafo.vizinhos(20));
+    }
+
+    @Test
+    void testLivroExcluidoSomeDasConsultas() {
+        GrafoSimilares grafo = exemplo();
+
+        grafo.excluirLivro(40);
+
+        Assertions.assertFalse(grafo.contem(40));
+        Assertions.assertArrayEquals(new int[]{30, 20}, grafo.vizinhos(10));
+        Assertions.assertEquals(2, grafo.grau(10));
+        Assertions.assertFalse(grafo.ligados(10, 40));
+        Assertions.assertArrayEquals(new int[0], grafo.vizinhos(40));
+        Assertions.assertEquals(5, grafo.getQuantidadeLivros());
+
+        grafo.compactar();
+        Assertions.assertEquals(4, grafo.getQuantidadeLigacoes(), "A compactação descarta as ligações para o excluído.");
+        Assertions.assertArrayEquals(new int[]{30, 20}, grafo.vizinhos(10));
+    }
+
+    @Test
+    void testLigacoesForaDeOrdemSaoRecusadas() {
+        GrafoSimilares.Construtor construtor = new GrafoSimilares.Construtor(2, 2);
+        construtor.adicionarLivro(1);
+        construtor.adicionarLivro(2);
+        construtor.adicionarLigacao(2, 1, 0.5f);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> construtor.adicionarLigacao(1, 2, 0.5f));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> construtor.adicionarLigacao(2, 3, 0.5f));
+        Assertions.assertThrows(IllegalStateException.class, () -> construtor.adicionarLivro(3));
+    }
+
+    @Test
+    void testAlteracoesAleatoriasIguaisAUmMapa() {
+        Random aleatorio = new Random(7);
+        int livros = 3000;
+        GrafoSimilares.Construtor construtor = new GrafoSimilares.Construtor(livros, 0);
+        Map<Integer, Map<Integer, Integer>> esperado = new HashMap<>();
+        for (int etiqueta = 1; etiqueta <= livros; etiqueta++) {
+            construtor.adicionarLivro(etiqueta);
+            esperado.put(etiqueta, new LinkedHashMap<>());
+        }
+        for (int etiqueta = 1; etiqueta <= livros; etiqueta++) {
+            for (int v = 0; v < 5; v++) {
+                int semelhante = 1 + aleatorio.nextInt(livros);
+                if (esperado.get(etiqueta).putIfAbsent(semelhante, 20 + v) == null) {
+                    construtor.adicionarLigacao(etiqueta, semelhante, (20 + v) / 100f);
+                }
+            }
+        }
+        GrafoSimilares grafo = construtor.construir();
+
+        // Altera bem mais que um oitavo das linhas, o que força compactações no meio
+        for (int i = 0; i < 20_000; i++) {
+            int livro = 1 + aleatorio.nextInt(livros);
+            int semelhante = 1 + aleatorio.nextInt(livros);
+            if (aleatorio.nextBoolean()) {
+                int pontuacao = aleatorio.nextInt(101);
+                grafo.adicionarLigacao(livro, semelhante, pontuacao / 100f);
+                esperado.get(livro).put(semelhante, pontuacao);
+            } else {
+                Assertions.assertEquals(esperado.get(livro).remove(semelhante) != null, grafo.excluirLigacao(livro, semelhante));
+            }
+        }
+
+        long ligacoes = 0;
+        int[] etiquetas = new int[livros];
+        float[] pontuacoes = new float[livros];
+        for (int livro = 1; livro <= livros; livro++) {
+            Map<Integer, Integer> linha = esperado.get(livro);
+            ligacoes += linha.size();
+            int encontrados = grafo.vizinhos(livro, etiquetas, pontuacoes);
+            Assertions.assertEquals(linha.size(), encontrados, "Livro " + livro);
+            for (int v = 0; v < encontrados; v++) {
+                Assertions.assertEquals(linha.get(etiquetas[v]) / 100f, pontuacoes[v], DELTA);
+                if (v > 0) {
+                    Assertions.assertTrue(pontuacoes[v - 1] >= pontuacoes[v], "Da maior para a menor pontuação.");
+                }
+            }
+        }
+        Assertions.assertEquals(ligacoes, grafo.getQuantidadeLigacoes());
+    }
+}
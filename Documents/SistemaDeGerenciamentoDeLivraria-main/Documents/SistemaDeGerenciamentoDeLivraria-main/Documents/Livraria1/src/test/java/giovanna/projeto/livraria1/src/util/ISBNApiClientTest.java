@@ -0,0 +1,214 @@
+package giovanna.projeto.livraria1.src.util;
+
+import com.sun.net.httpserver.HttpServer;
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.util.CacheISBN;
+import giovanna.projeto.livraria1.util.Disjuntor;
+import giovanna.projeto.livraria1.util.DisjuntorAbertoException;
+import giovanna.projeto.livraria1.util.ISBNApiClient;
+import giovanna.projeto.livraria1.util.LeitorOpenLibrary;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do {@link ISBNApiClient} contra um servidor HTTP local que imita a
+ * busca da Open Library.
+ *
+ * @author giova
+ */
+public class ISBNApiClientTest {
+
+    private static final String ISBN = "9788535910667";
+    private static final String RESPOSTA_ENCONTRADO = "{\"numFound\":1,\"docs\":[{\"title\":\"Dom Casmurro\","
+            + "\"author_name\":[\"Machado de Assis\"],\"publisher\":[\"Garnier\"],\"publish_date\":[\"1899\"],"
+            + "\"subject\":[\"Romance\"],\"isbn\":[\"" + ISBN + "\"]}]}";
+    private static final String RESPOSTA_VAZIA = "{\"numFound\":0,\"docs\":[]}";
+
+    private HttpServer servidor;
+    private final Deque<Integer> codigos = new ArrayDeque<>(); // Códigos a responder antes do 200
+    private final AtomicInteger requisicoes = new AtomicInteger();
+    private volatile String corpo = RESPOSTA_ENCONTRADO;
+    private volatile long atrasoMs;
+    private Path diretorio;
+
+    @BeforeEach
+    void iniciarServidor() throws IOException {
+        diretorio = Files.createTempDirectory("isbn-teste");
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/search.json", troca -> {
+            requisicoes.incrementAndGet();
+            if (atrasoMs > 0) {
+                try {
+                    Thread.sleep(atrasoMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Integer codigo;
+            synchronized (codigos) {
+                codigo = codigos.poll();
+            }
+            if (codigo != null) {
+                troca.sendResponseHeaders(codigo, -1);
+                troca.close();
+                return;
+            }
+            byte[] dados = corpo.getBytes(StandardCharsets.UTF_8);
+            String aceita = troca.getRequestHeaders().getFirst("Accept-Encoding");
+            if (aceita != null && aceita.contains("gzip")) {
+                dados = gzip(dados);
+                troca.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            troca.getResponseHeaders().add("Content-Type", "application/json");
+            troca.sendResponseHeaders(200, dados.length);
+            try (OutputStream saida = troca.getResponseBody()) {
+                saida.write(dados);
+            }
+        });
+        servidor.setExecutor(Executors.newCachedThreadPool());
+        servidor.start();
+    }
+
+    @AfterEach
+    void pararServidor() {
+        servidor.stop(0);
+    }
+
+    private ISBNApiClient criarCliente(CacheISBN cache) {
+        String url = "http://127.0.0.1:" + servidor.getAddress().getPort() + "/search.json?isbn=";
+        return new ISBNApiClient(url, Duration.ofSeconds(2), Duration.ofSeconds(2), 3, Duration.ofMillis(10), cache);
+    }
+
+    private CacheISBN criarCache() {
+        return new CacheISBN(diretorio.resolve("cache.jsonl"), Duration.ofDays(1), Duration.ofHours(1), 100);
+    }
+
+    @Test
+    void testBuscaLivroComRespostaCompactada() {
+        Livro livro = criarCliente(null).buscarLivroPorISBN("978-85-359-1066-7").join();
+
+        Assertions.assertNotNull(livro, "O livro deve ser encontrado.");
+        Assertions.assertEquals("Dom Casmurro", livro.getTitulo());
+        Assertions.assertEquals("Machado de Assis", livro.getAutor());
+        Assertions.assertEquals(ISBN, livro.getIsbn(), "O ISBN deve vir normalizado.");
+    }
+
+    @Test
+    void testIsbnInvalidoNaoConsultaAApi() {
+        CompletableFuture<Livro> consulta = criarCliente(null).buscarLivroPorISBN("9788535910663");
+
+        CompletionException erro = Assertions.assertThrows(CompletionException.class, consulta::join);
+        Assertions.assertTrue(erro.getCause() instanceof IllegalArgumentException);
+        Assertions.assertEquals(0, requisicoes.get(), "ISBN com dígito verificador errado não chega à rede.");
+    }
+
+    @Test
+    void testRepeteAposErroDoServidor() {
+        synchronized (codigos) {
+            codigos.add(503);
+            codigos.add(429);
+        }
+
+        Livro livro = criarCliente(null).buscarLivroPorISBN(ISBN).join();
+
+        Assertions.assertNotNull(livro, "O livro deve ser encontrado na terceira tentativa.");
+        Assertions.assertEquals(3, requisicoes.get());
+    }
+
+    @Test
+    void testFalhaAposEsgotarTentativas() {
+        synchronized (codigos) {
+            codigos.add(500);
+            codigos.add(500);
+            codigos.add(500);
+        }
+        CacheISBN cache = criarCache();
+
+        Assertions.assertThrows(CompletionException.class, () -> criarCliente(cache).buscarLivroPorISBN(ISBN).join());
+        Assertions.assertEquals(3, requisicoes.get());
+        Assertions.assertEquals(0, cache.getTamanho(), "Falhas não devem ser guardadas no cache.");
+    }
+
+    @Test
+    void testNaoEncontradoFicaNoCache() {
+        corpo = RESPOSTA_VAZIA;
+        ISBNApiClient cliente = criarCliente(criarCache());
+
+        Assertions.assertNull(cliente.buscarLivroPorISBN(ISBN).join());
+        Assertions.assertNull(cliente.buscarLivroPorISBN(ISBN).join());
+
+        Assertions.assertEquals(1, requisicoes.get(), "A segunda consulta deve ser respondida pelo cache.");
+        Assertions.assertEquals(1, cliente.getCache().getAcertosNaoEncontrado());
+    }
+
+    @Test
+    void testConsultasSimultaneasCompartilhamARequisicao() {
+        atrasoMs = 200;
+        ISBNApiClient cliente = criarCliente(null);
+
+        List<CompletableFuture<Livro>> consultas = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            consultas.add(cliente.buscarLivroPorISBN(ISBN));
+        }
+        List<Livro> livros = new ArrayList<>();
+        for (CompletableFuture<Livro> consulta : consultas) {
+            livros.add(consulta.join());
+        }
+
+        Assertions.assertEquals(1, requisicoes.get(), "Consultas simultâneas do mesmo ISBN devem gerar uma requisição.");
+        Assertions.assertEquals(4, cliente.getConsultasCompartilhadas());
+        Assertions.assertFalse(livros.get(0) == livros.get(1), "Cada chamador deve receber sua própria cópia.");
+        Assertions.assertEquals("Dom Casmurro", livros.get(4).getTitulo());
+    }
+
+    @Test
+    void testDisjuntorRecusaConsultasAposFalhas() {
+        synchronized (codigos) {
+            for (int i = 0; i < 10; i++) {
+                codigos.add(503);
+            }
+        }
+        Disjuntor disjuntor = new Disjuntor("Teste", 4, 2, 0.5, Duration.ofSeconds(5), 1.0, Duration.ofMinutes(1), 1);
+        String url = "http://127.0.0.1:" + servidor.getAddress().getPort() + "/search.json?isbn=";
+        ISBNApiClient cliente = new ISBNApiClient(url, Duration.ofSeconds(2), Duration.ofSeconds(2), 3, Duration.ofMillis(10),
+                null, disjuntor, LeitorOpenLibrary.Modo.STREAMING, null);
+
+        // Duas tentativas com 503 abrem o disjuntor; a terceira é recusada sem requisição
+        CompletionException erro = Assertions.assertThrows(CompletionException.class,
+                () -> cliente.buscarLivroPorISBN(ISBN).join());
+        Assertions.assertTrue(erro.getCause() instanceof DisjuntorAbertoException, "Esperado disjuntor aberto: " + erro.getCause());
+        Assertions.assertEquals(2, requisicoes.get());
+        Assertions.assertEquals(Disjuntor.Estado.ABERTO, disjuntor.getEstado());
+
+        Assertions.assertThrows(CompletionException.class, () -> cliente.buscarLivroPorISBN("9780140449136").join());
+        Assertions.assertEquals(2, requisicoes.get(), "Com o disjuntor aberto, nenhuma requisição deve ser feita.");
+        Assertions.assertEquals(2, disjuntor.getMetricas().get(Disjuntor.Estado.ABERTO).getRecusadas());
+    }
+
+    private static byte[] gzip(byte[] dados) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        try (GZIPOutputStream compactador = new GZIPOutputStream(saida)) {
+            compactador.write(dados);
+        }
+        return saida.toByteArray();
+    }
+}
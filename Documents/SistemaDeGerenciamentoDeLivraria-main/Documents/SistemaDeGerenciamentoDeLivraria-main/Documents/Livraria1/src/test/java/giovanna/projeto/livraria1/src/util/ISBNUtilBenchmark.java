@@ -0,0 +1,75 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.util.ISBNUtil;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compara a validação e a normalização de ISBN anteriores (tamanho e
+ * {@code matches("\\d+")} em {@code LivroService.validarLivro},
+ * {@code replaceAll} em {@code CacheISBN.normalizar}) com o
+ * {@link ISBNUtil}, que além disso confere o dígito verificador.
+ *
+ * <p>
+ * Mede o tempo por chamada e, com o {@link GCProfiler}, a memória alocada
+ * por chamada ({@code gc.alloc.rate.norm}). Para executar:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=giovanna.projeto.livraria1.src.util.ISBNUtilBenchmark}
+ * (ou "Run File" na IDE).
+ * </p>
+ *
+ * @author giova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ISBNUtilBenchmark {
+
+    @Param({"9780306406157", "978-0-306-40615-7", "0306406152", "9780306406158"})
+    private String isbn;
+
+    @Benchmark
+    public boolean validacaoAnterior() {
+        return isbn.length() == 13 && isbn.matches("\\d+");
+    }
+
+    @Benchmark
+    public boolean validacao() {
+        return ISBNUtil.valido(isbn);
+    }
+
+    @Benchmark
+    public String normalizacaoAnterior() {
+        return isbn.replaceAll("[^0-9Xx]", "").toUpperCase();
+    }
+
+    @Benchmark
+    public String normalizacao() {
+        return ISBNUtil.paraIsbn13(isbn);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(ISBNUtilBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opcoes).run();
+    }
+}
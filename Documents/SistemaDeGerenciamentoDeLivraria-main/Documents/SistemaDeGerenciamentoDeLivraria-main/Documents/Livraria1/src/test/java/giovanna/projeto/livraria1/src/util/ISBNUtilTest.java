@@ -0,0 +1,55 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.util.ISBNUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes da validação e da conversão de ISBN do {@link ISBNUtil}.
+ *
+ * @author giova
+ */
+public class ISBNUtilTest {
+
+    @Test
+    void testValidaDigitoVerificador() {
+        Assertions.assertTrue(ISBNUtil.valido("9780306406157"));
+        Assertions.assertTrue(ISBNUtil.valido("978-0-306-40615-7"));
+        Assertions.assertTrue(ISBNUtil.valido(" 978 0 306 40615 7 "));
+        Assertions.assertTrue(ISBNUtil.valido("0306406152"));
+        Assertions.assertTrue(ISBNUtil.valido("0-8044-2957-X"));
+        Assertions.assertTrue(ISBNUtil.valido(new StringBuilder("080442957x")));
+
+        Assertions.assertFalse(ISBNUtil.valido("9780306406158"), "Dígito verificador errado.");
+        Assertions.assertFalse(ISBNUtil.valido("0306406153"), "Dígito verificador errado.");
+        Assertions.assertFalse(ISBNUtil.valido("97803064061571"), "Dígitos demais.");
+        Assertions.assertFalse(ISBNUtil.valido("978030640615"), "Dígitos de menos.");
+        Assertions.assertFalse(ISBNUtil.valido("97803064O6157"), "Letra no lugar de dígito.");
+        Assertions.assertFalse(ISBNUtil.valido("08044295X7"), "X fora da última posição.");
+        Assertions.assertFalse(ISBNUtil.valido("978030640615X"), "X em ISBN-13.");
+        Assertions.assertFalse(ISBNUtil.valido(""));
+        Assertions.assertFalse(ISBNUtil.valido(null));
+    }
+
+    @Test
+    void testConverte() {
+        Assertions.assertEquals(9780306406157L, ISBNUtil.paraNumero("0-306-40615-2"));
+        Assertions.assertEquals("9780306406157", ISBNUtil.paraIsbn13("0306406152"));
+        Assertions.assertEquals("9780804429573", ISBNUtil.paraIsbn13("080442957X"));
+        Assertions.assertEquals("9780140449136", ISBNUtil.paraIsbn13("0140449132"));
+        Assertions.assertEquals("0306406152", ISBNUtil.paraIsbn10("978-0-306-40615-7"));
+        Assertions.assertEquals("080442957X", ISBNUtil.paraIsbn10("9780804429573"));
+        Assertions.assertNull(ISBNUtil.paraIsbn10("9791034304581"), "Prefixo 979 não tem ISBN-10.");
+        Assertions.assertNull(ISBNUtil.paraIsbn13("123"));
+        Assertions.assertEquals("0000000000017", ISBNUtil.formatar(17));
+    }
+
+    @Test
+    void testCompacta() {
+        String compacto = "9780306406157";
+        Assertions.assertSame(compacto, ISBNUtil.compactar(compacto));
+        Assertions.assertEquals("080442957X", ISBNUtil.compactar("0-8044-2957-x"));
+        Assertions.assertEquals("123", ISBNUtil.compactar("ISBN 1.2.3"));
+        Assertions.assertEquals("", ISBNUtil.compactar(null));
+    }
+}
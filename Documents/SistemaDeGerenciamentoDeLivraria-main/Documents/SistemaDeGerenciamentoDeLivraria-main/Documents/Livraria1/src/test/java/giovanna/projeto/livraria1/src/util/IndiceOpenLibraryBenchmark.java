@@ -0,0 +1,129 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.services.IndiceOpenLibraryService;
+import giovanna.projeto.livraria1.util.IndiceOpenLibrary;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Mede a consulta ao {@link IndiceOpenLibrary} (busca binária no arquivo de
+ * chaves mapeado e leitura do registro) de ISBNs presentes e ausentes, num
+ * índice gerado pelo {@link IndiceOpenLibraryService} a partir de um dump
+ * sintético com {@code quantidade} edições.
+ *
+ * <p>
+ * Os ISBNs consultados são sorteados, para que as páginas lidas variem como
+ * nas consultas reais; com o índice inteiro no cache de páginas do sistema,
+ * o resultado mede a busca, não o disco. Para executar:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=giovanna.projeto.livraria1.src.util.IndiceOpenLibraryBenchmark}
+ * (ou "Run File" na IDE).
+ * </p>
+ *
+ * @author giova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndiceOpenLibraryBenchmark {
+
+    private static final int CONSULTAS = 4096; // Potência de 2, para sortear com máscara
+
+    @Param({"100000", "1000000"})
+    private int quantidade;
+
+    private Path pasta;
+    private IndiceOpenLibrary indice;
+    private String[] presentes;
+    private String[] ausentes;
+    private int proxima;
+
+    @Setup
+    public void gerar() throws Exception {
+        pasta = Files.createTempDirectory("indice-benchmark");
+        Path edicoes = pasta.resolve("edicoes.txt.gz");
+        try (Writer saida = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(edicoes)), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < quantidade; i++) {
+                saida.write("/type/edition\t/books/OL" + i + "M\t1\t2024-01-01T00:00:00\t{\"title\":\"Livro " + i
+                        + "\",\"by_statement\":\"Autor " + i % 1000 + "\",\"publishers\":[\"Editora\"],"
+                        + "\"publish_date\":\"1999\",\"isbn_13\":[\"" + isbn13(978000000000L + i * 2L) + "\"]}\n");
+            }
+        }
+        new IndiceOpenLibraryService().gerarIndice(edicoes, null, pasta.resolve("indice"), null);
+        indice = IndiceOpenLibrary.abrir(pasta.resolve("indice"));
+
+        Random sorteio = new Random(42);
+        presentes = new String[CONSULTAS];
+        ausentes = new String[CONSULTAS];
+        for (int i = 0; i < CONSULTAS; i++) {
+            long edicao = sorteio.nextInt(quantidade);
+            presentes[i] = isbn13(978000000000L + edicao * 2);
+            ausentes[i] = isbn13(978000000000L + edicao * 2 + 1); // Entre dois ISBNs indexados
+        }
+    }
+
+    @TearDown
+    public void apagar() throws IOException {
+        try (Stream<Path> arquivos = Files.walk(pasta)) {
+            for (Path arquivo : (Iterable<Path>) arquivos.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(arquivo);
+            }
+        }
+    }
+
+    @Benchmark
+    public Livro buscarPresente() {
+        return indice.buscar(presentes[proxima++ & (CONSULTAS - 1)]);
+    }
+
+    @Benchmark
+    public Livro buscarAusente() {
+        return indice.buscar(ausentes[proxima++ & (CONSULTAS - 1)]);
+    }
+
+    // Completa os 12 primeiros dígitos com o dígito verificador
+    private static String isbn13(long prefixo) {
+        String digitos = Long.toString(prefixo);
+        int soma = 0;
+        for (int i = 0; i < 12; i++) {
+            soma += (digitos.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digitos + (10 - soma % 10) % 10;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(IndiceOpenLibraryBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opcoes).run();
+    }
+}
@@ -0,0 +1,139 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.services.IndiceOpenLibraryService;
+import giovanna.projeto.livraria1.util.IndiceOpenLibrary;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testes da geração, da consulta e da reabertura do {@link IndiceOpenLibrary},
+ * a partir de dumps pequenos no formato da Open Library.
+ *
+ * @author giova
+ */
+public class IndiceOpenLibraryTest {
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void testGerarEConsultar() throws Exception {
+        Path edicoes = pasta.resolve("edicoes.txt.gz");
+        Path autores = pasta.resolve("autores.txt.gz");
+        try (Writer saida = gzip(autores)) {
+            linha(saida, "/type/author", "/authors/OL1A", "{\"key\":\"/authors/OL1A\",\"name\":\"Machado de Assis\"}");
+        }
+        try (Writer saida = gzip(edicoes)) {
+            linha(saida, "/type/edition", "/books/OL1M", "{\"key\":\"/books/OL1M\",\"title\":\"Dom Casmurro\","
+                    + "\"authors\":[{\"key\":\"/authors/OL1A\"}],\"publishers\":[\"Garnier\"],"
+                    + "\"publish_date\":\"1899\",\"subjects\":[\"Romance\",\"Ficção\"],\"isbn_13\":[\"978-85-359-1066-7\"]}");
+            linha(saida, "/type/edition", "/books/OL2M", "{\"key\":\"/books/OL2M\",\"title\":\"The Odyssey\","
+                    + "\"by_statement\":\"Homer.\",\"isbn_10\":[\"0140449132\"],\"notes\":{\"type\":\"/type/text\",\"value\":\"x\"}}");
+            linha(saida, "/type/edition", "/books/OL3M", "{\"key\":\"/books/OL3M\",\"title\":\"Sem ISBN\"}");
+            // Edições suficientes para gerar várias rodadas por thread
+            for (int i = 0; i < 500; i++) {
+                linha(saida, "/type/edition", "/books/OL" + (100 + i) + "M", "{\"title\":\"Livro " + i
+                        + "\",\"isbn_13\":[\"" + isbn13(978000000000L + i * 7919L) + "\"]}");
+            }
+            linha(saida, "/type/edition", "/books/OL4M", "{\"title\":\"Linha inválida\",\"isbn_13\":[");
+        }
+
+        long quantidade = new IndiceOpenLibraryService(2, 16).gerarIndice(edicoes, autores, pasta.resolve("indice"), null);
+        Assertions.assertEquals(502, quantidade);
+
+        IndiceOpenLibrary indice = IndiceOpenLibrary.abrir(pasta.resolve("indice"));
+        Assertions.assertNotNull(indice);
+        Assertions.assertEquals(502, indice.getQuantidade());
+
+        Livro dom = indice.buscar("9788535910667");
+        Assertions.assertEquals("Dom Casmurro", dom.getTitulo());
+        Assertions.assertEquals("Machado de Assis", dom.getAutor());
+        Assertions.assertEquals("Garnier", dom.getEditora());
+        Assertions.assertEquals("Romance", dom.getGeneroNome());
+        Assertions.assertEquals("9788535910667", dom.getIsbn());
+
+        // ISBN-10 indexado como ISBN-13 e consultado por qualquer dos dois
+        Assertions.assertEquals("Homer", indice.buscar("9780140449136").getAutor());
+        Assertions.assertEquals("The Odyssey", indice.buscar("0-14-044913-2").getTitulo());
+
+        for (int i = 0; i < 500; i += 37) {
+            Assertions.assertEquals("Livro " + i, indice.buscar(isbn13(978000000000L + i * 7919L)).getTitulo());
+        }
+        Assertions.assertNull(indice.buscar("9780306406157"));
+        Assertions.assertNull(indice.buscar("123"));
+    }
+
+    @Test
+    void testRecusaArquivosDeGeracoesDiferentes() throws Exception {
+        Path edicoes = pasta.resolve("edicoes.txt.gz");
+        try (Writer saida = gzip(edicoes)) {
+            linha(saida, "/type/edition", "/books/OL1M", "{\"title\":\"Dom Casmurro\",\"isbn_13\":[\"9788535910667\"]}");
+        }
+        IndiceOpenLibraryService servico = new IndiceOpenLibraryService(1, 16);
+        servico.gerarIndice(edicoes, null, pasta.resolve("a"), null);
+        servico.gerarIndice(edicoes, null, pasta.resolve("b"), null);
+        Assertions.assertNotNull(IndiceOpenLibrary.abrir(pasta.resolve("b")));
+
+        // Simula uma substituição interrompida entre os dois arquivos
+        Files.copy(pasta.resolve("a").resolve(IndiceOpenLibrary.ARQUIVO_REGISTROS),
+                pasta.resolve("b").resolve(IndiceOpenLibrary.ARQUIVO_REGISTROS), StandardCopyOption.REPLACE_EXISTING);
+        Assertions.assertNull(IndiceOpenLibrary.abrir(pasta.resolve("b")));
+    }
+
+    @Test
+    void testReabreQuandoOIndiceEGeradoDeNovo() throws Exception {
+        Path edicoes = pasta.resolve("edicoes.txt.gz");
+        Path indiceDir = pasta.resolve("indice");
+        IndiceOpenLibraryService servico = new IndiceOpenLibraryService(1, 16);
+        IndiceOpenLibrary acompanhado = IndiceOpenLibrary.acompanhar(indiceDir);
+        Assertions.assertEquals(0, acompanhado.getQuantidade(), "Ainda sem índice na pasta.");
+
+        try (Writer saida = gzip(edicoes)) {
+            linha(saida, "/type/edition", "/books/OL1M", "{\"title\":\"Dom Casmurro\",\"isbn_13\":[\"9788535910667\"]}");
+        }
+        servico.gerarIndice(edicoes, null, indiceDir, null);
+        IndiceOpenLibrary indice = IndiceOpenLibrary.abrir(indiceDir, Duration.ZERO);
+        Assertions.assertEquals("Dom Casmurro", indice.buscar("9788535910667").getTitulo());
+        Assertions.assertNull(indice.buscar("9780140449136"));
+
+        try (Writer saida = gzip(edicoes)) {
+            linha(saida, "/type/edition", "/books/OL1M", "{\"title\":\"Dom Casmurro (2ª ed.)\",\"isbn_13\":[\"9788535910667\"]}");
+            linha(saida, "/type/edition", "/books/OL2M", "{\"title\":\"The Odyssey\",\"isbn_10\":[\"0140449132\"]}");
+        }
+        servico.gerarIndice(edicoes, null, indiceDir, null);
+
+        Assertions.assertEquals("Dom Casmurro (2ª ed.)", indice.buscar("9788535910667").getTitulo(), "A nova geração é usada.");
+        Assertions.assertEquals("The Odyssey", indice.buscar("9780140449136").getTitulo());
+        Assertions.assertEquals(2, indice.getQuantidade());
+        Assertions.assertEquals(0, acompanhado.getQuantidade(), "Só confere a geração depois do intervalo padrão.");
+    }
+
+    private static Writer gzip(Path arquivo) throws IOException {
+        return new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(arquivo)), StandardCharsets.UTF_8);
+    }
+
+    private static void linha(Writer saida, String tipo, String chave, String json) throws IOException {
+        saida.write(tipo + "\t" + chave + "\t1\t2024-01-01T00:00:00\t" + json + "\n");
+    }
+
+    // Completa os 12 primeiros dígitos com o dígito verificador
+    private static String isbn13(long prefixo) {
+        String digitos = Long.toString(prefixo);
+        int soma = 0;
+        for (int i = 0; i < 12; i++) {
+            soma += (digitos.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digitos + (10 - soma % 10) % 10;
+    }
+}
@@ -0,0 +1,95 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.util.LeitorCsv;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do {@link LeitorCsv}: campos entre aspas, separadores e quebras de
+ * linha dentro de campos e registros malformados.
+ *
+ * @author giova
+ */
+public class LeitorCsvTest {
+
+    private static LeitorCsv leitor(String csv) throws IOException {
+        return new LeitorCsv(new StringReader(csv));
+    }
+
+    @Test
+    void testDetectaOSeparador() throws IOException {
+        try (LeitorCsv csv = leitor("titulo;autor;isbn\nDom Casmurro;Machado de Assis;9788535910667\n")) {
+            Assertions.assertEquals(';', csv.getSeparador());
+            Assertions.assertEquals(List.of("titulo", "autor", "isbn"), csv.proximoRegistro());
+            Assertions.assertEquals(List.of("Dom Casmurro", "Machado de Assis", "9788535910667"), csv.proximoRegistro());
+            Assertions.assertNull(csv.proximoRegistro());
+        }
+        try (LeitorCsv csv = leitor("titulo,autor\n\"Memórias; póstumas\",Machado\n")) {
+            Assertions.assertEquals(',', csv.getSeparador(), "Separadores entre aspas não contam.");
+        }
+    }
+
+    @Test
+    void testCamposEntreAspas() throws IOException {
+        try (LeitorCsv csv = leitor("a;b;c\n\"Dom Casmurro\";\"O \"\"Bruxo\"\" do Cosme Velho\";\"\"\n")) {
+            csv.proximoRegistro();
+            Assertions.assertEquals(List.of("Dom Casmurro", "O \"Bruxo\" do Cosme Velho", ""), csv.proximoRegistro());
+        }
+    }
+
+    @Test
+    void testSeparadorEQuebraDeLinhaDentroDoCampo() throws IOException {
+        try (LeitorCsv csv = leitor("titulo;sinopse;isbn\r\n\"Dom Casmurro\";\"Bentinho; Capitu\r\ne Escobar\";9788535910667\r\nfim;;\r\n")) {
+            Assertions.assertEquals(List.of("titulo", "sinopse", "isbn"), csv.proximoRegistro());
+            Assertions.assertEquals(List.of("Dom Casmurro", "Bentinho; Capitu\r\ne Escobar", "9788535910667"), csv.proximoRegistro());
+            Assertions.assertEquals(2, csv.getLinhaRegistro());
+            Assertions.assertEquals(List.of("fim", "", ""), csv.proximoRegistro());
+            Assertions.assertEquals(4, csv.getLinhaRegistro(), "A quebra dentro do campo conta como linha do arquivo.");
+            Assertions.assertNull(csv.proximoRegistro());
+        }
+    }
+
+    @Test
+    void testBomUltimaLinhaSemQuebraELinhaVazia() throws IOException {
+        try (LeitorCsv csv = leitor("\uFEFFtitulo;isbn\n\nDom Casmurro;9788535910667")) {
+            Assertions.assertEquals(List.of("titulo", "isbn"), csv.proximoRegistro());
+            Assertions.assertEquals(List.of(""), csv.proximoRegistro());
+            Assertions.assertEquals(List.of("Dom Casmurro", "9788535910667"), csv.proximoRegistro());
+            Assertions.assertNull(csv.proximoRegistro());
+        }
+    }
+
+    @Test
+    void testCampoMaiorQueOBuffer() throws IOException {
+        String longo = "x".repeat(100_000) + "\n" + "y".repeat(100_000);
+        try (LeitorCsv csv = new LeitorCsv(new StringReader("\"" + longo + "\";fim\n"), ';')) {
+            Assertions.assertEquals(List.of(longo, "fim"), csv.proximoRegistro());
+            Assertions.assertNull(csv.proximoRegistro());
+        }
+    }
+
+    @Test
+    void testAspasNaoFechadas() throws IOException {
+        try (LeitorCsv csv = leitor("titulo;isbn\nok;1\n\"Dom Casmurro;9788535910667\noutro;2\n")) {
+            csv.proximoRegistro();
+            csv.proximoRegistro();
+            IOException erro = Assertions.assertThrows(IOException.class, csv::proximoRegistro);
+            Assertions.assertTrue(erro.getMessage().contains("linha 3"), erro.getMessage());
+        }
+    }
+
+    @Test
+    void testRegistrosMalformadosSaoLidosComoEstao() throws IOException {
+        try (LeitorCsv csv = leitor("a;b;c\nsó um\num;dois;três;quatro\nDom \"Casmurro\";x\n\"Dom\" Casmurro;y\n")) {
+            csv.proximoRegistro();
+            Assertions.assertEquals(List.of("só um"), csv.proximoRegistro(), "A quantidade de campos é conferida por quem lê.");
+            Assertions.assertEquals(List.of("um", "dois", "três", "quatro"), csv.proximoRegistro());
+            Assertions.assertEquals(List.of("Dom \"Casmurro\"", "x"), csv.proximoRegistro(), "Aspas no meio do campo são texto.");
+            Assertions.assertEquals(List.of("Dom Casmurro", "y"), csv.proximoRegistro(), "Texto após as aspas continua o campo.");
+            Assertions.assertNull(csv.proximoRegistro());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.util.LeitorOpenLibrary;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compara os modos do {@link LeitorOpenLibrary} (streaming e databind) nas
+ * respostas gravadas em {@code src/test/resources/openlibrary}, cujo nome é o
+ * ISBN consultado: uma obra comum, uma obra com centenas de edições e uma
+ * resposta vazia.
+ *
+ * <p>
+ * Mede o tempo por leitura e, com o {@link GCProfiler}, a memória alocada por
+ * leitura ({@code gc.alloc.rate.norm}). Para executar:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=giovanna.projeto.livraria1.src.util.LeitorOpenLibraryBenchmark}
+ * (ou "Run File" na IDE). Para comparar com outras respostas, grave-as com
+ * {@code curl --compressed 'https://openlibrary.org/search.json?isbn=<ISBN>' > <ISBN>.json}
+ * na mesma pasta e acrescente o ISBN em {@code isbn}.
+ * </p>
+ *
+ * @author giova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeitorOpenLibraryBenchmark {
+
+    @Param({"9788535910667", "9780140449136", "9780306406157"})
+    private String isbn;
+
+    @Param({"STREAMING", "DATABIND"})
+    private LeitorOpenLibrary.Modo modo;
+
+    private byte[] resposta;
+
+    @Setup
+    public void carregar() throws IOException {
+        try (InputStream entrada = LeitorOpenLibraryBenchmark.class.getResourceAsStream("/openlibrary/" + isbn + ".json")) {
+            if (entrada == null) {
+                throw new IOException("Resposta gravada ausente: " + isbn);
+            }
+            resposta = entrada.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public Livro ler() throws IOException {
+        return LeitorOpenLibrary.ler(new ByteArrayInputStream(resposta), isbn, modo);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(LeitorOpenLibraryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opcoes).run();
+    }
+}
@@ -0,0 +1,76 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.util.LeitorOpenLibrary;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do {@link LeitorOpenLibrary}: o modo streaming deve produzir o mesmo
+ * livro que o modo databind nas respostas gravadas em
+ * {@code src/test/resources/openlibrary}.
+ *
+ * @author giova
+ */
+public class LeitorOpenLibraryTest {
+
+    @Test
+    void testModosProduzemOMesmoLivro() throws IOException {
+        for (String isbn : new String[]{"9788535910667", "9780140449136"}) {
+            Livro streaming = ler(isbn, LeitorOpenLibrary.Modo.STREAMING);
+            Livro databind = ler(isbn, LeitorOpenLibrary.Modo.DATABIND);
+
+            Assertions.assertNotNull(streaming, "O livro " + isbn + " deve ser encontrado.");
+            Assertions.assertEquals(databind.getTitulo(), streaming.getTitulo());
+            Assertions.assertEquals(databind.getAutor(), streaming.getAutor());
+            Assertions.assertEquals(databind.getEditora(), streaming.getEditora());
+            Assertions.assertEquals(databind.getGeneroNome(), streaming.getGeneroNome());
+            Assertions.assertEquals(databind.getData_publicacao(), streaming.getData_publicacao());
+            Assertions.assertEquals(isbn, streaming.getIsbn());
+        }
+    }
+
+    @Test
+    void testRespostaSemDocumentos() throws IOException {
+        Assertions.assertNull(ler("9780306406157", LeitorOpenLibrary.Modo.STREAMING));
+    }
+
+    @Test
+    void testIgnoraDocumentoDeOutroIsbnECamposForaDeOrdem() throws IOException {
+        String json = "{\"docs\":[{\"title\":\"Outro\",\"isbn\":[\"111\"]},"
+                + "{\"isbn\":[\"222\",\"333\"],\"extra\":{\"a\":[1,{\"b\":2}]},\"title\":\"Certo\","
+                + "\"author_name\":[\"Autora\",\"Coautor\"],\"publish_date\":[\"Jul 16, 2005\"]}]}";
+
+        Livro livro = LeitorOpenLibrary.ler(texto(json), "333", LeitorOpenLibrary.Modo.STREAMING);
+
+        Assertions.assertEquals("Certo", livro.getTitulo());
+        Assertions.assertEquals("Autora", livro.getAutor());
+        Assertions.assertEquals("Editora não disponível", livro.getEditora());
+        Assertions.assertEquals(LocalDate.of(2005, 7, 16), livro.getData_publicacao());
+    }
+
+    @Test
+    void testParaNoDocumentoEncontrado() throws IOException {
+        // O restante da resposta está truncado: só o modo streaming consegue ler
+        String json = "{\"numFound\":2,\"docs\":[{\"title\":\"Certo\",\"isbn\":[\"333\"]},{\"title\":";
+
+        Assertions.assertEquals("Certo", LeitorOpenLibrary.ler(texto(json), "333", LeitorOpenLibrary.Modo.STREAMING).getTitulo());
+        Assertions.assertThrows(IOException.class, () -> LeitorOpenLibrary.ler(texto(json), "333", LeitorOpenLibrary.Modo.DATABIND));
+    }
+
+    private static Livro ler(String isbn, LeitorOpenLibrary.Modo modo) throws IOException {
+        try (InputStream corpo = LeitorOpenLibraryTest.class.getResourceAsStream("/openlibrary/" + isbn + ".json")) {
+            Assertions.assertNotNull(corpo, "Resposta gravada ausente: " + isbn);
+            return LeitorOpenLibrary.ler(corpo, isbn, modo);
+        }
+    }
+
+    private static InputStream texto(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,66 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.util.LimitadorTaxa;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do balde de fichas do {@link LimitadorTaxa}.
+ *
+ * @author giova
+ */
+public class LimitadorTaxaTest {
+
+    @Test
+    void testRajadaPassaDeImediatoEDepoisRecusa() {
+        LimitadorTaxa limitador = new LimitadorTaxa(1, 3);
+
+        Assertions.assertTrue(limitador.tentarAdquirir());
+        Assertions.assertTrue(limitador.tentarAdquirir());
+        Assertions.assertTrue(limitador.tentarAdquirir());
+        Assertions.assertFalse(limitador.tentarAdquirir(), "O balde começa com a rajada e esvazia.");
+    }
+
+    @Test
+    void testFichasRepostasNaTaxaConfigurada() throws InterruptedException {
+        LimitadorTaxa limitador = new LimitadorTaxa(20, 1);
+        Assertions.assertTrue(limitador.tentarAdquirir());
+        Assertions.assertFalse(limitador.tentarAdquirir());
+
+        Thread.sleep(70); // 20 por segundo: uma ficha a cada 50 ms
+        Assertions.assertTrue(limitador.tentarAdquirir());
+        Assertions.assertFalse(limitador.tentarAdquirir());
+    }
+
+    @Test
+    void testReposicaoNaoPassaDaRajada() throws InterruptedException {
+        LimitadorTaxa limitador = new LimitadorTaxa(1000, 2);
+        Thread.sleep(20); // Tempo suficiente para 20 fichas, mas o balde comporta 2
+
+        Assertions.assertTrue(limitador.tentarAdquirir());
+        Assertions.assertTrue(limitador.tentarAdquirir());
+        Assertions.assertFalse(limitador.tentarAdquirir());
+    }
+
+    @Test
+    void testAdquirirEsperaATaxa() throws InterruptedException {
+        LimitadorTaxa limitador = new LimitadorTaxa(50, 1);
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            limitador.adquirir();
+        }
+        long decorrido = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        // A primeira passa na hora; as outras cinco esperam 20 ms cada
+        Assertions.assertTrue(decorrido >= 95, "Deve respeitar a taxa: " + decorrido + " ms");
+        Assertions.assertTrue(decorrido < 1000, "Não deve esperar além do necessário: " + decorrido + " ms");
+    }
+
+    @Test
+    void testParametrosInvalidos() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LimitadorTaxa(0, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LimitadorTaxa(1, 0));
+    }
+}
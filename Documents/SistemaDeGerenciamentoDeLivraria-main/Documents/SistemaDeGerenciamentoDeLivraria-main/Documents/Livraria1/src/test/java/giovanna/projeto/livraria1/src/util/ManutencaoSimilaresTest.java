@@ -0,0 +1,105 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.services.AlteracaoLivro;
+import giovanna.projeto.livraria1.services.ManutencaoSimilares;
+import giovanna.projeto.livraria1.services.ManutencaoSimilares.Pendencia;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes da combinação das alterações de livros feita pela
+ * {@link ManutencaoSimilares}, com a gravação simulada em vez do banco.
+ *
+ * @author giova
+ */
+public class ManutencaoSimilaresTest {
+
+    private static final long ATRASO_MS = 100;
+
+    private final BlockingQueue<List<Pendencia>> gravacoes = new LinkedBlockingQueue<>();
+    private ManutencaoSimilares manutencao = new ManutencaoSimilares(gravacoes::add, ATRASO_MS);
+
+    @AfterEach
+    void encerrar() {
+        manutencao.encerrar();
+    }
+
+    private List<Pendencia> proximaGravacao() throws InterruptedException {
+        return gravacoes.poll(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testAlteracoesSeguidasDoMesmoLivroViramUmaGravacao() throws Exception {
+        manutencao.livroAlterado(AlteracaoLivro.inclusao(10));
+        manutencao.livroAlterado(AlteracaoLivro.alteracao(10));
+        manutencao.livroAlterado(AlteracaoLivro.alteracao(10));
+        manutencao.livroAlterado(AlteracaoLivro.alteracao(20));
+
+        List<Pendencia> lote = proximaGravacao();
+        Assertions.assertNotNull(lote);
+        Assertions.assertEquals(2, lote.size());
+        Assertions.assertEquals(10, lote.get(0).getEtiqueta());
+        Assertions.assertEquals(3, lote.get(0).getAlteracoes());
+        Assertions.assertEquals(20, lote.get(1).getEtiqueta());
+        Assertions.assertEquals(1, lote.get(1).getAlteracoes());
+
+        Assertions.assertNull(gravacoes.poll(3 * ATRASO_MS, TimeUnit.MILLISECONDS), "Nada mais a gravar.");
+    }
+
+    @Test
+    void testExclusaoDescartaAsAlteracoesPendentes() throws Exception {
+        manutencao.livroAlterado(AlteracaoLivro.inclusao(10));
+        manutencao.livroAlterado(AlteracaoLivro.alteracao(10));
+        manutencao.livroAlterado(AlteracaoLivro.exclusao(10));
+
+        Assertions.assertNull(gravacoes.poll(3 * ATRASO_MS, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals(0, manutencao.getPendentes());
+    }
+
+    @Test
+    void testFalhaNaGravacaoNaoInterrompeAsSeguintes() throws Exception {
+        List<Integer> tentativas = new ArrayList<>();
+        manutencao.encerrar();
+        manutencao = new ManutencaoSimilares(pendencias -> {
+            synchronized (tentativas) {
+                tentativas.add(pendencias.get(0).getEtiqueta());
+            }
+            if (pendencias.get(0).getEtiqueta() == 10) {
+                throw new SQLException("Falha simulada");
+            }
+            gravacoes.add(pendencias);
+        }, ATRASO_MS);
+
+        manutencao.livroAlterado(AlteracaoLivro.inclusao(10));
+        Thread.sleep(3 * ATRASO_MS);
+        manutencao.livroAlterado(AlteracaoLivro.inclusao(11));
+
+        List<Pendencia> lote = proximaGravacao();
+        Assertions.assertNotNull(lote);
+        Assertions.assertEquals(11, lote.get(0).getEtiqueta());
+        synchronized (tentativas) {
+            Assertions.assertEquals(List.of(10, 11), tentativas);
+        }
+    }
+
+    @Test
+    void testEncerrarGravaOQueEstaPendente() throws Exception {
+        ManutencaoSimilares lenta = new ManutencaoSimilares(gravacoes::add, 60_000);
+        lenta.livroAlterado(AlteracaoLivro.inclusao(10));
+
+        lenta.encerrar();
+
+        List<Pendencia> lote = gravacoes.poll();
+        Assertions.assertNotNull(lote, "A gravação é feita antes de encerrar, sem esperar o atraso.");
+        Assertions.assertEquals(10, lote.get(0).getEtiqueta());
+        lenta.livroAlterado(AlteracaoLivro.inclusao(11));
+        Assertions.assertEquals(0, lenta.getPendentes());
+    }
+}
@@ -0,0 +1,98 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.util.MotorSimilaridade;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes da pontuação e da busca de vizinhos do {@link MotorSimilaridade}.
+ *
+ * @author giova
+ */
+public class MotorSimilaridadeTest {
+
+    private static final float DELTA = 1e-6f;
+
+    @Test
+    void testPontuacaoSomaOsCriterios() {
+        MotorSimilaridade motor = new MotorSimilaridade();
+        int a = motor.adicionar(1, "O Senhor dos Anéis: A Sociedade do Anel", "J. R. R. Tolkien", "HarperCollins", 3, LocalDate.of(1954, 7, 29));
+        int b = motor.adicionar(2, "O senhor dos aneis - As Duas Torres", "Christopher Tolkien, J. R. R. Tolkien", "Martins Fontes", 3, LocalDate.of(1954, 11, 11));
+        int c = motor.adicionar(3, "Dom Casmurro", "Machado de Assis", "HarperCollins", 7, LocalDate.of(1899, 1, 1));
+        int d = motor.adicionar(4, "Memórias Póstumas", null, null, 0, null);
+        motor.preparar();
+
+        // Gênero, autor, mesma década e as palavras "senhor" e "aneis" de {senhor, aneis, sociedade, anel} e {senhor, aneis, duas, torres}
+        float esperada = MotorSimilaridade.PESO_GENERO + MotorSimilaridade.PESO_AUTOR + MotorSimilaridade.PESO_DECADA
+                + MotorSimilaridade.PESO_TITULO * 2f / 6f;
+        Assertions.assertEquals(esperada, motor.pontuacao(a, b), DELTA);
+        Assertions.assertEquals(motor.pontuacao(a, b), motor.pontuacao(b, a), DELTA);
+        Assertions.assertEquals(MotorSimilaridade.PESO_EDITORA, motor.pontuacao(a, c), DELTA); // Décadas distantes
+        Assertions.assertEquals(0f, motor.pontuacao(a, d), DELTA);
+    }
+
+    @Test
+    void testVizinhosOrdenadosEAcimaDaPontuacaoMinima() {
+        MotorSimilaridade motor = new MotorSimilaridade();
+        motor.adicionar(1, "Fundação", "Isaac Asimov", "Aleph", 1, LocalDate.of(1951, 1, 1));
+        motor.adicionar(2, "Fundação e Império", "Isaac Asimov", "Aleph", 1, LocalDate.of(1952, 1, 1));
+        motor.adicionar(3, "Eu, Robô", "Isaac Asimov", "Aleph", 1, LocalDate.of(1950, 1, 1));
+        motor.adicionar(4, "Duna", "Frank Herbert", "Aleph", 1, LocalDate.of(1965, 1, 1));
+        motor.adicionar(5, "Neuromancer", "William Gibson", "Aleph", 2, LocalDate.of(1984, 1, 1)); // Só a editora
+        motor.preparar();
+
+        MotorSimilaridade.Calculo calculo = motor.novoCalculo();
+        int encontrados = calculo.vizinhos(0, 10);
+
+        Assertions.assertEquals(3, encontrados, "Livros só da mesma editora não são semelhantes.");
+        Assertions.assertEquals(2, motor.getEtiqueta(calculo.getIndice(0)), "Mesmo autor e palavra do título.");
+        Assertions.assertEquals(3, motor.getEtiqueta(calculo.getIndice(1)));
+        Assertions.assertEquals(4, motor.getEtiqueta(calculo.getIndice(2)));
+        Assertions.assertTrue(calculo.getPontuacao(0) > calculo.getPontuacao(1));
+        Assertions.assertTrue(calculo.getPontuacao(1) > calculo.getPontuacao(2));
+
+        Assertions.assertEquals(1, calculo.vizinhos(0, 1), "No máximo k vizinhos.");
+        Assertions.assertEquals(2, motor.getEtiqueta(calculo.getIndice(0)));
+    }
+
+    @Test
+    void testVizinhosIguaisAosDaComparacaoComTodos() {
+        Random aleatorio = new Random(42);
+        String[] palavras = {"noite", "mar", "casa", "sombra", "rio", "vento", "cidade", "amor", "guerra", "tempo", "sol", "lua"};
+        MotorSimilaridade motor = new MotorSimilaridade();
+        int total = 3000;
+        for (int i = 0; i < total; i++) {
+            String titulo = palavras[aleatorio.nextInt(palavras.length)] + " " + palavras[aleatorio.nextInt(palavras.length)] + " " + i;
+            String autor = "Autor " + aleatorio.nextInt(400);
+            String editora = aleatorio.nextInt(5) == 0 ? null : "Editora " + aleatorio.nextInt(60);
+            LocalDate data = aleatorio.nextInt(10) == 0 ? null : LocalDate.of(1900 + aleatorio.nextInt(120), 1, 1);
+            motor.adicionar(i + 1, titulo, autor, editora, 1 + aleatorio.nextInt(6), data);
+        }
+        motor.preparar();
+
+        int k = 8;
+        MotorSimilaridade.Calculo calculo = motor.novoCalculo();
+        for (int i = 0; i < total; i += 7) {
+            List<float[]> todos = new ArrayList<>();
+            for (int j = 0; j < total; j++) {
+                float pontuacao = motor.pontuacao(i, j);
+                if (j != i && pontuacao >= MotorSimilaridade.PONTUACAO_MINIMA) {
+                    todos.add(new float[]{pontuacao, j});
+                }
+            }
+            todos.sort(Comparator.comparingDouble((float[] p) -> -p[0]));
+
+            int encontrados = calculo.vizinhos(i, k);
+            Assertions.assertEquals(Math.min(k, todos.size()), encontrados);
+            for (int v = 0; v < encontrados; v++) {
+                // Empates podem trazer outro livro, mas nunca uma pontuação menor
+                Assertions.assertEquals(todos.get(v)[0], calculo.getPontuacao(v), DELTA, "Livro " + i + ", vizinho " + v);
+            }
+        }
+    }
+}
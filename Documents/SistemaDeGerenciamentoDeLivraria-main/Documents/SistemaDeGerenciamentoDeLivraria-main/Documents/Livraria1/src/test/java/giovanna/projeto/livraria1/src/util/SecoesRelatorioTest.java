@@ -0,0 +1,192 @@
+package giovanna.projeto.livraria1.src.util;
+
+import giovanna.projeto.livraria1.model.Genero;
+import giovanna.projeto.livraria1.model.Livro;
+import giovanna.projeto.livraria1.services.SecoesRelatorio;
+import giovanna.projeto.livraria1.util.ConsultaCancelavel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do carregamento paralelo das seções de um relatório
+ * ({@link SecoesRelatorio}), com seções simuladas em vez do banco.
+ *
+ * @author giova
+ */
+public class SecoesRelatorioTest {
+
+    private static final List<Genero> GENEROS = List.of(
+            new Genero(1, "Aventura"), new Genero(2, "Drama"), new Genero(3, "Romance"), new Genero(4, "Terror"));
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void criarExecutor() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void encerrarExecutor() {
+        executor.shutdownNow();
+    }
+
+    private static List<Livro> livros(Genero genero, int quantidade) {
+        List<Livro> livros = new ArrayList<>();
+        for (int i = 1; i <= quantidade; i++) {
+            Livro livro = new Livro();
+            livro.setTitulo(genero.getNome() + " " + i);
+            livro.setGeneroNome(genero.getNome());
+            livros.add(livro);
+        }
+        return livros;
+    }
+
+    private static List<String> lerTitulos(SecoesRelatorio secoes) throws SQLException {
+        List<String> titulos = new ArrayList<>();
+        for (Livro livro = secoes.proximo(); livro != null; livro = secoes.proximo()) {
+            titulos.add(livro.getTitulo());
+        }
+        return titulos;
+    }
+
+    @Test
+    void testEntregaNaOrdemDosGenerosComConsultasEmParalelo() throws Exception {
+        AtomicInteger simultaneas = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        List<String> avisos = new ArrayList<>();
+
+        SecoesRelatorio.CarregadorSecao carregador = (genero, cancelamento, consumidor) -> {
+            maximo.accumulateAndGet(simultaneas.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(genero.getId() == 1 ? 150 : 30); // A primeira seção é a mais lenta
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            simultaneas.decrementAndGet();
+            livros(genero, genero.getId()).forEach(consumidor);
+        };
+
+        try (SecoesRelatorio secoes = new SecoesRelatorio(GENEROS, executor, carregador,
+                (concluido, total, mensagem) -> avisos.add(concluido + "/" + total))) {
+            List<String> titulos = lerTitulos(secoes);
+
+            Assertions.assertEquals(List.of("Aventura 1", "Drama 1", "Drama 2", "Romance 1", "Romance 2", "Romance 3",
+                    "Terror 1", "Terror 2", "Terror 3", "Terror 4"), titulos);
+            Assertions.assertEquals(10, secoes.getQuantidade());
+            Assertions.assertEquals(4, secoes.getTotalSecoes());
+            Assertions.assertEquals(List.of("0/4", "1/4", "2/4", "3/4", "4/4"), avisos);
+        }
+        Assertions.assertEquals(2, maximo.get(), "As consultas rodam em paralelo, até o limite do executor.");
+    }
+
+    @Test
+    void testFalhaDeUmaSecaoCancelaAsDemais() {
+        AtomicInteger carregadas = new AtomicInteger();
+        SecoesRelatorio.CarregadorSecao carregador = (genero, cancelamento, consumidor) -> {
+            if (genero.getId() == 1) {
+                throw new SQLException("Falha simulada");
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            carregadas.incrementAndGet();
+            livros(genero, 1).forEach(consumidor);
+        };
+
+        try (SecoesRelatorio secoes = new SecoesRelatorio(GENEROS, executor, carregador, null)) {
+            SQLException erro = Assertions.assertThrows(SQLException.class, secoes::proximo);
+            Assertions.assertEquals("Falha simulada", erro.getMessage());
+            Assertions.assertTrue(secoes.isCancelada());
+        }
+        Assertions.assertTrue(carregadas.get() < 3, "As seções que ainda aguardavam não são carregadas.");
+    }
+
+    @Test
+    void testCancelarInterrompeAConsultaEmAndamento() throws Exception {
+        CountDownLatch iniciou = new CountDownLatch(1);
+        List<ConsultaCancelavel> consultas = new ArrayList<>();
+        SecoesRelatorio.CarregadorSecao carregador = (genero, cancelamento, consumidor) -> {
+            synchronized (consultas) {
+                consultas.add(cancelamento);
+            }
+            iniciou.countDown();
+            // Simula a consulta: termina como o banco faz ao receber o cancelamento
+            while (!cancelamento.isCancelada()) {
+                Thread.onSpinWait();
+            }
+            throw new SQLException("Consulta cancelada.", ConsultaCancelavel.SQLSTATE_CANCELADA);
+        };
+
+        SecoesRelatorio secoes = new SecoesRelatorio(GENEROS, executor, carregador, null);
+        Assertions.assertTrue(iniciou.await(1, TimeUnit.SECONDS));
+        secoes.cancelar();
+
+        Assertions.assertThrows(CancellationException.class, secoes::proximo);
+        synchronized (consultas) {
+            Assertions.assertTrue(consultas.size() <= 2, "Seções na fila não chegam a consultar.");
+            for (ConsultaCancelavel consulta : consultas) {
+                Assertions.assertTrue(consulta.isCancelada());
+            }
+        }
+    }
+
+    @Test
+    void testLeituraAFrenteLimitadaPorSecao() throws Exception {
+        AtomicInteger entregues = new AtomicInteger();
+        SecoesRelatorio.CarregadorSecao carregador = (genero, cancelamento, consumidor) -> {
+            for (Livro livro : livros(genero, 50)) {
+                consumidor.accept(livro);
+                entregues.incrementAndGet();
+            }
+        };
+
+        try (SecoesRelatorio secoes = new SecoesRelatorio(GENEROS, executor, carregador, null, 5)) {
+            Thread.sleep(200); // Sem leitura, as consultas param com o buffer cheio
+            Assertions.assertTrue(entregues.get() <= 2 * 5, "Só as seções em andamento leem à frente: " + entregues.get());
+
+            List<String> titulos = lerTitulos(secoes);
+            Assertions.assertEquals(200, titulos.size());
+            Assertions.assertEquals("Aventura 1", titulos.get(0));
+            Assertions.assertEquals("Drama 1", titulos.get(50));
+            Assertions.assertEquals("Terror 50", titulos.get(199));
+        }
+    }
+
+    @Test
+    void testCancelarLiberaSecoesComBufferCheio() throws Exception {
+        SecoesRelatorio.CarregadorSecao carregador = (genero, cancelamento, consumidor) -> livros(genero, 50).forEach(consumidor);
+
+        SecoesRelatorio secoes = new SecoesRelatorio(GENEROS, executor, carregador, null, 5);
+        Assertions.assertEquals("Aventura 1", secoes.proximo().getTitulo());
+        secoes.close();
+
+        // As tarefas paradas no buffer cheio terminam e o executor volta a atender
+        Assertions.assertEquals("ok", CompletableFuture.supplyAsync(() -> "ok", executor)
+                .get(2, TimeUnit.SECONDS));
+        Assertions.assertThrows(CancellationException.class, secoes::proximo);
+    }
+
+    @Test
+    void testJuntarTodasAsSecoes() {
+        List<Livro> livros = SecoesRelatorio.juntar(GENEROS, executor,
+                (genero, cancelamento, consumidor) -> livros(genero, 2).forEach(consumidor)).join();
+
+        Assertions.assertEquals(8, livros.size());
+        Assertions.assertEquals("Aventura 1", livros.get(0).getTitulo());
+        Assertions.assertEquals("Terror 2", livros.get(7).getTitulo());
+    }
+}